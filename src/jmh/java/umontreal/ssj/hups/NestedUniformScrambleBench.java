@@ -0,0 +1,74 @@
+/*
+ * Class:        NestedUniformScrambleBench
+ * Description:  JMH benchmarks of nested uniform scrambling
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.hups;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import umontreal.ssj.rng.MRG32k3a;
+
+/**
+ * Time taken by one nested uniform scrambling of a Sobol point set, with
+ * the sequential method (`threads` = 0) and with the parallel method for
+ * several numbers of threads. Run with, e.g.,
+ * <tt>-PjmhArgs='NestedUniformScrambleBench -p threads=0,1,8,16'</tt> to
+ * measure the speedup on a given machine.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class NestedUniformScrambleBench {
+
+   @Param({"16", "20"})
+   public int logN;
+
+   @Param({"64"})
+   public int dim;
+
+   @Param({"0", "1", "2", "4", "8"})
+   public int threads;
+
+   SobolSequence sobol;
+   MRG32k3a stream;
+   double[][] output;
+
+   @Setup
+   public void setup() {
+      sobol = new SobolSequence (logN, 31, dim);
+      stream = new MRG32k3a();
+      output = new double[1 << logN][dim];
+   }
+
+   @Benchmark
+   public double[][] scramble() {
+      if (threads == 0)
+         sobol.nestedUniformScramble (stream, output, 0);
+      else
+         sobol.nestedUniformScramble (stream, output, 0, threads);
+      return output;
+   }
+}
@@ -0,0 +1,101 @@
+/*
+ * Class:        PointSetIteratorBench
+ * Description:  JMH benchmarks of the iteration over point sets
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.hups;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import umontreal.ssj.rng.MRG32k3a;
+
+/**
+ * Throughput of the enumeration of the points of Sobol (with and without
+ * hashed Owen scrambling), Korobov and Halton point sets by their
+ * iterators and by  PointSet.fillPoints, measured in points per second.
+ * The iterator goes back to the first point when it reaches the end of the
+ * point set.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PointSetIteratorBench {
+   static final int LOG_N = 16;
+   static final int BLOCK = 1024;
+
+   @Param({"Sobol", "SobolOwen", "Korobov", "Halton"})
+   public String pointSet;
+
+   @Param({"4", "32"})
+   public int dim;
+
+   PointSet p;
+   PointSetIterator iter;
+   double[] point;
+   double[] block;
+
+   @Setup
+   public void setup() {
+      if (pointSet.equals ("Sobol"))
+         p = new SobolSequence (LOG_N, 31, dim);
+      else if (pointSet.equals ("SobolOwen")) {
+         p = new SobolSequence (LOG_N, 31, dim);
+         new HashedOwenScrambling (new MRG32k3a()).randomize (p);
+      }
+      else if (pointSet.equals ("Korobov"))
+         p = new KorobovLattice (65521, 17364, dim);   // n is prime
+      else if (pointSet.equals ("Halton"))
+         p = new HaltonSequence (dim);
+      else
+         throw new IllegalArgumentException ("Unknown point set " + pointSet);
+      iter = p.iterator();
+      point = new double[dim];
+      block = new double[BLOCK * dim];
+   }
+
+   @Benchmark
+   public double[] nextPoint() {
+      if (!iter.hasNextPoint())
+         iter.resetCurPointIndex();
+      iter.nextPoint (point, dim);
+      return point;
+   }
+
+   @Benchmark
+   public double nextCoordinate() {
+      if (!iter.hasNextCoordinate())
+         iter.resetToNextPoint();
+      if (!iter.hasNextPoint())
+         iter.resetCurPointIndex();
+      return iter.nextCoordinate();
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BLOCK)
+   public double[] fillPoints() {
+      p.fillPoints (0, BLOCK, dim, block, PointSet.Layout.COLUMN_MAJOR);
+      return block;
+   }
+}
@@ -0,0 +1,95 @@
+/*
+ * Class:        InverseFBench
+ * Description:  JMH benchmarks of the inversion of continuous distributions
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.probdist;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import umontreal.ssj.rng.MRG32k3a;
+
+/**
+ * Throughput of the method `inverseF` of common continuous distributions,
+ * and of  @ref NormalDist.inverseF01. The arguments are taken in turn from
+ * a fixed array of uniforms, so that they cannot be constant-folded.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class InverseFBench {
+   static final int MASK = 1023;
+
+   @Param({"Normal", "Exponential", "Gamma", "Beta", "Lognormal",
+           "Weibull", "Student", "ChiSquare", "FisherF", "Uniform",
+           "Triangular", "Pareto", "Logistic", "Cauchy", "Gumbel",
+           "Erlang", "InverseGaussian", "Laplace", "Rayleigh",
+           "Loglogistic"})
+   public String distribution;
+
+   ContinuousDistribution dist;
+   double[] u = new double[MASK + 1];
+   int i;
+
+   @Setup
+   public void setup() {
+      dist = create (distribution);
+      new MRG32k3a().nextArrayOfDouble (u, 0, u.length);
+   }
+
+   static ContinuousDistribution create (String name) {
+      if (name.equals ("Normal"))          return new NormalDist (0, 1);
+      if (name.equals ("Exponential"))     return new ExponentialDist (1);
+      if (name.equals ("Gamma"))           return new GammaDist (2.5, 1);
+      if (name.equals ("Beta"))            return new BetaDist (2, 3);
+      if (name.equals ("Lognormal"))       return new LognormalDist (0, 1);
+      if (name.equals ("Weibull"))         return new WeibullDist (1.5);
+      if (name.equals ("Student"))         return new StudentDist (5);
+      if (name.equals ("ChiSquare"))       return new ChiSquareDist (4);
+      if (name.equals ("FisherF"))         return new FisherFDist (4, 7);
+      if (name.equals ("Uniform"))         return new UniformDist (0, 1);
+      if (name.equals ("Triangular"))      return new TriangularDist (0, 1, 0.3);
+      if (name.equals ("Pareto"))          return new ParetoDist (3);
+      if (name.equals ("Logistic"))        return new LogisticDist (0, 1);
+      if (name.equals ("Cauchy"))          return new CauchyDist (0, 1);
+      if (name.equals ("Gumbel"))          return new GumbelDist (1, 0);
+      if (name.equals ("Erlang"))          return new ErlangDist (3, 1);
+      if (name.equals ("InverseGaussian")) return new InverseGaussianDist (1, 2);
+      if (name.equals ("Laplace"))         return new LaplaceDist (0, 1);
+      if (name.equals ("Rayleigh"))        return new RayleighDist (1);
+      if (name.equals ("Loglogistic"))     return new LoglogisticDist (3, 1);
+      throw new IllegalArgumentException ("Unknown distribution " + name);
+   }
+
+   @Benchmark
+   public double inverseF() {
+      return dist.inverseF (u[i++ & MASK]);
+   }
+
+   @Benchmark
+   public double normalInverseF01() {
+      return NormalDist.inverseF01 (u[i++ & MASK]);
+   }
+}
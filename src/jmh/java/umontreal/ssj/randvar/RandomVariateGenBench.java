@@ -0,0 +1,99 @@
+/*
+ * Class:        RandomVariateGenBench
+ * Description:  JMH benchmarks of the random variate generators
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.randvar;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import umontreal.ssj.rng.MRG32k3a;
+import umontreal.ssj.rng.RandomStream;
+
+/**
+ * Throughput of the method `nextDouble` of the main
+ * @ref RandomVariateGen subclasses, with  @ref MRG32k3a as the source of
+ * uniforms. The inversion generators (`NormalGen`, `GammaGen`, ...) can be
+ * compared with the special methods for the same distribution.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RandomVariateGenBench {
+
+   @Param({"NormalGen", "NormalACRGen", "NormalBoxMullerGen",
+           "NormalPolarGen", "NormalKindermannRamageGen", "ExponentialGen",
+           "GammaGen", "GammaAcceptanceRejectionGen",
+           "GammaRejectionLoglogisticGen", "BetaGen",
+           "BetaRejectionLoglogisticGen", "BetaStratifiedRejectionGen",
+           "StudentGen", "StudentPolarGen", "ChiSquareGen", "LognormalGen",
+           "WeibullGen", "ErlangConvolutionGen", "PoissonGen",
+           "PoissonTIACGen", "BinomialGen", "GeometricGen"})
+   public String generator;
+
+   RandomVariateGen gen;
+
+   @Setup
+   public void setup() {
+      gen = create (generator, new MRG32k3a());
+   }
+
+   static RandomVariateGen create (String name, RandomStream s) {
+      if (name.equals ("NormalGen"))         return new NormalGen (s);
+      if (name.equals ("NormalACRGen"))      return new NormalACRGen (s);
+      if (name.equals ("NormalBoxMullerGen")) return new NormalBoxMullerGen (s);
+      if (name.equals ("NormalPolarGen"))    return new NormalPolarGen (s);
+      if (name.equals ("NormalKindermannRamageGen"))
+         return new NormalKindermannRamageGen (s);
+      if (name.equals ("ExponentialGen"))    return new ExponentialGen (s, 1);
+      if (name.equals ("GammaGen"))          return new GammaGen (s, 2.5, 1);
+      if (name.equals ("GammaAcceptanceRejectionGen"))
+         return new GammaAcceptanceRejectionGen (s, 2.5, 1);
+      if (name.equals ("GammaRejectionLoglogisticGen"))
+         return new GammaRejectionLoglogisticGen (s, 2.5, 1);
+      if (name.equals ("BetaGen"))           return new BetaGen (s, 2, 3);
+      if (name.equals ("BetaRejectionLoglogisticGen"))
+         return new BetaRejectionLoglogisticGen (s, 2, 3);
+      if (name.equals ("BetaStratifiedRejectionGen"))
+         return new BetaStratifiedRejectionGen (s, 2, 3);
+      if (name.equals ("StudentGen"))        return new StudentGen (s, 5);
+      if (name.equals ("StudentPolarGen"))   return new StudentPolarGen (s, 5);
+      if (name.equals ("ChiSquareGen"))      return new ChiSquareGen (s, 4);
+      if (name.equals ("LognormalGen"))      return new LognormalGen (s);
+      if (name.equals ("WeibullGen"))        return new WeibullGen (s, 1.5);
+      if (name.equals ("ErlangConvolutionGen"))
+         return new ErlangConvolutionGen (s, 3, 1);
+      if (name.equals ("PoissonGen"))        return new PoissonGen (s, 10);
+      if (name.equals ("PoissonTIACGen"))    return new PoissonTIACGen (s, 10);
+      if (name.equals ("BinomialGen"))       return new BinomialGen (s, 50, 0.3);
+      if (name.equals ("GeometricGen"))      return new GeometricGen (s, 0.2);
+      throw new IllegalArgumentException ("Unknown generator " + name);
+   }
+
+   @Benchmark
+   public double nextDouble() {
+      return gen.nextDouble();
+   }
+}
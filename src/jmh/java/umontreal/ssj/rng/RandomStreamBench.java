@@ -0,0 +1,77 @@
+/*
+ * Class:        RandomStreamBench
+ * Description:  JMH benchmarks of the random stream generators
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.rng;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Throughput of the  @ref RandomStream implementations: one call to
+ * `nextDouble` or `nextInt`, and one value of an array filled by
+ * `nextArrayOfDouble`.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RandomStreamBench {
+   static final int ARRAY = 1024;
+
+   @Param({"MRG32k3a", "MRG31k3p", "MRG32k3aL", "RandMrg", "LFSR113",
+           "LFSR258", "WELL512", "WELL607", "WELL1024", "F2NL607",
+           "MT19937", "GenF2w32", "RandRijndael", "Philox4x32"})
+   public String generator;
+
+   RandomStream stream;
+   double[] u = new double[ARRAY];
+
+   @Setup
+   public void setup() throws Exception {
+      if (generator.equals ("MT19937"))
+         stream = new MT19937 (new LFSR113());
+      else
+         stream = (RandomStream) Class.forName
+            ("umontreal.ssj.rng." + generator).newInstance();
+   }
+
+   @Benchmark
+   public double nextDouble() {
+      return stream.nextDouble();
+   }
+
+   @Benchmark
+   public int nextInt() {
+      return stream.nextInt (0, 999);
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(ARRAY)
+   public double[] nextArrayOfDouble() {
+      stream.nextArrayOfDouble (u, 0, ARRAY);
+      return u;
+   }
+}
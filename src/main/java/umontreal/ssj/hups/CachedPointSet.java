@@ -180,6 +180,23 @@ public class CachedPointSet extends PointSet {
       }
    }
 
+   /**
+    * Returns a copy of this point set with its own cached points and a
+    * copy of the underlying point set, if any; see  PointSet.clone().
+    *  @return a copy of this point set
+    */
+   public CachedPointSet clone() {
+      CachedPointSet p = (CachedPointSet) super.clone();
+      if (P != null)
+         p.P = P.clone();
+      if (x != null) {
+         p.x = new double[x.length][];
+         for (int i = 0; i < x.length; i++)
+            p.x[i] = x[i].clone();
+      }
+      return p;
+   }
+
 /**
  * Sorts the *cached* points by increasing order of coordinate `j`. This is
  * useful in the ArrayRQMC simulation method, for example. Note that the sort
@@ -124,6 +124,17 @@ public void randomize (PointSetRandomization rand) {
       P.clearRandomShift ();
    }
 
+   /**
+    * Returns a copy of this point set that contains a copy of the
+    * contained point set; see  PointSet.clone().
+    *  @return a copy of this point set
+    */
+   public ContainerPointSet clone() {
+      ContainerPointSet p = (ContainerPointSet) super.clone();
+      p.P = P.clone();
+      return p;
+   }
+
 
    public String toString() {
       return "Container point set of: {" + PrintfFormat.NEWLINE
@@ -113,6 +113,13 @@ public void addRandomShift (int d1, int d2, RandomStream stream) {
       shift = null;
    }
 
+   public CycleBasedPointSet clone() {
+      CycleBasedPointSet p = (CycleBasedPointSet) super.clone();
+      if (shift != null)
+         p.shift = shift.clone();
+      return p;
+   }
+
    /**
     * Adds the cycle `c` to the list of all cycles. This method is used by
     * subclass constructors to fill up the list of cycles.
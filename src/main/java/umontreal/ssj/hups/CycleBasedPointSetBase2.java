@@ -122,6 +122,13 @@ public void addRandomShift (int d1, int d2, RandomStream stream) {
       digitalShift = null;
    }
 
+   public CycleBasedPointSetBase2 clone() {
+      CycleBasedPointSetBase2 p = (CycleBasedPointSetBase2) super.clone();
+      if (digitalShift != null)
+         p.digitalShift = digitalShift.clone();
+      return p;
+   }
+
 
    public String formatPoints() {
       StringBuffer sb = new StringBuffer (toString());
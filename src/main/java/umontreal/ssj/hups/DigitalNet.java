@@ -912,6 +912,22 @@ public void iBinomialMatrixScrambleFaurePermut (RandomStream stream,
       digitalShift = null;
    }
 
+   public DigitalNet clone() {
+      DigitalNet p = (DigitalNet) super.clone();
+      // The scrambles overwrite genMat once originalMat is saved.
+      if (originalMat != null) {
+         p.genMat = new int[genMat.length][];
+         for (int i = 0; i < genMat.length; i++)
+            p.genMat[i] = genMat[i].clone();
+      }
+      if (digitalShift != null) {
+         p.digitalShift = new int[digitalShift.length][];
+         for (int j = 0; j < digitalShift.length; j++)
+            p.digitalShift[j] = digitalShift[j].clone();
+      }
+      return p;
+   }
+
    /**
     * Restores the original generator matrices. This removes the current
     * linear matrix scrambles.
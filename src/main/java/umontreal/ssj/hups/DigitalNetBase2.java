@@ -26,6 +26,11 @@ package umontreal.ssj.hups;
 
 import umontreal.ssj.rng.*;
 import umontreal.ssj.util.*;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A special case of  @ref DigitalNet for the base @f$b=2@f$. The
@@ -51,6 +56,7 @@ public class DigitalNetBase2 extends DigitalNet {
    private int[] originalMat;    // Original matrices, without randomization.
    protected int[] genMat;       // The current generator matrix.
    protected int[] digitalShift;   // Stores the digital shift vector.
+   protected int[] owenSeed;       // Seeds of the hashed Owen scrambling.
 
 /**
  * Prints the generator matrices as bit matrices in standard form for
@@ -115,7 +121,9 @@ public void printGeneratorMatrices (int s) {
             res ^= genMat[j*numCols + pos];
          pos++;
       }
-      if (digitalShift != null)
+      if (owenSeed != null)
+         return owenScrambledDouble (res, owenSeed[j]);
+      else if (digitalShift != null)
          return res * normFactor + EpsilonHalf;
       else
          return res * normFactor;
@@ -133,7 +141,9 @@ public void printGeneratorMatrices (int s) {
             res ^= genMat[j*numCols + pos];
          pos++;
       }
-      if (digitalShift != null)
+      if (owenSeed != null)
+         return owenScrambledDouble (res, owenSeed[j]);
+      else if (digitalShift != null)
          return res * normFactor + EpsilonHalf;
       else
          return res * normFactor;
@@ -152,6 +162,65 @@ public PointSetIterator iteratorNoGray() {
    }
 
 
+   public void fillPoints (int from, int n, int d, double[] out,
+                           Layout layout) {
+      checkFillPoints (from, n, d, out);
+      if (n == 0)
+         return;
+      if (digitalShift != null && dimShift < d)
+         addRandomShift (dimShift, d, shiftStream);
+      int strideI = layout == Layout.ROW_MAJOR ? d : 1;
+      int strideJ = layout == Layout.ROW_MAJOR ? 1 : n;
+      final int[] mat = genMat;
+      int[] revMat = null;
+      final double norm = normFactor;
+      final double eps = digitalShift == null ? 0.0 : 0.5 * normFactor;
+      final int end = from + n;
+      int grayCode = from ^ (from >> 1);
+      // Each coordinate is computed in its own loop, with the Gray code.
+      for (int j = 0; j < d; j++) {
+         final int start = j * numCols;
+         int x = digitalShift == null ? 0 : digitalShift[j];
+         for (int pos = 0; (grayCode >> pos) != 0; pos++)
+            if (((grayCode >> pos) & 1) != 0)
+               x ^= mat[start + pos];
+         int k = j * strideJ;
+         if (owenSeed != null) {
+            // Since the bit reversal commutes with the xor, the coordinate
+            // is kept reversed, which saves one reversal per point.
+            final int seed = owenSeed[j];
+            final int align = 32 - outDigits;
+            if (revMat == null)
+               revMat = new int[numCols];
+            for (int c = 0; c < numCols; c++)
+               revMat[c] = Integer.reverse (mat[start + c] << align);
+            int xr = Integer.reverse (x << align);
+            for (int i = from + 1; i < end; i++) {
+               out[k] = (toDouble (owenHashReversed (xr, seed) & 0xffffffffL)
+                         + 0.5) * INV_TWO32;
+               k += strideI;
+               xr ^= revMat[Integer.numberOfTrailingZeros (i)];
+            }
+            out[k] = (toDouble (owenHashReversed (xr, seed) & 0xffffffffL)
+                      + 0.5) * INV_TWO32;
+            continue;
+         }
+         for (int i = from + 1; i < end; i++) {
+            out[k] = toDouble (x) * norm + eps;
+            k += strideI;
+            x ^= mat[start + Integer.numberOfTrailingZeros (i)];
+         }
+         out[k] = toDouble (x) * norm + eps;
+      }
+   }
+
+   // Converts 0 <= x < 2^52 exactly to a double. In the loops of
+   // fillPoints, this is much faster than a cast, which creates a false
+   // dependency between the successive conversions.
+   static double toDouble (long x) {
+      return Double.longBitsToDouble (0x4330000000000000L | x) - 0x1p52;
+   }
+
    public String toString() {
       StringBuffer sb = new StringBuffer ("DigitalNetBase2:" +
                               PrintfFormat.NEWLINE);
@@ -490,6 +559,16 @@ public PointSetIterator iteratorNoGray() {
     *  The implementation is an adaptation of that found in
     *  [SAMPLE PACKage](http://www.uni-kl.de/AG-Heinrich/SamplePack.html)
     *  by Thomas Kollig and Alexander Keller.
+    *  The work space, of about @f$8n@f$ bytes for @f$n@f$ points, is kept
+    *  and reused by later calls unless the garbage collector needs the memory.
+    *  To scramble the coordinates in parallel, see
+    *  @link nestedUniformScramble(RandomStream,double[][],int,int)
+    *  nestedUniformScramble(stream, output, numBits, numThreads) @endlink.
+    *
+    *  For a given stream, the points may differ from those of earlier
+    *  versions of SSJ, which drew one random bit too few for some
+    *  differences between consecutive sorted coordinates, and could
+    *  return values @f$\ge1@f$ when fewer than 31 output bits were used.
     *
     *  @param stream    Random stream used to randomize the bits.
     *  @param output    Output array that will store the randomized points.  The
@@ -508,59 +587,276 @@ public PointSetIterator iteratorNoGray() {
       if (numBits == 0)
          numBits = outDigits;
 
-      int[] poslist = new int[2 * numPoints];
-      int[] bvlist = new int[2 * numPoints];
+      NUSBuffers buf = takeNUSBuffers();
+      for (int j = 0; j < dim; ++j)
+         nestedUniformScramble (j, stream, output, numBits, buf);
+      releaseNUSBuffers (buf);
+   }
+
+   /**
+    * Applies Owen's nested uniform scrambling as in
+    * @link nestedUniformScramble(RandomStream,double[][],int)
+    * nestedUniformScramble(stream, output, numBits) @endlink, but
+    * scrambles the dimensions in parallel using `numThreads` threads.
+    * Coordinate @f$j@f$ is scrambled with its own copy of `stream`,
+    * advanced by @f$j+1@f$ calls to `resetNextSubstream()`, so that the
+    * scrambled points do not depend on `numThreads` nor on the order in
+    * which the threads run. On return, `stream` has been advanced by
+    * @f$s+1@f$ calls to `resetNextSubstream()`, where @f$s@f$ is the
+    * dimension, so successive calls use disjoint substreams. The
+    * scrambled points differ from those of the sequential method, which
+    * takes all the random bits directly from `stream`.
+    *
+    * The threads are those of
+    * @ref umontreal.ssj.util.ParallelLoop.getDefault(), which are reused
+    * from one call to the next. Each thread uses about @f$8n@f$ bytes of
+    * work space, where @f$n@f$ is the number of points. This work space is kept by the
+    * DigitalNetBase2 object and reused by later calls, unless the
+    * memory is needed by the garbage collector.
+    *
+    *  @param stream       random stream used to randomize the bits; it
+    *                      must implement  @ref umontreal.ssj.rng.CloneableRandomStream.
+    *  @param output       output array that will store the randomized
+    *                      points, as in the sequential method.
+    *  @param numBits      number of output bits to scramble, as in the
+    *                      sequential method.
+    *  @param numThreads   number of threads (at least 1); a good choice
+    *                      is <tt>Runtime.getRuntime().availableProcessors()</tt>.
+    *  @exception IllegalArgumentException if `stream` is not cloneable or
+    *                      if `numThreads` is smaller than 1.
+    */
+   public void nestedUniformScramble (RandomStream stream,
+                                      final double[][] output, int numBits,
+                                      int numThreads) {
+      assert output.length == numPoints;
+      assert output.length > 0;
+      assert output[0].length == dim;
+      if (!(stream instanceof CloneableRandomStream))
+         throw new IllegalArgumentException (
+            "stream must implement CloneableRandomStream");
+      if (numThreads < 1)
+         throw new IllegalArgumentException ("numThreads must be >= 1");
+
+      if (numBits == 0)
+         numBits = outDigits;
+      final int nb = numBits;
+
+      // One substream per coordinate, created before any work starts.
+      CloneableRandomStream cs = (CloneableRandomStream) stream;
+      final RandomStream[] streams = new RandomStream[dim];
+      for (int j = 0; j < dim; j++) {
+         cs.resetNextSubstream();
+         streams[j] = cs.clone();
+      }
+      cs.resetNextSubstream();
+
+      // One chunk per thread; each one takes the next coordinate to scramble.
+      numThreads = Math.max (1, Math.min (numThreads, dim));
+      final AtomicInteger nextDim = new AtomicInteger();
+      ParallelLoop.getDefault().run (numThreads, numThreads,
+         new ParallelLoop.Task() {
+         public void run (int t, int lo, int hi) {
+            NUSBuffers buf = takeNUSBuffers();
+            int j;
+            while ((j = nextDim.getAndIncrement()) < dim)
+               nestedUniformScramble (j, streams[j], output, nb, buf);
+            releaseNUSBuffers (buf);
+         }
+      });
+   }
+
+   // Work space of nestedUniformScramble for one thread.
+   private static class NUSBuffers {
+      int[] key;        // sorted coordinates, left-aligned on 31 bits
+      int[] pos;        // point index of each sorted coordinate
+      int[] key2;       // radix sort buffers, allocated only when needed
+      int[] pos2;
       int[] counts = new int[256];
-      int[] binpos = new int[256];
-
-      for (int j = 0; j < dim; ++j) {
-         bvlist[0] = 0;
-         poslist[0] = 0;
-         for (int i = 1; i < numPoints; i++) {
-            // Gray code order (could be optional)
-            // We could have used a point set iterator here, but the iterator computes all
-            // coordinates at once and we need only one at a time.
-            int pos = 0;
-            int bv = 1;
-            while ((i & bv) == 0) {
-               pos++;
-               bv <<= 1;
-            }
-            bvlist[i] = bvlist[i - 1] ^ genMat[j * numCols + pos];
-            poslist[i] = i;
+
+      NUSBuffers (int n) {
+         key = new int[n];
+         pos = new int[n];
+      }
+   }
+
+   // Idle work spaces, kept between calls as long as memory allows.
+   private final List<SoftReference<NUSBuffers>> nusBuffers =
+      new ArrayList<SoftReference<NUSBuffers>>();
+
+   private NUSBuffers takeNUSBuffers() {
+      synchronized (nusBuffers) {
+         while (!nusBuffers.isEmpty()) {
+            NUSBuffers buf = nusBuffers.remove (nusBuffers.size() - 1).get();
+            if (buf != null && buf.key.length >= numPoints)
+               return buf;
          }
-         for (int b = 0; b < 4; b++){
-            for (int i = 0; i < 256; i++)
-               counts[i] = 0;
-            int m = (b % 2) * numPoints;
-            int bb = 8 * b;
-            int bv = 0xff << bb;
-            for (int i = 0; i < numPoints; i++)
-              counts[(bvlist[m + i] & bv) >>> bb]++;
-            binpos[0] = (1 - b % 2) * numPoints;
-            for (int i = 0; i < 255; i++)
-              binpos[i + 1] = binpos[i] + counts[i];
-            for (int i = 0; i < numPoints; i++)
-            {
-              int pos = (bvlist[m + i] & bv) >>> bb;
-              int k = binpos[pos]++;
-              bvlist[k] = bvlist[m + i];
-              poslist[k] = poslist[m + i];
+      }
+      return new NUSBuffers (numPoints);
+   }
+
+   private void releaseNUSBuffers (NUSBuffers buf) {
+      synchronized (nusBuffers) {
+         nusBuffers.add (new SoftReference<NUSBuffers> (buf));
+      }
+   }
+
+   // Scrambles coordinate j of all the points.
+   private void nestedUniformScramble (int j, RandomStream stream,
+                                       double[][] output, int numBits,
+                                       NUSBuffers buf) {
+      final int n = numPoints;
+      final int off = j * numCols;
+      final int align = 31 - outDigits;
+      int[] key = buf.key;
+      int[] pos = buf.pos;
+
+      // Sort the points by coordinate j, enumerated in Gray code order.
+      // Usually the first numCols bits of the coordinate take each value
+      // once, so these bits give the rank directly. Otherwise, fall back
+      // to a stable radix sort.
+      boolean sorted = false;
+      if (n == 1 << numCols && numCols <= outDigits) {
+         final int lowBits = outDigits - numCols;
+         Arrays.fill (pos, 0, n, -1);
+         sorted = true;
+         int bv = 0;
+         for (int i = 0; i < n; i++) {
+            if (i > 0)
+               bv ^= genMat[off + Integer.numberOfTrailingZeros (i)];
+            int r = bv >>> lowBits;
+            if (pos[r] >= 0) {
+               sorted = false;
+               break;
             }
+            pos[r] = i;
+            key[r] = bv << align;
          }
-         int bv = randomBitVector(stream, numBits);
-         output[poslist[0]][j] = (bvlist[0] ^ bv) * normFactor + EpsilonHalf;
-         for (int i = 1; i < numPoints; i++) {
-            int bv2 = bvlist[i - 1];
-            bv2 ^= bvlist[i];
-            bv2 = randomBitVector(stream, numBits) & ((int)(1 << (int)Num.log2((double)bv2)) - 1);
-            bv ^= bv2;
-            output[poslist[i]][j] = (bvlist[i] ^ bv) * normFactor + EpsilonHalf;
+      }
+      if (!sorted) {
+         if (buf.key2 == null || buf.key2.length < key.length) {
+            buf.key2 = new int[key.length];
+            buf.pos2 = new int[key.length];
          }
+         int bv = 0;
+         for (int i = 0; i < n; i++) {
+            if (i > 0)
+               bv ^= genMat[off + Integer.numberOfTrailingZeros (i)];
+            key[i] = bv << align;
+            pos[i] = i;
+         }
+         int[] counts = buf.counts;
+         int[] srcKey = key, srcPos = pos, dstKey = buf.key2, dstPos = buf.pos2;
+         for (int b = 0; b < 32; b += 8) {
+            Arrays.fill (counts, 0);
+            for (int i = 0; i < n; i++)
+               counts[(srcKey[i] >>> b) & 0xff]++;
+            int sum = 0;
+            for (int c = 0; c < 256; c++) {
+               int t = counts[c];
+               counts[c] = sum;
+               sum += t;
+            }
+            for (int i = 0; i < n; i++) {
+               int k = counts[(srcKey[i] >>> b) & 0xff]++;
+               dstKey[k] = srcKey[i];
+               dstPos[k] = srcPos[i];
+            }
+            int[] t = srcKey;  srcKey = dstKey;  dstKey = t;
+            t = srcPos;  srcPos = dstPos;  dstPos = t;
+         }
+         // After an even number of passes, the result is in key and pos.
+      }
 
+      // Two successive points share the random bits of their common
+      // prefix, and get new random bits after their first difference.
+      final double norm = 1.0 / (1L << 31);
+      final double eps = EpsilonHalf;
+      int bv = randomBitVector (stream, numBits);
+      output[pos[0]][j] = (key[0] ^ bv) * norm + eps;
+      for (int i = 1; i < n; i++) {
+         int diff = key[i - 1] ^ key[i];
+         if (diff != 0)
+            bv ^= randomBitVector (stream, numBits)
+                  & (Integer.highestOneBit (diff) - 1);
+         else
+            randomBitVector (stream, numBits);   // keep the stream in step
+         output[pos[i]][j] = (key[i] ^ bv) * norm + eps;
       }
    }
 
+   /**
+    * Applies an Owen nested uniform scrambling computed on the fly by a
+    * hash function: the Laine–Karras hash, with the improved constants of
+    * Vegdahl, applied to the reversed bits as done by Burley. For each
+    * coordinate @f$j@f$, a random 32-bit seed is drawn from `stream`. The
+    * bits of each coordinate, read from the most significant one, are
+    * flipped by a hash that depends only on the seed and on the preceding
+    * bits, which is the structure of a nested uniform scrambling; the bits
+    * beyond the @f$w@f$ output digits are randomized as well, so the
+    * coordinates have 32 random bits.
+    *
+    * Unlike  #nestedUniformScramble(RandomStream,double[][]), nothing is
+    * precomputed: the scrambling is applied by the iterators, by
+    * #getCoordinate and by  PointSet.fillPoints, so it only needs one
+    * integer per coordinate and it allows random access to the points.
+    * The hash is a good approximation of a nested uniform scrambling, but
+    * not an exact one. It is applied after the random digital shift, if
+    * any, and after the linear matrix scrambles. It is removed by
+    * #unrandomize.
+    *  @param stream       random number stream used to draw the seeds
+    */
+   public void hashedOwenScramble (RandomStream stream) {
+      // One more seed for the iterators that add the coordinate i/n.
+      int[] seed = new int[dim + 1];
+      for (int j = 0; j <= dim; j++)
+         seed[j] = (stream.nextInt (0, 0xffff) << 16)
+                   | stream.nextInt (0, 0xffff);
+      owenSeed = seed;
+   }
+
+   public void unrandomize() {
+      super.unrandomize();
+      owenSeed = null;
+   }
+
+   public DigitalNetBase2 clone() {
+      DigitalNetBase2 p = (DigitalNetBase2) super.clone();
+      if (originalMat != null)
+         p.genMat = genMat.clone();
+      if (digitalShift != null)
+         p.digitalShift = digitalShift.clone();
+      if (owenSeed != null)
+         p.owenSeed = owenSeed.clone();
+      return p;
+   }
+
+   private static final double INV_TWO32 = 1.0 / (1L << 32);
+
+   // Nested uniform scrambling of the 32 bits of x, keyed by seed. The bits
+   // are reversed so that the hash, which only propagates information
+   // from the low bits to the high bits, makes each bit of x depend on the
+   // more significant ones (Burley, JCGT 2020).
+   static int owenHash (int x, int seed) {
+      return owenHashReversed (Integer.reverse (x), seed);
+   }
+
+   // Same as owenHash, for x already reversed. This is the Laine-Karras
+   // hash with the constants of Vegdahl's improved version.
+   static int owenHashReversed (int x, int seed) {
+      x ^= x * 0x3d20adea;
+      x += seed;
+      x *= (seed >>> 16) | 1;
+      x ^= x * 0x05526c56;
+      x ^= x * 0x53a22864;
+      return Integer.reverse (x);
+   }
+
+   // Scrambles the w-bit coordinate x and returns it in (0, 1).
+   private double owenScrambledDouble (int x, int seed) {
+      int y = owenHash (x << (32 - outDigits), seed);
+      return ((y & 0xffffffffL) + 0.5) * INV_TWO32;
+   }
+
    //-----------------------------------------------------------------------
    private void ScrambleError (String method) {
        throw new UnsupportedOperationException
@@ -642,6 +938,10 @@ public PointSetIterator iteratorNoGray() {
       public double nextCoordinate() {
          if (curPointIndex >= numPoints || curCoordIndex >= dimS)
             outOfBounds();
+         if (owenSeed != null) {
+            int j = curCoordIndex++;
+            return owenScrambledDouble (cachedCurPoint[j], owenSeed[j]);
+         }
          if (digitalShift == null)
             return cachedCurPoint[curCoordIndex++] * normFactor;
          else
@@ -703,7 +1003,10 @@ public PointSetIterator iteratorNoGray() {
       public int nextPoint (double p[], int d){
          if (curPointIndex >= numPoints || d > dimS)
             outOfBounds();
-         if (digitalShift == null) {
+         if (owenSeed != null) {
+            for (int j=0; j < d; j++)
+               p[j] = owenScrambledDouble (cachedCurPoint[j], owenSeed[j]);
+         } else if (digitalShift == null) {
             for (int j=0; j < d; j++)
                p[j] = cachedCurPoint[j] * normFactor;
          } else {
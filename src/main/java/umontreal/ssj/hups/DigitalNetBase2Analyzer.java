@@ -0,0 +1,502 @@
+/*
+ * Class:        DigitalNetBase2Analyzer
+ * Description:  Figures of merit of digital nets in base 2
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.hups;
+
+import umontreal.ssj.util.BitMatrix;
+import umontreal.ssj.util.ParallelLoop;
+
+/**
+ * Computes figures of merit of a digital net in base 2 with
+ * @f$n=2^k@f$ points, from its generator matrices
+ * @f$\mathbf{C}_0, …, \mathbf{C}_{s-1}@f$. The matrices are copied when
+ * the analyzer is constructed; a digital shift does not change any of the
+ * figures of merit below.
+ *
+ * - The @f$t@f$-value of a projection @f$\mathfrak{u}@f$ is the smallest
+ *   @f$t@f$ such that every elementary interval of volume
+ *   @f$2^{t-k}@f$ in the coordinates of @f$\mathfrak{u}@f$ contains
+ *   exactly @f$2^t@f$ points. It is @f$k - d@f$, where @f$d@f$ is the
+ *   largest integer such that, for all @f$d_j\ge0@f$ with
+ *   @f$\sum_{j\in\mathfrak{u}} d_j = d@f$, the first @f$d_j@f$ rows of
+ *   the matrices @f$\mathbf{C}_j@f$ are linearly independent.
+ * - The resolution of a projection @f$\mathfrak{u}@f$ is the largest
+ *   @f$\ell@f$ such that the first @f$\ell@f$ rows of the matrices
+ *   @f$\mathbf{C}_j@f$, @f$j\in\mathfrak{u}@f$, are linearly independent,
+ *   i.e., each of the @f$2^{\ell|\mathfrak{u}|}@f$ cubic boxes of side
+ *   @f$2^{-\ell}@f$ contains the same number of points. Its upper bound
+ *   is @f$\lfloor k/|\mathfrak{u}|\rfloor@f$, and the difference is the
+ *   resolution gap.
+ * - The weighted @f$\mathcal{P}_\alpha@f$ criterion, for @f$\alpha>1@f$,
+ *   is the sum over the nonzero vectors @f$\mathbf{h}@f$ of the dual net
+ *   of @f$\gamma_{\mathfrak{u}(\mathbf{h})} \prod_{j\in\mathfrak{u}
+ *   (\mathbf{h})} 2^{-\alpha\lfloor\log_2 h_j\rfloor}@f$. Summing the
+ *   Walsh series gives
+ *   @f$\mathcal{P}_\alpha = \sum_{\emptyset\ne\mathfrak{u}}
+ *   \gamma_{\mathfrak{u}} n^{-1}\sum_{i=0}^{n-1}
+ *   \prod_{j\in\mathfrak{u}} \phi_\alpha(u_{i,j})@f$, where
+ *   @f$\phi_\alpha(u)@f$ only depends on the position of the first
+ *   nonzero binary digit of @f$u@f$; see
+ *   @ref PolynomialLatticeBuilder. The weights are given as in
+ *   @ref Rank1LatticeBuilder.
+ *
+ * The rows of the generator matrices are stored as 64-bit words, and the
+ * linear independence is tested by Gaussian elimination over
+ * @f$\mathbb F_2@f$ on these words, keeping one basis vector per leading
+ * bit. The compositions @f$(d_j)@f$ are enumerated recursively, adding
+ * and removing one row at a time. The projections of a given order, or the
+ * points for @f$\mathcal{P}_\alpha@f$, are split among the threads.
+ *
+ * <div class="SSJ-bigskip"></div><div class="SSJ-bigskip"></div>
+ */
+public class DigitalNetBase2Analyzer {
+   private int k;                  // number of columns
+   private int w;                  // number of rows
+   private int dim;
+   private long[][] rows;          // rows[j][r]: row r of C_j, bit c = column c
+   private int[] genMat;           // copy of the columns
+   private double alpha = 2.0;
+   private double[] productWeights = {1.0};
+   private double[] orderWeights;  // null for product weights
+   private int numThreads = 1;
+
+   /**
+    * Constructs an analyzer for the current generator matrices of `net`.
+    *  @param net          the digital net
+    */
+   public DigitalNetBase2Analyzer (DigitalNetBase2 net) {
+      k = net.numCols;
+      w = net.outDigits;
+      dim = net.dim;
+      genMat = new int[dim * k];
+      System.arraycopy (net.genMat, 0, genMat, 0, dim * k);
+      rows = new long[dim][w];
+      for (int j = 0; j < dim; j++)
+         for (int c = 0; c < k; c++) {
+            int col = genMat[j * k + c];
+            for (int r = 0; r < w; r++)
+               rows[j][r] |= (long) ((col >>> (w - 1 - r)) & 1) << c;
+         }
+   }
+
+   /**
+    * Returns the generator matrix @f$\mathbf{C}_j@f$, with @f$w@f$ rows
+    * and @f$k@f$ columns.
+    *  @param j            coordinate
+    *  @return the generator matrix of coordinate `j`
+    */
+   public BitMatrix getGeneratorMatrix (int j) {
+      checkCoordinate (j);
+      BitMatrix mat = new BitMatrix (w, k);
+      for (int r = 0; r < w; r++)
+         for (int c = 0; c < k; c++)
+            mat.setBool (r, c, ((rows[j][r] >>> c) & 1) != 0);
+      return mat;
+   }
+
+   /**
+    * Sets the number of threads. The default is 1. The results do not
+    * depend on the number of threads.
+    *  @param numThreads   number of threads
+    */
+   public void setNumThreads (int numThreads) {
+      if (numThreads < 1)
+         throw new IllegalArgumentException ("numThreads must be >= 1");
+      this.numThreads = numThreads;
+   }
+
+   //-----------------------------------------------------------------------
+   // t-values and resolutions.
+
+   /**
+    * Returns the @f$t@f$-value of the projection on the coordinates
+    * `coords`.
+    *  @param coords       distinct coordinates
+    *  @return the @f$t@f$-value of the projection
+    */
+   public int getTValue (int[] coords) {
+      checkProjection (coords);
+      return tValue (coords, new Basis());
+   }
+
+   /**
+    * Returns the @f$t@f$-values of all the projections on `order`
+    * coordinates, in the lexicographic order of the sets of coordinates:
+    * @f$\{0,1,…\}, \{0,2,…\}, …@f$.
+    *  @param order        number of coordinates of the projections
+    *  @return the @f$t@f$-values of these projections
+    */
+   public int[] getTValues (final int order) {
+      return forAllProjections (order, false);
+   }
+
+   /**
+    * Returns, for @f$\ell = 1, …,@f$ `maxOrder`, the largest
+    * @f$t@f$-value of the projections on @f$\ell@f$ coordinates, at
+    * index @f$\ell-1@f$.
+    *  @param maxOrder     largest order of the projections
+    *  @return the largest @f$t@f$-values for each order
+    */
+   public int[] getMaxTValues (int maxOrder) {
+      int[] res = new int[maxOrder];
+      for (int l = 1; l <= maxOrder; l++) {
+         int[] t = getTValues (l);
+         for (int v : t)
+            res[l - 1] = Math.max (res[l - 1], v);
+      }
+      return res;
+   }
+
+   /**
+    * Returns the resolution of the projection on the coordinates
+    * `coords`.
+    *  @param coords       distinct coordinates
+    *  @return the resolution of the projection
+    */
+   public int getResolution (int[] coords) {
+      checkProjection (coords);
+      return resolution (coords, new Basis());
+   }
+
+   /**
+    * Returns the resolutions of all the projections on `order`
+    * coordinates, in the same order as  #getTValues.
+    *  @param order        number of coordinates of the projections
+    *  @return the resolutions of these projections
+    */
+   public int[] getResolutions (int order) {
+      return forAllProjections (order, true);
+   }
+
+   /**
+    * Returns the resolution gaps @f$\lfloor k/d\rfloor - \ell_d@f$ of the
+    * projections on the first @f$d@f$ coordinates, for @f$d = 1, …,@f$
+    * `maxDim`, at index @f$d-1@f$. The net is maximally equidistributed
+    * when they are all 0.
+    *  @param maxDim       largest number of coordinates
+    *  @return the resolution gaps
+    */
+   public int[] getResolutionGaps (int maxDim) {
+      if (maxDim < 1 || maxDim > dim)
+         throw new IllegalArgumentException ("maxDim must be in [1, dim]");
+      int[] gaps = new int[maxDim];
+      for (int d = 1; d <= maxDim; d++) {
+         int[] coords = new int[d];
+         for (int j = 0; j < d; j++)
+            coords[j] = j;
+         gaps[d - 1] = k / d - resolution (coords, new Basis());
+      }
+      return gaps;
+   }
+
+   private int[] forAllProjections (final int order, final boolean res) {
+      if (order < 1 || order > dim)
+         throw new IllegalArgumentException ("order must be in [1, dim]");
+      long count = binomial (dim, order);
+      if (count > Integer.MAX_VALUE)
+         throw new IllegalArgumentException ("Too many projections");
+      final int[] values = new int[(int) count];
+      ParallelLoop.getDefault().run (numThreads, values.length,
+         new ParallelLoop.Task() {
+         public void run (int t, int lo, int hi) {
+            int[] coords = unrank (lo, dim, order);
+            Basis basis = new Basis();
+            for (int i = lo; i < hi; i++) {
+               values[i] = res ? resolution (coords, basis)
+                               : tValue (coords, basis);
+               nextCombination (coords, dim);
+            }
+         }
+      });
+      return values;
+   }
+
+   private int tValue (int[] coords, Basis basis) {
+      int d = 0;
+      while (d < k && allIndependent (coords, 0, d + 1, basis))
+         d++;
+      return k - d;
+   }
+
+   // Whether, for all compositions of remaining rows among the coordinates
+   // coords[idx..], these rows and those in basis are independent.
+   private boolean allIndependent (int[] coords, int idx, int remaining,
+                                   Basis basis) {
+      long[] R = rows[coords[idx]];
+      if (idx == coords.length - 1) {
+         boolean ok = true;
+         int added = 0;
+         for (; added < remaining; added++)
+            if (added >= w || !basis.add (R[added])) {
+               ok = false;
+               break;
+            }
+         basis.remove (added);
+         return ok;
+      }
+      int added = 0;
+      boolean ok = true;
+      for (int dj = 0; dj <= remaining; dj++) {
+         if (dj > 0) {
+            if (dj > w || !basis.add (R[dj - 1])) {
+               ok = false;
+               break;
+            }
+            added++;
+         }
+         if (!allIndependent (coords, idx + 1, remaining - dj, basis)) {
+            ok = false;
+            break;
+         }
+      }
+      basis.remove (added);
+      return ok;
+   }
+
+   private int resolution (int[] coords, Basis basis) {
+      int l = 0, added = 0;
+      int max = Math.min (k / coords.length, w);
+   levels:
+      while (l < max) {
+         for (int j : coords) {
+            if (!basis.add (rows[j][l]))
+               break levels;
+            added++;
+         }
+         l++;
+      }
+      basis.remove (added);
+      return l;
+   }
+
+   // Basis of a subspace of F_2^64, with one vector per leading bit, and
+   // the stack of the leading bits of the vectors added.
+   private static class Basis {
+      private long[] vec = new long[64];
+      private int[] stack = new int[64];
+      private int size;
+
+      // Adds v if it is independent of the basis; returns false otherwise.
+      boolean add (long v) {
+         while (v != 0) {
+            int p = 63 - Long.numberOfLeadingZeros (v);
+            if (vec[p] == 0) {
+               vec[p] = v;
+               stack[size++] = p;
+               return true;
+            }
+            v ^= vec[p];
+         }
+         return false;
+      }
+
+      // Removes the last num vectors added.
+      void remove (int num) {
+         for (; num > 0; num--)
+            vec[stack[--size]] = 0;
+      }
+   }
+
+   //-----------------------------------------------------------------------
+   // P_alpha.
+
+   /**
+    * Sets the value of @f$\alpha@f$ in the criterion
+    * @f$\mathcal{P}_\alpha@f$. The default is 2.
+    *  @param alpha        a real number larger than 1
+    */
+   public void setAlpha (double alpha) {
+      if (!(alpha > 1.0))
+         throw new IllegalArgumentException ("alpha must be > 1");
+      this.alpha = alpha;
+   }
+
+   /**
+    * Uses the product weights @f$\gamma_j@f$ = `gamma[j]` for
+    * @f$\mathcal{P}_\alpha@f$. If there are more coordinates than
+    * weights, the last weight is used for the remaining coordinates.
+    *  @param gamma        the weights of the coordinates
+    */
+   public void setProductWeights (double[] gamma) {
+      if (gamma.length == 0)
+         throw new IllegalArgumentException ("No weights");
+      productWeights = gamma.clone();
+      orderWeights = null;
+   }
+
+   /**
+    * Uses the order-dependent weights @f$\Gamma_\ell@f$ =
+    * `Gamma[`@f$\ell-1@f$`]` for @f$\mathcal{P}_\alpha@f$; the weights
+    * of the orders larger than `Gamma.length` are 0.
+    *  @param Gamma        the weights of the orders 1, 2, …
+    */
+   public void setOrderDependentWeights (double[] Gamma) {
+      if (Gamma.length == 0)
+         throw new IllegalArgumentException ("No weights");
+      orderWeights = Gamma.clone();
+   }
+
+   /**
+    * Returns the weighted criterion @f$\mathcal{P}_\alpha@f$ of the first
+    * @f$s@f$ coordinates. This takes @f$O(sn)@f$ time, or
+    * @f$O(sLn)@f$ with order-dependent weights up to order @f$L@f$.
+    *  @param s            number of coordinates
+    *  @return the value of @f$\mathcal{P}_\alpha@f$
+    */
+   public double getPAlpha (final int s) {
+      if (s < 1 || s > dim)
+         throw new IllegalArgumentException ("s must be in [1, dim]");
+      // phi[t], t = position of the first nonzero digit, t = 0 for 0.
+      double c = Math.pow (2.0, 1.0 - alpha);
+      final double[] phi = new double[w + 1];
+      phi[0] = 1.0 / (1.0 - c);
+      for (int t = 1; t <= w; t++) {
+         double ct = Math.pow (c, t - 1);
+         phi[t] = (1.0 - ct) / (1.0 - c) - ct;
+      }
+      final double[] gamma = new double[s];
+      for (int j = 0; j < s; j++)
+         gamma[j] = productWeights[Math.min (j, productWeights.length - 1)];
+      final int L = orderWeights == null ? 0
+                    : Math.min (s, orderWeights.length);
+
+      // Fixed blocks of points, so that the sum does not depend on the
+      // number of threads.
+      final int blockBits = Math.min (k, 12);
+      final double[] partial = new double[1 << (k - blockBits)];
+      ParallelLoop.getDefault().run (numThreads, partial.length,
+         new ParallelLoop.Task() {
+         public void run (int t, int lo, int hi) {
+            int[] x = new int[s];
+            double[] e = new double[L + 1];
+            for (int b = lo; b < hi; b++) {
+               // Points of the block in Gray code order.
+               int i0 = b << blockBits;
+               int g = i0 ^ (i0 >> 1);
+               for (int j = 0; j < s; j++) {
+                  x[j] = 0;
+                  for (int c = 0; c < k; c++)
+                     if (((g >>> c) & 1) != 0)
+                        x[j] ^= genMat[j * k + c];
+               }
+               double sum = 0.0;
+               for (int i = 0; i < 1 << blockBits; i++) {
+                  if (i > 0) {
+                     int c = Integer.numberOfTrailingZeros (i0 + i);
+                     for (int j = 0; j < s; j++)
+                        x[j] ^= genMat[j * k + c];
+                  }
+                  if (orderWeights == null) {
+                     double p = 1.0;
+                     for (int j = 0; j < s; j++)
+                        p *= 1.0 + gamma[j] * phi[position (x[j])];
+                     sum += p - 1.0;
+                  } else {
+                     e[0] = 1.0;
+                     for (int l = 1; l <= L; l++)
+                        e[l] = 0.0;
+                     for (int j = 0; j < s; j++) {
+                        double v = phi[position (x[j])];
+                        for (int l = Math.min (j + 1, L); l >= 1; l--)
+                           e[l] += v * e[l - 1];
+                     }
+                     for (int l = 1; l <= L; l++)
+                        sum += orderWeights[l - 1] * e[l];
+                  }
+               }
+               partial[b] = sum;
+            }
+         }
+      });
+      double sum = 0.0;
+      for (double v : partial)
+         sum += v;
+      return sum / (1L << k);
+   }
+
+   // Position, from 1, of the first nonzero digit of x among w; 0 if x = 0.
+   private int position (int x) {
+      return x == 0 ? 0 : Integer.numberOfLeadingZeros (x) - (31 - w);
+   }
+
+   //-----------------------------------------------------------------------
+
+   private void checkCoordinate (int j) {
+      if (j < 0 || j >= dim)
+         throw new IllegalArgumentException ("Coordinate " + j +
+            " not in [0, " + dim + ")");
+   }
+
+   private void checkProjection (int[] coords) {
+      if (coords.length == 0)
+         throw new IllegalArgumentException ("Empty projection");
+      for (int a = 0; a < coords.length; a++) {
+         checkCoordinate (coords[a]);
+         for (int b = 0; b < a; b++)
+            if (coords[a] == coords[b])
+               throw new IllegalArgumentException
+                  ("Coordinate " + coords[a] + " repeated");
+      }
+   }
+
+   private static long binomial (int n, int r) {
+      long c = 1;
+      for (int i = 1; i <= r; i++) {
+         c = c * (n - r + i) / i;
+         if (c > Integer.MAX_VALUE)
+            return c;
+      }
+      return c;
+   }
+
+   // The combination of rank `rank` of order r among 0..n-1, in
+   // lexicographic order.
+   private static int[] unrank (long rank, int n, int r) {
+      int[] comb = new int[r];
+      int next = 0;
+      for (int i = 0; i < r; i++) {
+         while (true) {
+            long count = binomial (n - next - 1, r - i - 1);
+            if (rank < count)
+               break;
+            rank -= count;
+            next++;
+         }
+         comb[i] = next++;
+      }
+      return comb;
+   }
+
+   private static void nextCombination (int[] comb, int n) {
+      int r = comb.length;
+      int i = r - 1;
+      while (i >= 0 && comb[i] == n - r + i)
+         i--;
+      if (i < 0)
+         return;
+      comb[i]++;
+      for (int j = i + 1; j < r; j++)
+         comb[j] = comb[j - 1] + 1;
+   }
+}
@@ -0,0 +1,695 @@
+/*
+ * Class:        DigitalNetBase2Long
+ * Description:  digital nets in base 2 with 64-bit generator columns
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.hups;
+
+import java.util.NoSuchElementException;
+import umontreal.ssj.rng.*;
+import umontreal.ssj.util.*;
+
+/**
+ * Same as  @ref DigitalNetBase2, except that the columns of the generator
+ * matrices @f$\mathbf{C}_j@f$ are stored as 64-bit `long` integers and that
+ * the points are indexed by `long` integers. The column @f$c@f$ of
+ * @f$\mathbf{C}_j@f$ is stored at position @f$jk + c@f$ of the array
+ * `genMat`, in the form @f$ [0 0 \cdots C_0 C_1 \cdots C_{w-1}]@f$. The
+ * number of output digits @f$w@f$ can be as large as 52, and the number of
+ * columns @f$k \le w@f$, so a net may contain up to @f$2^{52}@f$ points.
+ * With a digital shift, coordinate @f$j@f$ of a point is returned as
+ * @f$(x_j + 1/2)\,2^{-w}@f$, where @f$x_j@f$ is the @f$w@f$-bit output,
+ * which is a 53-bit floating-point number strictly between 0 and 1 when
+ * @f$w=52@f$; without a shift, it is @f$x_j 2^{-w}@f$.
+ *
+ * Since  @ref PointSet uses `int` point indices, #getNumPoints returns
+ * <tt>Integer.MAX_VALUE</tt> when the net has @f$2^{31}@f$ points or more;
+ * #getNumPointsLong always returns the exact number of points. The
+ * iterators, of class  @ref DigitalNetBase2LongIterator, enumerate all the
+ * points, and their methods `getCurPointIndexLong` and
+ * `setCurPointIndex(long)` give access to any point.
+ * The digital shift, the linear matrix scrambles and the nested uniform
+ * scrambling are implemented as in  @ref DigitalNetBase2.
+ *
+ * <div class="SSJ-bigskip"></div><div class="SSJ-bigskip"></div>
+ */
+public class DigitalNetBase2Long extends DigitalNet {
+
+   /**
+    * Maximal number of output digits @f$w@f$, and thus of columns
+    * @f$k@f$.
+    */
+   public static final int MAXBITS_LONG = 52;
+
+   private long[] originalMat;    // Original matrices, without randomization.
+   protected long[] genMat;       // The current generator matrix.
+   protected long[] digitalShift; // Stores the digital shift vector.
+   protected long numPointsLong;  // Number of points, 2^k.
+
+   /**
+    * Initializes the parameters of a net with @f$2^k@f$ points, @f$w@f$
+    * output digits and dimension `dim`, and allocates the generator
+    * matrices, which must then be filled by the subclass.
+    *  @param k            there will be 2^k points
+    *  @param w            number of output digits
+    *  @param dim          dimension of the point set
+    *  @exception IllegalArgumentException if one does not have @f$0 \le k
+    * \le w \le52@f$ and `dim` @f$\ge1@f$
+    */
+   protected void init (int k, int w, int dim) {
+      if (k < 0 || w < k || w > MAXBITS_LONG)
+         throw new IllegalArgumentException
+            ("One must have 0 <= k <= w <= " + MAXBITS_LONG);
+      if (dim < 1)
+         throw new IllegalArgumentException ("dim must be > 0");
+      b = 2;
+      numCols   = k;
+      numRows   = w;
+      outDigits = w;
+      numPointsLong = 1L << k;
+      numPoints = k < MAXBITS ? (1 << k) : Integer.MAX_VALUE;
+      this.dim  = dim;
+      normFactor = 1.0 / ((double) (1L << outDigits));
+      EpsilonHalf = 0.5 * normFactor;
+      genMat = new long[dim * numCols];
+      originalMat = null;
+      digitalShift = null;
+   }
+
+   /**
+    * Returns the number of points @f$n = 2^k@f$.
+    *  @return the number of points
+    */
+   public long getNumPointsLong() {
+      return numPointsLong;
+   }
+
+   /**
+    * Returns the coordinate @f$u_{i,j}@f$ of point @f$i@f$, where the
+    * points are enumerated in Gray code order, as by  #iterator.
+    *  @param i            index of the point
+    *  @param j            index of the coordinate
+    *  @return the value of @f$u_{i,j}@f$
+    */
+   public double getCoordinate (long i, int j) {
+      long res = digitalShift == null ? 0 : digitalShift[j];
+      long grayCode = i ^ (i >> 1);
+      for (int pos = 0; grayCode != 0 && pos < numCols;
+           pos++, grayCode >>>= 1)
+         if ((grayCode & 1) != 0)
+            res ^= genMat[j*numCols + pos];
+      if (digitalShift != null)
+         return res * normFactor + EpsilonHalf;
+      else
+         return res * normFactor;
+   }
+
+   public double getCoordinate (int i, int j) {
+      return getCoordinate ((long) i, j);
+   }
+
+   /**
+    * Returns the coordinate @f$u_{i,j}@f$ of point @f$i@f$, where the
+    * points are enumerated in the order of their index, without the Gray
+    * code, as by  #iteratorNoGray.
+    *  @param i            index of the point
+    *  @param j            index of the coordinate
+    *  @return the value of @f$u_{i,j}@f$
+    */
+   public double getCoordinateNoGray (long i, int j) {
+      long res = digitalShift == null ? 0 : digitalShift[j];
+      for (int pos = 0; i != 0 && pos < numCols; pos++, i >>>= 1)
+         if ((i & 1) != 0)
+            res ^= genMat[j*numCols + pos];
+      if (digitalShift != null)
+         return res * normFactor + EpsilonHalf;
+      else
+         return res * normFactor;
+   }
+
+   public double getCoordinateNoGray (int i, int j) {
+      return getCoordinateNoGray ((long) i, j);
+   }
+
+   public PointSetIterator iterator() {
+      return new DigitalNetBase2LongIterator();
+   }
+
+   /**
+    * This iterator does not use the Gray code. Thus the points are
+    * enumerated in the order of their first coordinate before
+    * randomization.
+    */
+   public PointSetIterator iteratorNoGray() {
+      return new DigitalNetBase2LongIteratorNoGray();
+   }
+
+   public void fillPoints (int from, int n, int d, double[] out,
+                           Layout layout) {
+      checkFillPoints (from, n, d, out);
+      if (n == 0)
+         return;
+      if (digitalShift != null && dimShift < d)
+         addRandomShift (dimShift, d, shiftStream);
+      int strideI = layout == Layout.ROW_MAJOR ? d : 1;
+      int strideJ = layout == Layout.ROW_MAJOR ? 1 : n;
+      final long[] mat = genMat;
+      final double norm = normFactor;
+      final double eps = digitalShift == null ? 0.0 : EpsilonHalf;
+      final int end = from + n;
+      int grayCode = from ^ (from >> 1);
+      for (int j = 0; j < d; j++) {
+         final int start = j * numCols;
+         long x = digitalShift == null ? 0 : digitalShift[j];
+         for (int pos = 0; (grayCode >> pos) != 0; pos++)
+            if (((grayCode >> pos) & 1) != 0)
+               x ^= mat[start + pos];
+         int k = j * strideJ;
+         for (int i = from + 1; i < end; i++) {
+            out[k] = DigitalNetBase2.toDouble (x) * norm + eps;
+            k += strideI;
+            x ^= mat[start + Integer.numberOfTrailingZeros (i)];
+         }
+         out[k] = DigitalNetBase2.toDouble (x) * norm + eps;
+      }
+   }
+
+   public String toString() {
+      StringBuffer sb = new StringBuffer ("DigitalNetBase2Long:" +
+                              PrintfFormat.NEWLINE);
+      sb.append ("Number of points: " + numPointsLong);
+      sb.append (PrintfFormat.NEWLINE + "Point set dimension: " + dim);
+      sb.append (PrintfFormat.NEWLINE);
+      sb.append (super.toString());
+      return sb.toString();
+   }
+
+   /**
+    * Prints the generator matrices as bit matrices in standard form for
+    * dimensions 1 to @f$s@f$.
+    */
+   public void printGeneratorMatrices (int s) {
+      for (int j = 0; j < s; j++) {
+         System.out.println ("dim = " + (j+1) + PrintfFormat.NEWLINE);
+         for (int r = 0; r < outDigits; r++) {
+            StringBuffer sb = new StringBuffer();
+            for (int c = 0; c < numCols; c++)
+               sb.append ((genMat[j*numCols + c] >>> (outDigits - 1 - r)) & 1);
+            System.out.println (sb);
+         }
+         System.out.println ("----------------------------------");
+      }
+   }
+
+   public void clearRandomShift() {
+      super.clearRandomShift();
+      digitalShift = null;
+   }
+
+   public void addRandomShift (RandomStream stream) {
+      addRandomShift (0, dim, stream);
+   }
+
+   public void addRandomShift (int d1, int d2, RandomStream stream) {
+      if (null == stream)
+         throw new IllegalArgumentException (
+              PrintfFormat.NEWLINE +
+                 "   Calling addRandomShift with null stream");
+      if (0 == d2)
+         d2 = Math.max (1, dim);
+      if (digitalShift == null) {
+         digitalShift = new long[d2];
+         capacityShift = d2;
+      } else if (d2 > capacityShift) {
+         int d3 = Math.max (4, capacityShift);
+         while (d2 > d3)
+            d3 *= 2;
+         long[] temp = new long[d3];
+         capacityShift = d3;
+         for (int i = 0; i < d1; i++)
+            temp[i] = digitalShift[i];
+         digitalShift = temp;
+      }
+      for (int i = d1; i < d2; i++)
+         digitalShift[i] = nextBits (stream, outDigits);
+      dimShift = d2;
+      shiftStream = stream;
+   }
+
+   public void unrandomize() {
+      resetGeneratorMatrices();
+      clearRandomShift();
+   }
+
+   public void resetGeneratorMatrices() {
+      if (originalMat != null) {
+         genMat = originalMat;
+         originalMat = null;
+      }
+   }
+
+   public DigitalNetBase2Long clone() {
+      DigitalNetBase2Long p = (DigitalNetBase2Long) super.clone();
+      if (originalMat != null)
+         p.genMat = genMat.clone();
+      if (digitalShift != null)
+         p.digitalShift = digitalShift.clone();
+      return p;
+   }
+
+   public void eraseOriginalGeneratorMatrices() {
+      originalMat = null;
+   }
+
+   // Returns n <= 60 random bits, obtained from at most two calls to
+   // nextInt, each for at most 30 bits.
+   private static long nextBits (RandomStream stream, int n) {
+      if (n <= 30)
+         return stream.nextInt (0, (1 << n) - 1);
+      long hi = stream.nextInt (0, (1 << (n - 30)) - 1);
+      return (hi << 30) | stream.nextInt (0, (1 << 30) - 1);
+   }
+
+   // Keeps the original generator matrices before the first scramble.
+   private void saveOriginalMat() {
+      if (originalMat == null) {
+         originalMat = genMat;
+         genMat = new long[dim * numCols];
+      }
+   }
+
+   // Left-multiplies lower-triangular matrix Mj by original C_j, as in
+   // DigitalNetBase2. Mj[d] contains the d-th subdiagonal of Mj, as a
+   // w-bit integer whose most significant bits are those on the diagonal.
+   private void leftMultiplyMat (int j, long[] Mj) {
+      for (int c = 0; c < numCols; c++) {
+         long orig = originalMat[j*numCols + c];
+         long col = 0;
+         for (int d = 0; d < outDigits; d++)
+            col ^= (Mj[d] & orig) >>> d;
+         genMat[j*numCols + c] = col;
+      }
+   }
+
+   // Right-multiplies original C_j by upper-triangular matrix Mj, as in
+   // DigitalNetBase2. Mj[c] contains column c of Mj, as a w-bit integer
+   // whose most significant bit is at row 0.
+   private void rightMultiplyMat (int j, long[] Mj) {
+      for (int c = 0; c < numCols; c++) {
+         long mask = 1L << (outDigits - 1);
+         long col = originalMat[j*numCols + c];
+         for (int r = 0; r < c; r++) {
+            if ((Mj[c] & mask) != 0)
+               col ^= originalMat[j*numCols + r];
+            mask >>>= 1;
+         }
+         genMat[j*numCols + c] = col;
+      }
+   }
+
+   public void leftMatrixScramble (RandomStream stream) {
+      final long allOnes = (1L << outDigits) - 1;    // outDigits ones.
+      saveOriginalMat();
+      long[] scrambleMat = new long[outDigits];
+      scrambleMat[0] = allOnes;
+      for (int j = 0; j < dim; j++) {
+         for (int d = 1; d < outDigits; d++)
+            scrambleMat[d] = nextBits (stream, outDigits - d) << d;
+         leftMultiplyMat (j, scrambleMat);
+      }
+   }
+
+   public void iBinomialMatrixScramble (RandomStream stream) {
+      final long allOnes = (1L << outDigits) - 1;    // outDigits ones.
+      saveOriginalMat();
+      long[] scrambleMat = new long[outDigits];
+      scrambleMat[0] = allOnes;
+      for (int j = 0; j < dim; j++) {
+         // Last row of M_j: w-1 random bits followed by 1.
+         long lastRow = nextBits (stream, outDigits) | 1;
+         for (int d = 1; d < outDigits; d++)
+            // Subdiagonal d contains either all ones or all zeros.
+            scrambleMat[d] = ((1L << d) & lastRow) == 0 ? 0 :
+                             (allOnes >>> d) << d;
+         leftMultiplyMat (j, scrambleMat);
+      }
+   }
+
+   public void stripedMatrixScramble (RandomStream stream) {
+      final long allOnes = (1L << outDigits) - 1;    // outDigits ones.
+      saveOriginalMat();
+      long[] scrambleMat = new long[outDigits];
+      for (int d = 0; d < outDigits; d++)
+         scrambleMat[d] = (allOnes >>> d) << d;
+      for (int j = 0; j < dim; j++)
+         leftMultiplyMat (j, scrambleMat);
+   }
+
+   public void rightMatrixScramble (RandomStream stream) {
+      saveOriginalMat();
+      // scrambleMat[c] contains column c of the upper triangular M.
+      long[] scrambleMat = new long[numCols];
+      for (int c = 0; c < numCols; c++)
+         scrambleMat[c] = (1 | nextBits (stream, c + 1))
+                          << (outDigits - c - 1);
+      for (int j = 0; j < dim; j++)
+         rightMultiplyMat (j, scrambleMat);
+   }
+
+   /**
+    * Same as @link nestedUniformScramble(RandomStream,double[][],int)
+    * nestedUniformScramble(stream, output, 0) @endlink.
+    */
+   public void nestedUniformScramble (RandomStream stream, double[][] output) {
+      nestedUniformScramble (stream, output, 0);
+   }
+
+   /**
+    * Applies Owen's nested uniform scrambling to the first `numBits`
+    * output digits of all the points, and stores the randomized points in
+    * `output`, exactly as
+    * @ref DigitalNetBase2.nestedUniformScramble(RandomStream,double[][],int).
+    * The points are stored in an array, so the net must have fewer than
+    * @f$2^{31}@f$ points.
+    *  @param stream    random stream used to randomize the bits
+    *  @param output    array that will store the randomized points; the
+    *                   size of its first dimension must be the number of
+    *                   points and that of its second dimension must be at
+    *                   least the dimension
+    *  @param numBits   number of output digits to scramble, from 1 to
+    *                   @f$w@f$; if it is zero, all the @f$w@f$ output
+    *                   digits are scrambled
+    */
+   public void nestedUniformScramble (RandomStream stream, double[][] output,
+                                      int numBits) {
+      if (numPointsLong > Integer.MAX_VALUE)
+         throw new UnsupportedOperationException
+            ("Too many points to store them in an array");
+      if (numBits == 0)
+         numBits = outDigits;
+      if (numBits < 1 || numBits > outDigits)
+         throw new IllegalArgumentException ("numBits must be in [1, w]");
+      final int n = numPoints;
+      final int shift = outDigits - numBits;
+
+      long[] bvlist = new long[2 * n];
+      int[] poslist = new int[2 * n];
+      int[] counts = new int[256];
+
+      for (int j = 0; j < dim; ++j) {
+         // Coordinate j of all the points, in Gray code order.
+         bvlist[0] = 0;
+         poslist[0] = 0;
+         for (int i = 1; i < n; i++) {
+            bvlist[i] = bvlist[i - 1] ^
+                        genMat[j*numCols + Integer.numberOfTrailingZeros (i)];
+            poslist[i] = i;
+         }
+         // Radix sort on the w bits, 8 at a time; the two halves of the
+         // arrays are used alternately as source and destination.
+         int src = 0;
+         for (int bb = 0; bb < outDigits; bb += 8) {
+            int dst = n - src;
+            for (int i = 0; i < 256; i++)
+               counts[i] = 0;
+            for (int i = 0; i < n; i++)
+               counts[(int)(bvlist[src + i] >>> bb) & 0xff]++;
+            int sum = dst;
+            for (int i = 0; i < 256; i++) {
+               int c = counts[i];
+               counts[i] = sum;
+               sum += c;
+            }
+            for (int i = 0; i < n; i++) {
+               long v = bvlist[src + i];
+               int k = counts[(int)(v >>> bb) & 0xff]++;
+               bvlist[k] = v;
+               poslist[k] = poslist[src + i];
+            }
+            src = dst;
+         }
+         // Points that share their first digits get the same random bits
+         // for these digits, and independent bits for the following ones;
+         // identical coordinates get the same scrambled value.
+         long bv = nextBits (stream, numBits) << shift;
+         output[poslist[src]][j] = (bvlist[src] ^ bv) * normFactor +
+                                   EpsilonHalf;
+         for (int i = 1; i < n; i++) {
+            long diff = bvlist[src + i - 1] ^ bvlist[src + i];
+            if (diff != 0)
+               bv ^= (nextBits (stream, numBits) << shift) &
+                     (Long.highestOneBit (diff) - 1);
+            else
+               nextBits (stream, numBits);   // keep the stream in step
+            output[poslist[src + i]][j] = (bvlist[src + i] ^ bv) *
+                                          normFactor + EpsilonHalf;
+         }
+      }
+   }
+
+   //-----------------------------------------------------------------------
+   private void ScrambleError (String method) {
+       throw new UnsupportedOperationException
+       (PrintfFormat.NEWLINE + "  " + method +
+           " is meaningless for DigitalNetBase2Long");
+   }
+
+   public void leftMatrixScrambleDiag (RandomStream stream)  {
+       ScrambleError ("leftMatrixScrambleDiag");
+   }
+
+   public void leftMatrixScrambleFaurePermut (RandomStream stream, int sb) {
+       ScrambleError ("leftMatrixScrambleFaurePermut");
+   }
+
+   public void leftMatrixScrambleFaurePermutDiag (RandomStream stream,
+       int sb) {
+       ScrambleError ("leftMatrixScrambleFaurePermutDiag");
+   }
+
+   public void leftMatrixScrambleFaurePermutAll (RandomStream stream,
+       int sb) {
+       ScrambleError ("leftMatrixScrambleFaurePermutAll");
+   }
+
+   public void iBinomialMatrixScrambleFaurePermut (RandomStream stream,
+       int sb) {
+       ScrambleError ("iBinomialMatrixScrambleFaurePermut");
+   }
+
+   public void iBinomialMatrixScrambleFaurePermutDiag (RandomStream stream,
+       int sb) {
+       ScrambleError ("iBinomialMatrixScrambleFaurePermutDiag");
+   }
+
+   public void iBinomialMatrixScrambleFaurePermutAll (RandomStream stream,
+       int sb) {
+       ScrambleError ("iBinomialMatrixScrambleFaurePermutAll");
+   }
+
+   public void stripedMatrixScrambleFaurePermutAll (RandomStream stream,
+       int sb) {
+       ScrambleError ("stripedMatrixScrambleFaurePermutAll");
+   }
+
+
+   // *******************************************************************
+   /**
+    * Iterator over the points in Gray code order, with `long` point
+    * indices.
+    */
+   public class DigitalNetBase2LongIterator extends DefaultPointSetIterator {
+
+      // Index of the current point; curPointIndex only holds it when it
+      // fits in an int.
+      protected long curPointIndexLong;
+
+      // Coordinates of the current point stored (cached) as integers,
+      // with the random shift.
+      protected long[] cachedCurPoint;
+      protected int dimS;
+
+      public DigitalNetBase2LongIterator() {
+         EpsilonHalf = DigitalNetBase2Long.this.EpsilonHalf;
+         cachedCurPoint = new long[dim + 1];
+         dimS = dim;
+         resetCurPointIndex();
+      }
+
+      protected void outOfBounds () {
+         if (curPointIndexLong >= numPointsLong)
+            throw new NoSuchElementException ("Not enough points available");
+         else
+            throw new NoSuchElementException ("Not enough coordinates available");
+      }
+
+      public double nextDouble() {
+         return nextCoordinate();
+      }
+
+      public double nextCoordinate() {
+         if (curPointIndexLong >= numPointsLong || curCoordIndex >= dimS)
+            outOfBounds();
+         if (digitalShift == null)
+            return cachedCurPoint[curCoordIndex++] * normFactor;
+         else
+            return cachedCurPoint[curCoordIndex++] * normFactor + EpsilonHalf;
+      }
+
+      protected void addShiftToCache () {
+         if (digitalShift == null)
+            for (int j = 0; j < dim; j++)
+               cachedCurPoint[j] = 0;
+         else {
+            if (dimShift < dimS)
+               addRandomShift (dimShift, dimS, shiftStream);
+            for (int j = 0; j < dim; j++)
+               cachedCurPoint[j] = digitalShift[j];
+         }
+      }
+
+      /**
+       * Returns the index of the current point.
+       */
+      public long getCurPointIndexLong() {
+         return curPointIndexLong;
+      }
+
+      public int getCurPointIndex() {
+         return (int) Math.min (curPointIndexLong, Integer.MAX_VALUE);
+      }
+
+      public boolean hasNextPoint() {
+         return curPointIndexLong < numPointsLong;
+      }
+
+      public void resetCurPointIndex() {
+         addShiftToCache ();
+         curPointIndexLong = curPointIndex = 0;
+         curCoordIndex = 0;
+      }
+
+      public void setCurPointIndex (int i) {
+         setCurPointIndex ((long) i);
+      }
+
+      /**
+       * Sets the current point to point `i`.
+       */
+      public void setCurPointIndex (long i) {
+         if (i == 0) {
+            resetCurPointIndex();   return;
+         }
+         // Out of order computation, must recompute the cached current
+         // point from scratch.
+         setIndex (i);
+         curCoordIndex = 0;
+         addShiftToCache ();
+         long grayCode = i ^ (i >> 1);
+         for (int pos = 0; grayCode != 0 && pos < numCols;
+              pos++, grayCode >>>= 1)
+            if ((grayCode & 1) != 0)
+               for (int j = 0; j < dim; j++)
+                  cachedCurPoint[j] ^= genMat[j*numCols + pos];
+      }
+
+      protected void setIndex (long i) {
+         curPointIndexLong = i;
+         curPointIndex = (int) Math.min (i, Integer.MAX_VALUE);
+      }
+
+      public int resetToNextPoint() {
+         // Position of change in Gray code,
+         // = pos. of first 0 in binary code of point index.
+         int pos = Long.numberOfTrailingZeros (~curPointIndexLong);
+         if (pos < numCols) {
+            for (int j = 0; j < dim; j++)
+               cachedCurPoint[j] ^= genMat[j*numCols + pos];
+         }
+         curCoordIndex = 0;
+         setIndex (curPointIndexLong + 1);
+         return curPointIndex;
+      }
+
+      public int nextPoint (double p[], int d) {
+         if (curPointIndexLong >= numPointsLong || d > dimS)
+            outOfBounds();
+         if (digitalShift == null) {
+            for (int j = 0; j < d; j++)
+               p[j] = cachedCurPoint[j] * normFactor;
+         } else {
+            for (int j = 0; j < d; j++)
+               p[j] = cachedCurPoint[j] * normFactor + EpsilonHalf;
+         }
+         return resetToNextPoint();
+      }
+
+      public String formatState() {
+         return "Current point index: " + curPointIndexLong +
+              PrintfFormat.NEWLINE + "Current coordinate index: " +
+                  curCoordIndex;
+      }
+   }
+
+
+   // *******************************************************************
+   protected class DigitalNetBase2LongIteratorNoGray
+                   extends DigitalNetBase2LongIterator {
+
+      // Same as DigitalNetBase2LongIterator,
+      // except that the Gray code is not used.
+
+      public DigitalNetBase2LongIteratorNoGray() {
+         super();
+      }
+
+      public void setCurPointIndex (long i) {
+         if (i == 0) {
+            resetCurPointIndex();
+            return;
+         }
+         setIndex (i);
+         curCoordIndex = 0;
+         addShiftToCache ();
+         for (int pos = 0; i != 0 && pos < numCols; pos++, i >>>= 1)
+            if ((i & 1) != 0)
+               for (int j = 0; j < dim; j++)
+                  cachedCurPoint[j] ^= genMat[j*numCols + pos];
+      }
+
+      public int resetToNextPoint() {
+         if (curPointIndexLong + 1 >= numPointsLong) {
+            setIndex (curPointIndexLong + 1);
+            return curPointIndex;
+         }
+         // Contains the bits of i that changed.
+         long diff = curPointIndexLong ^ (curPointIndexLong + 1);
+         for (int pos = 0; diff != 0 && pos < numCols; pos++, diff >>>= 1)
+            if ((diff & 1) != 0)
+               for (int j = 0; j < dim; j++)
+                  cachedCurPoint[j] ^= genMat[j*numCols + pos];
+         curCoordIndex = 0;
+         setIndex (curPointIndexLong + 1);
+         return curPointIndex;
+      }
+   }
+}
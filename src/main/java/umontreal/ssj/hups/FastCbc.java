@@ -0,0 +1,272 @@
+/*
+ * Class:        FastCbc
+ * Description:  Tools shared by the component-by-component searches
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.hups;
+
+import java.util.Arrays;
+
+import umontreal.ssj.util.ParallelLoop;
+
+/*
+ * Tools shared by  Rank1LatticeBuilder and  PolynomialLatticeBuilder:
+ * the weighted state of the CBC construction for P_alpha and cyclic
+ * correlations by FFT.
+ */
+final class FastCbc {
+
+   private FastCbc() {}
+
+   /*
+    * State of the CBC construction for a criterion of the form
+    *    P = c0 + (1/n) sum_i sum_u gamma_u prod_{j in u} w_j(i),
+    * with product weights (c0 = -1) or order-dependent weights (c0 = 0),
+    * where w_j(i) is the value of omega for point i and coordinate j.
+    * Adding coordinate j with values w(i) gives
+    *    c0 + (1/n) sum_i (base[i] + x[i] w(i)),
+    * where base and x are given by prepare(). The loops over the points of
+    * prepare() and update() are split among numThreads threads when n is
+    * large enough; the results do not depend on the number of threads.
+    */
+   static class State {
+      private static final int PARALLEL_THRESHOLD = 1 << 13;
+
+      private int n;
+      private int numThreads;
+      private double[] productWeights;
+      private double[] orderWeights;  // null for product weights
+      private int L;
+      private int numCoords;
+      private double[] p;             // products, for product weights
+      private double[][] q;           // elementary symmetric functions
+
+      State (int n, double[] productWeights, double[] orderWeights) {
+         this (n, productWeights, orderWeights, 1);
+      }
+
+      State (int n, double[] productWeights, double[] orderWeights,
+             int numThreads) {
+         this.n = n;
+         this.numThreads = n < PARALLEL_THRESHOLD ? 1 : numThreads;
+         this.productWeights = productWeights;
+         this.orderWeights = orderWeights;
+         if (orderWeights == null) {
+            p = new double[n];
+            Arrays.fill (p, 1.0);
+         } else {
+            L = orderWeights.length;
+            q = new double[L + 1][];
+            q[0] = new double[n];
+            Arrays.fill (q[0], 1.0);
+         }
+      }
+
+      double productWeight (int j) {
+         return productWeights[Math.min (j, productWeights.length - 1)];
+      }
+
+      // Fills base and x for the next coordinate; returns c0.
+      double prepare (final double[] base, final double[] x) {
+         int j = numCoords;
+         if (orderWeights == null) {
+            final double g = productWeight (j);
+            ParallelLoop.getDefault().run (numThreads, n,
+               new ParallelLoop.Task() {
+               public void run (int t, int lo, int hi) {
+                  for (int i = lo; i < hi; i++) {
+                     base[i] = p[i];
+                     x[i] = g * p[i];
+                  }
+               }
+            });
+            return -1.0;
+         }
+         final int top = Math.min (j, L);
+         final int topX = Math.min (j + 1, L);
+         ParallelLoop.getDefault().run (numThreads, n,
+            new ParallelLoop.Task() {
+            public void run (int t, int lo, int hi) {
+               for (int i = lo; i < hi; i++) {
+                  double b = 0.0, xi = 0.0;
+                  for (int l = 1; l <= top; l++)
+                     b += orderWeights[l - 1] * q[l][i];
+                  for (int l = 1; l <= topX; l++)
+                     xi += orderWeights[l - 1] * q[l - 1][i];
+                  base[i] = b;
+                  x[i] = xi;
+               }
+            }
+         });
+         return 0.0;
+      }
+
+      // Adds the next coordinate, whose values of omega are w.
+      void update (final double[] w) {
+         int j = numCoords++;
+         if (orderWeights == null) {
+            final double g = productWeight (j);
+            ParallelLoop.getDefault().run (numThreads, n,
+               new ParallelLoop.Task() {
+               public void run (int t, int lo, int hi) {
+                  for (int i = lo; i < hi; i++)
+                     p[i] *= 1.0 + g * w[i];
+               }
+            });
+            return;
+         }
+         final int top = Math.min (j + 1, L);
+         if (q[top] == null)
+            q[top] = new double[n];
+         ParallelLoop.getDefault().run (numThreads, n,
+            new ParallelLoop.Task() {
+            public void run (int t, int lo, int hi) {
+               for (int l = top; l >= 1; l--)
+                  for (int i = lo; i < hi; i++)
+                     q[l][i] += w[i] * q[l - 1][i];
+            }
+         });
+      }
+
+      // Value of the criterion for the coordinates added so far.
+      double merit() {
+         double sum = 0.0;
+         if (orderWeights == null) {
+            for (int i = 0; i < n; i++)
+               sum += p[i];
+            return sum / n - 1.0;
+         }
+         for (int l = 1; l <= Math.min (numCoords, L); l++)
+            for (int i = 0; i < n; i++)
+               sum += orderWeights[l - 1] * q[l][i];
+         return sum / n;
+      }
+   }
+
+   //-----------------------------------------------------------------------
+   // Cyclic correlations.
+
+   // Size of the transforms for correlations of length len.
+   static int transformSize (int len) {
+      return (len & (len - 1)) == 0 ? len
+             : Integer.highestOneBit (2 * len - 1) << 1;
+   }
+
+   // Spectrum of f for cyclic correlations of length f.length: f itself
+   // if its length is a power of 2, otherwise f repeated twice and padded
+   // with zeros.
+   static double[][] spectrum (FFT fft, double[] f) {
+      int len = f.length;
+      int size = transformSize (len);
+      double[] re = new double[size];
+      double[] im = new double[size];
+      System.arraycopy (f, 0, re, 0, len);
+      if (size != len)
+         System.arraycopy (f, 0, re, len, len);
+      fft.transform (re, im, false);
+      return new double[][] {re, im};
+   }
+
+   // out[c][b] = sum_t sum_a xs[t][a] f_{t xor c}[(a + b) mod len], where
+   // the spectrum of f_u is given by (specRe[u], specIm[u]), computed by
+   // spectrum(). With a single x, out[0] is the cyclic correlation.
+   static void correlate (FFT fft, double[][] xs, double[][] specRe,
+                          double[][] specIm, int len, double[][] out) {
+      int size = specRe[0].length;
+      int nt = xs.length;
+      double[][] xr = new double[nt][size];
+      double[][] xi = new double[nt][size];
+      for (int t = 0; t < nt; t++) {
+         System.arraycopy (xs[t], 0, xr[t], 0, len);
+         fft.transform (xr[t], xi[t], false);
+      }
+      double[] re = new double[size];
+      double[] im = new double[size];
+      for (int c = 0; c < out.length; c++) {
+         Arrays.fill (re, 0.0);
+         Arrays.fill (im, 0.0);
+         for (int t = 0; t < nt; t++) {
+            double[] fr = specRe[t ^ c], fi = specIm[t ^ c];
+            double[] ar = xr[t], ai = xi[t];
+            for (int k = 0; k < size; k++) {
+               // conj(X) * F
+               re[k] += ar[k] * fr[k] + ai[k] * fi[k];
+               im[k] += ar[k] * fi[k] - ai[k] * fr[k];
+            }
+         }
+         fft.transform (re, im, true);
+         System.arraycopy (re, 0, out[c], 0, len);
+      }
+   }
+
+   // Radix-2 complex FFT for sizes that divide the size of the table.
+   static class FFT {
+      private double[] cos, sin;
+      private int size;
+
+      FFT (int size) {
+         this.size = size;
+         cos = new double[Math.max (size / 2, 1)];
+         sin = new double[cos.length];
+         for (int k = 0; k < size / 2; k++) {
+            double a = -2.0 * Math.PI * k / size;
+            cos[k] = Math.cos (a);
+            sin[k] = Math.sin (a);
+         }
+      }
+
+      // In place; the inverse transform is scaled by 1/length.
+      void transform (double[] re, double[] im, boolean inverse) {
+         int len = re.length;
+         for (int i = 1, j = 0; i < len; i++) {
+            int bit = len >> 1;
+            for (; (j & bit) != 0; bit >>= 1)
+               j ^= bit;
+            j ^= bit;
+            if (i < j) {
+               double t = re[i];  re[i] = re[j];  re[j] = t;
+               t = im[i];  im[i] = im[j];  im[j] = t;
+            }
+         }
+         for (int half = 1; half < len; half <<= 1) {
+            int step = size / (2 * half);
+            for (int i = 0; i < len; i += 2 * half)
+               for (int k = 0; k < half; k++) {
+                  double wr = cos[k * step];
+                  double wi = inverse ? -sin[k * step] : sin[k * step];
+                  int a = i + k, b = a + half;
+                  double tr = re[b] * wr - im[b] * wi;
+                  double ti = re[b] * wi + im[b] * wr;
+                  re[b] = re[a] - tr;
+                  im[b] = im[a] - ti;
+                  re[a] += tr;
+                  im[a] += ti;
+               }
+         }
+         if (inverse)
+            for (int i = 0; i < len; i++) {
+               re[i] /= len;
+               im[i] /= len;
+            }
+      }
+   }
+}
@@ -145,11 +145,48 @@ public class HaltonSequence extends PointSet {
       permutation = null;
    }
 
+   public HaltonSequence clone() {
+      HaltonSequence p = (HaltonSequence) super.clone();
+      p.start = start.clone();
+      return p;
+   }
+
     
    public int getNumPoints () {
       return Integer.MAX_VALUE;
    }
 
+   public void fillPoints (int from, int n, int d, double[] out,
+                           Layout layout) {
+      if (radinv != null) {
+         // The fast radical inverses can only be enumerated in order.
+         super.fillPoints (from, n, d, out, layout);
+         return;
+      }
+      checkFillPoints (from, n, d, out);
+      int strideI = layout == Layout.ROW_MAJOR ? d : 1;
+      int strideJ = layout == Layout.ROW_MAJOR ? 1 : n;
+      for (int j = 0; j < d; j++) {
+         final int b = base[j];
+         final double radical = 1.0 / (double) b;
+         final int[] pi = permuted ? permutation[j] : null;
+         int k = j * strideJ;
+         for (int i = from; i < from + n; i++, k += strideI) {
+            int m = start[j] + i;
+            if (m < 0)
+               m = (m & positiveBitMask) + 1;
+            // Same computation as in RadicalInverse, with int digits.
+            double digit = radical;
+            double inverse = 0.0;
+            for (; m > 0; m /= b) {
+               inverse += digit * (double) (pi == null ? m % b : pi[m % b]);
+               digit *= radical;
+            }
+            out[k] = inverse;
+         }
+      }
+   }
+
    public double getCoordinate (int i, int j) {
       if (radinv != null) {
          if (!permuted) {
@@ -0,0 +1,75 @@
+/*
+ * Class:        HashedOwenScrambling
+ * Description:  Hash-based Owen scrambling of a digital net in base 2
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.hups;
+ import umontreal.ssj.rng.RandomStream;
+
+/**
+ * This class implements a  @ref umontreal.ssj.hups.PointSetRandomization
+ * that performs Owen's nested uniform scrambling with a hash function,
+ * computed on the fly when the points are enumerated. Point set must be a
+ * @ref umontreal.ssj.hups.DigitalNetBase2 or an IllegalArgumentException
+ * is thrown. See  DigitalNetBase2.hashedOwenScramble(RandomStream) for the
+ * details.
+ *
+ * Contrary to  @ref NestedUniformScrambling, the points do not have to be
+ * stored in a  @ref CachedPointSet: the memory used is proportional to
+ * the dimension only, and the randomized point set can be used with any
+ * number of points and accessed in any order.
+ *
+ * <div class="SSJ-bigskip"></div><div class="SSJ-bigskip"></div>
+ */
+public class HashedOwenScrambling extends RandomShift {
+
+   /**
+    * Empty constructor.
+    */
+   public HashedOwenScrambling() {
+   }
+
+   /**
+    * Sets internal variable `stream` to the given `stream`.
+    *  @param stream       stream to use in the randomization
+    */
+   public HashedOwenScrambling (RandomStream stream) {
+       super(stream);
+   }
+
+   /**
+    * This method calls
+    * umontreal.ssj.hups.DigitalNetBase2.hashedOwenScramble(RandomStream).
+    * If `p` is not a  @ref umontreal.ssj.hups.DigitalNetBase2, an
+    * IllegalArgumentException is thrown.
+    *  @param p            Point set to randomize
+    */
+   public void randomize (PointSet p) {
+      if (p instanceof DigitalNetBase2) {
+         ((DigitalNetBase2)p).hashedOwenScramble (stream);
+      } else {
+         throw new IllegalArgumentException("HashedOwenScrambling"+
+                                            " can only randomize a DigitalNetBase2");
+      }
+   }
+
+}
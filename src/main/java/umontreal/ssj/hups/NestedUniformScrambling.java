@@ -46,6 +46,7 @@ public class NestedUniformScrambling implements PointSetRandomization {
 
    private RandomStream stream;
    private int numBits;
+   private int numThreads;
 
    /**
     * Empty constructor.
@@ -94,6 +95,25 @@ public class NestedUniformScrambling implements PointSetRandomization {
       this.numBits = numBits;
    }
 
+   /**
+    * Scrambles the coordinates in parallel with `numThreads` threads,
+    * as in
+    * @link DigitalNetBase2.nestedUniformScramble(RandomStream,double[][],int,int)
+    * DigitalNetBase2.nestedUniformScramble(stream, output, numBits, numThreads) @endlink.
+    * The stream must then implement
+    * @ref umontreal.ssj.rng.CloneableRandomStream. If `numThreads` is 0
+    * (the default), the coordinates are scrambled one after the other
+    * with the random bits taken directly from the stream. The two modes
+    * produce different points; with `numThreads` @f$\ge1@f$, the points
+    * do not depend on the value of `numThreads`.
+    *  @param numThreads   number of threads, or 0 for the sequential mode
+    */
+   public void setNumThreads (int numThreads) {
+      if (numThreads < 0)
+         throw new IllegalArgumentException ("numThreads must be >= 0");
+      this.numThreads = numThreads;
+   }
+
    /**
     * This method calls scrambles the points in the cached point set.
     * If `p` is not a CachedPointSet of a DigitalNetBase2, an IllegalArgumentException
@@ -104,7 +124,11 @@ public class NestedUniformScrambling implements PointSetRandomization {
       if (p instanceof CachedPointSet) {
          CachedPointSet cp = (CachedPointSet) p;
          if (cp.getParentPointSet() instanceof DigitalNetBase2) {
-            ((DigitalNetBase2) cp.getParentPointSet()).nestedUniformScramble(stream, cp.getArray(), numBits);
+            DigitalNetBase2 net = (DigitalNetBase2) cp.getParentPointSet();
+            if (numThreads > 0)
+               net.nestedUniformScramble(stream, cp.getArray(), numBits, numThreads);
+            else
+               net.nestedUniformScramble(stream, cp.getArray(), numBits);
             return;
          }
       }
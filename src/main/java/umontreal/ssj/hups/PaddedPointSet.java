@@ -172,6 +172,19 @@ public class PaddedPointSet extends PointSet {
          }
    }
 
+   public PaddedPointSet clone() {
+      PaddedPointSet p = (PaddedPointSet) super.clone();
+      p.pointSet = new PointSet[pointSet.length];
+      p.permutation = new int[permutation.length][];
+      for (int set = 0; set < curPointSets; set++) {
+         p.pointSet[set] = pointSet[set].clone();
+         if (permutation[set] != null)
+            p.permutation[set] = permutation[set].clone();
+      }
+      p.startDim = startDim.clone();
+      return p;
+   }
+
    public PointSetIterator iterator() {
       return new PaddedIterator();
    }
@@ -90,7 +90,7 @@ import umontreal.ssj.util.PrintfFormat;
  *
  * <div class="SSJ-bigskip"></div><div class="SSJ-bigskip"></div>
  */
-public abstract class PointSet {
+public abstract class PointSet implements Cloneable {
 
    // The maximum number of usable bits (binary digits).
    // Since Java has no unsigned type, the
@@ -154,6 +154,127 @@ public abstract class PointSet {
       return new DefaultPointSetIterator();
    }
 
+   /**
+    * Returns an iterator over the points `from`, `from+step`,
+    * `from+2*step`, ..., up to but excluding `to`. Point @f$i@f$ of the
+    * iterator, as given by  PointSetIterator.getCurPointIndex, is point
+    * `from+i*step` of this point set. The iterator is built on top of
+    * #iterator, so it returns the same coordinates, randomization
+    * included. With `step` = 1, it moves from one point to the next as
+    * efficiently as  #iterator (for example, with the Gray code for
+    * digital nets); with a larger step, each move is a call to
+    * PointSetIterator.setCurPointIndex.
+    *  @param from         index of the first point
+    *  @param to           index following the last point
+    *  @param step         distance between successive points
+    *  @return an iterator over the selected points
+    *  @exception IllegalArgumentException if `from` or `to` is not in
+    * @f$[0, n]@f$ or if `step` is smaller than 1
+    */
+   public PointSetIterator iterator (int from, int to, int step) {
+      if (from < 0 || from > getNumPoints() || to < 0 || to > getNumPoints())
+         throw new IllegalArgumentException ("Invalid range for points");
+      if (step < 1)
+         throw new IllegalArgumentException ("step must be >= 1");
+      return new RangeIterator (iterator(), from, to, step);
+   }
+
+   /**
+    * Splits the points of this point set into @f$k@f$ disjoint subsets
+    * and returns one iterator for each subset, as given by
+    * #iterator(int,int,int). If `strided` is `false`, iterator @f$r@f$
+    * enumerates the contiguous block of points
+    * @f$\lfloor rn/k\rfloor, …, \lfloor (r+1)n/k\rfloor - 1@f$;
+    * otherwise, it enumerates the points @f$i@f$ such that
+    * @f$i \bmod k = r@f$. The contiguous blocks are faster to enumerate.
+    *
+    * Each iterator has its own state, so the iterators can be used
+    * concurrently by different threads, provided the point set and its
+    * randomization are not modified meanwhile. As some point sets extend
+    * their random shift lazily when a coordinate beyond the current shift
+    * is requested, the shift should cover all the coordinates used before
+    * the iterators are handed to other threads.
+    *  @param k            number of subsets
+    *  @param strided      `true` for strided subsets, `false` for
+    *                      contiguous blocks
+    *  @return the @f$k@f$ iterators
+    *  @exception IllegalArgumentException if @f$k < 1@f$
+    */
+   public PointSetIterator[] splitIterators (int k, boolean strided) {
+      if (k < 1)
+         throw new IllegalArgumentException ("k must be >= 1");
+      int n = getNumPoints();
+      PointSetIterator[] iters = new PointSetIterator[k];
+      for (int r = 0; r < k; r++) {
+         if (strided)
+            iters[r] = iterator (Math.min (r, n), n, k);
+         else
+            iters[r] = iterator ((int) ((long) r * n / k),
+                                 (int) ((long) (r + 1) * n / k), 1);
+      }
+      return iters;
+   }
+
+   /**
+    * Order of the coordinates in the array filled by  #fillPoints. With
+    * `ROW_MAJOR`, the @f$d@f$ coordinates of each point are contiguous;
+    * with `COLUMN_MAJOR`, coordinate @f$j@f$ of the @f$n@f$ points are
+    * contiguous.
+    */
+   public enum Layout { ROW_MAJOR, COLUMN_MAJOR }
+
+   /**
+    * Stores the first `d` coordinates of the `n` points `from`, ...,
+    * `from+n-1` in the flat array `out`. With layout `ROW_MAJOR`,
+    * coordinate @f$j@f$ of point `from+i` is stored in `out[i*d + j]`;
+    * with `COLUMN_MAJOR`, it is stored in `out[j*n + i]`. The values are
+    * the same as those returned by  #iterator after
+    * <tt>setCurPointIndex(from)</tt>. The default implementation uses
+    * such an iterator; the subclasses that can compute the points in bulk
+    * more efficiently override this method with implementations that
+    * allocate no memory.
+    *  @param from         index of the first point
+    *  @param n            number of points
+    *  @param d            number of coordinates of each point
+    *  @param out          array receiving the coordinates
+    *  @param layout       order of the coordinates in `out`
+    *  @exception IllegalArgumentException if the points or coordinates
+    * do not exist, or if `out` is too short
+    */
+   public void fillPoints (int from, int n, int d, double[] out,
+                           Layout layout) {
+      checkFillPoints (from, n, d, out);
+      if (n == 0)
+         return;
+      int strideI = layout == Layout.ROW_MAJOR ? d : 1;
+      int strideJ = layout == Layout.ROW_MAJOR ? 1 : n;
+      PointSetIterator iter = iterator();
+      iter.setCurPointIndex (from);
+      for (int i = 0; i < n; i++) {
+         for (int j = 0; j < d; j++)
+            out[i*strideI + j*strideJ] = iter.nextCoordinate();
+         iter.resetToNextPoint();
+      }
+   }
+
+   /**
+    * Checks the arguments passed to  #fillPoints. Subclasses that
+    * override `fillPoints` should call this method first.
+    *  @param from         index of the first point
+    *  @param n            number of points
+    *  @param d            number of coordinates of each point
+    *  @param out          array receiving the coordinates
+    */
+   protected void checkFillPoints (int from, int n, int d, double[] out) {
+      if (from < 0 || n < 0 || (long) from + n > getNumPoints())
+         throw new IllegalArgumentException ("Not enough points available");
+      if (d < 0 || d > getDimension())
+         throw new IllegalArgumentException
+            ("Not enough coordinates available");
+      if ((long) n * d > out.length)
+         throw new IllegalArgumentException ("The array is too small");
+   }
+
    /**
     * Sets the random stream used to generate random shifts to `stream`.
     *  @param stream       the new random stream
@@ -269,6 +390,23 @@ public abstract class PointSet {
       clearRandomShift();
   }
 
+   /**
+    * Returns a copy of this point set that can be randomized
+    * independently of it, for example in another thread. The copy shares
+    * the data that the randomizations do not modify, such as the original
+    * generator matrices of a digital net, and has its own copy of the
+    * current randomization. Subclasses holding other randomization state
+    * must override this method to copy it.
+    *  @return a copy of this point set
+    */
+   public PointSet clone() {
+      try {
+         return (PointSet) super.clone();
+      } catch (CloneNotSupportedException e) {
+         throw new IllegalStateException (e);
+      }
+   }
+
    /**
     * Formats a string that contains information about the point set.
     *  @return string representation of the point set information
@@ -656,4 +794,91 @@ public abstract class PointSet {
                   getCurCoordIndex();
       }
    }
-}
\ No newline at end of file
+
+
+// %%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// Iterator over the points from, from + step, ..., < to, built on top of
+// another iterator over the same point set. Point indices are relative
+// to the range.
+
+   protected class RangeIterator extends DefaultPointSetIterator {
+      private PointSetIterator inner;
+      private int from;
+      private int step;
+      private int size;                     // Number of points in the range.
+
+      public RangeIterator (PointSetIterator inner, int from, int to,
+                            int step) {
+         this.inner = inner;
+         this.from = from;
+         this.step = step;
+         size = from < to ? (to - from - 1) / step + 1 : 0;
+         resetCurPointIndex();
+      }
+
+      protected void outOfBounds () {
+         if (curPointIndex >= size)
+            throw new NoSuchElementException ("Not enough points available");
+         else
+            throw new NoSuchElementException ("Not enough coordinates available");
+      }
+
+      public void setCurCoordIndex (int j) {
+         inner.setCurCoordIndex (j);
+         curCoordIndex = j;
+      }
+
+      public void resetCurCoordIndex() {
+         inner.resetCurCoordIndex();
+         curCoordIndex = 0;
+      }
+
+      public boolean hasNextCoordinate() {
+         return inner.hasNextCoordinate();
+      }
+
+      public double nextCoordinate() {
+         if (curPointIndex >= size)
+            outOfBounds();
+         double x = inner.nextCoordinate();
+         curCoordIndex++;
+         return x;
+      }
+
+      public void nextCoordinates (double p[], int d) {
+         if (curPointIndex >= size)
+            outOfBounds();
+         inner.nextCoordinates (p, d);
+         curCoordIndex += d;
+      }
+
+      public void setCurPointIndex (int i) {
+         if (i < size)
+            inner.setCurPointIndex (from + i * step);
+         curPointIndex = i;
+         curCoordIndex = 0;
+      }
+
+      public int resetToNextPoint() {
+         if (step != 1)
+            return super.resetToNextPoint();
+         inner.resetToNextPoint();
+         curCoordIndex = 0;
+         return ++curPointIndex;
+      }
+
+      public boolean hasNextPoint() {
+         return curPointIndex < size;
+      }
+
+      public int nextPoint (double p[], int d) {
+         if (curPointIndex >= size)
+            outOfBounds();
+         if (step != 1)
+            return super.nextPoint (p, d);
+         inner.nextPoint (p, d);
+         curCoordIndex = 0;
+         return ++curPointIndex;
+      }
+   }
+}
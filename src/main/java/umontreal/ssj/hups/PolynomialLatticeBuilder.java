@@ -0,0 +1,461 @@
+/*
+ * Class:        PolynomialLatticeBuilder
+ * Description:  Search for good polynomial lattice rules in base 2
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.hups;
+
+import umontreal.ssj.util.ParallelLoop;
+
+/**
+ * Searches for good polynomial lattice rules in base 2 and returns them as
+ * @ref DigitalNetBase2 objects. A polynomial lattice rule with
+ * @f$n = 2^m@f$ points is defined by a modulus @f$P(x)@f$ of degree
+ * @f$m@f$ over @f$\mathbb F_2@f$ and a generating vector of polynomials
+ * @f$\mathbf{q}(x) = (q_0(x), …, q_{s-1}(x))@f$ of degrees smaller than
+ * @f$m@f$. Point @f$i@f$, whose binary digits are the coefficients of the
+ * polynomial @f$i(x)@f$, has coordinates
+ * @f[
+ *   u_{i,j} = \nu\left(\frac{i(x)\, q_j(x)}{P(x)}\right),
+ * @f]
+ * where @f$\nu@f$ maps the Laurent series @f$\sum_{l} a_l x^{-l}@f$ to
+ * @f$\sum_{l\ge1} a_l 2^{-l}@f$. This is a digital net whose generator
+ * matrix @f$\mathbf{C}_j@f$ is the Hankel matrix @f$(a_{r+c+1})@f$ of
+ * the expansion of @f$q_j(x)/P(x)@f$; it is truncated to @f$w@f$ output
+ * digits.
+ *
+ * The generating vector is built component by component (CBC): @f$q_0 =
+ * 1@f$ and each @f$q_j@f$ minimizes, among the @f$2^m-1@f$ nonzero
+ * polynomials, the weighted @f$\mathcal{P}_\alpha@f$ criterion of the
+ * first @f$j+1@f$ coordinates, defined from the Walsh series for
+ * @f$\alpha>1@f$,
+ * @f[
+ *   \mathcal{P}_\alpha = \sum_{\emptyset\ne\mathfrak{u}}
+ *   \gamma_{\mathfrak{u}} \frac{1}{n}\sum_{i=0}^{n-1}
+ *   \prod_{j\in\mathfrak{u}} \phi_\alpha(u_{i,j}),
+ *   \qquad
+ *   \phi_\alpha(u) = \sum_{k=1}^\infty 2^{-\alpha\lfloor\log_2 k\rfloor}
+ *   \mathrm{wal}_k(u),
+ * @f]
+ * with the same product or order-dependent weights as in
+ * @ref Rank1LatticeBuilder. When @f$u@f$ has @f$m@f$ digits,
+ * @f$\phi_\alpha(u)@f$ only depends on the position of its first nonzero
+ * digit, which is @f$m - \deg(i(x)q_j(x) \bmod P(x))@f$.
+ *
+ * The modulus @f$P(x)@f$ is a primitive polynomial. The nonzero
+ * polynomials modulo @f$P(x)@f$ are then the powers of @f$x@f$ and, as
+ * proposed by Nuyens and Cools, the criterion for all the candidates
+ * @f$q_j@f$ is obtained by a cyclic correlation of length @f$2^m-1@f$,
+ * computed by FFT in @f$O(m 2^m)@f$ time. The arithmetic modulo
+ * @f$P(x)@f$ works on `long` words, each bit being a coefficient. With
+ * several threads, the loops over the points and over the candidates,
+ * which take @f$O(2^m)@f$ time per coordinate, or @f$O(L 2^m)@f$ with
+ * order-dependent weights of order @f$L@f$, are split among the threads
+ * for large @f$2^m@f$; the FFTs of the correlation are computed by a
+ * single thread.
+ *
+ * <div class="SSJ-bigskip"></div><div class="SSJ-bigskip"></div>
+ */
+public class PolynomialLatticeBuilder {
+   private static final int MAXBITS = 30;
+
+   private int m;
+   private int n;
+   private long poly;
+   private double alpha = 2.0;
+   private double[] productWeights = {1.0};
+   private double[] orderWeights;  // null for product weights
+   private int numThreads = 1;
+   private double merit;
+
+   // Tables for the fast CBC, created on first use.
+   private FastCbc.FFT fft;
+   private int[] perm;             // perm[k] = x^k mod P
+   private int[] log;              // log[perm[k]] = k
+   private double[] phiDeg;        // phiDeg[d + 1] = phi for degree d
+   private double[][] fSpec;
+
+   /**
+    * Constructs a builder for polynomial lattice rules with @f$2^m@f$
+    * points, whose modulus is the primitive polynomial of degree
+    * @f$m@f$ with the smallest binary representation.
+    *  @param m            the rules have @f$2^m@f$ points, @f$1\le m\le
+    *                      30@f$
+    */
+   public PolynomialLatticeBuilder (int m) {
+      this (m, findPrimitive (m));
+   }
+
+   /**
+    * Constructs a builder for polynomial lattice rules with modulus
+    * `poly`, a primitive polynomial of degree @f$m@f$ whose bit @f$i@f$
+    * is the coefficient of @f$x^i@f$.
+    *  @param m            the rules have @f$2^m@f$ points, @f$1\le m\le
+    *                      30@f$
+    *  @param poly         the modulus
+    *  @exception IllegalArgumentException if `poly` is not a primitive
+    * polynomial of degree @f$m@f$
+    */
+   public PolynomialLatticeBuilder (int m, long poly) {
+      if (m < 1 || m > MAXBITS)
+         throw new IllegalArgumentException ("m must be in [1, 30]");
+      if (poly >>> m != 1 || !isPrimitive (poly, m))
+         throw new IllegalArgumentException
+            ("poly must be a primitive polynomial of degree m");
+      this.m = m;
+      this.n = 1 << m;
+      this.poly = poly;
+   }
+
+   /**
+    * Returns the modulus @f$P(x)@f$.
+    *  @return the modulus
+    */
+   public long getModulus() {
+      return poly;
+   }
+
+   /**
+    * Sets the value of @f$\alpha@f$ in the criterion
+    * @f$\mathcal{P}_\alpha@f$. The default is 2.
+    *  @param alpha        a real number larger than 1
+    */
+   public void setAlpha (double alpha) {
+      if (!(alpha > 1.0))
+         throw new IllegalArgumentException ("alpha must be > 1");
+      this.alpha = alpha;
+      phiDeg = null;
+      fSpec = null;
+   }
+
+   /**
+    * Uses the product weights @f$\gamma_j@f$ = `gamma[j]`. If there are
+    * more coordinates than weights, the last weight is used for the
+    * remaining coordinates.
+    *  @param gamma        the weights of the coordinates
+    */
+   public void setProductWeights (double[] gamma) {
+      if (gamma.length == 0)
+         throw new IllegalArgumentException ("No weights");
+      productWeights = gamma.clone();
+      orderWeights = null;
+   }
+
+   /**
+    * Uses the order-dependent weights @f$\Gamma_\ell@f$ =
+    * `Gamma[`@f$\ell-1@f$`]`; the weights of the orders larger than
+    * `Gamma.length` are 0.
+    *  @param Gamma        the weights of the orders 1, 2, …
+    */
+   public void setOrderDependentWeights (double[] Gamma) {
+      if (Gamma.length == 0)
+         throw new IllegalArgumentException ("No weights");
+      orderWeights = Gamma.clone();
+   }
+
+   /**
+    * Sets the number of threads used by the search. The default is 1.
+    * The results do not depend on the number of threads.
+    *  @param numThreads   number of threads
+    */
+   public void setNumThreads (int numThreads) {
+      if (numThreads < 1)
+         throw new IllegalArgumentException ("numThreads must be >= 1");
+      this.numThreads = numThreads;
+   }
+
+   /**
+    * Returns the value of @f$\mathcal{P}_\alpha@f$ for the generating
+    * vector found by the last call to  #cbc.
+    *  @return the figure of merit of the last rule found
+    */
+   public double getMerit() {
+      return merit;
+   }
+
+   /**
+    * Builds a generating vector in dimension @f$s@f$ by the CBC
+    * construction. Bit @f$i@f$ of `q[j]` is the coefficient of @f$x^i@f$
+    * in @f$q_j(x)@f$.
+    *  @param s            dimension
+    *  @return the generating vector
+    */
+   public long[] cbc (int s) {
+      if (s < 1)
+         throw new IllegalArgumentException ("s must be >= 1");
+      initTables();
+      final int len = n - 1;
+      long[] q = new long[s];
+      final double[] base = new double[n];
+      final double[] x = new double[n];
+      final double[] w = new double[n];
+      final double[] xp = new double[len];
+      final double[] c = new double[len];
+      FastCbc.State state = new FastCbc.State (n, productWeights,
+                                               orderWeights, numThreads);
+      int nc = ParallelLoop.numChunks (numThreads, n - 1);
+      final int[] chunkBest = new int[nc];
+      final double[] chunkVal = new double[nc];
+      for (int j = 0; j < s; j++) {
+         double c0 = state.prepare (base, x);
+         int b = 0;                 // q_j = x^b
+         if (j > 0) {
+            double baseSum = 0.0;
+            for (int i = 0; i < n; i++)
+               baseSum += base[i];
+            ParallelLoop.getDefault().run (numThreads, len,
+               new ParallelLoop.Task() {
+               public void run (int t, int lo, int hi) {
+                  for (int a = lo; a < hi; a++)
+                     xp[a] = x[perm[a]];
+               }
+            });
+            FastCbc.correlate (fft, new double[][] {xp},
+                               new double[][] {fSpec[0]},
+                               new double[][] {fSpec[1]}, len,
+                               new double[][] {c});
+            // Best candidate of each chunk, then of all of them. Ties are
+            // broken by the smallest polynomial.
+            final double c00 = c0;
+            final double sum0 = baseSum + x[0] * phiDeg[0];
+            ParallelLoop.getDefault().run (numThreads, n - 1,
+               new ParallelLoop.Task() {
+               public void run (int t, int lo, int hi) {
+                  double bestVal = Double.POSITIVE_INFINITY;
+                  int best = 0;
+                  for (int qq = lo + 1; qq <= hi; qq++) {
+                     double v = c00 + (sum0 + c[log[qq]]) / n;
+                     if (v < bestVal) {
+                        bestVal = v;
+                        best = log[qq];
+                     }
+                  }
+                  chunkVal[t] = bestVal;
+                  chunkBest[t] = best;
+               }
+            });
+            double bestVal = Double.POSITIVE_INFINITY;
+            for (int t = 0; t < nc; t++)
+               if (chunkVal[t] < bestVal) {
+                  bestVal = chunkVal[t];
+                  b = chunkBest[t];
+               }
+         }
+         q[j] = perm[b];
+         final int shift = b;
+         ParallelLoop.getDefault().run (numThreads, n,
+            new ParallelLoop.Task() {
+            public void run (int t, int lo, int hi) {
+               for (int i = Math.max (lo, 1); i < hi; i++) {
+                  int r = perm[(log[i] + shift) % len];
+                  w[i] = phiDeg[32 - Integer.numberOfLeadingZeros (r)];
+               }
+            }
+         });
+         w[0] = phiDeg[0];
+         state.update (w);
+      }
+      merit = state.merit();
+      return q;
+   }
+
+   /**
+    * Returns the polynomial lattice rule in dimension @f$s@f$ whose
+    * generating vector is given by  #cbc, with 31 output digits.
+    *  @param s            dimension
+    *  @return the digital net
+    */
+   public DigitalNetBase2 buildNet (int s) {
+      return toNet (cbc (s), 31);
+   }
+
+   /**
+    * Returns the polynomial lattice rule with generating vector `q`, in
+    * dimension `q.length`, as a digital net with @f$w@f$ output digits.
+    *  @param q            generating vector
+    *  @param w            number of output digits, @f$m\le w\le 31@f$
+    *  @return the digital net
+    */
+   public DigitalNetBase2 toNet (long[] q, int w) {
+      if (w < m || w > 31)
+         throw new IllegalArgumentException ("w must be in [m, 31]");
+      DigitalNetBase2 net = new DigitalNetBase2();
+      net.dim = q.length;
+      net.numPoints = n;
+      net.numCols = m;
+      net.numRows = w;
+      net.outDigits = w;
+      net.normFactor = 1.0 / ((double) (1L << w));
+      net.factor = new double[w];
+      net.genMat = new int[q.length * m];
+      int mask = (int) ((1L << w) - 1);
+      for (int j = 0; j < q.length; j++) {
+         long a = expansion (q[j], m + w - 1);
+         for (int c = 0; c < m; c++)
+            net.genMat[j * m + c] = (int) (a >>> (m - 1 - c)) & mask;
+      }
+      return net;
+   }
+
+   /**
+    * Computes @f$\mathcal{P}_\alpha@f$ for the first @f$s@f$ coordinates
+    * of the polynomial lattice rule with generating vector `q`, directly
+    * from its definition.
+    *  @param q            generating vector
+    *  @param s            number of coordinates
+    *  @return the figure of merit
+    */
+   public double computeMerit (long[] q, int s) {
+      initPhi();
+      FastCbc.State state = new FastCbc.State (n, productWeights,
+                                               orderWeights);
+      double[] w = new double[n];
+      for (int j = 0; j < s; j++) {
+         for (int i = 0; i < n; i++) {
+            long r = multiplyMod (i, q[j], poly, m);
+            w[i] = phiDeg[64 - Long.numberOfLeadingZeros (r)];
+         }
+         state.update (w);
+      }
+      return state.merit();
+   }
+
+   //-----------------------------------------------------------------------
+   // Arithmetic in F_2[x].
+
+   /**
+    * Returns @f$a(x) b(x) \bmod p(x)@f$, where @f$p(x)@f$ has degree
+    * @f$m\le 31@f$ and @f$a(x)@f$, @f$b(x)@f$ have degrees smaller than
+    * @f$m@f$. Bit @f$i@f$ of each argument is the coefficient of
+    * @f$x^i@f$.
+    *  @param a            first factor
+    *  @param b            second factor
+    *  @param p            modulus
+    *  @param m            degree of the modulus
+    *  @return the product modulo @f$p(x)@f$
+    */
+   public static long multiplyMod (long a, long b, long p, int m) {
+      // Carry-less product, one nonzero bit of b at a time.
+      long r = 0;
+      for (; b != 0; b &= b - 1)
+         r ^= a << Long.numberOfTrailingZeros (b);
+      for (int d = 63 - Long.numberOfLeadingZeros (r | 1); d >= m; d--)
+         if (((r >>> d) & 1) != 0)
+            r ^= p << (d - m);
+      return r;
+   }
+
+   // The first numDigits coefficients a_1, a_2, ... of the expansion of
+   // q(x)/P(x) in powers of 1/x, a_1 being the most significant bit.
+   private long expansion (long q, int numDigits) {
+      long r = q, a = 0;
+      for (int l = 0; l < numDigits; l++) {
+         r <<= 1;
+         a <<= 1;
+         if ((r >>> m) != 0) {
+            a |= 1;
+            r ^= poly;
+         }
+      }
+      return a;
+   }
+
+   private static long powMod (long a, long e, long p, int m) {
+      long r = 1;
+      while (e > 0) {
+         if ((e & 1) != 0)
+            r = multiplyMod (r, a, p, m);
+         a = multiplyMod (a, a, p, m);
+         e >>= 1;
+      }
+      return r;
+   }
+
+   // Whether x has order 2^m - 1 modulo p, which makes p irreducible.
+   private static boolean isPrimitive (long p, int m) {
+      if ((p & 1) == 0)
+         return false;                // x divides p
+      long order = (1L << m) - 1;
+      long x = m == 1 ? 1 : 2;        // x mod p
+      if (powMod (x, order, p, m) != 1)
+         return false;
+      long r = order;
+      for (long d = 3; d * d <= r; d += 2)
+         if (r % d == 0) {
+            if (powMod (x, order / d, p, m) == 1)
+               return false;
+            while (r % d == 0)
+               r /= d;
+         }
+      return r == 1 || r == order || powMod (x, order / r, p, m) != 1;
+   }
+
+   private static long findPrimitive (int m) {
+      if (m < 1 || m > MAXBITS)
+         throw new IllegalArgumentException ("m must be in [1, 30]");
+      for (long p = (1L << m) | 1; ; p += 2)
+         if (isPrimitive (p, m))
+            return p;
+   }
+
+   //-----------------------------------------------------------------------
+
+   // phi_alpha of a value whose first nonzero digit among the m first ones
+   // is at position t = m - d, for d = -1 (value 0), 0, ..., m - 1.
+   private void initPhi() {
+      if (phiDeg != null)
+         return;
+      double c = Math.pow (2.0, 1.0 - alpha);
+      double[] phi = new double[m + 1];
+      phi[0] = 1.0 / (1.0 - c);
+      for (int d = 0; d < m; d++) {
+         int t = m - d;
+         double ct = Math.pow (c, t - 1);
+         phi[d + 1] = (1.0 - ct) / (1.0 - c) - ct;
+      }
+      phiDeg = phi;
+   }
+
+   private void initTables() {
+      initPhi();
+      if (fSpec != null)
+         return;
+      int len = n - 1;
+      if (perm == null) {
+         perm = new int[len];
+         log = new int[n];
+         long v = 1;
+         for (int k = 0; k < len; k++) {
+            perm[k] = (int) v;
+            log[(int) v] = k;
+            v <<= 1;
+            if ((v >>> m) != 0)
+               v ^= poly;
+         }
+         fft = new FastCbc.FFT (FastCbc.transformSize (len));
+      }
+      double[] f = new double[len];
+      for (int k = 0; k < len; k++)
+         f[k] = phiDeg[32 - Integer.numberOfLeadingZeros (perm[k])];
+      fSpec = FastCbc.spectrum (fft, f);
+   }
+}
@@ -0,0 +1,287 @@
+/*
+ * Class:        RQMCReplicator
+ * Description:  Independent randomizations of a point set, in parallel
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.hups;
+
+import umontreal.ssj.rng.CloneableRandomStream;
+import umontreal.ssj.rng.RandomStream;
+import umontreal.ssj.stat.Tally;
+import umontreal.ssj.util.MultivariateFunction;
+import umontreal.ssj.util.ParallelLoop;
+
+/**
+ * Computes @f$m@f$ independent replicates of a randomized quasi-Monte Carlo
+ * estimator, possibly in parallel. Each replicate works on its own copy of
+ * a base point set, obtained by  PointSet.clone, which is randomized by a
+ * @ref PointSetRandomization and then passed to a  #Callback, or used to
+ * average a  @ref umontreal.ssj.util.MultivariateFunction over the points.
+ * The base point set itself is never modified.
+ *
+ * The randomization of replicate @f$r@f$ uses the @f$r@f$-th substream
+ * following the current substream of the stream given to the simulation
+ * methods, which must be a  @ref umontreal.ssj.rng.CloneableRandomStream.
+ * The randomized point sets, and thus the results, are then identical for
+ * any number of threads. On return, the stream is positioned at the start
+ * of the substream following those of the @f$m@f$ replicates. Only the
+ * randomization is guaranteed to see the stream of its replicate: a
+ * callback that needs random numbers must not take them from the stream
+ * of the randomization, which can be the stream of another replicate
+ * when more than one thread is used.
+ *
+ * Callbacks are called concurrently on different point sets when more than
+ * one thread is used, so they must not share mutable state between
+ * replicates. When the replicator is constructed with a single
+ * @ref PointSetRandomization, the randomizations are applied one at a
+ * time, since they share that object; with a  #RandomizationFactory,
+ * each thread creates its own randomization and they are applied in
+ * parallel.
+ *
+ * <div class="SSJ-bigskip"></div><div class="SSJ-bigskip"></div>
+ */
+public class RQMCReplicator {
+   private PointSet set;
+   private PointSetRandomization rand;
+   private RandomizationFactory factory;
+   private int numThreads = 1;
+
+   /**
+    * Computes the estimator of one replicate from its randomized point set.
+    */
+   public interface Callback {
+
+      /**
+       * Returns the value of the estimator for the randomized point set
+       * `p`, which belongs to replicate number `replicate` and is not used
+       * by any other replicate.
+       *  @param p            randomized copy of the base point set
+       *  @param replicate    index of the replicate, from 0 to @f$m-1@f$
+       *  @return value of the estimator
+       */
+      public double evaluate (PointSet p, int replicate);
+   }
+
+   /**
+    * Creates the randomizations used by the threads of a replicator.
+    */
+   public interface RandomizationFactory {
+
+      /**
+       * Returns a new randomization, which is used by a single thread.
+       * The randomizations returned by successive calls must be
+       * equivalent: they randomize a point set in the same way when they
+       * are given the same stream.
+       *  @return a new randomization
+       */
+      public PointSetRandomization createRandomization();
+   }
+
+   /**
+    * Constructs a replicator for the point set `set` randomized by `rand`.
+    * The randomizations of the replicates are applied one at a time.
+    *  @param set          base point set
+    *  @param rand         randomization applied to each copy of `set`
+    */
+   public RQMCReplicator (PointSet set, PointSetRandomization rand) {
+      if (set == null || rand == null)
+         throw new IllegalArgumentException ("null point set or randomization");
+      this.set = set;
+      this.rand = rand;
+   }
+
+   /**
+    * Constructs a replicator for the point set `set` randomized by
+    * randomizations created by `factory`, one for each thread, so that
+    * the randomizations of the replicates are applied in parallel.
+    *  @param set          base point set
+    *  @param factory      creates the randomizations applied to the copies
+    *                      of `set`
+    */
+   public RQMCReplicator (PointSet set, RandomizationFactory factory) {
+      if (set == null || factory == null)
+         throw new IllegalArgumentException ("null point set or factory");
+      this.set = set;
+      this.factory = factory;
+   }
+
+   /**
+    * Constructs a replicator for the point set and the randomization of
+    * `p`.
+    *  @param p            RQMC point set
+    */
+   public RQMCReplicator (RQMCPointSet p) {
+      this (p.getPointSet(), p.getRandomization());
+   }
+
+   /**
+    * Returns the base point set.
+    *  @return the base point set
+    */
+   public PointSet getPointSet() {
+      return set;
+   }
+
+   /**
+    * Returns the randomization given to the constructor, or `null` if
+    * the replicator uses a  #RandomizationFactory.
+    *  @return the randomization
+    */
+   public PointSetRandomization getRandomization() {
+      return rand;
+   }
+
+   /**
+    * Sets the number of threads used to compute the replicates. The
+    * default is 1.
+    *  @param numThreads   number of threads
+    */
+   public void setNumThreads (int numThreads) {
+      if (numThreads < 1)
+         throw new IllegalArgumentException ("numThreads < 1");
+      this.numThreads = numThreads;
+   }
+
+   /**
+    * Returns the number of threads used to compute the replicates.
+    *  @return the number of threads
+    */
+   public int getNumThreads() {
+      return numThreads;
+   }
+
+   /**
+    * Computes `m` replicates of the estimator given by `callback` and
+    * returns them, in the order of the replicates. See the class
+    * description for the use of `stream`.
+    *  @param callback     estimator computed on each randomized point set
+    *  @param m            number of replicates
+    *  @param stream       stream giving the randomizations
+    *  @return the `m` values of the estimator
+    */
+   public double[] simulReplicates (final Callback callback, int m,
+                                    RandomStream stream) {
+      if (m < 0)
+         throw new IllegalArgumentException ("m < 0");
+      if (!(stream instanceof CloneableRandomStream))
+         throw new IllegalArgumentException (
+            "the stream must be a CloneableRandomStream");
+      CloneableRandomStream cs = (CloneableRandomStream) stream;
+      final RandomStream[] streams = new RandomStream[m];
+      for (int r = 0; r < m; r++) {
+         cs.resetNextSubstream();
+         streams[r] = cs.clone();
+      }
+      cs.resetNextSubstream();
+
+      final double[] values = new double[m];
+      final RandomStream saved = rand == null ? null : rand.getStream();
+      try {
+         ParallelLoop.getDefault().run (numThreads, m,
+            new ParallelLoop.Task() {
+            public void run (int t, int lo, int hi) {
+               PointSetRandomization own = factory == null ? null
+                  : factory.createRandomization();
+               for (int r = lo; r < hi; r++) {
+                  PointSet p = set.clone();
+                  if (own != null) {
+                     own.setStream (streams[r]);
+                     own.randomize (p);
+                  } else
+                     synchronized (rand) {
+                        rand.setStream (streams[r]);
+                        rand.randomize (p);
+                     }
+                  values[r] = callback.evaluate (p, r);
+               }
+            }
+         });
+      } finally {
+         if (rand != null)
+            rand.setStream (saved);
+      }
+      return values;
+   }
+
+   /**
+    * Computes `m` replicates of the estimator given by `callback` and adds
+    * them to `statReps`, in the order of the replicates. The collector is
+    * not initialized first.
+    *  @param callback     estimator computed on each randomized point set
+    *  @param m            number of replicates
+    *  @param stream       stream giving the randomizations
+    *  @param statReps     collector for the replicates
+    */
+   public void simulReplicates (Callback callback, int m,
+                                RandomStream stream, Tally statReps) {
+      double[] values = simulReplicates (callback, m, stream);
+      for (int r = 0; r < m; r++)
+         statReps.add (values[r]);
+   }
+
+   /**
+    * Computes `m` replicates of the average of `f` over the randomized
+    * points and returns them. The points have dimension
+    * `f.getDimension()`, or the dimension of the point set if this is
+    * negative.
+    *  @param f            function to integrate
+    *  @param m            number of replicates
+    *  @param stream       stream giving the randomizations
+    *  @return the `m` averages
+    */
+   public double[] simulReplicates (MultivariateFunction f, int m,
+                                    RandomStream stream) {
+      return simulReplicates (averageOf (f), m, stream);
+   }
+
+   /**
+    * Computes `m` replicates of the average of `f` over the randomized
+    * points and adds them to `statReps`, in the order of the replicates.
+    *  @param f            function to integrate
+    *  @param m            number of replicates
+    *  @param stream       stream giving the randomizations
+    *  @param statReps     collector for the replicates
+    */
+   public void simulReplicates (MultivariateFunction f, int m,
+                                RandomStream stream, Tally statReps) {
+      simulReplicates (averageOf (f), m, stream, statReps);
+   }
+
+   private static Callback averageOf (final MultivariateFunction f) {
+      return new Callback() {
+         public double evaluate (PointSet p, int replicate) {
+            int d = f.getDimension();
+            if (d < 0)
+               d = p.getDimension();
+            double[] u = new double[d];
+            PointSetIterator it = p.iterator();
+            int n = p.getNumPoints();
+            double sum = 0.0;
+            for (int i = 0; i < n; i++) {
+               it.nextPoint (u, d);
+               sum += f.evaluate (u);
+            }
+            return sum / n;
+         }
+      };
+   }
+}
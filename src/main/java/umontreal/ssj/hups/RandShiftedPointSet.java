@@ -142,6 +142,13 @@ public class RandShiftedPointSet extends ContainerPointSet {
       addRandomShift (0, dimShift);
    }
 
+   public RandShiftedPointSet clone() {
+      RandShiftedPointSet p = (RandShiftedPointSet) super.clone();
+      if (shift != null)
+         p.shift = shift.clone();
+      return p;
+   }
+
 
    public String toString() {
       return "RandShiftedPointSet of: {" + PrintfFormat.NEWLINE
@@ -137,6 +137,13 @@ public class Rank1Lattice extends PointSet {
       shift = null;
    }
 
+   public Rank1Lattice clone() {
+      Rank1Lattice p = (Rank1Lattice) super.clone();
+      if (shift != null)
+         p.shift = shift.clone();
+      return p;
+   }
+
 
    public String toString() {
       StringBuffer sb = new StringBuffer ("Rank1Lattice:" +
@@ -161,6 +168,34 @@ public class Rank1Lattice extends PointSet {
    }
 
 
+   public void fillPoints (int from, int n, int d, double[] out,
+                           Layout layout) {
+      checkFillPoints (from, n, d, out);
+      if (shift != null && dimShift < d)
+         addRandomShift (dimShift, d, shiftStream);
+      int strideI = layout == Layout.ROW_MAJOR ? d : 1;
+      int strideJ = layout == Layout.ROW_MAJOR ? 1 : n;
+      for (int j = 0; j < d; j++) {
+         final double vj = v[j];
+         final double sj = shift == null ? 0.0 : shift[j];
+         int k = j * strideJ;
+         double di = from;   // i as a double, to avoid a conversion
+         for (int i = 0; i < n; i++, k += strideI, di += 1.0) {
+            // Same as (i * vj) % 1.0, since i * vj >= 0.
+            double x = di * vj;
+            x -= Math.floor (x);
+            if (shift != null) {
+               x += sj;
+               if (x >= 1.0)
+                  x -= 1.0;
+               if (x <= 0.0)
+                  x = EpsilonHalf;  // avoid x = 0
+            }
+            out[k] = x;
+         }
+      }
+   }
+
    // Recursive method that computes a^e mod m.
    protected long modPower (long a, int e, int m) {
       // If parameters a and m == numPoints could be omitted, then
@@ -0,0 +1,708 @@
+/*
+ * Class:        Rank1LatticeBuilder
+ * Description:  Search for good parameters of rank-1 and Korobov lattices
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.hups;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import umontreal.ssj.util.ParallelLoop;
+
+/**
+ * Searches for good generating vectors of rank-1 lattices
+ * ( @ref Rank1Lattice) and good multipliers of Korobov lattices
+ * ( @ref KorobovLattice) with @f$n@f$ points, where @f$n@f$ is a prime
+ * number or a power of 2.
+ *
+ * The generating vector @f$\mathbf{z} = (z_0, …, z_{s-1})@f$ is built
+ * component by component (CBC): @f$z_0 = 1@f$ and, for @f$j = 1, …,
+ * s-1@f$, @f$z_j@f$ is the value, among the integers in @f$[1, n)@f$
+ * that are relatively prime with @f$n@f$, that minimizes the figure of
+ * merit of the first @f$j+1@f$ coordinates, the previous components being
+ * fixed. Two figures of merit are available.
+ *
+ * - `P_ALPHA`: the weighted @f$\mathcal{P}_\alpha@f$ criterion, for
+ *   @f$\alpha\in\{2, 4, 6\}@f$,
+ *   @f[
+ *     \mathcal{P}_\alpha = \sum_{\emptyset\ne\mathfrak{u}\subseteq\{0,…,s-1\}}
+ *     \gamma_{\mathfrak{u}} \frac{1}{n}\sum_{i=0}^{n-1}
+ *     \prod_{j\in\mathfrak{u}} \omega_\alpha(u_{i,j}),
+ *     \qquad \omega_\alpha(x) = \frac{(-1)^{\alpha/2+1}(2\pi)^\alpha}{\alpha!}
+ *     B_\alpha(x),
+ *   @f]
+ *   where @f$B_\alpha@f$ is the Bernoulli polynomial of degree
+ *   @f$\alpha@f$. The values of the criterion for all the candidates
+ *   @f$z_j@f$ are computed at once with fast Fourier transforms, as
+ *   proposed by Nuyens and Cools, in @f$O(n\log n)@f$ time per coordinate.
+ * - `SPECTRAL`: the largest weighted ratio
+ *   @f$\gamma_{\{i,j\}}\,\ell^*(n) / \ell_{i,j}@f$ over the
+ *   two-dimensional projections @f$\{i,j\}@f$, where @f$\ell_{i,j}@f$ is
+ *   the Euclidean length of the shortest nonzero vector of the dual
+ *   lattice of the projection and @f$\ell^*(n) = (4/3)^{1/4}\sqrt n@f$ is
+ *   its largest possible value. Each candidate costs
+ *   @f$O(j\log n)@f$ time; the candidates are split among the threads.
+ *
+ * The weights @f$\gamma_{\mathfrak{u}}@f$ can be product weights,
+ * @f$\gamma_{\mathfrak{u}} = \prod_{j\in\mathfrak{u}}\gamma_j@f$ (the
+ * default, with @f$\gamma_j = 1@f$), or order-dependent weights,
+ * @f$\gamma_{\mathfrak{u}} = \Gamma_{|\mathfrak{u}|}@f$. With
+ * order-dependent weights, the CBC construction for
+ * @f$\mathcal{P}_\alpha@f$ keeps @f$L@f$ vectors of size @f$n@f$, where
+ * @f$L@f$ is the largest order with a nonzero weight.
+ *
+ * When @f$n = 2^m@f$, the method  #embeddedCbc builds a generating vector
+ * that is good for all the embedded lattices with @f$2^k@f$ points, for
+ * @f$k@f$ in a given range: the lattice returned can then be used with
+ * Rank1Lattice.setNumPoints(int) for any of these sizes.
+ *
+ * <div class="SSJ-bigskip"></div><div class="SSJ-bigskip"></div>
+ */
+public class Rank1LatticeBuilder {
+
+   /**
+    * Figures of merit minimized by the searches.
+    */
+   public enum Criterion { P_ALPHA, SPECTRAL }
+
+   private int n;
+   private int m;                  // n = 2^m, or -1 if n is prime
+   private int alpha = 2;
+   private Criterion criterion = Criterion.P_ALPHA;
+   private double[] productWeights = {1.0};
+   private double[] orderWeights;  // null for product weights
+   private int numThreads = 1;
+   private double merit;
+
+   // Tables for the fast CBC, created on first use.
+   private FastCbc.FFT fft;
+   private int[] perm;             // n prime: perm[k] = g^k mod n
+   private int[] log;              // n prime: log[perm[k]] = k;
+                                   // n = 2^m: log[z] = c*2^(m-2) + d for
+                                   // z = (-1)^c 5^d mod n
+   private double[][][] fRe, fIm;  // Spectra of omega over unit groups
+   private int[][] units;          // n = 2^m: units of Z_{2^r}, r >= 3
+
+   /**
+    * Constructs a builder for lattices with @f$n@f$ points.
+    *  @param n            number of points, a prime or a power of 2
+    *  @exception IllegalArgumentException if @f$n@f$ is not a prime
+    * number nor a power of 2 larger than 1
+    */
+   public Rank1LatticeBuilder (int n) {
+      if (n >= 2 && (n & (n - 1)) == 0)
+         m = Integer.numberOfTrailingZeros (n);
+      else if (isPrime (n))
+         m = -1;
+      else
+         throw new IllegalArgumentException
+            ("n must be a prime number or a power of 2");
+      this.n = n;
+   }
+
+   /**
+    * Sets the value of @f$\alpha@f$ in the criterion
+    * @f$\mathcal{P}_\alpha@f$. The default is 2.
+    *  @param alpha        2, 4 or 6
+    */
+   public void setAlpha (int alpha) {
+      if (alpha != 2 && alpha != 4 && alpha != 6)
+         throw new IllegalArgumentException ("alpha must be 2, 4 or 6");
+      this.alpha = alpha;
+      fRe = fIm = null;
+   }
+
+   /**
+    * Selects the figure of merit. The default is `P_ALPHA`.
+    *  @param criterion    the figure of merit
+    */
+   public void setCriterion (Criterion criterion) {
+      this.criterion = criterion;
+   }
+
+   /**
+    * Uses the product weights @f$\gamma_j@f$ = `gamma[j]`. If there are
+    * more coordinates than weights, the last weight is used for the
+    * remaining coordinates.
+    *  @param gamma        the weights of the coordinates
+    */
+   public void setProductWeights (double[] gamma) {
+      if (gamma.length == 0)
+         throw new IllegalArgumentException ("No weights");
+      productWeights = gamma.clone();
+      orderWeights = null;
+   }
+
+   /**
+    * Uses the order-dependent weights @f$\Gamma_\ell@f$ =
+    * `Gamma[`@f$\ell-1@f$`]`; the weights of the orders larger than
+    * `Gamma.length` are 0.
+    *  @param Gamma        the weights of the orders 1, 2, …
+    */
+   public void setOrderDependentWeights (double[] Gamma) {
+      if (Gamma.length == 0)
+         throw new IllegalArgumentException ("No weights");
+      orderWeights = Gamma.clone();
+   }
+
+   /**
+    * Sets the number of threads used by the searches. The default is 1.
+    * The results do not depend on the number of threads.
+    *  @param numThreads   number of threads
+    */
+   public void setNumThreads (int numThreads) {
+      if (numThreads < 1)
+         throw new IllegalArgumentException ("numThreads must be >= 1");
+      this.numThreads = numThreads;
+   }
+
+   /**
+    * Returns the figure of merit of the lattice found by the last search.
+    * For  #embeddedCbc with `P_ALPHA`, this is the value for the largest
+    * number of points.
+    *  @return the figure of merit of the last lattice found
+    */
+   public double getMerit() {
+      return merit;
+   }
+
+   /**
+    * Builds a generating vector in dimension @f$s@f$ by the CBC
+    * construction.
+    *  @param s            dimension
+    *  @return the generating vector
+    */
+   public int[] cbc (int s) {
+      if (s < 1)
+         throw new IllegalArgumentException ("s must be >= 1");
+      if (criterion == Criterion.SPECTRAL)
+         return cbcSpectral (s);
+      return cbcPAlpha (s, m < 0 ? 0 : m);
+   }
+
+   /**
+    * Builds a generating vector in dimension @f$s@f$ by the CBC
+    * construction for embedded lattices, with the criterion
+    * @f$\mathcal{P}_\alpha@f$. The number of points must be
+    * @f$n=2^m@f$. At each step, @f$z_j@f$ minimizes the largest ratio,
+    * over @f$k =@f$ `mMin`, …, @f$m@f$, of the criterion of the lattice
+    * with @f$2^k@f$ points to the smallest value of this criterion over
+    * the candidates.
+    *  @param s            dimension
+    *  @param mMin         the smallest lattice has @f$2^{\text{mMin}}@f$
+    *                      points
+    *  @return the generating vector
+    *  @exception UnsupportedOperationException if @f$n@f$ is not a power
+    * of 2 or if the criterion is not `P_ALPHA`
+    */
+   public int[] embeddedCbc (int s, int mMin) {
+      if (m < 0)
+         throw new UnsupportedOperationException
+            ("Embedded lattices need a power of 2 for n");
+      if (criterion != Criterion.P_ALPHA)
+         throw new UnsupportedOperationException
+            ("Embedded lattices are only built with P_ALPHA");
+      if (s < 1)
+         throw new IllegalArgumentException ("s must be >= 1");
+      if (mMin < 1 || mMin > m)
+         throw new IllegalArgumentException ("mMin must be in [1, m]");
+      return cbcPAlpha (s, mMin);
+   }
+
+   /**
+    * Returns a  @ref Rank1Lattice in dimension @f$s@f$ whose generating
+    * vector is given by  #cbc.
+    *  @param s            dimension
+    *  @return the lattice
+    */
+   public Rank1Lattice buildRank1Lattice (int s) {
+      return new Rank1Lattice (n, cbc (s), s);
+   }
+
+   /**
+    * Returns the multiplier @f$a@f$ of the Korobov lattice in dimension
+    * @f$s@f$, with generating vector @f$(1, a, a^2, …, a^{s-1}) \bmod
+    * n@f$, that minimizes the figure of merit. All the multipliers
+    * @f$a\le n/2@f$ relatively prime with @f$n@f$ are tried, which takes
+    * @f$O(sn^2)@f$ time with `P_ALPHA`; they are split among the threads.
+    *  @param s            dimension
+    *  @return the best multiplier
+    */
+   public int searchKorobov (final int s) {
+      if (s < 1)
+         throw new IllegalArgumentException ("s must be >= 1");
+      final int count = n / 2;
+      final double[] merits = new double[count];
+      ParallelLoop.getDefault().run (numThreads, count,
+         new ParallelLoop.Task() {
+         public void run (int t, int lo, int hi) {
+            for (int a = lo + 1; a <= hi; a++)
+               merits[a - 1] = gcd (a, n) == 1
+                  ? computeMerit (korobovVector (a, s), s)
+                  : Double.POSITIVE_INFINITY;
+         }
+      });
+      int best = 0;
+      for (int k = 1; k < count; k++)
+         if (merits[k] < merits[best])
+            best = k;
+      merit = merits[best];
+      return best + 1;
+   }
+
+   /**
+    * Returns a  @ref KorobovLattice in dimension @f$s@f$ whose multiplier
+    * is given by  #searchKorobov.
+    *  @param s            dimension
+    *  @return the lattice
+    */
+   public KorobovLattice buildKorobovLattice (int s) {
+      return new KorobovLattice (n, searchKorobov (s), s);
+   }
+
+   /**
+    * Computes the figure of merit of the first @f$s@f$ coordinates of
+    * the rank-1 lattice with @f$n@f$ points and generating vector `z`,
+    * directly from its definition.
+    *  @param z            generating vector
+    *  @param s            number of coordinates
+    *  @return the figure of merit
+    */
+   public double computeMerit (int[] z, int s) {
+      if (criterion == Criterion.SPECTRAL) {
+         double worst = 0.0;
+         for (int j = 1; j < s; j++)
+            for (int i = 0; i < j; i++)
+               worst = Math.max (worst, spectralRatio (z[i], z[j], i, j));
+         return worst;
+      }
+      FastCbc.State state = new FastCbc.State (n, productWeights,
+                                               orderWeights);
+      double[] w = new double[n];
+      for (int j = 0; j < s; j++) {
+         for (int i = 0; i < n; i++)
+            w[i] = omega (point (i, z[j]));
+         state.update (w);
+      }
+      return state.merit();
+   }
+
+   //-----------------------------------------------------------------------
+   // CBC for P_alpha.
+
+   // For the levels k = kMin, ..., m (a single level if n is prime), the
+   // value of the criterion, for the points i multiple of 2^(m-k), is
+   //    c0 + (sum_i base[i] + sum_i x[i] omega(i z mod n / n)) / 2^k,
+   // where base and x only depend on the previous coordinates.
+   private int[] cbcPAlpha (int s, int kMin) {
+      initTables();
+      final int numLevels = m < 0 ? 1 : m - kMin + 1;
+      int numCand = m < 0 ? n - 1 : n / 2;
+      int[] z = new int[s];
+      double[] base = new double[n];
+      double[] x = new double[n];
+      double[] w = new double[n];
+      double[][] T = new double[numLevels][numCand];
+      double[] baseSum = new double[numLevels];
+      FastCbc.State state = new FastCbc.State (n, productWeights,
+                                               orderWeights, numThreads);
+
+      for (int j = 0; j < s; j++) {
+         double c0 = state.prepare (base, x);
+         for (int k = 0; k < numLevels; k++) {
+            int step = m < 0 ? 1 : 1 << (numLevels - 1 - k);
+            double sb = 0.0;
+            for (int i = 0; i < n; i += step)
+               sb += base[i];
+            baseSum[k] = sb;
+         }
+
+         int best;
+         if (j == 0)
+            best = 0;               // z_0 = 1
+         else {
+            transform (x, T);
+            // Value of each level, and ratio to its best value.
+            double[] minLevel = new double[numLevels];
+            java.util.Arrays.fill (minLevel, Double.POSITIVE_INFINITY);
+            for (int k = 0; k < numLevels; k++) {
+               double size = m < 0 ? n : 1 << (m - numLevels + 1 + k);
+               for (int c = 0; c < numCand; c++) {
+                  T[k][c] = c0 + (baseSum[k] + T[k][c]) / size;
+                  minLevel[k] = Math.min (minLevel[k], T[k][c]);
+               }
+            }
+            best = 0;
+            double bestVal = Double.POSITIVE_INFINITY;
+            for (int c = 0; c < numCand; c++) {
+               double v;
+               if (numLevels == 1)
+                  v = T[0][c];
+               else {
+                  v = 0.0;
+                  for (int k = 0; k < numLevels; k++)
+                     v = Math.max (v, T[k][c] / minLevel[k]);
+               }
+               if (v < bestVal) {
+                  bestVal = v;
+                  best = c;
+               }
+            }
+         }
+         z[j] = m < 0 ? best + 1 : 2 * best + 1;
+         for (int i = 0; i < n; i++)
+            w[i] = omega (point (i, z[j]));
+         state.update (w);
+      }
+      merit = state.merit();
+      return z;
+   }
+
+   // T[k][c] = sum over the points i of level k of x[i] omega(i z / n),
+   // for candidate number c.
+   private void transform (final double[] x, final double[][] T) {
+      final double w0 = x[0] * omega (0.0);
+      if (m < 0) {
+         int len = n - 1;
+         double[] xp = new double[len];
+         for (int a = 0; a < len; a++)
+            xp[a] = x[perm[a]];
+         double[] c = new double[len];
+         FastCbc.correlate (fft, new double[][] {xp}, fRe[0], fIm[0], len,
+                            new double[][] {c});
+         for (int z = 1; z < n; z++)
+            T[0][z - 1] = w0 + c[log[z]];
+         return;
+      }
+      final int numLevels = T.length;
+      final int numCand = n / 2;
+      // Contribution of the points i = 2^(m-r) u, u odd, for r = 1..m.
+      final double[][] contrib = new double[m + 1][];
+      ParallelLoop.getDefault().run (numThreads, m,
+         new ParallelLoop.Task() {
+         public void run (int t, int lo, int hi) {
+            for (int r = lo + 1; r <= hi; r++)
+               contrib[r] = blockContribution (x, r);
+         }
+      });
+      int quarter = Math.max (n / 4, 1);
+      double[] cum = new double[numCand];
+      java.util.Arrays.fill (cum, w0);
+      for (int r = 1; r <= m; r++) {
+         double[] t = contrib[r];
+         int mask = r < 3 ? 0 : (1 << (r - 2)) - 1;
+         for (int c = 0; c < numCand; c++) {
+            int zz = 2 * c + 1;
+            if (r == 1)
+               cum[c] += t[0];
+            else if (r == 2)
+               cum[c] += t[(zz >> 1) & 1];
+            else {
+               int lg = log[zz];
+               int sign = lg / quarter;
+               cum[c] += t[sign * (mask + 1) + (lg & mask)];
+            }
+         }
+         int k = r - (m - numLevels + 1);
+         if (k >= 0)
+            System.arraycopy (cum, 0, T[k], 0, numCand);
+      }
+   }
+
+   // For n = 2^m, returns the sums over u in the units of Z_{2^r} of
+   // x[2^(m-r) u] omega((u z mod 2^r) / 2^r), indexed by the class of z:
+   // one value for r = 1, z mod 4 / 2 for r = 2, and c*2^(r-2) + d for
+   // z = (-1)^c 5^d for r >= 3.
+   private double[] blockContribution (double[] x, int r) {
+      int shift = m - r;
+      if (r == 1)
+         return new double[] {x[1 << shift] * omega (0.5)};
+      if (r == 2) {
+         double x1 = x[1 << shift], x3 = x[3 << shift];
+         return new double[] {x1 * omega (0.25) + x3 * omega (0.75),
+                              x1 * omega (0.75) + x3 * omega (0.25)};
+      }
+      int len = 1 << (r - 2);
+      int[] u = units[r];
+      double[] x0 = new double[len];
+      double[] x1 = new double[len];
+      for (int b = 0; b < len; b++) {
+         x0[b] = x[u[b] << shift];
+         x1[b] = x[u[len + b] << shift];
+      }
+      double[] t = new double[2 * len];
+      double[] t0 = new double[len];
+      double[] t1 = new double[len];
+      // T[c](d) = corr(x0, f_c)(d) + corr(x1, f_{1-c})(d)
+      FastCbc.correlate (fft, new double[][] {x0, x1},
+                         new double[][] {fRe[r][0], fRe[r][1]},
+                         new double[][] {fIm[r][0], fIm[r][1]}, len,
+                         new double[][] {t0, t1});
+      System.arraycopy (t0, 0, t, 0, len);
+      System.arraycopy (t1, 0, t, len, len);
+      return t;
+   }
+
+   private void initTables() {
+      if (fRe != null)
+         return;
+      if (m < 0) {
+         int len = n - 1;
+         fft = new FastCbc.FFT (FastCbc.transformSize (len));
+         int g = primitiveRoot (n);
+         perm = new int[len];
+         log = new int[n];
+         long v = 1;
+         for (int k = 0; k < len; k++) {
+            perm[k] = (int) v;
+            log[(int) v] = k;
+            v = v * g % n;
+         }
+         double[] f = new double[len];
+         for (int k = 0; k < len; k++)
+            f[k] = omega ((double) perm[k] / n);
+         double[][] sp = FastCbc.spectrum (fft, f);
+         fRe = new double[][][] {{sp[0]}};
+         fIm = new double[][][] {{sp[1]}};
+         return;
+      }
+      fft = new FastCbc.FFT (Math.max (1, n / 4));
+      units = new int[m + 1][];
+      fRe = new double[m + 1][][];
+      fIm = new double[m + 1][][];
+      log = new int[n];
+      int quarter = Math.max (n / 4, 1);
+      if (m >= 3) {
+         long v = 1;
+         for (int d = 0; d < quarter; d++) {
+            log[(int) v] = d;
+            log[n - (int) v] = quarter + d;
+            v = v * 5 % n;
+         }
+      }
+      for (int r = 3; r <= m; r++) {
+         int len = 1 << (r - 2);
+         int mod = 1 << r;
+         int[] u = new int[2 * len];
+         long v = 1;
+         for (int b = 0; b < len; b++) {
+            u[b] = (int) v;
+            u[len + b] = mod - (int) v;
+            v = v * 5 % mod;
+         }
+         units[r] = u;
+         fRe[r] = new double[2][];
+         fIm[r] = new double[2][];
+         for (int c = 0; c < 2; c++) {
+            double[] f = new double[len];
+            for (int b = 0; b < len; b++)
+               f[b] = omega ((double) u[c * len + b] / mod);
+            double[][] sp = FastCbc.spectrum (fft, f);
+            fRe[r][c] = sp[0];
+            fIm[r][c] = sp[1];
+         }
+      }
+   }
+
+   //-----------------------------------------------------------------------
+   // CBC for the spectral criterion.
+
+   private int[] cbcSpectral (int s) {
+      final int[] z = new int[s];
+      final long[] inv = new long[s];
+      z[0] = 1;
+      inv[0] = 1;
+      merit = 0.0;
+      final double[] cand = new double[n];
+      for (int j = 1; j < s; j++) {
+         final int jj = j;
+         ParallelLoop.getDefault().run (numThreads, n - 1,
+            new ParallelLoop.Task() {
+            public void run (int t, int lo, int hi) {
+               for (int c = lo + 1; c <= hi; c++) {
+                  if (gcd (c, n) != 1) {
+                     cand[c] = Double.POSITIVE_INFINITY;
+                     continue;
+                  }
+                  double worst = 0.0;
+                  for (int i = 0; i < jj; i++)
+                     worst = Math.max (worst,
+                                       spectralRatioInv (inv[i], c, i, jj));
+                  cand[c] = worst;
+               }
+            }
+         });
+         int best = 1;
+         for (int c = 2; c < n; c++)
+            if (cand[c] < cand[best])
+               best = c;
+         z[j] = best;
+         inv[j] = modInverse (best, n);
+         merit = Math.max (merit, cand[best]);
+      }
+      return z;
+   }
+
+   // Weighted ratio l*(n) / l for the projection {i, j} of the lattice
+   // with z_i = zi and z_j = zj.
+   private double spectralRatio (int zi, int zj, int i, int j) {
+      return spectralRatioInv (modInverse (zi, n), zj, i, j);
+   }
+
+   // Same as spectralRatio, where invZi is the inverse of z_i modulo n.
+   private double spectralRatioInv (long invZi, int zj, int i, int j) {
+      double w = orderWeights == null
+         ? productWeight (i) * productWeight (j)
+         : (orderWeights.length >= 2 ? orderWeights[1] : 0.0);
+      long c = zj * invZi % n;
+      double best = Math.pow (4.0 / 3.0, 0.25) * Math.sqrt (n);
+      return w * best / shortestDualVector (n, c);
+   }
+
+   // Length of the shortest nonzero vector of the 2-dimensional lattice
+   // with basis (n, 0), (c, 1), by Lagrange-Gauss reduction.
+   static double shortestDualVector (long n, long c) {
+      long u1 = n, u2 = 0, v1 = c, v2 = 1;
+      double nu = (double) u1 * u1, nv = (double) v1 * v1 + 1.0;
+      while (true) {
+         if (nu < nv) {
+            long t = u1;  u1 = v1;  v1 = t;
+            t = u2;  u2 = v2;  v2 = t;
+            double d = nu;  nu = nv;  nv = d;
+         }
+         double dot = (double) u1 * v1 + (double) u2 * v2;
+         long q = Math.round (dot / nv);
+         if (q == 0)
+            break;
+         u1 -= q * v1;
+         u2 -= q * v2;
+         nu = (double) u1 * u1 + (double) u2 * u2;
+         if (nu >= nv)
+            break;
+      }
+      return Math.sqrt (Math.min (nu, nv));
+   }
+
+   //-----------------------------------------------------------------------
+   // Utilities.
+
+   private double productWeight (int j) {
+      return productWeights[Math.min (j, productWeights.length - 1)];
+   }
+
+   private double point (int i, int z) {
+      return (double) ((long) i * z % n) / n;
+   }
+
+   private int[] korobovVector (int a, int s) {
+      int[] z = new int[s];
+      long v = 1;
+      for (int j = 0; j < s; j++) {
+         z[j] = (int) v;
+         v = v * a % n;
+      }
+      return z;
+   }
+
+   // omega_alpha(x) for 0 <= x < 1.
+   private double omega (double x) {
+      final double PI2 = Math.PI * Math.PI;
+      switch (alpha) {
+      case 2:
+         return 2.0 * PI2 * (x * x - x + 1.0 / 6.0);
+      case 4:
+         return -PI2 * PI2 * 2.0 / 3.0
+                * (x * x * (x * (x - 2.0) + 1.0) - 1.0 / 30.0);
+      default:
+         double x2 = x * x;
+         return PI2 * PI2 * PI2 * 4.0 / 45.0
+                * (x2 * x2 * (x2 - 3.0 * x + 2.5) - 0.5 * x2 + 1.0 / 42.0);
+      }
+   }
+
+   private static boolean isPrime (int n) {
+      if (n < 2)
+         return false;
+      for (int d = 2; (long) d * d <= n; d++)
+         if (n % d == 0)
+            return false;
+      return true;
+   }
+
+   private static int gcd (int a, int b) {
+      while (b != 0) {
+         int t = a % b;
+         a = b;
+         b = t;
+      }
+      return a;
+   }
+
+   private static long modInverse (long a, long n) {
+      long r0 = n, r1 = a % n, t0 = 0, t1 = 1;
+      while (r1 != 0) {
+         long q = r0 / r1;
+         long t = r0 - q * r1;  r0 = r1;  r1 = t;
+         t = t0 - q * t1;  t0 = t1;  t1 = t;
+      }
+      return t0 < 0 ? t0 + n : t0;
+   }
+
+   // Smallest primitive root of the prime p.
+   private static int primitiveRoot (int p) {
+      if (p == 2)
+         return 1;
+      List<Integer> factors = new ArrayList<Integer>();
+      int phi = p - 1, r = phi;
+      for (int d = 2; (long) d * d <= r; d++)
+         if (r % d == 0) {
+            factors.add (d);
+            while (r % d == 0)
+               r /= d;
+         }
+      if (r > 1)
+         factors.add (r);
+      for (int g = 2; ; g++) {
+         boolean ok = true;
+         for (int f : factors)
+            if (modPow (g, phi / f, p) == 1) {
+               ok = false;
+               break;
+            }
+         if (ok)
+            return g;
+      }
+   }
+
+   private static long modPow (long a, long e, long p) {
+      long r = 1;
+      a %= p;
+      while (e > 0) {
+         if ((e & 1) != 0)
+            r = r * a % p;
+         a = a * a % p;
+         e >>= 1;
+      }
+      return r;
+   }
+}
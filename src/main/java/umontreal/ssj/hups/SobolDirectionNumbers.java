@@ -0,0 +1,268 @@
+/*
+ * Class:        SobolDirectionNumbers
+ * Description:  Compact binary tables of direction numbers for Sobol sequences
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.hups;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+/**
+ * A table of primitive polynomials and initial direction numbers for
+ * @ref SobolSequence, stored in a compact binary file that is
+ * memory-mapped and decoded lazily: the direction numbers of a coordinate
+ * are decoded only when they are requested. Opening a table therefore
+ * takes a constant time, and the memory used by a  @ref SobolSequence
+ * built from it grows only with its dimension, even if the table has tens
+ * of thousands of dimensions.
+ *
+ * A binary table is created from a text file in the format accepted by
+ * SobolSequence.SobolSequence(String,int,int,int), such as the files of
+ * [F. Kuo’s Web site](http://web.maths.unsw.edu.au/~fkuo/sobol/), with
+ * the method  #convert or with the command
+ *
+ * <tt>java umontreal.ssj.hups.SobolDirectionNumbers new-joe-kuo-6.21201
+ * new-joe-kuo-6.21201.dat</tt>
+ *
+ * and it is then opened with  #SobolDirectionNumbers(String).
+ *
+ * In the binary file, all the integers are big-endian. It contains the
+ * magic number `0x534f424c`, the format version (1), the number of
+ * dimensions @f$s@f$, then the offsets of the @f$s-1@f$ records of the
+ * dimensions 2 to @f$s@f$, relative to the end of the offset table. Each
+ * record holds the primitive polynomial on 3 bytes, followed by the
+ * initial direction numbers @f$m_1, …, m_r@f$, where @f$r@f$ is the degree
+ * of the polynomial; @f$m_i < 2^i@f$ is stored on @f$i@f$ bits, from the
+ * most significant one, and the record is padded to a whole byte.
+ *
+ * <div class="SSJ-bigskip"></div><div class="SSJ-bigskip"></div>
+ */
+public class SobolDirectionNumbers {
+   private static final int MAGIC = 0x534f424c;     // "SOBL"
+   private static final int VERSION = 1;
+   private static final int HEADER = 12;
+
+   private ByteBuffer buf;
+   private int numDims;
+   private int dataStart;
+
+   /**
+    * Reads the binary table of direction numbers in `buf`, from position
+    * 0. The buffer is used directly, without copying, and must not be
+    * modified afterwards.
+    *  @param buf          buffer holding a binary table
+    *  @exception IllegalArgumentException if `buf` does not hold a table
+    * in the format described above
+    */
+   public SobolDirectionNumbers (ByteBuffer buf) {
+      if (buf.limit() < HEADER || buf.getInt (0) != MAGIC)
+         throw new IllegalArgumentException
+            ("Not a table of Sobol direction numbers");
+      if (buf.getInt (4) != VERSION)
+         throw new IllegalArgumentException
+            ("Unsupported version of table of Sobol direction numbers: "
+             + buf.getInt (4));
+      numDims = buf.getInt (8);
+      dataStart = HEADER + 4 * Math.max (numDims - 1, 0);
+      if (numDims < 1 || dataStart > buf.limit())
+         throw new IllegalArgumentException
+            ("Truncated table of Sobol direction numbers");
+      this.buf = buf;
+   }
+
+   /**
+    * Memory-maps the binary table of direction numbers in file
+    * `filename`. Only the parts of the file that are read are loaded in
+    * memory, by the operating system.
+    *  @param filename     name of the binary file
+    *  @exception IOException if the file cannot be read
+    *  @exception IllegalArgumentException if the file does not hold a
+    * table in the format described above
+    */
+   public SobolDirectionNumbers (String filename) throws IOException {
+      this (map (new File (filename)));
+   }
+
+   private static ByteBuffer map (File file) throws IOException {
+      RandomAccessFile raf = new RandomAccessFile (file, "r");
+      try {
+         FileChannel channel = raf.getChannel();
+         return channel.map (FileChannel.MapMode.READ_ONLY, 0,
+                             channel.size());
+      } finally {
+         raf.close();   // The mapping stays valid.
+      }
+   }
+
+   /**
+    * Returns the number of dimensions of this table.
+    *  @return the number of dimensions
+    */
+   public int getDimension() {
+      return numDims;
+   }
+
+   /**
+    * Returns the primitive polynomial of coordinate @f$j@f$, for
+    * @f$0\le j < s@f$, as in  @ref SobolSequence: bit @f$i@f$ is the
+    * coefficient of @f$x^i@f$. The polynomial of coordinate 0 is 1.
+    *  @param j            index of the coordinate
+    *  @return the primitive polynomial of coordinate `j`
+    */
+   public int getPolynomial (int j) {
+      checkCoordinate (j);
+      if (j == 0)
+         return 1;
+      int p = record (j);
+      return ((buf.get (p) & 0xff) << 16) | ((buf.get (p + 1) & 0xff) << 8)
+             | (buf.get (p + 2) & 0xff);
+   }
+
+   /**
+    * Returns the degree of the primitive polynomial of coordinate @f$j@f$,
+    * which is the number of initial direction numbers of this coordinate.
+    *  @param j            index of the coordinate
+    *  @return the degree of the polynomial of coordinate `j`
+    */
+   public int getDegree (int j) {
+      return 31 - Integer.numberOfLeadingZeros (getPolynomial (j));
+   }
+
+   /**
+    * Returns the initial direction numbers @f$m_1, …, m_r@f$ of
+    * coordinate @f$j@f$, where @f$r@f$ is the degree of its polynomial.
+    *  @param j            index of the coordinate
+    *  @return the initial direction numbers of coordinate `j`
+    */
+   public int[] getDirectionNumbers (int j) {
+      int r = getDegree (j);
+      int[] m = new int[r];
+      if (r == 0)
+         return m;
+      long pos = 8L * (record (j) + 3);   // Position in bits.
+      for (int i = 0; i < r; i++) {
+         int v = 0;
+         for (int b = 0; b <= i; b++, pos++)
+            v = (v << 1) | ((buf.get ((int) (pos >>> 3)) >>> (7 - (int) (pos & 7))) & 1);
+         m[i] = v;
+      }
+      return m;
+   }
+
+   private void checkCoordinate (int j) {
+      if (j < 0 || j >= numDims)
+         throw new IllegalArgumentException ("Coordinate " + j +
+            " not in the table of " + numDims + " dimensions");
+   }
+
+   // Absolute position of the record of coordinate j >= 1.
+   private int record (int j) {
+      return dataStart + buf.getInt (HEADER + 4 * (j - 1));
+   }
+
+   /**
+    * Converts a text file of direction numbers, in the format accepted by
+    * SobolSequence.SobolSequence(String,int,int,int), into a binary table. The first
+    * line of the text file is a comment.
+    *  @param in           reader of the text file
+    *  @param out          stream receiving the binary table
+    *  @exception IOException if the text cannot be read or the table
+    * cannot be written
+    *  @exception IllegalArgumentException if the text is not in the right
+    * format
+    */
+   public static void convert (Reader in, OutputStream out)
+      throws IOException {
+      BufferedReader reader = new BufferedReader (in);
+      ArrayList<byte[]> records = new ArrayList<byte[]>();
+      String line = reader.readLine();    // Comment
+      int d = 1;
+      while ((line = reader.readLine()) != null) {
+         line = line.trim();
+         if (line.length() == 0)
+            continue;
+         String[] tokens = line.split ("[\t ]+");
+         if (tokens.length < 3)
+            throw new IllegalArgumentException ("Bad format: " + line);
+         if (Integer.parseInt (tokens[0]) != ++d)
+            throw new IllegalArgumentException
+               ("Dimensions must be in increasing order from 2: " + line);
+         int s = Integer.parseInt (tokens[1]);
+         int a = Integer.parseInt (tokens[2]);
+         if (s < 1 || s > SobolSequence.MAXDEGREE || tokens.length != s + 3
+             || a < 0 || a >= 1 << (s - 1))
+            throw new IllegalArgumentException ("Bad format: " + line);
+         int poly = (1 << s) ^ (a << 1) ^ 1;
+         byte[] rec = new byte[3 + (s * (s + 1) / 2 + 7) / 8];
+         rec[0] = (byte) (poly >>> 16);
+         rec[1] = (byte) (poly >>> 8);
+         rec[2] = (byte) poly;
+         int pos = 24;
+         for (int i = 0; i < s; i++) {
+            int m = Integer.parseInt (tokens[i + 3]);
+            if (m < 1 || m >= 1 << (i + 1) || (m & 1) == 0)
+               throw new IllegalArgumentException
+                  ("Bad direction number " + m + ": " + line);
+            for (int b = i; b >= 0; b--, pos++)
+               rec[pos >>> 3] |= ((m >>> b) & 1) << (7 - (pos & 7));
+         }
+         records.add (rec);
+      }
+
+      DataOutputStream dos = new DataOutputStream (
+         new BufferedOutputStream (out));
+      dos.writeInt (MAGIC);
+      dos.writeInt (VERSION);
+      dos.writeInt (d);
+      int offset = 0;
+      for (byte[] rec : records) {
+         dos.writeInt (offset);
+         offset += rec.length;
+      }
+      for (byte[] rec : records)
+         dos.write (rec);
+      dos.flush();
+   }
+
+   /**
+    * Converts the text file `args[0]` into the binary table `args[1]`;
+    * see  #convert.
+    */
+   public static void main (String[] args) throws IOException {
+      if (args.length != 2) {
+         System.err.println ("Usage: java umontreal.ssj.hups.SobolDirectionNumbers"
+                             + " <text file> <binary file>");
+         System.exit (1);
+      }
+      Reader in = new FileReader (args[0]);
+      OutputStream out = new FileOutputStream (args[1]);
+      try {
+         convert (in, out);
+      } finally {
+         in.close();
+         out.close();
+      }
+   }
+}
@@ -116,8 +116,9 @@ public class SobolSequence extends DigitalSequenceBase2 {
     * matrices @f$\mathbf{C}_j@f$ are @f$w\times k@f$. Restrictions:
     * @f$0\le k\le30@f$, @f$k\le w@f$ and `dim` @f$ \le360@f$.
     * To use other direction numbers or to create points in **higher
-    * dimensions**, one should use #SobolSequence(String,int,int,int)
-    * instead of this constructor.
+    * dimensions**, one should use #SobolSequence(String,int,int,int) or
+    * #SobolSequence(SobolDirectionNumbers,int,int,int) instead of this
+    * constructor.
     *
     *  @param k            there will be 2^k points
     *  @param w            number of output digits
@@ -128,7 +129,7 @@ public class SobolSequence extends DigitalSequenceBase2 {
    }
 
    private void init (int k, int r, int w, int dim) {
-      if (filename == null)
+      if (poly_from_file == null)
          if ((dim < 1) || (dim > MAXDIM))
             throw new IllegalArgumentException 
                ("Dimension for SobolSequence must be > 0 and <= " + MAXDIM);
@@ -345,6 +346,41 @@ public class SobolSequence extends DigitalSequenceBase2 {
    }
  
 
+   /**
+    * Constructs a new digital net with @f$n = 2^k@f$ points and @f$w@f$
+    * output digits, in dimension `dim`, using the primitive polynomials
+    * and direction numbers of the binary table `numbers`. Only the first
+    * `dim` dimensions of the table are decoded. For example, <tt>new
+    * SobolSequence(new SobolDirectionNumbers("new-joe-kuo-6.21201.dat"),
+    * k, w, dim)</tt> uses the direction numbers of Joe and Kuo, for `dim`
+    * up to 21201, once their file has been converted with
+    * SobolDirectionNumbers.convert.
+    *
+    *  @param numbers      table of direction numbers
+    *  @param k            number of points is @f$2^k@f$
+    *  @param w            number of output digits
+    *  @param dim          dimension of the point set
+    *  @exception IllegalArgumentException if `dim` exceeds the dimension
+    * of `numbers`
+    */
+   public SobolSequence (SobolDirectionNumbers numbers, int k, int w,
+                         int dim) {
+      if (dim < 1 || dim > numbers.getDimension())
+         throw new IllegalArgumentException
+            ("Dimension for SobolSequence must be > 0 and <= " +
+             numbers.getDimension());
+      poly_from_file = new int[dim];
+      minit_from_file = new int[dim][MAXDEGREE];
+      for (int j = 0; j < dim; j++) {
+         poly_from_file[j] = numbers.getPolynomial (j);
+         if (j > 0) {
+            int[] m = numbers.getDirectionNumbers (j);
+            System.arraycopy (m, 0, minit_from_file[j - 1], 0, m.length);
+         }
+      }
+      init (k, w, w, dim);
+   }
+
    public String toString() {
       StringBuffer sb = new StringBuffer ("Sobol sequence:" +
                                            PrintfFormat.NEWLINE);
@@ -369,13 +405,17 @@ public class SobolSequence extends DigitalSequenceBase2 {
 
       // the other dimensions j > 0.
       for (j = 1; j < dim; j++) {
+         int polynomial = (poly_from_file != null ? poly_from_file[j] : poly[j]);
          // find the degree of primitive polynomial f_j
-         for (degree = MAXDEGREE;  ((poly[j] >> degree) & 1) == 0; degree--)
+         for (degree = MAXDEGREE;  ((polynomial >> degree) & 1) == 0; degree--)
             ;
          // Get initial direction numbers m_{j,0},..., m_{j,degree-1}.
          start = j * numCols;
-         for (c = 0; (c < degree && c < numCols); c++)
-            genMat[start+c] = minit[j-1][c] << (outDigits-c-1);
+         for (c = 0; (c < degree && c < numCols); c++) {
+            int m_i = (poly_from_file != null ?
+                       minit_from_file[j-1][c] : minit[j-1][c]);
+            genMat[start+c] = m_i << (outDigits-c-1);
+         }
 
          // Compute the following ones via the recursion.
          for (c = degree; c < numCols; c++) {
@@ -384,7 +424,7 @@ public class SobolSequence extends DigitalSequenceBase2 {
             else {
                nextCol = genMat[start+c-degree] >> degree;
                for (i = 0; i < degree; i++)
-                  if (((poly[j] >> i) & 1) == 1)
+                  if (((polynomial >> i) & 1) == 1)
                      nextCol ^= genMat[start+c-degree+i];
                genMat[start+c] = nextCol;
             }
@@ -405,14 +445,14 @@ public class SobolSequence extends DigitalSequenceBase2 {
       // the other dimensions j > 0.
       for (j = 1; j < dim; j++) {
          // if a direction number file was provided, use it
-         int polynomial = (filename != null ? poly_from_file[j] : poly[j]);
+         int polynomial = (poly_from_file != null ? poly_from_file[j] : poly[j]);
          // find the degree of primitive polynomial f_j
          for (degree = MAXDEGREE; ((polynomial >> degree) & 1) == 0; degree--)
             ;
          // Get initial direction numbers m_{j,0},..., m_{j,degree-1}.
          start = j * numCols;
          for (c = 0; (c < degree && c < numCols); c++) {
-             int m_i = (filename != null ? 
+             int m_i = (poly_from_file != null ?
                         minit_from_file[j-1][c] : minit[j-1][c]);
              genMat[start+c] = m_i << (outDigits-c-1);
          }
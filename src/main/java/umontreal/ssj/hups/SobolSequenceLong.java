@@ -0,0 +1,110 @@
+/*
+ * Class:        SobolSequenceLong
+ * Description:  Sobol' nets in base 2 with 64-bit generator columns
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.hups;
+import umontreal.ssj.util.PrintfFormat;
+
+/**
+ * The first @f$n = 2^k@f$ points of the Sobol’ sequence, with the same
+ * primitive polynomials and direction numbers as  @ref SobolSequence, but
+ * implemented as a  @ref DigitalNetBase2Long. This allows up to
+ * @f$2^{52}@f$ points and up to 52 output digits, instead of @f$2^{30}@f$
+ * points and 31 digits. For @f$k \le30@f$, the first 31 output digits of
+ * the points are the same as those of a `SobolSequence` with the same
+ * @f$k@f$ and dimension, enumerated in the same order.
+ *
+ * <div class="SSJ-bigskip"></div><div class="SSJ-bigskip"></div>
+ */
+public class SobolSequenceLong extends DigitalNetBase2Long {
+
+   /**
+    * Constructs a new digital net with @f$n = 2^k@f$ points and @f$w@f$
+    * output digits, in dimension `dim`, formed by taking the first
+    * @f$n@f$ points of the Sobol’ sequence. Restrictions: @f$0\le k\le w
+    * \le52@f$ and `dim` @f$ \le360@f$.
+    *
+    *  @param k            there will be 2^k points
+    *  @param w            number of output digits
+    *  @param dim          dimension of the point set
+    */
+   public SobolSequenceLong (int k, int w, int dim) {
+      if ((dim < 1) || (dim > SobolSequence.MAXDIM))
+         throw new IllegalArgumentException
+            ("Dimension for SobolSequenceLong must be > 0 and <= " +
+             SobolSequence.MAXDIM);
+      init (k, w, dim);
+      initGenMat();
+   }
+
+   /**
+    * Constructs a Sobol point set with @f$2^k@f$ points and 52 output
+    * digits in dimension `dim`.
+    *  @param k            there will be 2^k points
+    *  @param dim          dimension of the point set
+    */
+   public SobolSequenceLong (int k, int dim) {
+      this (k, MAXBITS_LONG, dim);
+   }
+
+   public String toString() {
+      StringBuffer sb = new StringBuffer ("Sobol sequence (long):" +
+                                           PrintfFormat.NEWLINE);
+      sb.append (super.toString());
+      return sb.toString();
+   }
+
+   // Initializes the generator matrices, as in SobolSequence.
+   private void initGenMat()  {
+      int start, degree;
+      long nextCol;
+      int i, j, c;
+
+      // the first dimension, j = 0.
+      for (c = 0; c < numCols; c++)
+         genMat[c] = (1L << (outDigits-c-1));
+
+      // the other dimensions j > 0.
+      for (j = 1; j < dim; j++) {
+         int polynomial = SobolSequence.poly[j];
+         // find the degree of primitive polynomial f_j
+         for (degree = SobolSequence.MAXDEGREE;
+              ((polynomial >> degree) & 1) == 0; degree--)
+            ;
+         // Get initial direction numbers m_{j,0},..., m_{j,degree-1}.
+         start = j * numCols;
+         for (c = 0; (c < degree && c < numCols); c++)
+            genMat[start+c] = (long) SobolSequence.minit[j-1][c]
+                              << (outDigits-c-1);
+
+         // Compute the following ones via the recursion.
+         for (c = degree; c < numCols; c++) {
+            nextCol = genMat[start+c-degree] >> degree;
+            for (i = 0; i < degree; i++)
+               if (((polynomial >> i) & 1) == 1)
+                  nextCol ^= genMat[start+c-degree+i];
+            genMat[start+c] = nextCol;
+         }
+      }
+   }
+}
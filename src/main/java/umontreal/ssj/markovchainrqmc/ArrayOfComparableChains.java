@@ -59,6 +59,16 @@ package umontreal.ssj.markovchainrqmc;
  * randomized at each step, one would put `sortCoord` to @f$\ell’@f$ and
  * `sortCoordRand` to 0.
  *
+ * After the chains are sorted, moving them ahead one step can be done in
+ * parallel, by setting the number of threads with  #setNumThreads. The
+ * sorted array of chains is then split into contiguous blocks, and each
+ * block is moved ahead by its own thread, using its own iterator over the
+ * points, started at the point of the first chain of the block. Each chain
+ * thus receives the same point as in a sequential simulation, and the
+ * results are the same for any number of threads, provided that the
+ * method  MarkovChain.nextStep of different chains can be invoked
+ * concurrently (the chains do not share mutable state).
+ *
  * <div class="SSJ-bigskip"></div><div class="SSJ-bigskip"></div>
  */
 public class ArrayOfComparableChains <T extends MarkovChainComparable> {
@@ -70,6 +80,8 @@ public class ArrayOfComparableChains <T extends MarkovChainComparable> {
    protected PointSetRandomization randomization;
    protected MultiDimSort<T> savedSort;
 	protected int sortCoordPts = 0;   // Point coordinates used to sort points.
+   protected int numThreads = 1;     // Threads used to move the chains.
+   private ParallelLoop loop = new ParallelLoop();  // Moves the chains.
 
    /**
     * Creates an array of the comparable chain `baseChain`. The method
@@ -177,6 +189,33 @@ public class ArrayOfComparableChains <T extends MarkovChainComparable> {
        return savedSort;
    }
 
+   /**
+    * Sets the number of threads used to move the chains ahead at each step
+    * of the array-RQMC simulations. The default is 1.
+    */
+   public void setNumThreads (int numThreads) {
+      if (numThreads < 1)
+         throw new IllegalArgumentException ("numThreads < 1");
+      this.numThreads = numThreads;
+   }
+
+   /**
+    * Returns the number of threads used to move the chains ahead.
+    */
+   public int getNumThreads() {
+      return numThreads;
+   }
+
+   /**
+    * Terminates the threads used to move the chains ahead. They are
+    * created again if the chains are moved with several threads
+    * afterward. Idle threads also terminate by themselves after
+    * @ref umontreal.ssj.util.ParallelLoop.KEEP_ALIVE_SECONDS seconds.
+    */
+   public void shutdown() {
+      loop.shutdown();
+   }
+
    /**
     * Randomized the point set `p` and Simulates the @f$n@f$ copies of the
     * chain, one step for each copy, using
@@ -195,7 +234,7 @@ public class ArrayOfComparableChains <T extends MarkovChainComparable> {
     */
    public int simulOneStepArrayRQMC (PointSet p, PointSetRandomization rand, 
 	       MultiDimSort sort, int sortCoordPts) {
-      int nStopped = 0;
+      int nStopped;
       p.randomize(rand);                        // Randomize point set.
          if (sortCoordPts > 0) { 
              if (!(p instanceof CachedPointSet))
@@ -205,10 +244,58 @@ public class ArrayOfComparableChains <T extends MarkovChainComparable> {
              else
                 ((CachedPointSet) p).sortByCoordinate (0);  // Sort by first coordinate.
          }
-      PointSetIterator stream = p.iterator ();
-      stream.resetCurPointIndex ();             // Go to first point.
-      int i = 0;
-      for (T mc : chains) { // Assume the chains are sorted
+      nStopped = stepChains (p, sortCoordPts);
+      return n - nStopped;
+    }
+
+   // Moves the chains that have not stopped one step ahead, the i-th of
+   // them with the i-th point of p, and stores the performances. Returns
+   // the number of chains that have stopped after the step.
+   private int stepChains (final PointSet p, final int sortCoordPts) {
+      int numBlocks = Math.min (numThreads, n);
+      if (numBlocks <= 1) {
+         PointSetIterator stream = p.iterator ();
+         stream.resetCurPointIndex ();             // Go to first point.
+         return stepBlock (stream, 0, n, sortCoordPts);
+      }
+      // Point of the first chain of each block, then the block results.
+      final int[] start = new int[numBlocks + 1];
+      final int[] stopped = new int[numBlocks];
+      loop.run (numBlocks, n, new ParallelLoop.Task() {
+         public void run (int b, int lo, int hi) {
+            int active = 0;
+            for (int i = lo; i < hi; i++)
+               if (!chains[i].hasStopped())
+                  ++active;
+            start[b + 1] = active;
+         }
+      });
+      // The iterators are created here, since creating one can modify p.
+      final PointSetIterator[] streams = new PointSetIterator[numBlocks];
+      for (int b = 0; b < numBlocks; b++) {
+         start[b + 1] += start[b];
+         streams[b] = p.iterator ();
+         if (start[b + 1] > start[b])
+            streams[b].setCurPointIndex (start[b]);
+      }
+      loop.run (numBlocks, n, new ParallelLoop.Task() {
+         public void run (int b, int lo, int hi) {
+            stopped[b] = stepBlock (streams[b], lo, hi, sortCoordPts);
+         }
+      });
+      int nStopped = 0;
+      for (int b = 0; b < numBlocks; b++)
+         nStopped += stopped[b];
+      return nStopped;
+   }
+
+   // Moves the chains lo, ..., hi - 1 that have not stopped, starting at
+   // the current point of stream. Returns the number of stopped chains.
+   private int stepBlock (PointSetIterator stream, int lo, int hi,
+                          int sortCoordPts) {
+      int nStopped = 0;
+      for (int i = lo; i < hi; i++) { // Assume the chains are sorted
+         T mc = chains[i];
          if (mc.hasStopped()) {
             ++nStopped;
          } else {
@@ -219,10 +306,9 @@ public class ArrayOfComparableChains <T extends MarkovChainComparable> {
                ++nStopped;
          }
          performances[i] = mc.getPerformance();
-         ++i;
       }
-      return n - nStopped;
-    }
+      return nStopped;
+   }
 
    /**
     * This version uses the preselected randomization and sort, with
@@ -270,22 +356,7 @@ public class ArrayOfComparableChains <T extends MarkovChainComparable> {
              else
                 ((CachedPointSet) p).sortByCoordinate (0);  // Sort by first coordinate.
          }
-         PointSetIterator stream = p.iterator ();
-         stream.resetCurPointIndex ();             // Go to first point.
-         int i = 0;
-         for (T mc : chains) { // Assume the chains are sorted
-            if (mc.hasStopped()) {
-               numNotStopped--;
-            } else {
-	       stream.setCurCoordIndex (sortCoordPts); // Skip first sortCoordPts coord.
-               mc.nextStep (stream);                // simulate next step of the chain.
-               stream.resetNextSubstream ();        // Go to next point.
-               if (mc.hasStopped())
-                  numNotStopped--;
-            }
-            performances[i] = mc.getPerformance();
-            ++i;
-         }
+         numNotStopped -= stepChains (p, sortCoordPts);
          ++step;
       }
       return calcMeanPerf();
@@ -395,7 +466,8 @@ public class ArrayOfComparableChains <T extends MarkovChainComparable> {
 	 * the method (e.g., the type of point set, type of randomization, and type
 	 * of sort). If the string `filenamePlot != null`, then the method also
 	 * creates a `.tex` file with that name that contains a plot in log scale
-	 * of the variance vs @f$n@f$.
+	 * of the variance vs @f$n@f$. See  @ref VarianceRateExperiment to run the
+	 * replications in parallel and save the partial results.
 	 */
 	public String testVarianceRateFormat (PointSet[] pointSets, PointSetRandomization rand, 
 	        MultiDimSort sort, int sortCoordPts, 
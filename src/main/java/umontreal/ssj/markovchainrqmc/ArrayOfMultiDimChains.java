@@ -0,0 +1,202 @@
+package umontreal.ssj.markovchainrqmc;
+
+import umontreal.ssj.stat.Tally;
+import umontreal.ssj.hups.*;
+import umontreal.ssj.util.sort.MultiDimIndexSort;
+
+/**
+ * Similar to  @ref ArrayOfDoubleChains, but for chains whose state is a
+ * vector of @f$d@f$ real numbers. Instead of working with @f$n@f$ clones of
+ * a  @ref MarkovChainComparable, we use a *single*
+ * @ref VectorizedMarkovChain object for all the chains, and the states of
+ * the @f$n@f$ chains are kept one after the other in a single array of
+ * size @f$nd@f$. At each step of the array-RQMC method, the chains are
+ * sorted by a  @ref umontreal.ssj.util.sort.MultiDimIndexSort, such as
+ * @ref umontreal.ssj.util.sort.BatchSort,
+ * @ref umontreal.ssj.util.sort.SplitSort or
+ * @ref umontreal.ssj.util.sort.HilbertCurveSort, which sorts a permutation
+ * of the chain numbers; the states are then copied in sorted order to a
+ * second array of the same size, which becomes the array of states. Then
+ * VectorizedMarkovChain.step moves all the chains one step ahead, chain
+ * @f$i@f$ with point @f$i@f$ of the randomized point set. The performances
+ * are computed by VectorizedMarkovChain.getPerformances after the last
+ * step.
+ *
+ * <div class="SSJ-bigskip"></div><div class="SSJ-bigskip"></div>
+ */
+public class ArrayOfMultiDimChains {
+
+   protected VectorizedMarkovChain baseChain; // Single object for all chains.
+   protected int n;                   // Number of chains.
+   protected int dim;                 // Dimension of the states.
+   protected double[] states;         // States of the chains, n*dim.
+   protected double[] performances;   // Performances for the n chains.
+   protected PointSetRandomization randomization;
+   protected MultiDimIndexSort savedSort;
+   private double[] sortedStates;     // Work array for the sort.
+   private int[] index;               // Permutation made by the sort.
+
+   /**
+    * Creates an array of copies of the chain `baseChain`. The method
+    * #makeCopies(int) must be called afterward to create the states.
+    * `rand` will be used to randomize the point sets in the simulations,
+    * and `sort` to sort the chains.
+    */
+   public ArrayOfMultiDimChains (VectorizedMarkovChain baseChain,
+                                 PointSetRandomization rand,
+                                 MultiDimIndexSort sort) {
+      this.baseChain = baseChain;
+      this.dim = baseChain.dimension();
+      randomization = rand;
+      setSort (sort);
+   }
+
+   /**
+    * Creates the arrays of states for `n` copies of the base chain.
+    */
+   public void makeCopies (int n) {
+      this.n = n;
+      states = new double[n * dim];
+      sortedStates = new double[n * dim];
+      performances = new double[n];
+      index = new int[n];
+   }
+
+   /**
+    * Returns the number `n` of chains.
+    */
+   public int getN() {
+      return n;
+   }
+
+   /**
+    * Returns the array of states of the chains: coordinate @f$j@f$ of the
+    * state of chain @f$i@f$ is at position @f$id+j@f$. This array is
+    * replaced by another one at each sort.
+    */
+   public double[] getStates() {
+      return states;
+   }
+
+   /**
+    * Sets the internal  @ref umontreal.ssj.hups.PointSetRandomization to
+    * `rand`.
+    */
+   public void setRandomization (PointSetRandomization rand) {
+      randomization = rand;
+   }
+
+   /**
+    * Returns the internal  @ref umontreal.ssj.hups.PointSetRandomization.
+    */
+   public PointSetRandomization getRandomization() {
+      return randomization;
+   }
+
+   /**
+    * Sets the sort used for the chains to `sort`. Its dimension must not
+    * exceed the dimension of the states.
+    */
+   public void setSort (MultiDimIndexSort sort) {
+      if (sort.dimension() > dim)
+         throw new IllegalArgumentException (
+            "the sort has a larger dimension than the states");
+      savedSort = sort;
+   }
+
+   /**
+    * Returns the sort used for the chains.
+    */
+   public MultiDimIndexSort getSort() {
+      return savedSort;
+   }
+
+   /**
+    * Initializes the states of the `n` copies of the base chain.
+    */
+   public void initialStates() {
+      baseChain.initialStates (states, n);
+   }
+
+   /**
+    * Sorts the chains with the stored sort.
+    */
+   public void sortChains() {
+      for (int i = 0; i < n; i++)
+         index[i] = i;
+      savedSort.sortIndex (baseChain.getSortPoints (states, n), dim, index,
+                           0, n);
+      for (int i = 0; i < n; i++)
+         System.arraycopy (states, index[i] * dim, sortedStates, i * dim, dim);
+      double[] temp = states;
+      states = sortedStates;
+      sortedStates = temp;
+   }
+
+   /**
+    * Simulates one step for the `n` chains, assuming that we are at step
+    * `step`, with the chains sorted. The points are randomized before the
+    * simulation using the stored
+    * @ref umontreal.ssj.hups.PointSetRandomization. The dimension of `p`
+    * must be at least as large as the number of uniforms required to
+    * simulate one step of the chain.
+    */
+   public void simulOneStepArrayRQMC (int step, PointSet p) {
+      p.randomize (randomization);        // Randomize point set.
+      PointSetIterator stream = p.iterator();
+      stream.resetCurPointIndex();        // Go to first point.
+      baseChain.step (step, states, n, stream);
+   }
+
+   /**
+    * Simulates the @f$n@f$ copies of the chain, `numSteps` steps for each
+    * copy, using point set `p`, where @f$n@f$ is the current number of
+    * copies of the chain and is *assumed* to equal the number of points in
+    * `p`. The chains are sorted before each step, and the points are
+    * randomized using the stored
+    * @ref umontreal.ssj.hups.PointSetRandomization. Returns the average
+    * performance per run; the performances of the chains can be obtained
+    * via  #getPerformances().
+    */
+   public double simulArrayRQMC (PointSet p, int numSteps) {
+      initialStates();
+      for (int step = 0; step < numSteps; step++) {
+         sortChains();
+         simulOneStepArrayRQMC (step, p);
+      }
+      baseChain.getPerformances (numSteps, states, n, performances);
+      return calcMeanPerf();
+   }
+
+   /**
+    * Performs `m` independent replications of an array-RQMC simulation as
+    * in  #simulArrayRQMC(PointSet,int), with @f$n@f$ equal to the number
+    * of points of `p`. The statistics on the `m` corresponding averages
+    * are collected in `statReps`.
+    */
+   public void simulReplicatesArrayRQMC (PointSet p, int numSteps, int m,
+                                         Tally statReps) {
+      makeCopies (p.getNumPoints());
+      statReps.init();
+      for (int rep = 0; rep < m; rep++)
+         statReps.add (simulArrayRQMC (p, numSteps));
+   }
+
+   /**
+    * Returns the vector of performances for the @f$n@f$ chains, computed
+    * by the last simulation.
+    */
+   public double[] getPerformances() {
+      return performances;
+   }
+
+   /**
+    * Computes and returns the mean performance of the @f$n@f$ chains.
+    */
+   public double calcMeanPerf() {
+      double sumPerf = 0.0;                     // Sum of performances.
+      for (int i = 0; i < n; ++i)
+         sumPerf += performances[i];
+      return sumPerf / n;
+   }
+}
@@ -0,0 +1,466 @@
+package umontreal.ssj.markovchainrqmc;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import umontreal.ssj.functionfit.LeastSquares;
+import umontreal.ssj.hups.*;
+import umontreal.ssj.rng.CloneableRandomStream;
+import umontreal.ssj.rng.RandomStream;
+import umontreal.ssj.stat.Tally;
+import umontreal.ssj.util.Num;
+import umontreal.ssj.util.ParallelLoop;
+import umontreal.ssj.util.PrintfFormat;
+import umontreal.ssj.util.io.DataField;
+import umontreal.ssj.util.io.DataReader;
+import umontreal.ssj.util.io.DataWriter;
+
+/**
+ * Performs experiments to estimate the convergence rate of the RQMC
+ * variance as a function of the number of points @f$n@f$, as
+ * ArrayOfComparableChains.testVarianceRateFormat does, but with the
+ * replications run in parallel. The experiment is defined by one or more
+ * *series* of point sets, each series being a given type of point set in
+ * increasing sizes, and by a number @f$m@f$ of independent replications
+ * for each point set. The cells (series, size, replication) of this grid
+ * are simulated by a pool of worker threads; each worker has its own
+ * #Simulator, created by a  #SimulatorFactory, which holds its own copies
+ * of the chains, its own sort and its own randomization, and its own copies
+ * of the point sets, obtained by  PointSet.clone. For each point set, the
+ * variance of the @f$m@f$ replicates is computed, and for each series, the
+ * slope of the regression of @f$\log_2@f$ of the variance on
+ * @f$\log_2 n@f$ is estimated by least squares.
+ *
+ * The random numbers of cell @f$(k, j, r)@f$, for replication @f$r@f$ of
+ * the point set @f$j@f$ of series @f$k@f$, come from its own substream of
+ * the stream given to  #simulReplicates, which must be a
+ * @ref umontreal.ssj.rng.CloneableRandomStream: the cells are numbered
+ * @f$(k J + j) m + r@f$, where @f$J@f$ is the largest number of point sets
+ * in a series, and cell number @f$c@f$ uses the @f$(c+1)@f$-th substream
+ * following the current substream. The results are thus the same for any
+ * number of threads, and whether or not the experiment was interrupted
+ * and resumed.
+ *
+ * If a  @ref umontreal.ssj.util.io.DataWriter is given via
+ * #setDataWriter, the value of each cell is written to it as soon as the
+ * cell is done, as a `double` field whose label identifies the cell (see
+ * #cellLabel). With a  @ref umontreal.ssj.util.io.BinaryDataWriter, which
+ * writes each field immediately, an interrupted experiment can be resumed
+ * by reading the file back with a
+ * @ref umontreal.ssj.util.io.BinaryDataReader and passing it to  #resume
+ * before invoking  #simulReplicates again: the cells already done are not
+ * simulated again. They are written again to the new writer, which should
+ * then be a different file, so that it contains all the results.
+ *
+ * <div class="SSJ-bigskip"></div><div class="SSJ-bigskip"></div>
+ */
+public class VarianceRateExperiment {
+
+   /**
+    * Simulates the replications of the experiment. Each worker thread has
+    * its own simulator, so a simulator needs not be thread-safe, but
+    * different simulators must not share mutable objects, such as chains,
+    * sorts or randomizations.
+    */
+   public interface Simulator {
+
+      /**
+       * Performs one independent replication of an RQMC simulation with
+       * the point set `p`, whose randomizations must use `stream`, and
+       * returns the average performance over the points.
+       *  @param p            point set, not used by any other simulator
+       *  @param stream       stream for the randomizations
+       *  @return the average performance of the replication
+       */
+      public double simulate (PointSet p, RandomStream stream);
+   }
+
+   /**
+    * Creates the simulator of each worker thread.
+    */
+   public interface SimulatorFactory {
+
+      /**
+       * Returns a new simulator, which shares no mutable state with the
+       * simulators returned previously.
+       *  @return a new simulator
+       */
+      public Simulator createSimulator();
+   }
+
+   private SimulatorFactory factory;
+   private int numThreads = 1;
+   private DataWriter writer;
+   private Map<String, Double> resumed = new HashMap<String, Double>();
+   private PointSet[][] pointSets;
+   private int m;
+   private double[][][] values;       // values[k][j][r] for cell (k, j, r).
+
+   /**
+    * Constructs an experiment whose replications are simulated by the
+    * simulators created by `factory`.
+    *  @param factory      creates the simulator of each worker
+    */
+   public VarianceRateExperiment (SimulatorFactory factory) {
+      if (factory == null)
+         throw new IllegalArgumentException ("null factory");
+      this.factory = factory;
+   }
+
+   /**
+    * Returns a simulator that performs array-RQMC simulations of
+    * `numSteps` steps with `array`, using its stored randomization and
+    * sort, as ArrayOfComparableChains.simulArrayRQMC(PointSet,int). The
+    * stream of the randomization is replaced by the stream of each
+    * replication, and the number of copies of the chain is set to the
+    * number of points.
+    *  @param array        chains, with their randomization and sort
+    *  @param numSteps     number of steps of each simulation
+    *  @return a simulator using `array`
+    */
+   public static Simulator arrayRQMC (
+         final ArrayOfComparableChains<?> array, final int numSteps) {
+      return new Simulator() {
+         public double simulate (PointSet p, RandomStream stream) {
+            if (array.getN() != p.getNumPoints())
+               array.makeCopies (p.getNumPoints());
+            array.getRandomization().setStream (stream);
+            return array.simulArrayRQMC (p, numSteps);
+         }
+      };
+   }
+
+   /**
+    * Returns a simulator that performs RQMC simulations of `numSteps`
+    * steps of `chain`, randomized by `rand`, as
+    * MarkovChain.simulRQMC with one replication. The stream of `rand` is
+    * replaced by the stream of each replication.
+    *  @param chain        chain to simulate
+    *  @param rand         randomization of the point sets
+    *  @param numSteps     number of steps of each simulation
+    *  @return a simulator using `chain` and `rand`
+    */
+   public static Simulator rqmc (final MarkovChain chain,
+                                 final PointSetRandomization rand,
+                                 final int numSteps) {
+      return new Simulator() {
+         Tally statReps = new Tally();
+
+         public double simulate (PointSet p, RandomStream stream) {
+            rand.setStream (stream);
+            chain.simulRQMC (p, 1, numSteps, rand, statReps);
+            return statReps.average();
+         }
+      };
+   }
+
+   /**
+    * Sets the number of worker threads. The default is 1.
+    *  @param numThreads   number of threads
+    */
+   public void setNumThreads (int numThreads) {
+      if (numThreads < 1)
+         throw new IllegalArgumentException ("numThreads < 1");
+      this.numThreads = numThreads;
+   }
+
+   /**
+    * Returns the number of worker threads.
+    *  @return the number of threads
+    */
+   public int getNumThreads() {
+      return numThreads;
+   }
+
+   /**
+    * Sets the writer that receives the value of each cell when it is
+    * done, or `null` for none. The writer is not closed by this class.
+    *  @param writer       writer for the partial results
+    */
+   public void setDataWriter (DataWriter writer) {
+      this.writer = writer;
+   }
+
+   /**
+    * Returns the writer of the partial results.
+    *  @return the writer, or `null`
+    */
+   public DataWriter getDataWriter() {
+      return writer;
+   }
+
+   /**
+    * Returns the label of the field written for replication `r` of the
+    * point set `j`, which has `n` points, in series `k`. This is
+    * `"k.j.n.r"`, with the four integers in decimal. The index `j`
+    * distinguishes point sets of a series that have the same number of
+    * points.
+    *  @param k            series of the point set
+    *  @param j            point set in the series
+    *  @param n            number of points
+    *  @param r            replication
+    *  @return label of the cell
+    */
+   public static String cellLabel (int k, int j, int n, int r) {
+      return k + "." + j + "." + n + "." + r;
+   }
+
+   /**
+    * Reads the cells written by a previous experiment from `reader`, which
+    * are then not simulated again by  #simulReplicates. The fields whose
+    * label is not that of a cell are ignored, and so is an incomplete last
+    * field, left by an experiment that was interrupted while writing.
+    * Returns the number of cells read.
+    *  @param reader       reader of the partial results
+    *  @return the number of cells read
+    */
+   public int resume (DataReader reader) throws IOException {
+      int count = 0;
+      try {
+         while (reader.dataPending()) {
+            DataField f = reader.readNextField();
+            if (f == null)
+               break;
+            if (f.isDouble()
+                && f.getLabel() != null
+                && f.getLabel().matches ("\\d+\\.\\d+\\.\\d+\\.\\d+")) {
+               resumed.put (f.getLabel(), f.asDouble());
+               count++;
+            }
+         }
+      } catch (EOFException e) {
+         // Truncated last field.
+      }
+      return count;
+   }
+
+   /**
+    * Performs `m` independent replications of a simulation with each
+    * point set `pointSets[k][j]`, with @f$n@f$ equal to the number of
+    * points of the point set. Series @f$k@f$ is made of the point sets
+    * `pointSets[k]`, usually in increasing sizes. See the class description
+    * for the use of `stream`; on return, it is positioned at the start of
+    * the substream following those of all the cells. The point sets
+    * themselves are not modified.
+    *  @param pointSets    series of point sets
+    *  @param m            number of replications for each point set
+    *  @param stream       stream giving the randomizations
+    */
+   public void simulReplicates (PointSet[][] pointSets, int m,
+                                RandomStream stream) throws IOException {
+      if (m < 1)
+         throw new IllegalArgumentException ("m < 1");
+      if (!(stream instanceof CloneableRandomStream))
+         throw new IllegalArgumentException (
+            "the stream must be a CloneableRandomStream");
+      int maxSets = 0;
+      for (int k = 0; k < pointSets.length; k++)
+         maxSets = Math.max (maxSets, pointSets[k].length);
+      this.pointSets = pointSets;
+      this.m = m;
+      values = new double[pointSets.length][][];
+      for (int k = 0; k < pointSets.length; k++)
+         values[k] = new double[pointSets[k].length][m];
+
+      // The cells to simulate, smaller point sets first, with their stream.
+      CloneableRandomStream cs = (CloneableRandomStream) stream;
+      final List<int[]> cells = new ArrayList<int[]>();
+      final List<RandomStream> streams = new ArrayList<RandomStream>();
+      CloneableRandomStream[][][] cellStreams =
+         new CloneableRandomStream[pointSets.length][maxSets][m];
+      for (int k = 0; k < pointSets.length; k++)
+         for (int j = 0; j < maxSets; j++)
+            for (int r = 0; r < m; r++) {
+               cs.resetNextSubstream();
+               if (j < pointSets[k].length)
+                  cellStreams[k][j][r] = cs.clone();
+            }
+      cs.resetNextSubstream();
+      for (int j = 0; j < maxSets; j++)
+         for (int r = 0; r < m; r++)
+            for (int k = 0; k < pointSets.length; k++) {
+               if (j >= pointSets[k].length)
+                  continue;
+               String label =
+                  cellLabel (k, j, pointSets[k][j].getNumPoints(), r);
+               Double v = resumed.get (label);
+               if (v != null) {
+                  values[k][j][r] = v;
+                  if (writer != null)
+                     writer.write (label, v.doubleValue());
+               } else {
+                  cells.add (new int[] {k, j, r});
+                  streams.add (cellStreams[k][j][r]);
+               }
+            }
+      runCells (cells, streams);
+   }
+
+   /**
+    * Same as  #simulReplicates(PointSet[][],int,RandomStream) with a
+    * single series of point sets.
+    *  @param pointSets    point sets of the series
+    *  @param m            number of replications for each point set
+    *  @param stream       stream giving the randomizations
+    */
+   public void simulReplicates (PointSet[] pointSets, int m,
+                                RandomStream stream) throws IOException {
+      simulReplicates (new PointSet[][] {pointSets}, m, stream);
+   }
+
+   // Simulates the cells, each with its stream, with numThreads workers
+   // taking the next cell in the list when they are done with one.
+   private void runCells (final List<int[]> cells,
+                          final List<RandomStream> streams)
+         throws IOException {
+      int nw = Math.max (1, Math.min (numThreads, cells.size()));
+      Worker worker = new Worker (cells, streams);
+      ParallelLoop.getDefault().run (nw, nw, worker);
+      if (worker.ioException != null)
+         throw worker.ioException;
+   }
+
+   // Simulates cells, with a simulator and copies of the point sets for
+   // each chunk of the loop, that is, for each thread.
+   private class Worker extends ParallelLoop.Task {
+      private List<int[]> cells;
+      private List<RandomStream> streams;
+      private AtomicInteger next = new AtomicInteger();
+      private IOException ioException;   // First write error.
+
+      Worker (List<int[]> cells, List<RandomStream> streams) {
+         this.cells = cells;
+         this.streams = streams;
+      }
+
+      public void run (int t, int lo, int hi) {
+         boolean done = false;
+         try {
+            simulateCells();
+            done = true;
+         } catch (IOException e) {
+            synchronized (this) {
+               if (ioException == null)
+                  ioException = e;
+            }
+         } finally {
+            // Stops the other workers after a failure.
+            if (!done)
+               next.set (cells.size());
+         }
+      }
+
+      private void simulateCells() throws IOException {
+         Simulator sim = factory.createSimulator();
+         PointSet[][] copies = new PointSet[pointSets.length][];
+         int c;
+         while ((c = next.getAndIncrement()) < cells.size()) {
+            int k = cells.get (c)[0], j = cells.get (c)[1],
+                r = cells.get (c)[2];
+            if (copies[k] == null)
+               copies[k] = new PointSet[pointSets[k].length];
+            if (copies[k][j] == null)
+               copies[k][j] = pointSets[k][j].clone();
+            double v = sim.simulate (copies[k][j], streams.get (c));
+            values[k][j][r] = v;
+            if (writer != null)
+               synchronized (writer) {
+                  writer.write (cellLabel (k, j, copies[k][j].getNumPoints(),
+                                           r), v);
+               }
+         }
+      }
+   }
+
+   private void checkSimulated() {
+      if (values == null)
+         throw new IllegalStateException ("no experiment was performed");
+   }
+
+   /**
+    * Returns the values of the @f$m@f$ replications for the point set
+    * @f$j@f$ of series @f$k@f$, in the last experiment.
+    *  @param k            series
+    *  @param j            point set in the series
+    *  @return the values of the replications
+    */
+   public double[] getValues (int k, int j) {
+      checkSimulated();
+      return values[k][j];
+   }
+
+   /**
+    * Returns a collector containing the values of the @f$m@f$ replications
+    * for the point set @f$j@f$ of series @f$k@f$, in the last experiment.
+    *  @param k            series
+    *  @param j            point set in the series
+    *  @return statistics on the replications
+    */
+   public Tally getStatReps (int k, int j) {
+      checkSimulated();
+      Tally stat = new Tally ("Performance");
+      for (int r = 0; r < m; r++)
+         stat.add (values[k][j][r]);
+      return stat;
+   }
+
+   /**
+    * Returns the slope of the least-squares regression of @f$\log_2@f$ of
+    * the variance of the replications on @f$\log_2 n@f$, for the point
+    * sets of series @f$k@f$, in the last experiment. Returns 0 if the
+    * series has less than 2 point sets.
+    *  @param k            series
+    *  @return the estimated convergence rate of the variance
+    */
+   public double getSlope (int k) {
+      checkSimulated();
+      int numSets = pointSets[k].length;
+      if (numSets < 2)
+         return 0.0;
+      double[] logn = new double[numSets];
+      double[] logVariance = new double[numSets];
+      for (int j = 0; j < numSets; j++) {
+         logn[j] = Num.log2 (pointSets[k][j].getNumPoints());
+         logVariance[j] = Num.log2 (getStatReps (k, j).variance());
+      }
+      return LeastSquares.calcCoefficients (logn, logVariance, 1)[1];
+   }
+
+   /**
+    * Returns a string that reports, for each series of the last
+    * experiment, the mean and the variance reduction factor with respect
+    * to MC for each point set, and the estimated convergence rate of the
+    * variance, as ArrayOfComparableChains.testVarianceRateFormat. Assumes
+    * that `varMC` is the variance per run for MC. The string
+    * `methodLabels[k]` should describe series @f$k@f$; `methodLabels` can
+    * be `null`.
+    *  @param varMC        variance per run with MC
+    *  @param methodLabels descriptions of the series, or `null`
+    *  @return the report
+    */
+   public String formatResults (double varMC, String[] methodLabels) {
+      checkSimulated();
+      StringBuffer sb = new StringBuffer();
+      for (int k = 0; k < pointSets.length; k++) {
+         sb.append (PrintfFormat.NEWLINE + " --------------------------");
+         sb.append ((methodLabels == null ? "Series " + k : methodLabels[k])
+                    + PrintfFormat.NEWLINE);
+         sb.append ("  MC Variance : " + varMC + PrintfFormat.NEWLINE);
+         for (int j = 0; j < pointSets[k].length; j++) {
+            int n = pointSets[k][j].getNumPoints();
+            Tally stat = getStatReps (k, j);
+            sb.append ("n = " + n + PrintfFormat.NEWLINE);
+            sb.append ("  Average = " + stat.average() + PrintfFormat.NEWLINE);
+            sb.append ("  VRF =  " + varMC / (n * stat.variance())
+                       + PrintfFormat.NEWLINE);
+         }
+         sb.append ("Regression slope (log) for variance = " + getSlope (k)
+                    + PrintfFormat.NEWLINE);
+      }
+      return sb.toString();
+   }
+}
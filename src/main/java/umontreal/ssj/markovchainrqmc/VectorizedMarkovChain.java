@@ -0,0 +1,85 @@
+package umontreal.ssj.markovchainrqmc;
+
+import umontreal.ssj.hups.PointSetIterator;
+
+/**
+ * Represents a Markov chain whose state is a vector of @f$d@f$ real
+ * numbers, and whose steps are simulated for @f$n@f$ copies of the chain at
+ * once. This is used by  @ref ArrayOfMultiDimChains. The states of the
+ * @f$n@f$ copies are kept in a single array of `double` of size @f$nd@f$:
+ * coordinate @f$j@f$ of the state of copy @f$i@f$ is in
+ * `states[i*d + j]`. There is no object per copy of the chain, and the
+ * subclass can process all the copies in a single loop.
+ *
+ * A chain that has stopped should simply keep its state unchanged and
+ * ignore its uniforms in the next steps; it still receives a point at each
+ * step.
+ *
+ * <div class="SSJ-bigskip"></div><div class="SSJ-bigskip"></div>
+ */
+public abstract class VectorizedMarkovChain {
+
+   protected int dimension;   // Dimension d of the state.
+
+   /**
+    * Constructs a chain whose state has dimension `dimension`.
+    */
+   protected VectorizedMarkovChain (int dimension) {
+      if (dimension < 1)
+         throw new IllegalArgumentException ("dimension < 1");
+      this.dimension = dimension;
+   }
+
+   /**
+    * Returns the dimension @f$d@f$ of the state.
+    */
+   public int dimension() {
+      return dimension;
+   }
+
+   /**
+    * @name Abstract methods
+    * @{
+    */
+
+   /**
+    * Puts the (deterministic) initial state of the first `n` copies of
+    * the chain in `states`.
+    */
+   public abstract void initialStates (double[] states, int n);
+
+   /**
+    * Simulates step number `stepIndex` (starting from 0) for the first `n`
+    * copies of the chain, whose states are in `states`, and replaces them
+    * by the new states. Copy @f$i@f$ must use the uniforms of point
+    * @f$i@f$ of `u`: the iterator is at the first coordinate of point 0
+    * when this method is invoked, and the method must move it to the next
+    * point, by calling `u.resetNextSubstream()`, after each copy.
+    */
+   public abstract void step (int stepIndex, double[] states, int n,
+                              PointSetIterator u);
+
+   /**
+    * Puts in `perf[i]` the performance of copy @f$i@f$ of the chain, for
+    * @f$i=0,…,n-1@f$, after `numSteps` steps, when its state is the
+    * @f$i@f$-th state in `states`.
+    */
+   public abstract void getPerformances (int numSteps, double[] states,
+                                         int n, double[] perf);
+
+   /**
+    * @}
+    */
+
+   /**
+    * Returns the points used to sort the first `n` copies of the chain, in
+    * the same layout as `states`. By default, this returns `states`
+    * itself. This method can be overridden to map the states to other
+    * points, for example to @f$[0,1)^d@f$ for a
+    * @ref umontreal.ssj.util.sort.HilbertCurveSort; the returned array can
+    * then be reused from one call to the next.
+    */
+   public double[] getSortPoints (double[] states, int n) {
+      return states;
+   }
+}
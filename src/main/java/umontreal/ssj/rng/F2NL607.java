@@ -55,6 +55,11 @@ import java.util.Random;
  * representing the position of the generator in each array of the nonlinear
  * components.
  *
+ * The methods  #advanceState,  #setStreamIndex and  #setSubstreamIndex
+ * jump ahead by an arbitrary number of steps, as in  @ref WELL607 for the
+ * linear part; the position in each array of the nonlinear components is
+ * simply advanced modulo the length of the array.
+ *
  * <div class="SSJ-bigskip"></div>
  */
 public class F2NL607 extends WELL607base {
@@ -70,6 +75,8 @@ public class F2NL607 extends WELL607base {
                                        0x8B34DE2A, 0x74EC15F5, 0x84EBC216,
                                        0x83EA2C61, 0xE4A83B1E, 0xA5D82CB9,
                                        0x9E1A6C89};
+   //seed of stream number 0, as given by setPackageLinearSeed
+   private static int[] packageSeed = curr_stream.clone();
 
    //data for the non-linear part
    private static int[][] nlData;
@@ -80,6 +87,7 @@ public class F2NL607 extends WELL607base {
    private int[] nlStream;
    private int[] nlSubstream;
    private static int[] curr_nlStream;
+   private static int[] nlPackageSeed;
 
    //set to true when a instance of F2NL607 is constructed
    private static boolean constructed = false;
@@ -88,6 +96,7 @@ public class F2NL607 extends WELL607base {
    static
    {
       curr_nlStream = new int[]{ 0, 0, 0};
+      nlPackageSeed = new int[]{ 0, 0, 0};
 
       nlData = new int[][]{ new int[1019],
                             new int[1021],
@@ -168,20 +177,23 @@ public class F2NL607 extends WELL607base {
       stream = new int[R];
       substream = new int[R];
 
-      for(int i = 0; i < R; i++)
-         stream[i] = curr_stream[i];
-
-//    advanceSeed(curr_stream, Apz);
-      advanceSeed(curr_stream, WELL607.pz);
-
       //non-linear part
       nlState = new int[nlData.length];
       nlStream = new int[nlData.length];
       nlSubstream = new int[nlData.length];
 
-      for(int i = 0; i < nlData.length; i++) {
-         nlStream[i] = curr_nlStream[i];
-         curr_nlStream[i] += nlJumpZ[i];
+      synchronized (F2NL607.class) {
+         for(int i = 0; i < R; i++)
+            stream[i] = curr_stream[i];
+
+//       advanceSeed(curr_stream, Apz);
+         advanceSeed(curr_stream, WELL607.pz);
+
+         for(int i = 0; i < nlData.length; i++) {
+            nlStream[i] = curr_nlStream[i];
+            curr_nlStream[i] = (curr_nlStream[i] + nlJumpZ[i]) %
+                               nlData[i].length;
+         }
       }
 
       resetStartStream();
@@ -224,6 +236,73 @@ public class F2NL607 extends WELL607base {
       resetStartSubstream();
    }
 
+   /**
+    * Advances the state of this stream by `n` steps, without modifying
+    * the beginning of the stream and of the current substream. The next
+    * value returned is then the same as after `n` calls to `nextValue`.
+    *  @param n            the number of steps
+    *  @exception IllegalArgumentException if `n` is negative
+    */
+   public void advanceState (long n) {
+      if (n < 0)
+         throw new IllegalArgumentException ("n must be non-negative");
+      advanceLinearState (n);
+      for (int i = 0; i < nlState.length; i++)
+         nlState[i] = (int)((nlState[i] + n % nlData[i].length) %
+                            nlData[i].length);
+   }
+
+   /**
+    * Sets the initial seed of this stream to the seed of stream number
+    * `k` of the package, that is, @f$kZ@f$ steps ahead of the seed given
+    * by the last calls to  #setPackageLinearSeed and
+    * #setPackageNonLinearSeed, or of the default seed. Stream number `k`
+    * produces the same values as the stream that the constructor returns
+    * when it is called for the @f$(k+1)@f$-th time after the package seed
+    * was set. The stream is then reset to its initial seed.
+    *  @param k            the stream number
+    *  @exception IllegalArgumentException if `k` is negative
+    */
+   public void setStreamIndex (long k) {
+      if (k < 0)
+         throw new IllegalArgumentException ("k must be non-negative");
+      int[] seed;
+      synchronized (F2NL607.class) {
+         seed = packageSeed.clone();
+         for (int i = 0; i < nlStream.length; i++)
+            nlStream[i] = (int)((nlPackageSeed[i] +
+                                 (k % nlData[i].length) * nlJumpZ[i]) %
+                                nlData[i].length);
+      }
+      jumpSeed (seed, k, w + v);
+      for (int i = 0; i < R; i++)
+         stream[i] = seed[i];
+      resetStartStream();
+   }
+
+   /**
+    * Sets the beginning of the current substream to substream number `j`
+    * of this stream, which is @f$jW@f$ steps ahead of the beginning of the
+    * stream, and resets the state to it. Substream number `j` produces the
+    * same values as the one reached after `j` calls to
+    * #resetNextSubstream.
+    *  @param j            the substream number
+    *  @exception IllegalArgumentException if `j` is negative
+    */
+   public void setSubstreamIndex (long j) {
+      if (j < 0)
+         throw new IllegalArgumentException ("j must be non-negative");
+      int[] seed = stream.clone();
+      jumpSeed (seed, j, w);
+      for (int i = 0; i < R; i++)
+         substream[i] = seed[i];
+      for (int i = 0; i < nlSubstream.length; i++)
+         nlSubstream[i] = (int)((nlStream[i] +
+                                 (j % nlData[i].length) * nlJumpW[i]) %
+                                nlData[i].length);
+      resetStartSubstream();
+   }
+
    /**
     * Sets the initial seed of the linear part of the class `F2NL607` to
     * the 19 integers of the vector `seed[0..18]`. This will be the
@@ -232,11 +311,11 @@ public class F2NL607 extends WELL607base {
     * it must not be equal to `0x7FFFFFFF`.
     *  @param seed         array of 19 elements representing the seed
     */
-   public static void setPackageLinearSeed (int seed[]) {
+   public static synchronized void setPackageLinearSeed (int seed[]) {
       verifySeed(seed);
 
       for(int i = 0; i < R; i++)
-         curr_stream[i] = seed[i];
+         curr_stream[i] = packageSeed[i] = seed[i];
    }
 
    /**
@@ -281,7 +360,7 @@ public class F2NL607 extends WELL607base {
     *  @param seed         array of @f$n@f$ elements representing the
     *                      non-linear seed
     */
-   public static void setPackageNonLinearSeed (int seed[]) {
+   public static synchronized void setPackageNonLinearSeed (int seed[]) {
       if (seed.length < nlData.length)
          throw new IllegalArgumentException("Seed must contain " +
                                             nlData.length + " values");
@@ -292,7 +371,7 @@ public class F2NL607 extends WELL607base {
                                                (nlData[i].length - 1));
 
       for(int i = 0; i < nlData.length; i++)
-         curr_nlStream[i] = seed[i];
+         curr_nlStream[i] = nlPackageSeed[i] = seed[i];
    }
 
    /**
@@ -378,6 +457,7 @@ public class F2NL607 extends WELL607base {
 
       nlData = new int[data.length][];
       curr_nlStream = new int[data.length];
+      nlPackageSeed = new int[data.length];
       for(int i = 0; i < data.length; i++) {
          nlData[i] = new int[data[i].length];
          for(int j = 0; j < data[i].length; j++)
@@ -424,6 +504,7 @@ public class F2NL607 extends WELL607base {
                                          "any F2NL607");
 
       curr_nlStream = new int[size.length];
+      nlPackageSeed = new int[size.length];
       for(int i = 0; i < size.length; i++)
          curr_nlStream[i] = 0;
 
@@ -482,6 +563,37 @@ public class F2NL607 extends WELL607base {
       return retour;
    }
 
+   protected int generatorStateSize() {
+      return super.generatorStateSize() + 3 * nlState.length;
+   }
+
+   protected void saveGeneratorState (int[] s, int off) {
+      super.saveGeneratorState (s, off);
+      int n = nlState.length;
+      off += super.generatorStateSize();
+      System.arraycopy (nlStream, 0, s, off, n);
+      System.arraycopy (nlSubstream, 0, s, off + n, n);
+      System.arraycopy (nlState, 0, s, off + 2*n, n);
+   }
+
+   protected void checkGeneratorState (int[] s, int off) {
+      super.checkGeneratorState (s, off);
+      int n = nlState.length;
+      int nl = off + super.generatorStateSize();
+      for (int i = 0; i < 3 * n; i++)
+         if (s[nl + i] < 0 || s[nl + i] >= nlData[i % n].length)
+            throw new IllegalArgumentException ("Invalid state");
+   }
+
+   protected void restoreGeneratorState (int[] s, int off) {
+      int n = nlState.length;
+      int nl = off + super.generatorStateSize();
+      super.restoreGeneratorState (s, off);
+      System.arraycopy (s, nl, nlStream, 0, n);
+      System.arraycopy (s, nl + n, nlSubstream, 0, n);
+      System.arraycopy (s, nl + 2*n, nlState, 0, n);
+   }
+
    public String toString() {
       StringBuffer sb = new StringBuffer();
 
@@ -0,0 +1,256 @@
+/*
+ * Class:        F2Poly
+ * Description:  polynomial arithmetic modulo 2 used for jumping ahead
+                 the F2-linear generators
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.rng;
+
+/*
+ * Polynomials over F_2, used to jump ahead the F2-linear generators
+ * (LFSR113, LFSR258, WELL512, WELL607, WELL1024, F2NL607 and MT19937).
+ *
+ * A polynomial is stored in an array of long, the coefficient of z^j
+ * being bit j % 64 of element j / 64.  If P(z) is the characteristic
+ * polynomial of the transition matrix A of a generator, of degree k, and
+ * g(z) = z^n mod P(z) = g_0 + g_1 z + ... + g_{k-1} z^{k-1}, then
+ * A^n x = g(A) x = g_0 x + g_1 Ax + ... + g_{k-1} A^{k-1} x, which is
+ * computed by running the generator for k steps from x and adding up the
+ * states for which g_j = 1 (Haramoto et al., 2008).  Computing g(z) takes
+ * O(k^2 log n) bit operations, and applying it takes k steps of the
+ * generator, each followed by the addition of a state.
+ *
+ * The generators compute P(z) on first use with the Berlekamp-Massey
+ * algorithm, from 2k successive bits of their output.
+ */
+final class F2Poly {
+
+   private F2Poly() {}
+
+   /*
+     Returns the minimal polynomial of the bit sequence s_0,...,s_{n-1},
+     where s_i is bit i of seq, computed with the Berlekamp-Massey
+     algorithm.  If the sequence is produced by a linear recurrence whose
+     characteristic polynomial is irreducible (or a product of distinct
+     irreducible factors that all appear in the sequence) of degree k,
+     and n >= 2k, this is the characteristic polynomial.  Throws
+     IllegalStateException if the degree found is not k.
+   */
+   static long[] minimalPolynomial (long[] seq, int n, int k) {
+      // rev holds the sequence in reverse order, so that the bits
+      // s_{t-L}, ..., s_t are consecutive for the discrepancy
+      long[] rev = new long[n / 64 + 2];
+      for (int i = 0; i < n; i++)
+         if (((seq[i >> 6] >>> (i & 63)) & 1L) != 0)
+            rev[(n - 1 - i) >> 6] |= 1L << ((n - 1 - i) & 63);
+
+      int words = n / 64 + 2;
+      long[] c = new long[words];    // connection polynomial C(z)
+      long[] b = new long[words];    // C(z) before the last length change
+      long[] t = new long[words];
+      c[0] = b[0] = 1L;
+      int len = 0;
+      int m = 1;
+
+      for (int i = 0; i < n; i++) {
+         // d = s_i + c_1 s_{i-1} + ... + c_L s_{i-L}
+         int off = n - 1 - i;
+         long d = 0;
+         for (int w = 0; w <= len >> 6; w++)
+            d ^= c[w] & bits (rev, off + 64 * w);
+         if (Long.bitCount (d) % 2 == 0)
+            m++;
+         else if (2 * len <= i) {
+            System.arraycopy (c, 0, t, 0, words);
+            xorShifted (c, b, m);
+            len = i + 1 - len;
+            long[] tmp = b;  b = t;  t = tmp;
+            m = 1;
+         } else {
+            xorShifted (c, b, m);
+            m++;
+         }
+      }
+      if (len != k)
+         throw new IllegalStateException ("degree of the minimal polynomial is "
+            + len + " instead of " + k);
+
+      // P(z) = z^L C(1/z)
+      long[] p = new long[k / 64 + 1];
+      for (int j = 0; j <= len; j++)
+         if (((c[j >> 6] >>> (j & 63)) & 1L) != 0)
+            p[(len - j) >> 6] |= 1L << ((len - j) & 63);
+      return p;
+   }
+
+   /*
+     Returns the degree of p.
+   */
+   static int degree (long[] p) {
+      for (int w = p.length - 1; w >= 0; w--)
+         if (p[w] != 0)
+            return 64 * w + 63 - Long.numberOfLeadingZeros (p[w]);
+      return -1;
+   }
+
+   /*
+     Returns true if the coefficient of z^j in g is 1.
+   */
+   static boolean coeff (long[] g, int j) {
+      return ((g[j >> 6] >>> (j & 63)) & 1L) != 0;
+   }
+
+   /*
+     Returns z^n mod p, for n >= 0.
+   */
+   static long[] zPowMod (long[] p, long n) {
+      return zPowMod (p, n, 0);
+   }
+
+   /*
+     Returns z^(k 2^e) mod p, for k >= 0 and e >= 0.
+   */
+   static long[] zPowMod (long[] p, long k, int e) {
+      int deg = degree (p);
+      long[] g = new long[2 * (deg / 64 + 1)];
+      g[0] = 1L;
+      // left-to-right binary exponentiation of z
+      for (int i = 63 - Long.numberOfLeadingZeros (k); i >= 0; i--) {
+         squareMod (g, p, deg);
+         if (((k >>> i) & 1L) != 0)
+            multiplyZMod (g, p, deg);
+      }
+      if (k != 0)
+         for (int i = 0; i < e; i++)
+            squareMod (g, p, deg);
+      long[] res = new long[deg / 64 + 1];
+      System.arraycopy (g, 0, res, 0, res.length);
+      return res;
+   }
+
+   /*
+     Returns g(z) z^(-1) mod p, for g of degree less than the degree of p.
+     This requires p(0) = 1, which holds for the characteristic polynomial
+     of an invertible transition matrix.
+   */
+   static long[] divideByZ (long[] g, long[] p) {
+      long[] res = new long[g.length];
+      boolean odd = (g[0] & 1L) != 0;
+      for (int w = 0; w < g.length; w++) {
+         long x = odd ? g[w] ^ p[w] : g[w];
+         long y = (w + 1 < g.length) ? (odd ? g[w+1] ^ p[w+1] : g[w+1]) : 0;
+         res[w] = (x >>> 1) | (y << 63);
+      }
+      return res;
+   }
+
+   /*
+     Converts the polynomial g into an array of nw int, the coefficient
+     of z^j being bit j % 32 of element j / 32, as used by the advanceSeed
+     methods of the WELL generators.
+   */
+   static int[] toInts (long[] g, int nw) {
+      int[] res = new int[nw];
+      for (int i = 0; i < nw && i / 2 < g.length; i++)
+         res[i] = (int)(g[i / 2] >>> (32 * (i & 1)));
+      return res;
+   }
+
+   // Returns the 64 bits of a starting at bit off.
+   private static long bits (long[] a, int off) {
+      int w = off >> 6;
+      int s = off & 63;
+      long lo = w < a.length ? a[w] : 0;
+      if (s == 0)
+         return lo;
+      long hi = w + 1 < a.length ? a[w + 1] : 0;
+      return (lo >>> s) | (hi << (64 - s));
+   }
+
+   // a += b z^s, the part that does not fit in a being discarded.
+   private static void xorShifted (long[] a, long[] b, int s) {
+      int ws = s >> 6;
+      int bs = s & 63;
+      for (int w = a.length - 1; w >= ws; w--) {
+         long x = b[w - ws] << bs;
+         if (bs != 0 && w - ws - 1 >= 0)
+            x |= b[w - ws - 1] >>> (64 - bs);
+         a[w] ^= x;
+      }
+   }
+
+   // g = g^2 mod p; g has room for 2 (deg / 64 + 1) words.
+   private static void squareMod (long[] g, long[] p, int deg) {
+      int nw = deg / 64 + 1;
+      for (int w = nw - 1; w >= 0; w--) {
+         long x = g[w];
+         g[2 * w + 1] = spread ((int)(x >>> 32));
+         g[2 * w] = spread ((int) x);
+      }
+      reduce (g, p, deg, 2 * deg - 2);
+   }
+
+   // g = z g mod p
+   private static void multiplyZMod (long[] g, long[] p, int deg) {
+      int nw = deg / 64 + 1;
+      for (int w = nw; w > 0; w--)
+         g[w] = (g[w] << 1) | (g[w - 1] >>> 63);
+      g[0] <<= 1;
+      if (coeff (g, deg))
+         for (int w = 0; w < nw; w++)
+            g[w] ^= p[w];
+   }
+
+   // Reduces g, of degree at most top, modulo p of degree deg.
+   private static void reduce (long[] g, long[] p, int deg, int top) {
+      for (int i = top; i >= deg; i--)
+         if (coeff (g, i))
+            xorShiftedPart (g, p, i - deg, deg);
+   }
+
+   // g += p z^s, for p of degree deg.
+   private static void xorShiftedPart (long[] g, long[] p, int s, int deg) {
+      int ws = s >> 6;
+      int bs = s & 63;
+      int nw = deg / 64 + 1;
+      if (bs == 0)
+         for (int w = 0; w < nw; w++)
+            g[w + ws] ^= p[w];
+      else {
+         g[ws] ^= p[0] << bs;
+         for (int w = 1; w < nw; w++)
+            g[w + ws] ^= (p[w] << bs) | (p[w - 1] >>> (64 - bs));
+         g[nw + ws] ^= p[nw - 1] >>> (64 - bs);
+      }
+   }
+
+   // Spreads the 32 bits of x over the even bits of a long.
+   private static long spread (int x) {
+      long v = x & 0xffffffffL;
+      v = (v | (v << 16)) & 0x0000ffff0000ffffL;
+      v = (v | (v << 8))  & 0x00ff00ff00ff00ffL;
+      v = (v | (v << 4))  & 0x0f0f0f0f0f0f0f0fL;
+      v = (v | (v << 2))  & 0x3333333333333333L;
+      v = (v | (v << 1))  & 0x5555555555555555L;
+      return v;
+   }
+}
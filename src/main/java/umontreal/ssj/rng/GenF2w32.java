@@ -95,7 +95,7 @@ public class GenF2w32 extends RandomStreamBase {
    private static int[] curr_stream;
 
    //if the generator was initialised
-   private static boolean initialised = false;
+   private static volatile boolean initialised = false;
 
    private int[] state;
    private int state_i;
@@ -186,7 +186,11 @@ public class GenF2w32 extends RandomStreamBase {
 
 
 
-   static private void initialisation() {
+   static synchronized private void initialisation() {
+      // another thread may have completed the initialisation already
+      if (initialised)
+         return;
+
       //initialise all of the state variables
 
       curr_stream = new int[]{0x95F24DAB, 0x0B685215, 0xE76CCAE7, 0xAF3EC239,
@@ -309,12 +313,14 @@ public class GenF2w32 extends RandomStreamBase {
       substream = new int[R];
       state = new int[R];
 
-      for(int i = 0; i < R; i++)
-         stream[i] = curr_stream[i];
-      //stream.copyFrom(curr_stream);
+      synchronized (GenF2w32.class) {
+         for(int i = 0; i < R; i++)
+            stream[i] = curr_stream[i];
+         //stream.copyFrom(curr_stream);
 
-      advanceSeed(curr_stream, Apz);
-      //      curr_stream = curr_stream.multiply(jumpZ);
+         advanceSeed(curr_stream, Apz);
+         //      curr_stream = curr_stream.multiply(jumpZ);
+      }
 
       resetStartStream();
    }
@@ -336,7 +342,7 @@ public class GenF2w32 extends RandomStreamBase {
     * be non-zero.
     *  @param seed         array of 25 elements representing the seed
     */
-   public static void setPackageSeed (int seed[]) {
+   public static synchronized void setPackageSeed (int seed[]) {
       if (!initialised)
          initialisation();
       if (seed.length < R)
@@ -415,6 +421,30 @@ public class GenF2w32 extends RandomStreamBase {
       return retour;
    }
 
+   protected int generatorStateSize() {
+      return 1 + 3 * R;
+   }
+
+   protected void saveGeneratorState (int[] s, int off) {
+      System.arraycopy (stream, 0, s, off, R);
+      System.arraycopy (substream, 0, s, off + R, R);
+      System.arraycopy (state, 0, s, off + 2*R, R);
+      s[off + 3*R] = state_i;
+   }
+
+   protected void checkGeneratorState (int[] s, int off) {
+      // nextValue decrements state_i, and wraps it around from -1
+      if (s[off + 3*R] < -1 || s[off + 3*R] >= R)
+         throw new IllegalArgumentException ("Invalid state");
+   }
+
+   protected void restoreGeneratorState (int[] s, int off) {
+      System.arraycopy (s, off, stream, 0, R);
+      System.arraycopy (s, off + R, substream, 0, R);
+      System.arraycopy (s, off + 2*R, state, 0, R);
+      state_i = s[off + 3*R];
+   }
+
    public void resetStartStream() {
       for(int i = 0; i < R; i++)
          substream[i] = stream[i];
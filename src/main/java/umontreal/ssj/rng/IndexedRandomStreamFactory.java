@@ -0,0 +1,137 @@
+/*
+ * Class:        IndexedRandomStreamFactory
+ * Description:  thread-safe random stream factory giving access to
+                 the streams by index
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.rng;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A random stream factory that can be shared by many threads and that gives
+ * access to its streams by index. Stream number @f$k@f$ returned by this
+ * factory is always the @f$k@f$-th stream created by the underlying
+ * factory, that is, for the seed-chaining generators such as
+ * @ref MRG32k3a, the stream whose seed is @f$kZ@f$ steps ahead of the
+ * first one, regardless of the order in which the threads ask for the
+ * streams.
+ *
+ * The streams are created lazily, in increasing order of index, while
+ * holding a lock on this factory, and a prototype of each stream is kept.
+ * The method  #newInstance(int) returns a clone of the prototype, so each
+ * caller gets its own independent copy, positioned at the beginning of
+ * the stream. The method  #newInstance() atomically reserves the next
+ * unused index and returns the corresponding stream, so concurrent calls
+ * never return the same stream twice.
+ *
+ * To keep the numbering reproducible, all the streams of the underlying
+ * class should be created through this factory once it is in use; a stream
+ * created directly with a constructor of that class would otherwise
+ * consume one of the seeds.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public class IndexedRandomStreamFactory implements RandomStreamFactory {
+   private RandomStreamFactory factory;
+   private ArrayList<CloneableRandomStream> streams =
+      new ArrayList<CloneableRandomStream>();
+   private AtomicInteger nextIndex = new AtomicInteger();
+
+   /**
+    * Constructs a new indexed factory creating its streams with `factory`.
+    * The streams returned by `factory` must implement
+    * @ref CloneableRandomStream.
+    *  @param factory      the factory used to create the streams.
+    *  @exception NullPointerException if `factory` is `null`.
+    */
+   public IndexedRandomStreamFactory (RandomStreamFactory factory) {
+      if (factory == null)
+         throw new NullPointerException ("factory must not be null");
+      this.factory = factory;
+   }
+
+   /**
+    * Constructs a new indexed factory for streams of class `rsClass`, which
+    * must implement  @ref CloneableRandomStream and provide a nullary
+    * constructor. This is equivalent to using a
+    * @ref BasicRandomStreamFactory for `rsClass`.
+    *  @param rsClass      the random stream class being used.
+    */
+   public IndexedRandomStreamFactory (Class<? extends RandomStream> rsClass) {
+      this (new BasicRandomStreamFactory (rsClass));
+   }
+
+   /**
+    * Returns a copy of stream number `k` of this factory, reset to its
+    * initial state. Successive calls with the same `k` return distinct
+    * objects producing the same sequence.
+    *  @param k            the index of the stream, starting at 0.
+    *  @return a copy of stream number `k`.
+    *  @exception IllegalArgumentException if `k` is negative.
+    */
+   public CloneableRandomStream newInstance (int k) {
+      if (k < 0)
+         throw new IllegalArgumentException ("k must be non-negative");
+      CloneableRandomStream proto;
+      synchronized (this) {
+         while (streams.size() <= k)
+            streams.add (createStream());
+         proto = streams.get (k);
+      }
+      CloneableRandomStream s = proto.clone();
+      s.resetStartStream();
+      return s;
+   }
+
+   /**
+    * Atomically reserves the next index that has not been returned yet by
+    * this method, and returns the corresponding stream.
+    *  @return the next unused stream of this factory.
+    */
+   public RandomStream newInstance() {
+      return newInstance (nextIndex.getAndIncrement());
+   }
+
+   /**
+    * Returns the number of indices already reserved by  #newInstance().
+    *  @return the index of the stream returned by the next call to
+    * #newInstance().
+    */
+   public int getNextIndex() {
+      return nextIndex.get();
+   }
+
+   private CloneableRandomStream createStream() {
+      RandomStream s = factory.newInstance();
+      if (!(s instanceof CloneableRandomStream))
+         throw new RandomStreamInstantiationException
+            (this, "The random stream class " + s.getClass().getName() +
+             " does not implement CloneableRandomStream");
+      return (CloneableRandomStream)s;
+   }
+
+   public String toString() {
+      return "Indexed random stream factory using " + factory.toString();
+   }
+}
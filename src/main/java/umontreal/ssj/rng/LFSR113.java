@@ -40,6 +40,16 @@ import java.io.Serializable;
  * 12345, 12345)@f$.">[1]</sup> (987654321, 987654321, 987654321, 987654321).
  * The `nextValue` method returns numbers with 32 bits of precision.
  *
+ * Besides the usual jumps to the next substream, the state can be advanced
+ * by an arbitrary number of steps with  #advanceState, and stream number
+ * @f$k@f$ or substream number @f$j@f$ can be reached directly with
+ * #setStreamIndex and  #setSubstreamIndex. To jump @f$n@f$ steps ahead,
+ * these methods compute @f$z^n \bmod P(z)@f$, where @f$P(z)@f$ is the
+ * characteristic polynomial of the generator, of degree 113, and apply this
+ * polynomial to the state by running the generator for 113 steps
+ * (Haramoto et al., 2008). The polynomial @f$P(z)@f$ is computed once, on
+ * first use.
+ *
  * <div class="SSJ-bigskip"></div>
  */
 public class LFSR113 extends RandomStreamBase {
@@ -61,6 +71,10 @@ public class LFSR113 extends RandomStreamBase {
    private int[] stream;
    private int[] substream;
    private static int[] curr_stream = {987654321, 987654321, 987654321, 987654321};
+   // Seed of stream number 0, as given by setPackageSeed
+   private static int[] packageSeed = curr_stream.clone();
+   private static final int LOG_W = 55;   // W = 2^LOG_W
+   private static final int LOG_Z = 90;   // Z = 2^LOG_Z
 
    /**
     * Constructs a new stream.
@@ -71,54 +85,55 @@ public class LFSR113 extends RandomStreamBase {
       stream = new int[4];
       substream = new int[4];
 
-      for(int i = 0; i < 4; i++)
-         stream[i] = curr_stream[i];
+      synchronized (LFSR113.class) {
+         for(int i = 0; i < 4; i++)
+            stream[i] = curr_stream[i];
+
+         // Les operations qui suivent permettent de faire sauter en avant
+         // de 2^90 iterations chacunes des composantes du generateur.
+         // L'etat interne apres le saut est cependant legerement different
+         // de celui apres 2^90 iterations puisqu'il ignore l'etat dans
+         // lequel se retrouvent les premiers bits de chaque composantes,
+         // puisqu'ils sont ignores dans la recurrence. L'etat redevient
+         // identique a ce que l'on aurait avec des iterations normales
+         // apres un appel a nextValue().
+
+         int z, b;
+
+         z = curr_stream[0] & -2;
+         b = (z <<  6) ^ z;
+         z = (z) ^ (z << 2) ^ (z << 3) ^ (z << 10) ^ (z << 13) ^
+            (z << 16) ^ (z << 19) ^ (z << 22) ^ (z << 25) ^
+            (z << 27) ^ (z << 28) ^
+            (b >>> 3) ^ (b >>> 4) ^ (b >>> 6) ^ (b >>> 9) ^ (b >>> 12) ^
+            (b >>> 15) ^ (b >>> 18) ^ (b >>> 21);
+         curr_stream[0] = z;
+
+
+         z = curr_stream[1] & -8;
+         b = (z <<  2) ^ z;
+         z = (b >>> 13) ^ (z << 16);
+         curr_stream[1] = z;
+
+
+         z = curr_stream[2] & -16;
+         b = (z <<  13) ^ z;
+         z = (z << 2) ^ (z << 4) ^ (z << 10) ^ (z << 12) ^ (z << 13) ^
+            (z << 17) ^ (z << 25) ^
+            (b >>> 3) ^ (b >>> 11) ^ (b >>> 15) ^ (b >>> 16) ^ (b >>> 24);
+         curr_stream[2] = z;
+
+
+         z = curr_stream[3] & -128;
+         b = (z <<  3) ^ z;
+         z = (z << 9) ^ (z << 10) ^ (z << 11) ^ (z << 14) ^ (z << 16) ^
+            (z << 18) ^ (z << 23) ^ (z << 24) ^
+            (b >>> 1) ^ (b >>> 2) ^ (b >>> 7) ^ (b >>> 9) ^ (b >>> 11) ^
+            (b >>> 14) ^ (b >>> 15) ^ (b >>> 16) ^ (b >>> 23) ^ (b >>> 24);
+         curr_stream[3] = z;
+      }
 
       resetStartStream();
-
-
-      // Les operations qui suivent permettent de faire sauter en avant
-      // de 2^90 iterations chacunes des composantes du generateur.
-      // L'etat interne apres le saut est cependant legerement different
-      // de celui apres 2^90 iterations puisqu'il ignore l'etat dans
-      // lequel se retrouvent les premiers bits de chaque composantes,
-      // puisqu'ils sont ignores dans la recurrence. L'etat redevient
-      // identique a ce que l'on aurait avec des iterations normales
-      // apres un appel a nextValue().
-
-      int z, b;
-
-      z = curr_stream[0] & -2;
-      b = (z <<  6) ^ z;
-      z = (z) ^ (z << 2) ^ (z << 3) ^ (z << 10) ^ (z << 13) ^
-         (z << 16) ^ (z << 19) ^ (z << 22) ^ (z << 25) ^
-         (z << 27) ^ (z << 28) ^
-         (b >>> 3) ^ (b >>> 4) ^ (b >>> 6) ^ (b >>> 9) ^ (b >>> 12) ^
-         (b >>> 15) ^ (b >>> 18) ^ (b >>> 21);
-      curr_stream[0] = z;
-
-
-      z = curr_stream[1] & -8;
-      b = (z <<  2) ^ z;
-      z = (b >>> 13) ^ (z << 16);
-      curr_stream[1] = z;
-
-
-      z = curr_stream[2] & -16;
-      b = (z <<  13) ^ z;
-      z = (z << 2) ^ (z << 4) ^ (z << 10) ^ (z << 12) ^ (z << 13) ^
-         (z << 17) ^ (z << 25) ^
-         (b >>> 3) ^ (b >>> 11) ^ (b >>> 15) ^ (b >>> 16) ^ (b >>> 24);
-      curr_stream[2] = z;
-
-
-      z = curr_stream[3] & -128;
-      b = (z <<  3) ^ z;
-      z = (z << 9) ^ (z << 10) ^ (z << 11) ^ (z << 14) ^ (z << 16) ^
-         (z << 18) ^ (z << 23) ^ (z << 24) ^
-         (b >>> 1) ^ (b >>> 2) ^ (b >>> 7) ^ (b >>> 9) ^ (b >>> 11) ^
-         (b >>> 14) ^ (b >>> 15) ^ (b >>> 16) ^ (b >>> 23) ^ (b >>> 24);
-      curr_stream[3] = z;
    }
 
    /**
@@ -141,10 +156,10 @@ public class LFSR113 extends RandomStreamBase {
     * respectively.
     *  @param seed         array of 4 elements representing the seed
     */
-   public static void setPackageSeed (int[] seed) {
+   public static synchronized void setPackageSeed (int[] seed) {
       checkSeed (seed);
       for(int i = 0; i < 4; i++)
-         curr_stream[i] = seed[i];
+         curr_stream[i] = packageSeed[i] = seed[i];
    }
 
    private static void checkSeed  (int[] seed) {
@@ -201,6 +216,28 @@ public class LFSR113 extends RandomStreamBase {
       return retour;
    }
 
+   protected int generatorStateSize() {
+      return 12;
+   }
+
+   protected void saveGeneratorState (int[] s, int off) {
+      System.arraycopy (stream, 0, s, off, 4);
+      System.arraycopy (substream, 0, s, off + 4, 4);
+      s[off + 8] = z0;
+      s[off + 9] = z1;
+      s[off + 10] = z2;
+      s[off + 11] = z3;
+   }
+
+   protected void restoreGeneratorState (int[] s, int off) {
+      System.arraycopy (s, off, stream, 0, 4);
+      System.arraycopy (s, off + 4, substream, 0, 4);
+      z0 = s[off + 8];
+      z1 = s[off + 9];
+      z2 = s[off + 10];
+      z3 = s[off + 11];
+   }
+
 
    public void resetStartStream() {
       for(int i = 0; i < 4; i++)
@@ -312,6 +349,108 @@ public class LFSR113 extends RandomStreamBase {
    }
 
 
+   /**
+    * Advances the state of this stream by `n` steps, without modifying
+    * the beginning of the stream and of the current substream. The next
+    * value returned is then the same as after `n` calls to `nextValue`.
+    *  @param n            the number of steps
+    *  @exception IllegalArgumentException if `n` is negative
+    */
+   public void advanceState (long n) {
+      if (n < 0)
+         throw new IllegalArgumentException ("n must be non-negative");
+      int[] seed = getState();
+      jumpSeed (seed, n, 0);
+      resetState (seed);
+   }
+
+   /**
+    * Sets the initial seed of this stream to the seed of stream number
+    * `k` of the package, that is, @f$kZ@f$ steps ahead of the seed given
+    * by the last call to  #setPackageSeed, or of the default seed. Stream
+    * number `k` produces the same values as the stream that the
+    * constructor returns when it is called for the @f$(k+1)@f$-th time
+    * after the package seed was set. The stream is then reset to its
+    * initial seed.
+    *  @param k            the stream number
+    *  @exception IllegalArgumentException if `k` is negative
+    */
+   public void setStreamIndex (long k) {
+      if (k < 0)
+         throw new IllegalArgumentException ("k must be non-negative");
+      int[] seed;
+      synchronized (LFSR113.class) {
+         seed = packageSeed.clone();
+      }
+      jumpSeed (seed, k, LOG_Z);
+      for (int i = 0; i < 4; i++)
+         stream[i] = seed[i];
+      resetStartStream();
+   }
+
+   /**
+    * Sets the beginning of the current substream to substream number `j`
+    * of this stream, which is @f$jW@f$ steps ahead of the beginning of the
+    * stream, and resets the state to it. Substream number `j` produces the
+    * same values as the one reached after `j` calls to
+    * #resetNextSubstream.
+    *  @param j            the substream number
+    *  @exception IllegalArgumentException if `j` is negative
+    */
+   public void setSubstreamIndex (long j) {
+      if (j < 0)
+         throw new IllegalArgumentException ("j must be non-negative");
+      int[] seed = stream.clone();
+      jumpSeed (seed, j, LOG_W);
+      for (int i = 0; i < 4; i++)
+         substream[i] = seed[i];
+      resetStartSubstream();
+   }
+
+   // Characteristic polynomial of the generator, computed on first use
+   private static long[] charPolynomial;
+
+   private static synchronized long[] charPoly (LFSR113 rng) {
+      if (charPolynomial == null) {
+         LFSR113 g = rng.clone();
+         long[] seq = new long[2 * 113 / 64 + 1];
+         for (int i = 0; i < 2 * 113; i++)
+            seq[i >> 6] |= ((g.nextNumber() >>> 31) & 1L) << (i & 63);
+         charPolynomial = F2Poly.minimalPolynomial (seq, 2 * 113, 113);
+      }
+      return charPolynomial;
+   }
+
+   // Replaces seed by the state k 2^e steps ahead of it. One step is made
+   // before applying the jump polynomial, so that the result does not
+   // depend on the bits of the seed that are ignored by the recurrence.
+   private void jumpSeed (int[] seed, long k, int e) {
+      if (k == 0)
+         return;
+      long[] p = charPoly (this);
+      long[] g = F2Poly.divideByZ (F2Poly.zPowMod (p, k, e), p);
+      resetState (seed);
+      nextNumber();
+      int x0 = 0, x1 = 0, x2 = 0, x3 = 0;
+      for (int j = 0; j < 113; j++) {
+         if (F2Poly.coeff (g, j)) {
+            x0 ^= z0; x1 ^= z1; x2 ^= z2; x3 ^= z3;
+         }
+         nextNumber();
+      }
+      seed[0] = x0;
+      seed[1] = x1;
+      seed[2] = x2;
+      seed[3] = x3;
+   }
+
+   private void resetState (int[] seed) {
+      z0 = seed[0];
+      z1 = seed[1];
+      z2 = seed[2];
+      z3 = seed[3];
+   }
+
    public String toString()  {
       if (name == null)
          return "The state of the LFSR113 is: { " +
@@ -46,6 +46,16 @@ import umontreal.ssj.util.BitMatrix;
  * 123456789123456789). The `nextValue` method returns numbers with 53 bits
  * of precision. This generator is fast for 64-bit machines.
  *
+ * Besides the usual jumps to the next substream, the state can be advanced
+ * by an arbitrary number of steps with  #advanceState, and stream number
+ * @f$k@f$ or substream number @f$j@f$ can be reached directly with
+ * #setStreamIndex and  #setSubstreamIndex. To jump @f$n@f$ steps ahead,
+ * these methods compute @f$z^n \bmod P(z)@f$, where @f$P(z)@f$ is the
+ * characteristic polynomial of the generator, of degree 258, and apply this
+ * polynomial to the state by running the generator for 258 steps
+ * (Haramoto et al., 2008). The polynomial @f$P(z)@f$ is computed once, on
+ * first use.
+ *
  * <div class="SSJ-bigskip"></div>
  */
 public class LFSR258 extends RandomStreamBase {
@@ -69,6 +79,10 @@ public class LFSR258 extends RandomStreamBase {
     private long[] stream;
     private long[] substream;
     private static long[] curr_stream = {GERME, GERME, GERME, GERME, GERME};
+    // Seed of stream number 0, as given by setPackageSeed
+    private static long[] packageSeed = curr_stream.clone();
+    private static final int LOG_W = 100;   // W = 2^LOG_W
+    private static final int LOG_Z = 200;   // Z = 2^LOG_Z
 
     /**
      * Constructs a new stream.
@@ -79,80 +93,82 @@ public class LFSR258 extends RandomStreamBase {
         stream = new long[5];
         substream = new long[5];
 
-        for(int i = 0; i < 5; i++)
-            stream[i] = curr_stream[i];
+        synchronized (LFSR258.class) {
+            for(int i = 0; i < 5; i++)
+                stream[i] = curr_stream[i];
+
+
+            // Les operations qui suivent permettent de faire sauter en avant
+            // de 2^200 iterations chacunes des composantes du generateur.
+            // L'etat interne apres le saut est cependant legerement different
+            // de celui apres 2^200 iterations puisqu'il ignore l'etat dans
+            // lequel se retrouvent les premiers bits de chaque composantes,
+            // puisqu'ils sont ignores dans la recurrence. L'etat redevient
+            // identique a ce que l'on aurait avec des iterations normales
+            // apres un appel a nextValue().
+
+            long z, b;
+
+            z = curr_stream[0] & 0xfffffffffffffffeL;
+            b = z ^ (z << 1);
+            z = (b >>> 58) ^ (b >>> 55) ^ (b >>> 46) ^ (b >>> 43) ^ (z << 5) ^
+                (z << 8) ^ (z << 17) ^ (z << 20);
+            curr_stream[0] = z;
+
+
+            z = curr_stream[1] & 0xfffffffffffffe00L;
+            b = z ^ (z << 24);
+            z = (b >>> 54) ^ (b >>> 53) ^ (b >>> 52) ^ (b >>> 50) ^ (b >>> 49) ^
+                (b >>> 48) ^ (b >>> 43) ^ (b >>> 41) ^ (b >>> 38) ^ (b >>> 37) ^
+                (b >>> 30) ^ (b >>> 25) ^ (b >>> 24) ^ (b >>> 23) ^ (b >>> 19) ^
+                (b >>> 16) ^ (b >>> 15) ^ (b >>> 14) ^ (b >>> 13) ^ (b >>> 11) ^
+                (b >>> 8) ^ (b >>> 7) ^ (b >>> 5) ^ (b >>> 3) ^ (z << 0) ^
+                (z << 2) ^ (z << 3) ^ (z << 6) ^ (z << 7) ^ (z << 8) ^ (z << 9) ^
+                (z << 10) ^ (z << 11) ^ (z << 12) ^ (z << 13) ^ (z << 14) ^
+                (z << 16) ^ (z << 18) ^ (z << 19) ^ (z << 21) ^ (z << 25) ^
+                (z << 30) ^ (z << 31) ^ (z << 32) ^ (z << 36) ^ (z << 39) ^
+                (z << 40) ^ (z << 41) ^ (z << 42) ^ (z << 44) ^ (z << 47) ^
+                (z << 48) ^ (z << 50) ^ (z << 52);
+            curr_stream[1] = z;
+
+
+            z = curr_stream[2] & 0xfffffffffffff000L;
+            b = z ^ (z << 3);
+            z = (b >>> 50) ^ (b >>> 49) ^ (b >>> 46) ^ (b >>> 42) ^ (b >>> 40) ^
+                (b >>> 39) ^ (b >>> 38) ^ (b >>> 37) ^ (b >>> 36) ^ (b >>> 32) ^
+                (b >>> 29) ^ (b >>> 28) ^ (b >>> 27) ^ (b >>> 25) ^ (b >>> 23) ^
+                (b >>> 20) ^ (b >>> 19) ^ (b >>> 15) ^ (b >>> 12) ^ (b >>> 11) ^
+                (b >>> 2) ^ (z << 1) ^ (z << 2) ^ (z << 3) ^ (z << 6) ^ (z << 10) ^
+                (z << 12) ^ (z << 13) ^ (z << 14) ^ (z << 15) ^ (z << 16) ^
+                (z << 20) ^ (z << 23) ^ (z << 24) ^ (z << 25) ^ (z << 27) ^
+                (z << 29) ^ (z << 32) ^ (z << 33) ^ (z << 37) ^ (z << 40) ^
+                (z << 41) ^ (z << 50);
+            curr_stream[2] = z;
+
+
+            z = curr_stream[3] & 0xfffffffffffe0000L;
+            b = z ^ (z << 5);
+            z = (b >>> 46) ^ (b >>> 44) ^ (b >>> 42) ^ (b >>> 41) ^ (b >>> 40) ^
+                (b >>> 38) ^ (b >>> 36) ^ (b >>> 32) ^ (b >>> 30) ^ (b >>> 25) ^
+                (b >>> 18) ^ (b >>> 16) ^ (b >>> 15) ^ (b >>> 14) ^ (b >>> 12) ^
+                (b >>> 11) ^ (b >>> 10) ^ (b >>> 9) ^ (b >>> 8) ^ (b >>> 6) ^
+                (b >>> 5) ^ (b >>> 4) ^ (b >>> 3) ^ (b >>> 2) ^ (z << 2) ^
+                (z << 5) ^ (z << 6) ^ (z << 7) ^ (z << 9) ^ (z << 11) ^ (z << 15) ^
+                (z << 17) ^ (z << 22) ^ (z << 29) ^ (z << 31) ^ (z << 32) ^
+                (z << 33) ^ (z << 35) ^ (z << 36) ^ (z << 37) ^ (z << 38) ^
+                (z << 39) ^ (z << 41) ^ (z << 42) ^ (z << 43) ^ (z << 44) ^
+                (z << 45);
+            curr_stream[3] = z;
+
+
+            z = curr_stream[4] & 0xffffffffff800000L;
+            b = z ^ (z << 3);
+            z = (b >>> 40) ^ (b >>> 29) ^ (b >>> 10) ^ (z << 1) ^ (z << 12) ^
+                (z << 31);
+            curr_stream[4] = z;
+        }
 
         resetStartStream();
-
-        // Les operations qui suivent permettent de faire sauter en avant
-        // de 2^200 iterations chacunes des composantes du generateur.
-        // L'etat interne apres le saut est cependant legerement different
-        // de celui apres 2^200 iterations puisqu'il ignore l'etat dans
-        // lequel se retrouvent les premiers bits de chaque composantes,
-        // puisqu'ils sont ignores dans la recurrence. L'etat redevient
-        // identique a ce que l'on aurait avec des iterations normales
-        // apres un appel a nextValue().
-
-        long z, b;
-
-        z = curr_stream[0] & 0xfffffffffffffffeL;
-        b = z ^ (z << 1);
-        z = (b >>> 58) ^ (b >>> 55) ^ (b >>> 46) ^ (b >>> 43) ^ (z << 5) ^
-            (z << 8) ^ (z << 17) ^ (z << 20);
-        curr_stream[0] = z;
-
-
-        z = curr_stream[1] & 0xfffffffffffffe00L;
-        b = z ^ (z << 24);
-        z = (b >>> 54) ^ (b >>> 53) ^ (b >>> 52) ^ (b >>> 50) ^ (b >>> 49) ^
-            (b >>> 48) ^ (b >>> 43) ^ (b >>> 41) ^ (b >>> 38) ^ (b >>> 37) ^
-            (b >>> 30) ^ (b >>> 25) ^ (b >>> 24) ^ (b >>> 23) ^ (b >>> 19) ^
-            (b >>> 16) ^ (b >>> 15) ^ (b >>> 14) ^ (b >>> 13) ^ (b >>> 11) ^
-            (b >>> 8) ^ (b >>> 7) ^ (b >>> 5) ^ (b >>> 3) ^ (z << 0) ^
-            (z << 2) ^ (z << 3) ^ (z << 6) ^ (z << 7) ^ (z << 8) ^ (z << 9) ^
-            (z << 10) ^ (z << 11) ^ (z << 12) ^ (z << 13) ^ (z << 14) ^
-            (z << 16) ^ (z << 18) ^ (z << 19) ^ (z << 21) ^ (z << 25) ^
-            (z << 30) ^ (z << 31) ^ (z << 32) ^ (z << 36) ^ (z << 39) ^
-            (z << 40) ^ (z << 41) ^ (z << 42) ^ (z << 44) ^ (z << 47) ^
-            (z << 48) ^ (z << 50) ^ (z << 52);
-        curr_stream[1] = z;
-
-
-        z = curr_stream[2] & 0xfffffffffffff000L;
-        b = z ^ (z << 3);
-        z = (b >>> 50) ^ (b >>> 49) ^ (b >>> 46) ^ (b >>> 42) ^ (b >>> 40) ^
-            (b >>> 39) ^ (b >>> 38) ^ (b >>> 37) ^ (b >>> 36) ^ (b >>> 32) ^
-            (b >>> 29) ^ (b >>> 28) ^ (b >>> 27) ^ (b >>> 25) ^ (b >>> 23) ^
-            (b >>> 20) ^ (b >>> 19) ^ (b >>> 15) ^ (b >>> 12) ^ (b >>> 11) ^
-            (b >>> 2) ^ (z << 1) ^ (z << 2) ^ (z << 3) ^ (z << 6) ^ (z << 10) ^
-            (z << 12) ^ (z << 13) ^ (z << 14) ^ (z << 15) ^ (z << 16) ^
-            (z << 20) ^ (z << 23) ^ (z << 24) ^ (z << 25) ^ (z << 27) ^
-            (z << 29) ^ (z << 32) ^ (z << 33) ^ (z << 37) ^ (z << 40) ^
-            (z << 41) ^ (z << 50);
-        curr_stream[2] = z;
-
-
-        z = curr_stream[3] & 0xfffffffffffe0000L;
-        b = z ^ (z << 5);
-        z = (b >>> 46) ^ (b >>> 44) ^ (b >>> 42) ^ (b >>> 41) ^ (b >>> 40) ^
-            (b >>> 38) ^ (b >>> 36) ^ (b >>> 32) ^ (b >>> 30) ^ (b >>> 25) ^
-            (b >>> 18) ^ (b >>> 16) ^ (b >>> 15) ^ (b >>> 14) ^ (b >>> 12) ^
-            (b >>> 11) ^ (b >>> 10) ^ (b >>> 9) ^ (b >>> 8) ^ (b >>> 6) ^
-            (b >>> 5) ^ (b >>> 4) ^ (b >>> 3) ^ (b >>> 2) ^ (z << 2) ^
-            (z << 5) ^ (z << 6) ^ (z << 7) ^ (z << 9) ^ (z << 11) ^ (z << 15) ^
-            (z << 17) ^ (z << 22) ^ (z << 29) ^ (z << 31) ^ (z << 32) ^
-            (z << 33) ^ (z << 35) ^ (z << 36) ^ (z << 37) ^ (z << 38) ^
-            (z << 39) ^ (z << 41) ^ (z << 42) ^ (z << 43) ^ (z << 44) ^
-            (z << 45);
-        curr_stream[3] = z;
-
-
-        z = curr_stream[4] & 0xffffffffff800000L;
-        b = z ^ (z << 3);
-        z = (b >>> 40) ^ (b >>> 29) ^ (b >>> 10) ^ (z << 1) ^ (z << 12) ^
-            (z << 31);
-        curr_stream[4] = z;
-
     }
 
     /**
@@ -177,10 +193,10 @@ public class LFSR258 extends RandomStreamBase {
      * respectively.
      *  @param seed         array of 5 elements representing the seed
      */
-    public static void setPackageSeed (long seed[]) {
+    public static synchronized void setPackageSeed (long seed[]) {
        checkSeed (seed);
        for(int i = 0; i < 5; i++)
-          curr_stream[i] = seed[i];
+          curr_stream[i] = packageSeed[i] = seed[i];
     }
 
    private static void checkSeed (long seed[]) {
@@ -238,6 +254,40 @@ public class LFSR258 extends RandomStreamBase {
       return retour;
    }
 
+   protected int generatorStateSize() {
+      return 30;
+   }
+
+   // each 64-bit word is stored as two ints, the low one first
+   protected void saveGeneratorState (int[] s, int off) {
+      long[] z = {z0, z1, z2, z3, z4};
+      for (int i = 0; i < 5; i++) {
+         s[off + 2*i] = (int) stream[i];
+         s[off + 2*i + 1] = (int)(stream[i] >>> 32);
+         s[off + 10 + 2*i] = (int) substream[i];
+         s[off + 10 + 2*i + 1] = (int)(substream[i] >>> 32);
+         s[off + 20 + 2*i] = (int) z[i];
+         s[off + 20 + 2*i + 1] = (int)(z[i] >>> 32);
+      }
+   }
+
+   protected void restoreGeneratorState (int[] s, int off) {
+      long[] z = new long[5];
+      for (int i = 0; i < 5; i++) {
+         stream[i] = (s[off + 2*i] & 0xFFFFFFFFL) |
+                     ((long) s[off + 2*i + 1] << 32);
+         substream[i] = (s[off + 10 + 2*i] & 0xFFFFFFFFL) |
+                        ((long) s[off + 10 + 2*i + 1] << 32);
+         z[i] = (s[off + 20 + 2*i] & 0xFFFFFFFFL) |
+                ((long) s[off + 20 + 2*i + 1] << 32);
+      }
+      z0 = z[0];
+      z1 = z[1];
+      z2 = z[2];
+      z3 = z[3];
+      z4 = z[4];
+   }
+
 
 
 
@@ -332,6 +382,110 @@ public class LFSR258 extends RandomStreamBase {
     }
 
 
+   /**
+    * Advances the state of this stream by `n` steps, without modifying
+    * the beginning of the stream and of the current substream. The next
+    * value returned is then the same as after `n` calls to `nextValue`.
+    *  @param n            the number of steps
+    *  @exception IllegalArgumentException if `n` is negative
+    */
+   public void advanceState (long n) {
+      if (n < 0)
+         throw new IllegalArgumentException ("n must be non-negative");
+      long[] seed = getState();
+      jumpSeed (seed, n, 0);
+      resetState (seed);
+   }
+
+   /**
+    * Sets the initial seed of this stream to the seed of stream number
+    * `k` of the package, that is, @f$kZ@f$ steps ahead of the seed given
+    * by the last call to  #setPackageSeed, or of the default seed. Stream
+    * number `k` produces the same values as the stream that the
+    * constructor returns when it is called for the @f$(k+1)@f$-th time
+    * after the package seed was set. The stream is then reset to its
+    * initial seed.
+    *  @param k            the stream number
+    *  @exception IllegalArgumentException if `k` is negative
+    */
+   public void setStreamIndex (long k) {
+      if (k < 0)
+         throw new IllegalArgumentException ("k must be non-negative");
+      long[] seed;
+      synchronized (LFSR258.class) {
+         seed = packageSeed.clone();
+      }
+      jumpSeed (seed, k, LOG_Z);
+      for (int i = 0; i < 5; i++)
+         stream[i] = seed[i];
+      resetStartStream();
+   }
+
+   /**
+    * Sets the beginning of the current substream to substream number `j`
+    * of this stream, which is @f$jW@f$ steps ahead of the beginning of the
+    * stream, and resets the state to it. Substream number `j` produces the
+    * same values as the one reached after `j` calls to
+    * #resetNextSubstream.
+    *  @param j            the substream number
+    *  @exception IllegalArgumentException if `j` is negative
+    */
+   public void setSubstreamIndex (long j) {
+      if (j < 0)
+         throw new IllegalArgumentException ("j must be non-negative");
+      long[] seed = stream.clone();
+      jumpSeed (seed, j, LOG_W);
+      for (int i = 0; i < 5; i++)
+         substream[i] = seed[i];
+      resetStartSubstream();
+   }
+
+   // Characteristic polynomial of the generator, computed on first use
+   private static long[] charPolynomial;
+
+   private static synchronized long[] charPoly (LFSR258 rng) {
+      if (charPolynomial == null) {
+         LFSR258 g = rng.clone();
+         long[] seq = new long[2 * 258 / 64 + 1];
+         for (int i = 0; i < 2 * 258; i++)
+            seq[i >> 6] |= ((g.nextNumber() >>> 63) & 1L) << (i & 63);
+         charPolynomial = F2Poly.minimalPolynomial (seq, 2 * 258, 258);
+      }
+      return charPolynomial;
+   }
+
+   // Replaces seed by the state k 2^e steps ahead of it. One step is made
+   // before applying the jump polynomial, so that the result does not
+   // depend on the bits of the seed that are ignored by the recurrence.
+   private void jumpSeed (long[] seed, long k, int e) {
+      if (k == 0)
+         return;
+      long[] p = charPoly (this);
+      long[] g = F2Poly.divideByZ (F2Poly.zPowMod (p, k, e), p);
+      resetState (seed);
+      nextNumber();
+      long x0 = 0, x1 = 0, x2 = 0, x3 = 0, x4 = 0;
+      for (int j = 0; j < 258; j++) {
+         if (F2Poly.coeff (g, j)) {
+            x0 ^= z0; x1 ^= z1; x2 ^= z2; x3 ^= z3; x4 ^= z4;
+         }
+         nextNumber();
+      }
+      seed[0] = x0;
+      seed[1] = x1;
+      seed[2] = x2;
+      seed[3] = x3;
+      seed[4] = x4;
+   }
+
+   private void resetState (long[] seed) {
+      z0 = seed[0];
+      z1 = seed[1];
+      z2 = seed[2];
+      z3 = seed[3];
+      z4 = seed[4];
+   }
+
     public String toString() {
         if (name == null)
             return "The state of the LFSR258 is: " +
@@ -29,6 +29,7 @@ import umontreal.ssj.rng.RandomStream;
 import umontreal.ssj.rng.RandomStreamBase;
 import umontreal.ssj.util.ArithmeticMod;
 import java.io.Serializable;
+import java.math.BigInteger;
 
 /**
  * Extends the abstract class  @ref RandomStreamBase, thus implementing the
@@ -50,6 +51,12 @@ import java.io.Serializable;
  * `MRG32k3a`. On the other hand, the latter does a little better in the
  * spectral test and has been more extensively tested.
  *
+ * As for  @ref MRG32k3a, the state can be advanced by an arbitrary number
+ * of steps with  #advanceState(long) or  #advanceState(BigInteger), and
+ * stream number @f$k@f$ or substream number @f$j@f$ can be reached
+ * directly with  #setStreamIndex and  #setSubstreamIndex, in
+ * @f$O(\log n)@f$ matrix-vector products.
+ *
  * <div class="SSJ-bigskip"></div>
  */
 public class MRG31k3p extends RandomStreamBase {
@@ -80,6 +87,10 @@ public class MRG31k3p extends RandomStreamBase {
    private int[] substream;
    private static int[] curr_stream = {12345, 12345, 12345,
                                        12345, 12345, 12345};
+   // seed of stream number 0, as given by setPackageSeed
+   private static int[] package_stream = {12345, 12345, 12345,
+                                          12345, 12345, 12345};
+   private transient int[] jumpState;   // work space for advanceState
 
    //streams constants :
    private static final int[][] A1p0 =
@@ -109,6 +120,32 @@ public class MRG31k3p extends RandomStreamBase {
        {1241679051, 1431130166, 1464208080},
        {1401213391, 1178684362, 1431130166}};
 
+   // Number of precomputed matrices A^(2^i): enough for a jump of
+   // k * 2^134 steps for any non-negative long k.
+   private static final int NJUMPS = 198;
+   private static final int LOG_W = 72;
+   private static final int LOG_Z = 134;
+   // Orders of the two component matrices, M1^3 - 1 and M2^3 - 1.
+   private static final BigInteger ORDER1 =
+      BigInteger.valueOf (M1).pow (3).subtract (BigInteger.ONE);
+   private static final BigInteger ORDER2 =
+      BigInteger.valueOf (M2).pow (3).subtract (BigInteger.ONE);
+
+   // A1p2[i] = A1p0^(2^i) mod M1 and A2p2[i] = A2p0^(2^i) mod M2,
+   // computed when the class is first used for a jump.
+   private static class JumpTables {
+      static final int[][][] A1p2 = new int[NJUMPS][3][3];
+      static final int[][][] A2p2 = new int[NJUMPS][3][3];
+      static {
+         ArithmeticMod.matTwoPowModM (A1p0, A1p2[0], M1, 0);
+         ArithmeticMod.matTwoPowModM (A2p0, A2p2[0], M2, 0);
+         for (int i = 1; i < NJUMPS; i++) {
+            ArithmeticMod.matMatModM (A1p2[i-1], A1p2[i-1], A1p2[i], M1);
+            ArithmeticMod.matMatModM (A2p2[i-1], A2p2[i-1], A2p2[i], M2);
+         }
+      }
+   }
+
 
    //multiply the first half of v by A with a modulo of m1
    //and the second half by B with a modulo of m2
@@ -141,12 +178,13 @@ public class MRG31k3p extends RandomStreamBase {
 
       stream = new int[6];
       substream = new int[6];
-      for(int i = 0; i < 6; i++)
-         stream[i] = curr_stream[i];
+      synchronized (MRG31k3p.class) {
+         for(int i = 0; i < 6; i++)
+            stream[i] = curr_stream[i];
+         multMatVect(curr_stream, A1p134, M1, A2p134, M2);
+      }
 
       resetStartStream();
-
-      multMatVect(curr_stream, A1p134, M1, A2p134, M2);
    }
 
    /**
@@ -170,7 +208,7 @@ public class MRG31k3p extends RandomStreamBase {
     * 2147462579@f$, and not all 0.
     *  @param seed         array of 6 elements representing the seed
     */
-   public static void setPackageSeed (int seed[]) {
+   public static synchronized void setPackageSeed (int seed[]) {
       if (seed.length < 6)
          throw new IllegalArgumentException ("Seed must contain 6 values");
       if (seed[0] == 0 && seed[1] == 0 && seed[2] == 0)
@@ -183,7 +221,7 @@ public class MRG31k3p extends RandomStreamBase {
       if (seed[5] >= M2 || seed[3] >= M2 || seed[4] >= M2)
          throw new IllegalArgumentException ("The last 3 values must be less than " + M2);
       for (int i = 0; i < 6;  ++i)
-         curr_stream[i] = seed[i];
+         curr_stream[i] = package_stream[i] = seed[i];
    }
 
    /**
@@ -234,6 +272,128 @@ public class MRG31k3p extends RandomStreamBase {
       resetStartSubstream();
    }
 
+   /**
+    * Advances the current state of this stream by `n` steps, without
+    * modifying the beginning of the stream and of the current substream.
+    * The next value returned is then the same as after `n` calls to
+    * `nextValue`. A negative `n` moves the state backward. For @f$n
+    * \ge0@f$, this method does not allocate any memory once the jump
+    * matrices have been computed.
+    *  @param n            the number of steps
+    */
+   public void advanceState (long n) {
+      if (n < 0) {
+         advanceState (BigInteger.valueOf (n));
+         return;
+      }
+      int[] v = getJumpState();
+      jump (v, n, 0);
+      setState (v);
+   }
+
+   /**
+    * Same as  #advanceState(long), but for an arbitrary number of steps
+    * `n`, which may be negative or larger than @f$2^{63}@f$. The number
+    * of steps is first reduced modulo the period of each component.
+    *  @param n            the number of steps
+    */
+   public void advanceState (BigInteger n) {
+      BigInteger n1 = n.mod (ORDER1);
+      BigInteger n2 = n.mod (ORDER2);
+      int[] v = getJumpState();
+      for (int i = 0; i < n1.bitLength(); i++)
+         if (n1.testBit (i))
+            matVecModM (JumpTables.A1p2[i], v, 0, M1);
+      for (int i = 0; i < n2.bitLength(); i++)
+         if (n2.testBit (i))
+            matVecModM (JumpTables.A2p2[i], v, 3, M2);
+      setState (v);
+   }
+
+   /**
+    * Sets the seed of this stream to the seed of stream number `k` of the
+    * package, that is, @f$kZ@f$ steps ahead of the seed given by the last
+    * call to  #setPackageSeed(int[]), or of the default seed. Stream
+    * number `k` is the one that the constructor returns when it is called
+    * for the @f$(k+1)@f$-th time after the package seed was set. The
+    * stream is then reset to its initial seed.
+    *  @param k            the stream number
+    */
+   public void setStreamIndex (long k) {
+      if (k < 0)
+         throw new IllegalArgumentException ("k must be non-negative");
+      synchronized (MRG31k3p.class) {
+         for (int i = 0; i < 6; i++)
+            stream[i] = package_stream[i];
+      }
+      jump (stream, k, LOG_Z);
+      resetStartStream();
+   }
+
+   /**
+    * Sets the beginning of the current substream to substream number `j`
+    * of this stream, which is @f$jW@f$ steps ahead of the beginning of the
+    * stream, and resets the current state to it. Substream number `j` is
+    * the one reached after `j` calls to  #resetNextSubstream from the
+    * beginning of the stream.
+    *  @param j            the substream number
+    */
+   public void setSubstreamIndex (long j) {
+      if (j < 0)
+         throw new IllegalArgumentException ("j must be non-negative");
+      for (int i = 0; i < 6; i++)
+         substream[i] = stream[i];
+      jump (substream, j, LOG_W);
+      resetStartSubstream();
+   }
+
+   // Multiplies v[0..2] by A1p0^n mod M1 and v[3..5] by A2p0^n mod M2,
+   // with n = k 2^e and k >= 0.
+   private static void jump (int[] v, long k, int e) {
+      for (int i = e; k != 0; i++, k >>>= 1) {
+         if ((k & 1L) != 0) {
+            matVecModM (JumpTables.A1p2[i], v, 0, M1);
+            matVecModM (JumpTables.A2p2[i], v, 3, M2);
+         }
+      }
+   }
+
+   // Computes v[off..off+2] = A v[off..off+2] mod m, without allocating.
+   private static void matVecModM (int[][] A, int[] v, int off, int m) {
+      int x0 = 0, x1 = 0, x2 = 0;
+      for (int j = 0; j < 3; j++) {
+         int s = v[off + j];
+         x0 = ArithmeticMod.multModM (A[0][j], s, x0, m);
+         x1 = ArithmeticMod.multModM (A[1][j], s, x1, m);
+         x2 = ArithmeticMod.multModM (A[2][j], s, x2, m);
+      }
+      v[off] = x0;
+      v[off + 1] = x1;
+      v[off + 2] = x2;
+   }
+
+   private int[] getJumpState() {
+      if (jumpState == null)
+         jumpState = new int[6];
+      int[] v = jumpState;
+      v[0] = x11;
+      v[1] = x12;
+      v[2] = x13;
+      v[3] = x21;
+      v[4] = x22;
+      v[5] = x23;
+      return v;
+   }
+
+   private void setState (int[] v) {
+      x11 = v[0];
+      x12 = v[1];
+      x13 = v[2];
+      x21 = v[3];
+      x22 = v[4];
+      x23 = v[5];
+   }
+
 /**
  * Returns the current state @f$C_g@f$ of this stream. This is a vector of 6
  * integers represented. This method is convenient if we want to save the
@@ -251,6 +411,7 @@ public int[] getState() {
    public MRG31k3p clone() {
       MRG31k3p retour = null;
       retour = (MRG31k3p)super.clone();
+      retour.jumpState = null;
       retour.substream = new int[6];
       retour.stream = new int[6];
       for (int i = 0; i<6; i++) {
@@ -260,6 +421,41 @@ public int[] getState() {
       return retour;
    }
 
+   protected int generatorStateSize() {
+      return 18;
+   }
+
+   protected void saveGeneratorState (int[] s, int off) {
+      System.arraycopy (stream, 0, s, off, 6);
+      System.arraycopy (substream, 0, s, off + 6, 6);
+      s[off + 12] = x11;
+      s[off + 13] = x12;
+      s[off + 14] = x13;
+      s[off + 15] = x21;
+      s[off + 16] = x22;
+      s[off + 17] = x23;
+   }
+
+   protected void checkGeneratorState (int[] s, int off) {
+      for (int i = 0; i < 18; i += 6)
+         if (s[off+i] < 0 || s[off+i] >= M1 || s[off+i+1] < 0 ||
+             s[off+i+1] >= M1 || s[off+i+2] < 0 || s[off+i+2] >= M1 ||
+             s[off+i+3] < 0 || s[off+i+3] >= M2 || s[off+i+4] < 0 ||
+             s[off+i+4] >= M2 || s[off+i+5] < 0 || s[off+i+5] >= M2)
+            throw new IllegalArgumentException ("Invalid state");
+   }
+
+   protected void restoreGeneratorState (int[] s, int off) {
+      System.arraycopy (s, off, stream, 0, 6);
+      System.arraycopy (s, off + 6, substream, 0, 6);
+      x11 = s[off + 12];
+      x12 = s[off + 13];
+      x13 = s[off + 14];
+      x21 = s[off + 15];
+      x22 = s[off + 16];
+      x23 = s[off + 17];
+   }
+
    public String toString() {
       if(name == null)
          return "The state of the MRG31k3p is: " +
@@ -271,6 +467,76 @@ public int[] getState() {
                 x21 + ", " + x22 + ", " + x23;
    }
 
+   /**
+    * Fills `u[start..start+n-1]` with the next `n` values of this stream.
+    * The result is exactly the same as `n` successive calls to
+    * `nextDouble`, but the six state components are kept in local
+    * variables for the whole loop, which is much faster for large `n`. If
+    * the precision has been increased, this method falls back to the
+    * generic implementation of  @ref RandomStreamBase.
+    *  @param u            the array in which the numbers will be stored
+    *  @param start        the first index of `u` to be used
+    *  @param n            the number of random numbers to put in `u`
+    */
+   public void nextArrayOfDouble (double[] u, int start, int n) {
+      if (prec53) {
+         super.nextArrayOfDouble (u, start, n);
+         return;
+      }
+      checkArrayOfDouble (u, start, n);
+      int s11 = x11, s12 = x12, s13 = x13, s21 = x21, s22 = x22, s23 = x23;
+      final boolean a = anti;
+      final int end = start + n;
+      for (int ii = start; ii < end; ii++) {
+         int y1, y2;
+         double v;
+
+         //first component
+         y1 = ((s12 & MASK12) << 22) + (s12 >>> 9)
+              + ((s13 & MASK13) << 7) + (s13 >>> 24);
+         if(y1 < 0 || y1 >= M1)     //must also check overflow
+            y1 -= M1;
+         y1 += s13;
+         if(y1 < 0 || y1 >= M1)
+            y1 -= M1;
+
+         s13 = s12;
+         s12 = s11;
+         s11 = y1;
+
+         //second component
+         y1 = ((s21 & MASK2) << 15) + (MULT2 * (s21 >>> 16));
+         if(y1 < 0 || y1 >= M2)
+            y1 -= M2;
+         y2 = ((s23 & MASK2) << 15) + (MULT2 * (s23 >>> 16));
+         if(y2 < 0 || y2 >= M2)
+            y2 -= M2;
+         y2 += s23;
+         if(y2 < 0 || y2 >= M2)
+            y2 -= M2;
+         y2 += y1;
+         if(y2 < 0 || y2 >= M2)
+            y2 -= M2;
+
+         s23 = s22;
+         s22 = s21;
+         s21 = y2;
+
+         //Must never return either 0 or 1
+         if(s11 <= s21)
+            v = (s11 - s21 + M1) * NORM;
+         else
+            v = (s11 - s21) * NORM;
+         u[ii] = a ? 1.0 - v : v;
+      }
+      x11 = s11;
+      x12 = s12;
+      x13 = s13;
+      x21 = s21;
+      x22 = s22;
+      x23 = s23;
+   }
+
    protected double nextValue()  {
       int y1, y2;
 
@@ -27,6 +27,7 @@ package umontreal.ssj.rng;
 import umontreal.ssj.util.ArithmeticMod;
 import umontreal.ssj.util.PrintfFormat;
 import java.io.Serializable;
+import java.math.BigInteger;
 
 /**
  * Extends the abstract class  @ref RandomStreamBase by using as a backbone
@@ -40,6 +41,14 @@ import java.io.Serializable;
  * 32-bit integers, stored in `double`. The default initial seed of the RNG
  * is @f$(12345, 12345, 12345, 12345, 12345, 12345)@f$.
  *
+ * Besides the usual jumps to the next substream, the state can be advanced
+ * by an arbitrary number of steps with  #advanceState(long) or
+ * #advanceState(BigInteger), and stream number @f$k@f$ or substream number
+ * @f$j@f$ can be reached directly with  #setStreamIndex and
+ * #setSubstreamIndex. These jumps take @f$O(\log n)@f$ matrix-vector
+ * products, using the matrices @f$A^{2^i}@f$ which are computed once, on
+ * first use, and shared by all the streams.
+ *
  * <div class="SSJ-bigskip"></div>
  */
 public class MRG32k3a extends RandomStreamBase {
@@ -107,17 +116,47 @@ public class MRG32k3a extends RandomStreamBase {
          };
 
 
+   // Number of precomputed matrices A^(2^i): enough for a jump of
+   // k * 2^127 steps for any non-negative long k.
+   private static final int NJUMPS = 191;
+   private static final int LOG_W = 76;
+   private static final int LOG_Z = 127;
+   // Orders of the two component matrices, m1^3 - 1 and m2^3 - 1.
+   private static final BigInteger ORDER1 =
+      BigInteger.valueOf (4294967087L).pow (3).subtract (BigInteger.ONE);
+   private static final BigInteger ORDER2 =
+      BigInteger.valueOf (4294944443L).pow (3).subtract (BigInteger.ONE);
+
+   // A1p2[i] = A1p0^(2^i) mod m1 and A2p2[i] = A2p0^(2^i) mod m2,
+   // computed when the class is first used for a jump.
+   private static class JumpTables {
+      static final double[][][] A1p2 = new double[NJUMPS][3][3];
+      static final double[][][] A2p2 = new double[NJUMPS][3][3];
+      static {
+         ArithmeticMod.matTwoPowModM (A1p0, A1p2[0], m1, 0);
+         ArithmeticMod.matTwoPowModM (A2p0, A2p2[0], m2, 0);
+         for (int i = 1; i < NJUMPS; i++) {
+            ArithmeticMod.matMatModM (A1p2[i-1], A1p2[i-1], A1p2[i], m1);
+            ArithmeticMod.matMatModM (A2p2[i-1], A2p2[i-1], A2p2[i], m2);
+         }
+      }
+   }
+
    // Private variables for each stream   %%%%%%%%%%%%%%%%%%%%%%%%
 
    // Default seed of the package for the first stream
    private static double nextSeed[] = {12345, 12345, 12345,
                                        12345, 12345, 12345};
+   // Seed of stream number 0, as given by setPackageSeed
+   private static double packageSeed[] = {12345, 12345, 12345,
+                                          12345, 12345, 12345};
    private double Cg0, Cg1, Cg2, Cg3, Cg4, Cg5;
    private double Bg[] = new double[6];
    private double Ig[] = new double[6];
    // The arrays Cg, Bg and Ig contain the current state,
    // the starting point of the current substream,
    // and the starting point of the stream, respectively.
+   private transient double[] jumpState;   // work space for advanceState
 
 
    //multiply the first half of v by A with a modulo of m1
@@ -150,10 +189,12 @@ public class MRG32k3a extends RandomStreamBase {
       name = null;
       anti = false;
       prec53 = false;
-      for(int i = 0; i < 6; i++)
-         Ig[i] = nextSeed[i];
+      synchronized (MRG32k3a.class) {
+         for(int i = 0; i < 6; i++)
+            Ig[i] = nextSeed[i];
+         multMatVect(nextSeed, A1p127, m1, A2p127, m2);
+      }
       resetStartStream();
-      multMatVect(nextSeed, A1p127, m1, A2p127, m2);
    }
 
    /**
@@ -176,11 +217,11 @@ public class MRG32k3a extends RandomStreamBase {
     * less than @f$m_2 = 4294944443@f$, and not all 0.
     *  @param seed         array of 6 elements representing the seed
     */
-   public static void setPackageSeed (long seed[]) {
+   public static synchronized void setPackageSeed (long seed[]) {
       // Must use long because there is no unsigned int type.
       validateSeed (seed);
       for (int i = 0; i < 6;  ++i)
-         nextSeed[i] = seed[i];
+         nextSeed[i] = packageSeed[i] = seed[i];
    }
 
    /**
@@ -223,6 +264,131 @@ public class MRG32k3a extends RandomStreamBase {
       resetStartSubstream();
    }
 
+   /**
+    * Advances the current state @f$C_g@f$ of this stream by `n` steps,
+    * without modifying @f$B_g@f$ and @f$I_g@f$. The next value returned
+    * is then the same as after `n` calls to `nextValue`. A negative `n`
+    * moves the state backward. For @f$n \ge0@f$, this method does not
+    * allocate any memory once the jump matrices have been computed.
+    *  @param n            the number of steps
+    */
+   public void advanceState (long n) {
+      if (n < 0) {
+         advanceState (BigInteger.valueOf (n));
+         return;
+      }
+      double[] v = getJumpState();
+      jump (v, n, 0);
+      setCg (v);
+   }
+
+   /**
+    * Same as  #advanceState(long), but for an arbitrary number of steps
+    * `n`, which may be negative or larger than @f$2^{63}@f$. The number
+    * of steps is first reduced modulo the period of each component.
+    *  @param n            the number of steps
+    */
+   public void advanceState (BigInteger n) {
+      BigInteger n1 = n.mod (ORDER1);
+      BigInteger n2 = n.mod (ORDER2);
+      double[] v = getJumpState();
+      for (int i = 0; i < n1.bitLength(); i++)
+         if (n1.testBit (i))
+            matVecModM (JumpTables.A1p2[i], v, 0, m1);
+      for (int i = 0; i < n2.bitLength(); i++)
+         if (n2.testBit (i))
+            matVecModM (JumpTables.A2p2[i], v, 3, m2);
+      setCg (v);
+   }
+
+   /**
+    * Sets the initial seed @f$I_g@f$ of this stream to the seed of stream
+    * number `k` of the package, that is, @f$kZ@f$ steps ahead of the
+    * seed given by the last call to  #setPackageSeed(long[]), or of the
+    * default seed. Stream number `k` is the one that the constructor
+    * returns when it is called for the @f$(k+1)@f$-th time after the
+    * package seed was set. The stream is then reset to its initial seed.
+    * This allows one to give each of many parallel workers its own stream
+    * directly from the worker index.
+    *  @param k            the stream number
+    */
+   public void setStreamIndex (long k) {
+      if (k < 0)
+         throw new IllegalArgumentException ("k must be non-negative");
+      synchronized (MRG32k3a.class) {
+         for (int i = 0; i < 6; i++)
+            Ig[i] = packageSeed[i];
+      }
+      jump (Ig, k, LOG_Z);
+      resetStartStream();
+   }
+
+   /**
+    * Sets @f$B_g@f$ to the beginning of substream number `j` of this
+    * stream, which is @f$jW@f$ steps ahead of @f$I_g@f$, and resets the
+    * current state to it. Substream number 0 is the one that follows
+    * #resetStartStream, and substream number `j` is the one reached after
+    * `j` calls to  #resetNextSubstream.
+    *  @param j            the substream number
+    */
+   public void setSubstreamIndex (long j) {
+      if (j < 0)
+         throw new IllegalArgumentException ("j must be non-negative");
+      for (int i = 0; i < 6; i++)
+         Bg[i] = Ig[i];
+      jump (Bg, j, LOG_W);
+      resetStartSubstream();
+   }
+
+   // Multiplies v[0..2] by A1p0^n mod m1 and v[3..5] by A2p0^n mod m2,
+   // with n = k 2^e and k >= 0.
+   private static void jump (double[] v, long k, int e) {
+      for (int i = e; k != 0; i++, k >>>= 1) {
+         if ((k & 1L) != 0) {
+            matVecModM (JumpTables.A1p2[i], v, 0, m1);
+            matVecModM (JumpTables.A2p2[i], v, 3, m2);
+         }
+      }
+   }
+
+   // Computes v[off..off+2] = A v[off..off+2] mod m, without allocating.
+   private static void matVecModM (double[][] A, double[] v, int off,
+                                   double m) {
+      double x0 = 0.0, x1 = 0.0, x2 = 0.0;
+      for (int j = 0; j < 3; j++) {
+         double s = v[off + j];
+         x0 = ArithmeticMod.multModM (A[0][j], s, x0, m);
+         x1 = ArithmeticMod.multModM (A[1][j], s, x1, m);
+         x2 = ArithmeticMod.multModM (A[2][j], s, x2, m);
+      }
+      v[off] = x0;
+      v[off + 1] = x1;
+      v[off + 2] = x2;
+   }
+
+   private double[] getJumpState() {
+      if (jumpState == null)
+         jumpState = new double[6];
+      double[] v = jumpState;
+      v[0] = Cg0;
+      v[1] = Cg1;
+      v[2] = Cg2;
+      v[3] = Cg3;
+      v[4] = Cg4;
+      v[5] = Cg5;
+      return v;
+   }
+
+   // also used by MRG32k3aMultiStream
+   void setCg (double[] v) {
+      Cg0 = v[0];
+      Cg1 = v[1];
+      Cg2 = v[2];
+      Cg3 = v[3];
+      Cg4 = v[4];
+      Cg5 = v[5];
+   }
+
 /**
  * Returns the current state @f$C_g@f$ of this stream. This is a vector of 6
  * integers. This method is convenient if we want to save the state for
@@ -301,6 +467,7 @@ public long[] getState() {
       MRG32k3a retour = null;
 
       retour = (MRG32k3a)super.clone();
+      retour.jumpState = null;
       retour.Bg = new double[6];
       retour.Ig = new double[6];
       for (int i = 0; i<6; i++) {
@@ -310,6 +477,98 @@ public long[] getState() {
       return retour;
    }
 
+   protected int generatorStateSize() {
+      return 18;
+   }
+
+   protected void saveGeneratorState (int[] s, int off) {
+      double[] cg = {Cg0, Cg1, Cg2, Cg3, Cg4, Cg5};
+      for (int i = 0; i < 6; i++) {
+         s[off + i] = (int)(long) Ig[i];
+         s[off + 6 + i] = (int)(long) Bg[i];
+         s[off + 12 + i] = (int)(long) cg[i];
+      }
+   }
+
+   protected void checkGeneratorState (int[] s, int off) {
+      long[] seed = new long[6];
+      for (int j = 0; j < 3; j++) {
+         for (int i = 0; i < 6; i++)
+            seed[i] = s[off + 6*j + i] & 0xFFFFFFFFL;
+         validateSeed (seed);
+      }
+   }
+
+   protected void restoreGeneratorState (int[] s, int off) {
+      long[][] seeds = new long[3][6];
+      for (int j = 0; j < 3; j++)
+         for (int i = 0; i < 6; i++)
+            seeds[j][i] = s[off + 6*j + i] & 0xFFFFFFFFL;
+      for (int i = 0; i < 6; i++) {
+         Ig[i] = seeds[0][i];
+         Bg[i] = seeds[1][i];
+      }
+      Cg0 = seeds[2][0];
+      Cg1 = seeds[2][1];
+      Cg2 = seeds[2][2];
+      Cg3 = seeds[2][3];
+      Cg4 = seeds[2][4];
+      Cg5 = seeds[2][5];
+   }
+
+
+   /**
+    * Fills `u[start..start+n-1]` with the next `n` values of this stream.
+    * The result is exactly the same as `n` successive calls to
+    * `nextDouble`, but the state @f$C_g@f$ is kept in local variables for
+    * the whole loop, which is much faster for large `n`. If the precision
+    * has been increased, this method falls back to the generic
+    * implementation of  @ref RandomStreamBase.
+    *  @param u            the array in which the numbers will be stored
+    *  @param start        the first index of `u` to be used
+    *  @param n            the number of random numbers to put in `u`
+    */
+   public void nextArrayOfDouble (double[] u, int start, int n) {
+      if (prec53) {
+         super.nextArrayOfDouble (u, start, n);
+         return;
+      }
+      checkArrayOfDouble (u, start, n);
+      double c0 = Cg0, c1 = Cg1, c2 = Cg2, c3 = Cg3, c4 = Cg4, c5 = Cg5;
+      final boolean a = anti;
+      final int end = start + n;
+      for (int ii = start; ii < end; ii++) {
+         int k;
+         double p1, p2, v;
+         /* Component 1 */
+         p1 = a12 * c1 - a13n * c0;
+         k = (int)(p1 / m1);
+         p1 -= k * m1;
+         if (p1 < 0.0)
+            p1 += m1;
+         c0 = c1;
+         c1 = c2;
+         c2 = p1;
+         /* Component 2 */
+         p2 = a21 * c5 - a23n * c3;
+         k  = (int)(p2 / m2);
+         p2 -= k * m2;
+         if (p2 < 0.0)
+            p2 += m2;
+         c3 = c4;
+         c4 = c5;
+         c5 = p2;
+         /* Combination */
+         v = (p1 > p2) ? (p1 - p2) * norm : (p1 - p2 + m1) * norm;
+         u[ii] = a ? 1.0 - v : v;
+      }
+      Cg0 = c0;
+      Cg1 = c1;
+      Cg2 = c2;
+      Cg3 = c3;
+      Cg4 = c4;
+      Cg5 = c5;
+   }
 
    protected double nextValue() {
       int k;
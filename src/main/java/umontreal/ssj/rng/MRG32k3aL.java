@@ -134,10 +134,12 @@ public class MRG32k3aL extends RandomStreamBase {
       name = null;
       anti = false;
       prec53 = false;
-      for(int i = 0; i < 6; i++)
-         Ig[i] = nextSeed[i];
+      synchronized (MRG32k3aL.class) {
+         for(int i = 0; i < 6; i++)
+            Ig[i] = nextSeed[i];
+         multMatVect(nextSeed, A1p127, m1, A2p127, m2);
+      }
       resetStartStream();
-      multMatVect(nextSeed, A1p127, m1, A2p127, m2);
    }
    public MRG32k3aL (String name) {
       this();
@@ -149,7 +151,7 @@ public class MRG32k3aL extends RandomStreamBase {
     *
     *  See the description of the same methods in class  @ref MRG32k3a.
     */
-   public static void setPackageSeed (long seed[]) {
+   public static synchronized void setPackageSeed (long seed[]) {
       // Must use long because there is no unsigned int type.
       validateSeed (seed);
       for (int i = 0; i < 6;  ++i)
@@ -265,6 +267,45 @@ public class MRG32k3aL extends RandomStreamBase {
       return retour;
    }
 
+   protected int generatorStateSize() {
+      return 18;
+   }
+
+   protected void saveGeneratorState (int[] s, int off) {
+      long[] cg = {Cg0, Cg1, Cg2, Cg3, Cg4, Cg5};
+      for (int i = 0; i < 6; i++) {
+         s[off + i] = (int) Ig[i];
+         s[off + 6 + i] = (int) Bg[i];
+         s[off + 12 + i] = (int) cg[i];
+      }
+   }
+
+   protected void checkGeneratorState (int[] s, int off) {
+      long[] seed = new long[6];
+      for (int j = 0; j < 3; j++) {
+         for (int i = 0; i < 6; i++)
+            seed[i] = s[off + 6*j + i] & 0xFFFFFFFFL;
+         validateSeed (seed);
+      }
+   }
+
+   protected void restoreGeneratorState (int[] s, int off) {
+      long[][] seeds = new long[3][6];
+      for (int j = 0; j < 3; j++)
+         for (int i = 0; i < 6; i++)
+            seeds[j][i] = s[off + 6*j + i] & 0xFFFFFFFFL;
+      for (int i = 0; i < 6; i++) {
+         Ig[i] = seeds[0][i];
+         Bg[i] = seeds[1][i];
+      }
+      Cg0 = seeds[2][0];
+      Cg1 = seeds[2][1];
+      Cg2 = seeds[2][2];
+      Cg3 = seeds[2][3];
+      Cg4 = seeds[2][4];
+      Cg5 = seeds[2][5];
+   }
+
 /**
  * @return A deep copy of the current generator
  */
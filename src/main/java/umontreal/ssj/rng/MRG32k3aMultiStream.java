@@ -0,0 +1,269 @@
+/*
+ * Class:        MRG32k3aMultiStream
+ * Description:  several MRG32k3a streams advanced in lockstep
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.rng;
+
+/**
+ * Holds @f$N@f$ independent  @ref MRG32k3a streams, called *lanes*, and
+ * advances them in lockstep: each call to  #nextDoubles returns one
+ * uniform for each lane. This is what is needed, for example, when many
+ * chains of Array-RQMC or many replications are simulated in parallel, one
+ * step at a time. The states of the lanes are stored in structure-of-arrays
+ * layout (one array for each of the six components of the state), and
+ * #nextDoubles runs a single loop over the lanes without any dependence
+ * between iterations, which the just-in-time compiler can unroll and
+ * vectorize. The reductions modulo @f$m_1@f$ and @f$m_2@f$ use a
+ * multiplication by @f$1/m_1@f$ and @f$1/m_2@f$ followed by a correction,
+ * instead of a division, which gives the same exact result.
+ *
+ * Lane @f$l@f$ produces exactly the same numbers as the  @ref MRG32k3a
+ * stream it was created from would produce with  @ref MRG32k3a#nextValue,
+ * that is, with 32 bits of precision and without the antithetic option.
+ * The methods  #resetStartStream,  #resetStartSubstream and
+ * #resetNextSubstream act on all the lanes at once, and  #getStream
+ * returns a copy of one lane as an ordinary  @ref MRG32k3a.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public class MRG32k3aMultiStream implements Cloneable, java.io.Serializable {
+
+   private static final long serialVersionUID = 161026L;
+
+   // same constants as in MRG32k3a
+   private static final double m1     = 4294967087.0;
+   private static final double m2     = 4294944443.0;
+   private static final double a12    =  1403580.0;
+   private static final double a13n   =   810728.0;
+   private static final double a21    =   527612.0;
+   private static final double a23n   =  1370589.0;
+   private static final double norm   = 2.328306549295727688e-10;
+   private static final double invm1  = 1.0 / m1;
+   private static final double invm2  = 1.0 / m2;
+
+   // the streams, which keep the seeds and the starting points of the
+   // current substreams of the lanes
+   private MRG32k3a[] streams;
+   // current state of each lane: c0[l], ..., c5[l] for lane l
+   private double[] c0, c1, c2, c3, c4, c5;
+
+   /**
+    * Constructs @f$n@f$ lanes, using @f$n@f$ new  @ref MRG32k3a streams.
+    * Lane @f$l@f$ thus starts at the seed of the @f$(l+1)@f$-th stream
+    * created from now on.
+    *  @param n            the number of lanes
+    */
+   public MRG32k3aMultiStream (int n) {
+      if (n <= 0)
+         throw new IllegalArgumentException ("n must be positive");
+      MRG32k3a[] s = new MRG32k3a[n];
+      for (int l = 0; l < n; l++)
+         s[l] = new MRG32k3a();
+      init (s);
+   }
+
+   /**
+    * Constructs one lane for each stream of `streams`. Each lane starts
+    * at the current state of the corresponding stream, and keeps its
+    * initial seed and the beginning of its current substream. The
+    * streams are copied, so they are not modified by this object.
+    *  @param streams      the streams used to create the lanes
+    */
+   public MRG32k3aMultiStream (MRG32k3a[] streams) {
+      if (streams.length == 0)
+         throw new IllegalArgumentException ("streams must not be empty");
+      MRG32k3a[] s = new MRG32k3a[streams.length];
+      for (int l = 0; l < s.length; l++)
+         s[l] = streams[l].clone();
+      init (s);
+   }
+
+   private void init (MRG32k3a[] s) {
+      streams = s;
+      int n = s.length;
+      c0 = new double[n];
+      c1 = new double[n];
+      c2 = new double[n];
+      c3 = new double[n];
+      c4 = new double[n];
+      c5 = new double[n];
+      for (int l = 0; l < n; l++)
+         loadState (l);
+   }
+
+   // copies the current state of streams[l] into lane l
+   private void loadState (int l) {
+      long[] v = streams[l].getState();
+      c0[l] = v[0];
+      c1[l] = v[1];
+      c2[l] = v[2];
+      c3[l] = v[3];
+      c4[l] = v[4];
+      c5[l] = v[5];
+   }
+
+   /**
+    * Returns the number of lanes @f$N@f$.
+    *  @return the number of lanes
+    */
+   public int getNumStreams() {
+      return streams.length;
+   }
+
+   /**
+    * Generates one uniform for each lane and puts the value of lane
+    * @f$l@f$ in `u[l]`, for @f$l=0,…,N-1@f$.
+    *  @param u            array of size at least @f$N@f$ that receives
+    *                      the uniforms
+    */
+   public void nextDoubles (double[] u) {
+      nextDoubles (u, 0);
+   }
+
+   /**
+    * Generates one uniform for each lane and puts the value of lane
+    * @f$l@f$ in `u[start + l]`, for @f$l=0,…,N-1@f$.
+    *  @param u            the array that receives the uniforms
+    *  @param start        the index of `u` where the value of lane 0 goes
+    */
+   public void nextDoubles (double[] u, int start) {
+      final int n = streams.length;
+      if (start < 0 || u.length < start + n)
+         throw new IndexOutOfBoundsException ("The array is too small.");
+      final double[] x0 = c0, x1 = c1, x2 = c2, x3 = c3, x4 = c4, x5 = c5;
+      for (int l = 0; l < n; l++) {
+         /* Component 1 */
+         double p1 = a12 * x1[l] - a13n * x0[l];
+         p1 -= Math.floor (p1 * invm1) * m1;
+         if (p1 < 0.0)
+            p1 += m1;
+         else if (p1 >= m1)
+            p1 -= m1;
+         x0[l] = x1[l];
+         x1[l] = x2[l];
+         x2[l] = p1;
+         /* Component 2 */
+         double p2 = a21 * x5[l] - a23n * x3[l];
+         p2 -= Math.floor (p2 * invm2) * m2;
+         if (p2 < 0.0)
+            p2 += m2;
+         else if (p2 >= m2)
+            p2 -= m2;
+         x3[l] = x4[l];
+         x4[l] = x5[l];
+         x5[l] = p2;
+         /* Combination */
+         u[start + l] = (p1 > p2) ? (p1 - p2) * norm : (p1 - p2 + m1) * norm;
+      }
+   }
+
+   /**
+    * Fills `u[l][start..start+n-1]` with the next @f$n@f$ uniforms of lane
+    * @f$l@f$, for each lane. This is equivalent to @f$n@f$ calls to
+    * #nextDoubles, but without the need for an intermediate array.
+    *  @param u            array of @f$N@f$ arrays receiving the uniforms
+    *  @param start        the first index used in each array
+    *  @param n            the number of uniforms generated for each lane
+    */
+   public void nextDoubles (double[][] u, int start, int n) {
+      if (u.length < streams.length)
+         throw new IndexOutOfBoundsException ("The array is too small.");
+      double[] tmp = new double[streams.length];
+      for (int i = 0; i < n; i++) {
+         nextDoubles (tmp, 0);
+         for (int l = 0; l < tmp.length; l++)
+            u[l][start + i] = tmp[l];
+      }
+   }
+
+   /**
+    * Reinitializes each lane to the beginning of its stream.
+    */
+   public void resetStartStream() {
+      for (int l = 0; l < streams.length; l++) {
+         streams[l].resetStartStream();
+         loadState (l);
+      }
+   }
+
+   /**
+    * Reinitializes each lane to the beginning of its current substream.
+    */
+   public void resetStartSubstream() {
+      for (int l = 0; l < streams.length; l++) {
+         streams[l].resetStartSubstream();
+         loadState (l);
+      }
+   }
+
+   /**
+    * Reinitializes each lane to the beginning of its next substream.
+    */
+   public void resetNextSubstream() {
+      for (int l = 0; l < streams.length; l++) {
+         streams[l].resetNextSubstream();
+         loadState (l);
+      }
+   }
+
+   /**
+    * Returns a copy of lane `l` as an  @ref MRG32k3a stream, with the same
+    * seed, the same current substream, and the same current state.
+    *  @param l            the lane number
+    *  @return a copy of lane `l`
+    */
+   public MRG32k3a getStream (int l) {
+      MRG32k3a s = streams[l].clone();
+      s.setCg (new double[] { c0[l], c1[l], c2[l], c3[l], c4[l], c5[l] });
+      return s;
+   }
+
+   /**
+    * Clones this object and returns its copy.
+    *  @return a deep copy of this object
+    */
+   public MRG32k3aMultiStream clone() {
+      MRG32k3aMultiStream retour = null;
+      try {
+         retour = (MRG32k3aMultiStream)super.clone();
+      }
+      catch (CloneNotSupportedException cnse) {
+         cnse.printStackTrace (System.err);
+         return null;
+      }
+      retour.streams = new MRG32k3a[streams.length];
+      for (int l = 0; l < streams.length; l++)
+         retour.streams[l] = streams[l].clone();
+      retour.c0 = c0.clone();
+      retour.c1 = c1.clone();
+      retour.c2 = c2.clone();
+      retour.c3 = c3.clone();
+      retour.c4 = c4.clone();
+      retour.c5 = c5.clone();
+      return retour;
+   }
+
+   public String toString() {
+      return "MRG32k3aMultiStream with " + streams.length + " lanes";
+   }
+}
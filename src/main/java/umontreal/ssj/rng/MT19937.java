@@ -46,6 +46,17 @@ import java.io.Serializable;
  * and the state of a stream at any given step, is a 624-dimensional vector
  * of 32-bit integers. The output of `nextValue` has 32 bits of precision.
  *
+ * The sequence that starts from the state given by the seed generator can
+ * nevertheless be split into disjoint streams: after  #setStreamIndex(k),
+ * the initial states given by the seed generator are all jumped
+ * @f$kZ@f$ steps ahead, with @f$Z = 2^{100}@f$. The state can also be
+ * advanced by an arbitrary number of steps with  #advanceState. To jump
+ * @f$n@f$ steps ahead, these methods compute @f$z^n \bmod P(z)@f$, where
+ * @f$P(z)@f$ is the characteristic polynomial of the recurrence, of degree
+ * 19937, and apply this polynomial to the state by running the recurrence
+ * for 19937 steps (Haramoto et al., 2008). The polynomial @f$P(z)@f$ is
+ * computed once, on first use, and each jump takes a few milliseconds.
+ *
  * <div class="SSJ-bigskip"></div>
  */
 public class MT19937 extends RandomStreamBase {
@@ -60,17 +71,73 @@ public class MT19937 extends RandomStreamBase {
    private static final int[] MULT_MATRIX_A = {0x0, 0x9908B0DF};
    private static final int UPPER_MASK = 0x80000000;
    private static final int LOWER_MASK = 0x7FFFFFFF;
+   private static final int K = 19937;     // degree of the recurrence
+   private static final int LOG_Z = 100;   // Z = 2^LOG_Z
+
+   // Characteristic polynomial of the recurrence, computed on first use
+   private static long[] charPolynomial;
 
    private int[] state;
    private int state_i;
 
    private CloneableRandomStream seedRng;
 
+   private long streamIndex;          // see setStreamIndex
+   private transient long[] streamJump;   // z^(streamIndex Z - 1) mod P(z)
+
    private void fillSeed() {
       state_i = N;
 
       for(int i = 0; i < N; i++)
          state[i] = (int)((long)(seedRng.nextDouble() * 0x100000000L));
+
+      if (streamIndex != 0) {
+         if (streamJump == null) {
+            long[] p = charPoly (state);
+            streamJump = F2Poly.divideByZ
+               (F2Poly.zPowMod (p, streamIndex, LOG_Z), p);
+         }
+         jumpState (streamJump);
+      }
+   }
+
+   // One step of the recurrence on the words of w, used as a circular
+   // buffer whose oldest word is w[h]. The new word replaces w[h].
+   private static int nextWord (int[] w, int h) {
+      int y = (w[h] & UPPER_MASK) | (w[h + 1 == N ? 0 : h + 1] & LOWER_MASK);
+      return w[h] = w[h < N - M ? h + M : h + M - N] ^ (y >>> 1) ^
+                    MULT_MATRIX_A[y & 0x1];
+   }
+
+   private static synchronized long[] charPoly (int[] w) {
+      if (charPolynomial == null) {
+         int[] buf = w.clone();
+         long[] seq = new long[2 * K / 64 + 1];
+         for (int i = 0, h = 0; i < 2 * K; i++, h = (h + 1 == N) ? 0 : h + 1)
+            seq[i >> 6] |= (long)(nextWord (buf, h) >>> 31) << (i & 63);
+         charPolynomial = F2Poly.minimalPolynomial (seq, 2 * K, K);
+      }
+      return charPolynomial;
+   }
+
+   // Replaces state[0..N-1] by the N words that are s >= 1 steps of the
+   // recurrence ahead, where g = z^(s-1) mod P(z). One step is made
+   // before applying g, so that the 31 bits of state[0] that are ignored
+   // by the recurrence do not matter.
+   private void jumpState (long[] g) {
+      int[] buf = state.clone();
+      int[] x = new int[N];
+      nextWord (buf, 0);
+      int h = 1;
+      for (int j = 0; j < K; j++) {
+         if (F2Poly.coeff (g, j))
+            for (int i = 0, m = h; i < N; i++, m = (m + 1 == N) ? 0 : m + 1)
+               x[i] ^= buf[m];
+         nextWord (buf, h);
+         h = (h + 1 == N) ? 0 : h + 1;
+      }
+      for (int i = 0; i < N; i++)
+         state[i] = x[i];
    }
 
    /**
@@ -114,6 +181,45 @@ public class MT19937 extends RandomStreamBase {
       return retour;
    }
 
+   // The state includes the one of the seed generator, which is used
+   // again by the reset methods.
+   private RandomStreamBase seedRngBase() {
+      if (!(seedRng instanceof RandomStreamBase))
+         throw new UnsupportedOperationException
+            ("The seed generator does not support saving its state");
+      return (RandomStreamBase) seedRng;
+   }
+
+   protected int generatorStateSize() {
+      return N + 3 + seedRngBase().stateSize();
+   }
+
+   protected void saveGeneratorState (int[] s, int off) {
+      System.arraycopy (state, 0, s, off, N);
+      s[off + N] = state_i;
+      s[off + N + 1] = (int) streamIndex;
+      s[off + N + 2] = (int)(streamIndex >>> 32);
+      seedRngBase().saveState (s, off + N + 3);
+   }
+
+   protected void checkGeneratorState (int[] s, int off) {
+      long k = (s[off + N + 1] & 0xFFFFFFFFL) | ((long) s[off + N + 2] << 32);
+      if (s[off + N] < 0 || s[off + N] > N || k < 0)
+         throw new IllegalArgumentException ("Invalid state");
+      seedRngBase().checkState (s, off + N + 3);
+   }
+
+   protected void restoreGeneratorState (int[] s, int off) {
+      long k = (s[off + N + 1] & 0xFFFFFFFFL) | ((long) s[off + N + 2] << 32);
+      seedRngBase().restoreState (s, off + N + 3);
+      System.arraycopy (s, off, state, 0, N);
+      state_i = s[off + N];
+      if (k != streamIndex) {
+         streamIndex = k;
+         streamJump = null;
+      }
+   }
+
    public void resetStartStream() {
       seedRng.resetStartStream();
       fillSeed();
@@ -129,6 +235,52 @@ public class MT19937 extends RandomStreamBase {
       fillSeed();
    }
 
+   /**
+    * Advances the state of this stream by `n` steps. The next value
+    * returned is then the same as after `n` calls to `nextValue`.
+    *  @param n            the number of steps
+    *  @exception IllegalArgumentException if `n` is negative
+    */
+   public void advanceState (long n) {
+      if (n < 0)
+         throw new IllegalArgumentException ("n must be non-negative");
+      if (n > Long.MAX_VALUE / 2) {
+         advanceState (n / 2);
+         n -= n / 2;
+      }
+      // the values are produced by blocks of N words; skip q blocks and
+      // move to position pos in the last one
+      long q = n / N;
+      int pos = state_i + (int)(n % N);
+      if (pos > N) {
+         q++;
+         pos -= N;
+      }
+      if (q > 0)
+         jumpState (F2Poly.zPowMod (charPoly (state), q * N - 1));
+      state_i = pos;
+   }
+
+   /**
+    * Selects stream number `k` of the sequence that starts from the
+    * initial state given by the seed generator: the initial state of the
+    * stream, and of each of its substreams, is the one given by the seed
+    * generator, advanced by @f$kZ@f$ steps, with @f$Z = 2^{100}@f$. Thus,
+    * copies of the same stream (made with  #clone before any value is
+    * generated) given different values of `k` produce disjoint parts of
+    * the sequence, unless more than @f$Z@f$ values are generated from
+    * one of them. The stream is then reset to its initial state.
+    *  @param k            the stream number
+    *  @exception IllegalArgumentException if `k` is negative
+    */
+   public void setStreamIndex (long k) {
+      if (k < 0)
+         throw new IllegalArgumentException ("k must be non-negative");
+      streamIndex = k;
+      streamJump = null;
+      resetStartStream();
+   }
+
    public String toString() {
       StringBuffer sb = new StringBuffer();
       if(name == null)
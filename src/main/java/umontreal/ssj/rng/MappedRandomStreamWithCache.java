@@ -0,0 +1,404 @@
+/*
+ * Class:        MappedRandomStreamWithCache
+ * Description:  random stream whose uniforms are cached in a
+                 memory-mapped file
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.rng;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Similar to  @ref RandomStreamWithCache, except that the cached uniforms
+ * are stored in a file instead of an array on the heap. This allows one to
+ * cache many more values, for example @f$10^9@f$ uniforms for a comparison
+ * with common random numbers, and to replay them in other processes, for
+ * example in several JVMs evaluating different policies with the same
+ * random numbers.
+ *
+ * The file is accessed through memory mapping, by chunks of a fixed number
+ * of values: only the chunk containing the current position of the cache
+ * is mapped, so the heap usage does not depend on the number of cached
+ * values, and the values are read and written directly in the mapped
+ * memory, without copying. When the cache is exhausted, new values are
+ * obtained from the internal stream and appended to the file, which is
+ * extended by whole chunks.
+ *
+ * A stream constructed with a file only, by
+ * #MappedRandomStreamWithCache(File), opens the file in read-only mode and
+ * replays the cached values; it can be used while another process is still
+ * appending values. The index of the next value can be changed at any time
+ * with  #setCacheIndex, which takes constant time. As for
+ * @ref RandomStreamWithCache, the `reset...` methods are forwarded to the
+ * internal stream and do not change the position in the cache; one calls
+ * #initCache to replay the values from the beginning.
+ *
+ * The file starts with a 16-byte header containing the number of cached
+ * values, followed by the values as 64-bit little-endian doubles. A file
+ * can be appended to by only one stream at a time. The method  #close
+ * should be called when the stream is no longer needed.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public class MappedRandomStreamWithCache implements RandomStream, Closeable {
+   private static final int MAGIC = 0x53534A43;   // "SSJC"
+   private static final int VERSION = 1;
+   private static final int HEADER = 16;
+
+   /**
+    * Default number of values in a chunk of the file, which corresponds to
+    * 8 megabytes.
+    */
+   public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+   private RandomStream stream;
+   private RandomAccessFile file;
+   private FileChannel channel;
+   private boolean writable;
+   private int chunkSize;
+   private MappedByteBuffer header;
+
+   private long count;      // number of cached values
+   private long index;      // index of the next value
+
+   // the mapped chunk holds the values of indices chunkStart to chunkEnd-1
+   private MappedByteBuffer chunk;
+   private DoubleBuffer values;
+   private long chunkStart = 0;
+   private long chunkEnd = 0;
+
+   /**
+    * Constructs a new cached random stream with internal stream `stream`,
+    * caching its values in `file` with the default chunk size. If the file
+    * already exists and contains cached values, these values are kept and
+    * will be returned first, the new values being appended to them.
+    *  @param stream       the random stream whose uniforms are cached.
+    *  @param file         the file containing the cache.
+    *  @exception NullPointerException if `stream` is `null`.
+    *  @exception IOException if the file cannot be opened, or is not a
+    * cache file.
+    */
+   public MappedRandomStreamWithCache (RandomStream stream, File file)
+      throws IOException {
+      this (stream, file, DEFAULT_CHUNK_SIZE);
+   }
+
+   /**
+    * Same as  #MappedRandomStreamWithCache(RandomStream,File), with chunks
+    * of `chunkSize` values.
+    *  @param stream       the random stream whose uniforms are cached.
+    *  @param file         the file containing the cache.
+    *  @param chunkSize    the number of values in a chunk.
+    *  @exception NullPointerException if `stream` is `null`.
+    *  @exception IllegalArgumentException if `chunkSize` is not in
+    * @f$[1, 2^{28})@f$.
+    *  @exception IOException if the file cannot be opened, or is not a
+    * cache file.
+    */
+   public MappedRandomStreamWithCache (RandomStream stream, File file,
+                                       int chunkSize) throws IOException {
+      if (stream == null)
+         throw new NullPointerException
+            ("The given random stream cannot be null");
+      this.stream = stream;
+      open (file, true, chunkSize);
+   }
+
+   /**
+    * Constructs a stream replaying the values cached in `file`, in
+    * read-only mode, with the default chunk size.
+    *  @param file         the file containing the cache.
+    *  @exception IOException if the file cannot be opened, or is not a
+    * cache file.
+    */
+   public MappedRandomStreamWithCache (File file) throws IOException {
+      this (file, DEFAULT_CHUNK_SIZE);
+   }
+
+   /**
+    * Same as  #MappedRandomStreamWithCache(File), with chunks of
+    * `chunkSize` values.
+    *  @param file         the file containing the cache.
+    *  @param chunkSize    the number of values in a chunk.
+    *  @exception IllegalArgumentException if `chunkSize` is not in
+    * @f$[1, 2^{28})@f$.
+    *  @exception IOException if the file cannot be opened, or is not a
+    * cache file.
+    */
+   public MappedRandomStreamWithCache (File file, int chunkSize)
+      throws IOException {
+      open (file, false, chunkSize);
+   }
+
+   private void open (File f, boolean rw, int chunkSize) throws IOException {
+      if (chunkSize < 1 || chunkSize >= 1 << 28)
+         throw new IllegalArgumentException ("chunkSize must be in [1, 2^28)");
+      this.chunkSize = chunkSize;
+      writable = rw;
+      file = new RandomAccessFile (f, rw ? "rw" : "r");
+      channel = file.getChannel();
+      try {
+         long length = channel.size();
+         if (length == 0 && rw) {
+            header = channel.map (FileChannel.MapMode.READ_WRITE, 0, HEADER);
+            header.order (ByteOrder.LITTLE_ENDIAN);
+            header.putInt (0, MAGIC);
+            header.putInt (4, VERSION);
+            header.putLong (8, 0);
+         } else {
+            if (length < HEADER)
+               throw new IOException (f + " is not a cache file");
+            header = channel.map (rw ? FileChannel.MapMode.READ_WRITE
+                                     : FileChannel.MapMode.READ_ONLY,
+                                  0, HEADER);
+            header.order (ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt (0) != MAGIC || header.getInt (4) != VERSION)
+               throw new IOException (f + " is not a cache file");
+         }
+         count = header.getLong (8);
+         if (count < 0 || HEADER + 8 * count > Math.max (length, HEADER))
+            throw new IOException (f + " is truncated");
+      } catch (IOException e) {
+         file.close();
+         throw e;
+      }
+   }
+
+   /**
+    * Returns a reference to the random stream whose values are cached, or
+    * `null` if this stream only replays the values of its file.
+    *  @return a reference to the random stream whose values are cached.
+    */
+   public RandomStream getCachedStream() {
+      return stream;
+   }
+
+   /**
+    * Returns the number of values in a chunk of the file.
+    *  @return the chunk size.
+    */
+   public int getChunkSize() {
+      return chunkSize;
+   }
+
+   /**
+    * Clears the cached values: subsequent calls will obtain new values
+    * from the internal stream, which replace the values in the file.
+    *  @exception IllegalStateException if this stream is read-only.
+    */
+   public void clearCache() {
+      if (!writable)
+         throw new IllegalStateException ("The cache is read-only");
+      count = 0;
+      index = 0;
+      header.putLong (8, 0);
+   }
+
+   /**
+    * Resets this random stream to recover values from the cache. This
+    * method is equivalent to calling  #setCacheIndex(long) with 0.
+    */
+   public void initCache() {
+      index = 0;
+   }
+
+   /**
+    * Returns the total number of values cached in the file. For a
+    * read-only stream, this is the number of values in the file when it
+    * was last read; the header is read again when the cache is exhausted.
+    *  @return the total number of cached values.
+    */
+   public long getNumCachedValues() {
+      return count;
+   }
+
+   /**
+    * Returns the index of the next cached value that will be returned by
+    * the stream. If the cache is exhausted, the returned value is equal to
+    * #getNumCachedValues.
+    *  @return the index of the next cached value.
+    */
+   public long getCacheIndex() {
+      return index;
+   }
+
+   /**
+    * Sets the index, in the cache, of the next value returned by
+    * #nextDouble. If `newIndex` is  #getNumCachedValues, subsequent calls
+    * to  #nextDouble will add new values to the cache.
+    *  @param newIndex     the new index.
+    *  @exception IllegalArgumentException if `newIndex` is negative or
+    * greater than the cache size.
+    */
+   public void setCacheIndex (long newIndex) {
+      if (newIndex > count && !writable)
+         readCount();
+      if (newIndex < 0 || newIndex > count)
+         throw new IllegalArgumentException
+         ("newIndex must not be negative or greater than the cache size");
+      index = newIndex;
+   }
+
+   /**
+    * Writes the cached values and the header to the storage device. This
+    * is not needed for other processes to see the values, but only to
+    * make sure they survive a crash of the system.
+    */
+   public void flush() {
+      if (!writable)
+         return;
+      if (chunk != null)
+         chunk.force();
+      header.force();
+   }
+
+   /**
+    * Flushes the cache and closes the file. The stream can no longer be
+    * used afterwards.
+    *  @exception IOException if the file cannot be closed.
+    */
+   public void close() throws IOException {
+      flush();
+      chunk = null;
+      values = null;
+      chunkStart = chunkEnd = 0;
+      file.close();
+   }
+
+
+   public void resetStartStream () {
+      if (stream != null)
+         stream.resetStartStream();
+   }
+
+   public void resetStartSubstream () {
+      if (stream != null)
+         stream.resetStartSubstream();
+   }
+
+   public void resetNextSubstream () {
+      if (stream != null)
+         stream.resetNextSubstream();
+   }
+
+   public double nextDouble () {
+      if (index < chunkEnd && index >= chunkStart && index < count)
+         return values.get ((int)(index++ - chunkStart));
+      if (index < count || moreValues() > 0) {
+         mapChunk (index);
+         return values.get ((int)(index++ - chunkStart));
+      }
+      double v = stream.nextDouble();
+      append (v);
+      return v;
+   }
+
+   public void nextArrayOfDouble (double[] u, int start, int n) {
+      if (n < 0 || start < 0 || start + n > u.length)
+         throw new IllegalArgumentException ("Invalid array range");
+      int end = start + n;
+      while (start < end) {
+         if (index >= count && moreValues() == 0) {
+            stream.nextArrayOfDouble (u, start, end - start);
+            for (int i = start; i < end; i++)
+               append (u[i]);
+            return;
+         }
+         if (index < chunkStart || index >= chunkEnd)
+            mapChunk (index);
+         int k = (int) Math.min (end - start,
+                                 Math.min (chunkEnd, count) - index);
+         values.position ((int)(index - chunkStart));
+         values.get (u, start, k);
+         index += k;
+         start += k;
+      }
+   }
+
+   public int nextInt (int i, int j) {
+      return i + (int) (nextDouble () * (j - i + 1));
+   }
+
+   public void nextArrayOfInt (int i, int j, int[] u, int start, int n) {
+      for (int x = start; x < start + n; x++)
+         u[x] = nextInt (i, j);
+   }
+
+   public String toString() {
+      return "Cache of " + count + " values" +
+         (stream == null ? "" : " of " + stream.toString());
+   }
+
+   // Called when the cache is exhausted; returns the number of values that
+   // can now be read from the cache. A read-only stream reads the header
+   // again to see the values appended by another process.
+   private long moreValues() {
+      if (writable)
+         return 0;
+      readCount();
+      if (index >= count)
+         throw new IllegalStateException ("The cache is exhausted");
+      return count - index;
+   }
+
+   private void readCount() {
+      long c = header.getLong (8);
+      if (c != count) {
+         count = c;
+         // a read-only mapping covers only the values that existed
+         chunkStart = chunkEnd = 0;
+      }
+   }
+
+   private void append (double v) {
+      if (index < chunkStart || index >= chunkEnd)
+         mapChunk (index);
+      values.put ((int)(index - chunkStart), v);
+      count = ++index;
+      header.putLong (8, count);
+   }
+
+   // Maps the chunk containing value number i.
+   private void mapChunk (long i) {
+      long start = i - i % chunkSize;
+      int n = writable ? chunkSize : (int) Math.min (chunkSize, count - start);
+      try {
+         chunk = channel.map (writable ? FileChannel.MapMode.READ_WRITE
+                                       : FileChannel.MapMode.READ_ONLY,
+                              HEADER + 8 * start, 8L * n);
+      } catch (IOException e) {
+         throw new IllegalStateException ("Cannot map the cache file: " +
+                                          e.getMessage());
+      }
+      chunk.order (ByteOrder.LITTLE_ENDIAN);
+      values = chunk.asDoubleBuffer();
+      chunkStart = start;
+      chunkEnd = start + n;
+   }
+}
@@ -0,0 +1,353 @@
+/*
+ * Class:        Philox4x32
+ * Description:  counter-based random number generator Philox4x32-10
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.rng;
+
+/**
+ * Implements the  @ref RandomStream interface via inheritance from
+ * @ref RandomStreamBase, using as a backbone the counter-based generator
+ * Philox4x32-10 of Salmon, Moraes, Dror and Shaw (2011). This generator
+ * has no recurrence: the output is obtained by applying a bijection
+ * @f$f_k@f$, which depends on a 64-bit key @f$k@f$, to a 128-bit counter
+ * made of four 32-bit words. Each application of @f$f_k@f$, made of 10
+ * rounds of multiplications and exclusive-ors, gives four 32-bit integers,
+ * hence four uniforms with 32 bits of precision.
+ *
+ * The key is the seed of the package (see  #setPackageSeed). For value
+ * number @f$i@f$ of substream number @f$j@f$ of stream number @f$g@f$, the
+ * counter is @f$(\lfloor i/4\rfloor\bmod2^{32},\ \lfloor
+ * i/2^{34}\rfloor,\ j,\ g)@f$, and the value is word @f$i \bmod4@f$ of the
+ * output. Thus, any value of any stream can be computed directly in
+ * constant time, without going through the previous values: the method
+ * #resetNextSubstream only increments the substream number, and the
+ * methods  #setStreamIndex,  #setSubstreamIndex and  #advanceState move to
+ * an arbitrary position in @f$O(1)@f$ time. This makes it easy to
+ * recompute a given replication of a simulation on any thread. There can
+ * be up to @f$2^{32}@f$ streams, each with @f$2^{32}@f$ substreams, so the
+ * values of @f$W@f$ and @f$Z@f$ are @f$2^{66}@f$ and @f$2^{98}@f$
+ * respectively (see  @ref RandomStream for their definition). The values
+ * are produced by blocks of four, which  #nextArrayOfDouble exploits to
+ * fill arrays quickly.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public class Philox4x32 extends RandomStreamBase {
+
+   private static final long serialVersionUID = 161026L;
+
+   private static final double NORM = 1.0 / 0x100000000L;   // 2^(-32)
+
+   // Multipliers and Weyl key increments of Philox4x32
+   private static final long M0 = 0xD2511F53L;
+   private static final long M1 = 0xCD9E8D57L;
+   private static final int W0 = 0x9E3779B9;
+   private static final int W1 = 0xBB67AE85;
+
+   private static final long MAX_INDEX = 0xFFFFFFFFL;   // 2^32 - 1
+
+   // Key of the package, and number of the next stream created
+   private static int[] packageSeed = {0x243F6A88, 0x85A308D3};
+   private static long nextStream = 0;
+
+   private int key0, key1;       // key
+   private int stream;           // stream number, 4th word of the counter
+   private int substream;        // substream number, 3rd word
+   private long block;           // block number in the substream
+   private int[] buf = new int[4];   // last block of output
+   private int pos;              // index of the next word of buf to use
+
+   /**
+    * Constructs a new stream. Stream number @f$g@f$ of the package is
+    * returned the @f$(g+1)@f$-th time that this constructor is called
+    * after the seed of the package was set.
+    *  @exception IllegalStateException if all the @f$2^{32}@f$ streams
+    * have already been created
+    */
+   public Philox4x32() {
+      name = null;
+      synchronized (Philox4x32.class) {
+         if (nextStream > MAX_INDEX)
+            throw new IllegalStateException ("No more streams available");
+         key0 = packageSeed[0];
+         key1 = packageSeed[1];
+         stream = (int) nextStream++;
+      }
+      resetStartStream();
+   }
+
+   /**
+    * Constructs a new stream with the identifier `name` (used in the
+    * `toString` method).
+    *  @param name         name of the stream
+    */
+   public Philox4x32 (String name) {
+      this();
+      this.name = name;
+   }
+
+   /**
+    * Sets the key of the package to the two 32-bit integers `seed[0..1]`,
+    * and restarts the numbering of the streams: the next stream created
+    * will be stream number 0. Any value is allowed for the key.
+    *  @param seed         array of 2 integers representing the key
+    */
+   public static synchronized void setPackageSeed (int[] seed) {
+      checkSeed (seed);
+      packageSeed[0] = seed[0];
+      packageSeed[1] = seed[1];
+      nextStream = 0;
+   }
+
+   /**
+    * This method is discouraged for normal use. Sets the key of this
+    * stream to `seed[0..1]` and resets the stream to its beginning. The
+    * other streams are not modified, so this stream is no longer a
+    * stream of the package.
+    *  @param seed         array of 2 integers representing the key
+    */
+   public void setSeed (int[] seed) {
+      checkSeed (seed);
+      key0 = seed[0];
+      key1 = seed[1];
+      resetStartStream();
+   }
+
+   private static void checkSeed (int[] seed) {
+      if (seed.length < 2)
+         throw new IllegalArgumentException ("Seed must contain 2 values");
+   }
+
+   /**
+    * Returns the current state of the stream, represented as an array of
+    * five integers: the key, followed by the stream number, the substream
+    * number, and the index of the next value in the substream.
+    *  @return the current state of the stream
+    */
+   public long[] getState() {
+      return new long[] { key0 & MAX_INDEX, key1 & MAX_INDEX,
+                          stream & MAX_INDEX, substream & MAX_INDEX,
+                          getIndex() };
+   }
+
+   /**
+    * Sets this stream to stream number `k` of the package and resets it
+    * to its beginning. The key of the stream is set to the key of the
+    * package.
+    *  @param k            the stream number
+    *  @exception IllegalArgumentException if `k` is not in
+    * @f$[0, 2^{32})@f$
+    */
+   public void setStreamIndex (long k) {
+      if (k < 0 || k > MAX_INDEX)
+         throw new IllegalArgumentException ("k must be in [0, 2^32)");
+      synchronized (Philox4x32.class) {
+         key0 = packageSeed[0];
+         key1 = packageSeed[1];
+      }
+      stream = (int) k;
+      resetStartStream();
+   }
+
+   /**
+    * Moves this stream to the beginning of its substream number `j`.
+    *  @param j            the substream number
+    *  @exception IllegalArgumentException if `j` is not in
+    * @f$[0, 2^{32})@f$
+    */
+   public void setSubstreamIndex (long j) {
+      if (j < 0 || j > MAX_INDEX)
+         throw new IllegalArgumentException ("j must be in [0, 2^32)");
+      substream = (int) j;
+      resetStartSubstream();
+   }
+
+   /**
+    * Moves this stream to value number `i` of its current substream, so
+    * that the next call to `nextValue` returns that value.
+    *  @param i            the index of the value in the substream
+    *  @exception IllegalArgumentException if `i` is negative
+    */
+   public void setIndex (long i) {
+      if (i < 0)
+         throw new IllegalArgumentException ("i must be non-negative");
+      block = i >>> 2;
+      pos = (int)(i & 3);
+      if (pos != 0)
+         generateBlock (block++);
+      else
+         pos = 4;
+   }
+
+   /**
+    * Returns the index, in the current substream, of the value that will
+    * be returned by the next call to `nextValue`.
+    *  @return the index of the next value
+    */
+   public long getIndex() {
+      return 4 * block - 4 + pos;
+   }
+
+   /**
+    * Advances the state of this stream by `n` steps, so that the next
+    * value returned is the same as after `n` calls to `nextValue`. This
+    * takes constant time.
+    *  @param n            the number of steps
+    *  @exception IllegalArgumentException if `n` is negative
+    */
+   public void advanceState (long n) {
+      if (n < 0)
+         throw new IllegalArgumentException ("n must be non-negative");
+      setIndex (getIndex() + n);
+   }
+
+   public void resetStartStream() {
+      substream = 0;
+      resetStartSubstream();
+   }
+
+   public void resetStartSubstream() {
+      block = 0;
+      pos = 4;
+   }
+
+   public void resetNextSubstream() {
+      substream++;
+      resetStartSubstream();
+   }
+
+   /**
+    * Clones the current generator and return its copy.
+    *  @return A deep copy of the current generator
+    */
+   public Philox4x32 clone() {
+      Philox4x32 retour = (Philox4x32)super.clone();
+      retour.buf = buf.clone();
+      return retour;
+   }
+
+   protected int generatorStateSize() {
+      return 7;
+   }
+
+   protected void saveGeneratorState (int[] s, int off) {
+      s[off] = key0;
+      s[off + 1] = key1;
+      s[off + 2] = stream;
+      s[off + 3] = substream;
+      s[off + 4] = (int) block;
+      s[off + 5] = (int)(block >>> 32);
+      s[off + 6] = pos;
+   }
+
+   protected void checkGeneratorState (int[] s, int off) {
+      long b = (s[off + 4] & 0xFFFFFFFFL) | ((long) s[off + 5] << 32);
+      int p = s[off + 6];
+      if (b < 0 || p < 0 || p > 4 || (b == 0 && p < 4))
+         throw new IllegalArgumentException ("Invalid state");
+   }
+
+   protected void restoreGeneratorState (int[] s, int off) {
+      long b = (s[off + 4] & 0xFFFFFFFFL) | ((long) s[off + 5] << 32);
+      int p = s[off + 6];
+      key0 = s[off];
+      key1 = s[off + 1];
+      stream = s[off + 2];
+      substream = s[off + 3];
+      block = b;
+      pos = p;
+      // the output buffer is recomputed rather than saved
+      if (pos < 4)
+         generateBlock (block - 1);
+   }
+
+   public String toString() {
+      long[] s = getState();
+      String str = "key = (" + s[0] + ", " + s[1] + "), stream " + s[2] +
+                   ", substream " + s[3] + ", index " + s[4];
+      if (name == null)
+         return "The state of this Philox4x32 is: " + str;
+      else
+         return "The state of " + name + " is: " + str;
+   }
+
+   protected double nextValue() {
+      if (pos == 4) {
+         generateBlock (block++);
+         pos = 0;
+      }
+      return ((buf[pos++] & 0xFFFFFFFFL) + 0.5) * NORM;
+   }
+
+   public void nextArrayOfDouble (double[] u, int start, int n) {
+      if (prec53) {
+         super.nextArrayOfDouble (u, start, n);
+         return;
+      }
+      checkArrayOfDouble (u, start, n);
+      int ii = start;
+      final int end = start + n;
+      // first use what remains of the current block
+      while (pos < 4 && ii < end)
+         u[ii++] = nextValue();
+
+      // then whole blocks
+      long b = block;
+      for (; ii + 4 <= end; ii += 4) {
+         generateBlock (b++);
+         u[ii]     = ((buf[0] & 0xFFFFFFFFL) + 0.5) * NORM;
+         u[ii + 1] = ((buf[1] & 0xFFFFFFFFL) + 0.5) * NORM;
+         u[ii + 2] = ((buf[2] & 0xFFFFFFFFL) + 0.5) * NORM;
+         u[ii + 3] = ((buf[3] & 0xFFFFFFFFL) + 0.5) * NORM;
+      }
+      block = b;
+
+      // and the beginning of one more block
+      while (ii < end)
+         u[ii++] = nextValue();
+
+      if (anti)
+         for (ii = start; ii < end; ii++)
+            u[ii] = 1.0 - u[ii];
+   }
+
+   // Computes block number b of the current substream into buf.
+   private void generateBlock (long b) {
+      int x0 = (int) b, x1 = (int)(b >>> 32), x2 = substream, x3 = stream;
+      int y0 = key0, y1 = key1;
+      for (int r = 0; r < 10; r++) {
+         long p0 = M0 * (x0 & 0xFFFFFFFFL);
+         long p1 = M1 * (x2 & 0xFFFFFFFFL);
+         x0 = (int)(p1 >>> 32) ^ x1 ^ y0;
+         x2 = (int)(p0 >>> 32) ^ x3 ^ y1;
+         x1 = (int) p1;
+         x3 = (int) p0;
+         y0 += W0;
+         y1 += W1;
+      }
+      buf[0] = x0;
+      buf[1] = x1;
+      buf[2] = x2;
+      buf[3] = x3;
+   }
+}
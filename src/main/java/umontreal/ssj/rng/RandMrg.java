@@ -265,15 +265,17 @@ public class RandMrg implements CloneableRandomStream, Serializable {
    public RandMrg() {
       anti = false;
       prec53 = false;
-      for (int i = 0; i < 6; ++i)  
-         Bg[i] = Cg[i] = Ig[i] = nextSeed[i];
-      matVecModM (A1p127, nextSeed, nextSeed, m1);
-      double temp[] = new double[3];
-      for (int i = 0; i < 3; ++i)  
-         temp[i] = nextSeed[i + 3];
-      matVecModM (A2p127, temp, temp, m2);
-      for (int i = 0; i < 3; ++i)  
-         nextSeed[i + 3] = temp[i];
+      synchronized (RandMrg.class) {
+         for (int i = 0; i < 6; ++i)  
+            Bg[i] = Cg[i] = Ig[i] = nextSeed[i];
+         matVecModM (A1p127, nextSeed, nextSeed, m1);
+         double temp[] = new double[3];
+         for (int i = 0; i < 3; ++i)  
+            temp[i] = nextSeed[i + 3];
+         matVecModM (A2p127, temp, temp, m2);
+         for (int i = 0; i < 3; ++i)  
+            nextSeed[i + 3] = temp[i];
+      }
    }
 
    /**
@@ -296,7 +298,7 @@ public class RandMrg implements CloneableRandomStream, Serializable {
     * less than @f$m_2 = 4294944443@f$, and not all 0.
     *  @param seed         array of 6 elements representing the seed
     */
-   public static void setPackageSeed (long seed[]) {
+   public static synchronized void setPackageSeed (long seed[]) {
       // Must use long because there is no unsigned int type.
       if (seed.length != 6)
          throw new IllegalArgumentException ("Seed must contain 6 values");
@@ -24,6 +24,9 @@
 package umontreal.ssj.rng;
 
 import java.io.Serializable;
+import java.security.GeneralSecurityException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
 
 /**
  * Implements a RNG using the Rijndael block cipher algorithm (AES) with key
@@ -38,6 +41,19 @@ import java.io.Serializable;
  * must be given as 16-dimensional vectors of bytes (8-bit integers). The
  * default initial seed is a vector filled with zeros.
  *
+ * The generator runs the cipher in counter mode: the blocks are encrypted
+ * by batches into a buffer of 32-bit words from which the values are
+ * taken, without allocating any object. The batches are encrypted by the
+ * AES implementation of the Java Cryptography Extension, which uses the
+ * AES instructions of the processor when they are available, and
+ * otherwise by the Cryptix implementation, directly from the counter and
+ * with precomputed round keys; both give the same values. The batches grow
+ * as the values of a substream are used, up to 64 blocks, so that
+ * resetting the substreams often does not waste much work. The method
+ * #nextArrayOfDouble fills arrays from the batches directly. Since the
+ * state is a counter, the methods  #setStreamIndex,  #setSubstreamIndex
+ * and  #advanceState move to any position in constant time.
+ *
  * The Rijndael implementation used here is that of the *Cryptix Development
  * Team*, which can be found on the [Rijndael creators’
  * page](http://www.esat.kuleuven.ac.be/~rijmen/rijndael/)
@@ -47,47 +63,94 @@ import java.io.Serializable;
  */
 public class RandRijndael extends RandomStreamBase {
 
-   private static final long serialVersionUID = 70510L;
-   //La date de modification a l'envers, lire 10/05/2007
+   private static final long serialVersionUID = 261016L;
+   //La date de modification a l'envers, lire 16/10/2026
 
 
    private static final int BLOCK_SIZE = 16;
    private static final int JUMP_STREAM = 10;
    private static final int JUMP_SUBSTREAM = 5;
+   private static final int BATCH = 64;   // maximal number of blocks
+                                          // encrypted at once
+   private static final byte[] KEY = {1,2,3,4,5,6,7,8,
+                                      9,10,11,12,13,14,15,16};
 
    //actually a Object[] containing 2 int[][]
    private static Object key;
+   // encryption round keys of key
+   private static int[] roundKeys;
+   // false if the AES cipher of the JCE cannot be used
+   private static boolean jce = true;
 
    private static byte[] curr_stream;
+   private static byte[] packageSeed;
    private byte[] stream;
    private byte[] substream;
 
-   private byte[] state;
-   private byte[] output;
-   private int outputPos;
+   // The buffer holds the output of len/4 blocks, of which the words
+   // before pos were used; block is the number, in the substream, of the
+   // next block to encrypt.
+   private long subLo, subHi;     // counter at the start of the substream
+   private long block;
+   private int[] buf = new int[4 * BATCH];
+   private int pos;
+   private int len;
+
+   // JCE cipher, with its input and output buffers
+   private transient Cipher cipher;
+   private transient byte[] ctr, enc;
 
    static
    {
       try {
-         key = Rijndael_Algorithm.makeKey(new byte[]{1,2,3,4,5,6,7,8,
-                                          9,10,11,12,13,14,15,16},
-                                          BLOCK_SIZE);
+         key = Rijndael_Algorithm.makeKey(KEY, BLOCK_SIZE);
       } catch(Exception e) {
          //pour que Java soit certain que la clef est initialisee
          key = new Object[0];
          e.printStackTrace();
          throw new RuntimeException("  cannot create RandRijndael key");
       }
+      roundKeys = Rijndael_Algorithm.encryptionRoundKeys(key);
 
       curr_stream = new byte[BLOCK_SIZE];
-      for(int i = 0; i < BLOCK_SIZE; i++)
-         curr_stream[i] = 0;
+      packageSeed = new byte[BLOCK_SIZE];
    }
 
    private static void iterate (byte[] b, int pos) {
       while((pos < b.length) && (++b[pos++] == 0));
    }
 
+   // Adds k 2^(8 pos) to the 128-bit integer b, in little-endian order.
+   private static void add (byte[] b, long k, int pos) {
+      int carry = 0;
+      for (int i = pos; i < b.length; i++) {
+         int s = (b[i] & 0xFF) + (int)(k & 0xFF) + carry;
+         b[i] = (byte) s;
+         carry = s >>> 8;
+         k >>>= 8;
+      }
+   }
+
+   // Returns bytes off to off+3 of b, in little-endian order.
+   private static int toInt (byte[] b, int off) {
+      return (b[off] & 0xFF) | (b[off + 1] & 0xFF) << 8 |
+             (b[off + 2] & 0xFF) << 16 | (b[off + 3] & 0xFF) << 24;
+   }
+
+   // Stores x in bytes off to off+3 of b, in little-endian order.
+   private static void fromInt (byte[] b, int off, int x) {
+      for (int i = 0; i < 4; i++)
+         b[off + i] = (byte)(x >>> (8 * i));
+   }
+
+   // Returns bytes off to off+7 of b, in little-endian order.
+   private static long toLong (byte[] b, int off) {
+      long x = 0;
+      for (int i = 7; i >= 0; i--)
+         x = (x << 8) | (b[off + i] & 0xFF);
+      return x;
+   }
+
    /**
     * Constructs a new stream.
     */
@@ -95,12 +158,12 @@ public class RandRijndael extends RandomStreamBase {
       stream = new byte[BLOCK_SIZE];
       substream = new byte[BLOCK_SIZE];
 
-      state = new byte[BLOCK_SIZE];
+      synchronized (RandRijndael.class) {
+         for(int i = 0; i < BLOCK_SIZE; i++)
+            stream[i] = curr_stream[i];
 
-      for(int i = 0; i < BLOCK_SIZE; i++)
-         stream[i] = curr_stream[i];
-
-      iterate(curr_stream, JUMP_STREAM);
+         iterate(curr_stream, JUMP_STREAM);
+      }
 
       resetStartStream();
    }
@@ -122,12 +185,12 @@ public class RandRijndael extends RandomStreamBase {
     * stream is @f$(0, 0, …, 0, 0)@f$.
     *  @param seed         array of 16 elements representing the seed
     */
-   public static void setPackageSeed (byte seed[]) {
+   public static synchronized void setPackageSeed (byte seed[]) {
       if(seed.length != BLOCK_SIZE)
          throw new IllegalArgumentException("Seed must contain " +
                                             BLOCK_SIZE + " values");
       for(int i = 0; i < BLOCK_SIZE; i++)
-         curr_stream[i] = seed[i];
+         curr_stream[i] = packageSeed[i] = seed[i];
    }
 
    /**
@@ -156,12 +219,72 @@ public class RandRijndael extends RandomStreamBase {
     *  @return the current state of the stream
     */
    public byte[] getState() {
-      byte[] stateCopy = new byte[BLOCK_SIZE];
-      for(int i = 0; i < BLOCK_SIZE; i++)
-         stateCopy[i] = state[i];
+      byte[] stateCopy = substream.clone();
+      add (stateCopy, Math.max (1, (getIndex() + 3) >> 2), 0);
       return stateCopy;
    }
 
+   /**
+    * Sets this stream to stream number `k` of the package, that is, the
+    * stream whose initial seed is @f$kZ@f$ values after the seed of the
+    * package, and resets it to its beginning. Stream number @f$k@f$ is
+    * the one returned by the @f$(k+1)@f$-th call to the constructor after
+    * the seed of the package was set.
+    *  @param k            the stream number
+    *  @exception IllegalArgumentException if `k` is not in
+    * @f$[0, 2^{48})@f$
+    */
+   public void setStreamIndex (long k) {
+      if (k < 0 || k >= 1L << 48)
+         throw new IllegalArgumentException ("k must be in [0, 2^48)");
+      synchronized (RandRijndael.class) {
+         for(int i = 0; i < BLOCK_SIZE; i++)
+            stream[i] = packageSeed[i];
+      }
+      add (stream, k, JUMP_STREAM);
+      resetStartStream();
+   }
+
+   /**
+    * Moves this stream to the beginning of its substream number `j`, that
+    * is, @f$jW@f$ values after the beginning of the stream.
+    *  @param j            the substream number
+    *  @exception IllegalArgumentException if `j` is not in
+    * @f$[0, 2^{40})@f$
+    */
+   public void setSubstreamIndex (long j) {
+      if (j < 0 || j >= 1L << 40)
+         throw new IllegalArgumentException ("j must be in [0, 2^40)");
+      for(int i = 0; i < BLOCK_SIZE; i++)
+         substream[i] = stream[i];
+      add (substream, j, JUMP_SUBSTREAM);
+      resetStartSubstream();
+   }
+
+   /**
+    * Advances the state of this stream by `n` steps, so that the next
+    * value returned is the same as after `n` calls to `nextValue`. This
+    * takes constant time.
+    *  @param n            the number of steps
+    *  @exception IllegalArgumentException if `n` is negative
+    */
+   public void advanceState (long n) {
+      if (n < 0)
+         throw new IllegalArgumentException ("n must be non-negative");
+      long k = getIndex() + n;
+      block = k >>> 2;
+      pos = len = 0;
+      if ((k & 3) != 0) {
+         encrypt (1);
+         pos = (int)(k & 3);
+      }
+   }
+
+   // Returns the number of values used since the start of the substream.
+   private long getIndex() {
+      return 4 * block - len + pos;
+   }
+
    /**
     * Clones the current generator and return its copy.
     *  @return A deep copy of the current generator
@@ -170,23 +293,48 @@ public class RandRijndael extends RandomStreamBase {
       RandRijndael retour = null;
 
       retour = (RandRijndael)super.clone();
-      retour.stream = new byte[BLOCK_SIZE];
-      retour.substream = new byte[BLOCK_SIZE];
-      retour.state = new byte[BLOCK_SIZE];
-      retour.output = new byte[output.length];
-      for (int i = 0; i<BLOCK_SIZE; i++) {
-         retour.stream[i] = stream[i];
-         retour.substream[i] = substream[i];
-         retour.state[i] = state[i];
-      }
-      for (int i=0; i<output.length; i++) {
-         retour.output[i] = output[i];
-      }
+      retour.stream = stream.clone();
+      retour.substream = substream.clone();
+      retour.buf = buf.clone();
+      retour.cipher = null;
+      retour.ctr = retour.enc = null;
 
       return retour;
    }
 
 
+   // The key is the same for all streams, so the state is made of the
+   // counters at the start of the stream and of the substream, and of the
+   // number of values used since the start of the substream; the output
+   // buffer is recomputed rather than saved.
+   protected int generatorStateSize() {
+      return 10;
+   }
+
+   protected void saveGeneratorState (int[] s, int off) {
+      for (int i = 0; i < BLOCK_SIZE; i += 4) {
+         s[off + i/4] = toInt (stream, i);
+         s[off + 4 + i/4] = toInt (substream, i);
+      }
+      long k = getIndex();
+      s[off + 8] = (int) k;
+      s[off + 9] = (int)(k >>> 32);
+   }
+
+   protected void checkGeneratorState (int[] s, int off) {
+      if (s[off + 9] < 0)
+         throw new IllegalArgumentException ("Invalid state");
+   }
+
+   protected void restoreGeneratorState (int[] s, int off) {
+      for (int i = 0; i < BLOCK_SIZE; i += 4) {
+         fromInt (stream, i, s[off + i/4]);
+         fromInt (substream, i, s[off + 4 + i/4]);
+      }
+      resetStartSubstream();
+      advanceState ((s[off + 8] & 0xFFFFFFFFL) | ((long) s[off + 9] << 32));
+   }
+
    public void resetStartStream() {
       for(int i = 0; i < BLOCK_SIZE; i++)
          substream[i] = stream[i];
@@ -195,9 +343,10 @@ public class RandRijndael extends RandomStreamBase {
    }
 
    public void resetStartSubstream() {
-      for(int i = 0; i < BLOCK_SIZE; i++)
-         state[i] = substream[i];
-      nextOutput();
+      subLo = toLong (substream, 0);
+      subHi = toLong (substream, 8);
+      block = 0;
+      pos = len = 0;
    }
 
    public void resetNextSubstream() {
@@ -212,59 +361,94 @@ public class RandRijndael extends RandomStreamBase {
       else
          sb.append("The state of the " + name + " is : [");
 
+      byte[] state = getState();
       for(int i = 0; i < BLOCK_SIZE - 1; i++)
          sb.append(state[i] + ", ");
       sb.append(state[BLOCK_SIZE - 1] + "]  ");
 
-      sb.append("position : " + outputPos);
+      long k = getIndex();
+      sb.append("position : " + (k == 0 ? 0 : 4 * ((k - 1) % 4 + 1)));
 
       return sb.toString();
    }
 
-   private void nextOutput() {
-      output = Rijndael_Algorithm.blockEncrypt(state, 0, key, BLOCK_SIZE);
-      outputPos = 0;
-      iterate(state,0);
+   // Encrypts the next n blocks of the substream into buf.
+   private void encrypt (int n) {
+      long lo = subLo + block;
+      long hi = subHi;
+      if ((lo ^ Long.MIN_VALUE) < (subLo ^ Long.MIN_VALUE))
+         hi++;                               // carry of the 128-bit sum
+      if (cipher == null && jce)
+         initCipher();
+      if (cipher == null)
+         Rijndael_Algorithm.counterEncrypt (roundKeys, lo, hi, n, buf, 0);
+      else {
+         for (int b = 0; b < 16 * n; b += 16) {
+            long x = lo, y = hi;
+            for (int i = 0; i < 8; i++) {
+               ctr[b + i] = (byte) x;
+               ctr[b + 8 + i] = (byte) y;
+               x >>>= 8;
+               y >>>= 8;
+            }
+            if (++lo == 0)
+               hi++;
+         }
+         try {
+            cipher.update (ctr, 0, 16 * n, enc, 0);
+         } catch (GeneralSecurityException e) {
+            throw new IllegalStateException (e.toString());
+         }
+         for (int i = 0, b = 0; i < 4 * n; i++, b += 4)
+            buf[i] = (enc[b] & 0xFF) << 24 | (enc[b + 1] & 0xFF) << 16 |
+                     (enc[b + 2] & 0xFF) << 8 | (enc[b + 3] & 0xFF);
+      }
+      block += n;
+      len = 4 * n;
+      pos = 0;
    }
 
-   protected double nextValue() {
-      if(outputPos > BLOCK_SIZE - 4)
-         nextOutput();
-
-
-      long val = output[outputPos++] & 0xFF;
-      val <<= 8;
-      val |= output[outputPos++] & 0xFF;
-      val <<= 8;
-      val |= output[outputPos++] & 0xFF;
-      val <<= 8;
-      val |= output[outputPos++] & 0xFF;
-
-
-      /*
-      long val = ((output[outputPos] & 0xFF) << 24) |
-         ((output[outputPos + 1] & 0xFF) << 16) |
-         ((output[outputPos + 2] & 0xFF) << 8) |
-         ((output[outputPos + 3] & 0xFF));
-      outputPos += 4;
-      */
+   private void initCipher() {
+      try {
+         cipher = Cipher.getInstance ("AES/ECB/NoPadding");
+         cipher.init (Cipher.ENCRYPT_MODE, new SecretKeySpec (KEY, "AES"));
+         ctr = new byte[BLOCK_SIZE * BATCH];
+         enc = new byte[BLOCK_SIZE * BATCH];
+      } catch (GeneralSecurityException e) {
+         cipher = null;
+         jce = false;
+      }
+   }
 
+   protected double nextValue() {
+      if (pos == len)
+         // batches of 1, 1, 2, 4, ... blocks after a reset
+         encrypt ((int) Math.min (BATCH, Math.max (1, block)));
+      long val = buf[pos++] & 0xFFFFFFFFL;
       return ((double)val + 1) / 0x100000001L;
    }
 
-   /*
-   public static void main(String args[]) {
-      int num = Integer.parseInt(args[0]);
-
-      RandomStream rng = new RandRijn();
-
-      for(int i = 0; i < num; i++) {
-         rng.nextDouble();
-         //System.out.println(rng.nextDouble());
+   public void nextArrayOfDouble (double[] u, int start, int n) {
+      if (prec53) {
+         super.nextArrayOfDouble (u, start, n);
+         return;
       }
-
-      System.out.println(rng.toString());
+      checkArrayOfDouble (u, start, n);
+      final int end = start + n;
+      int ii = start;
+      while (ii < end) {
+         if (pos == len)
+            encrypt (Math.min (BATCH, (end - ii + 3) >> 2));
+         int k = Math.min (end - ii, len - pos);
+         for (int i = 0; i < k; i++)
+            u[ii + i] = ((double)(buf[pos + i] & 0xFFFFFFFFL) + 1) /
+                        0x100000001L;
+         pos += k;
+         ii += k;
+      }
+      if (anti)
+         for (ii = start; ii < end; ii++)
+            u[ii] = 1.0 - u[ii];
    }
-   */
 
-}
\ No newline at end of file
+}
@@ -131,6 +131,21 @@ public abstract class RandomStreamBase implements CloneableRandomStream,
     *  @param n            the number of random numbers to put in `u`
     */
    public void nextArrayOfDouble (double[] u, int start, int n) {
+      checkArrayOfDouble (u, start, n);
+      for(int ii = start; ii < start + n; ii++)
+         u[ii] = nextDouble();
+   }
+
+   /**
+    * Checks the arguments passed to  #nextArrayOfDouble. Subclasses that
+    * override `nextArrayOfDouble` with a specialized bulk implementation
+    * should call this method first, so that all generators report invalid
+    * arguments in the same way.
+    *  @param u            the array in which the numbers will be stored
+    *  @param start        the first index of `u` to be used
+    *  @param n            the number of random numbers to put in `u`
+    */
+   protected static void checkArrayOfDouble (double[] u, int start, int n) {
       if(u.length == 0)
          throw new NullPointerException("The array must be initialized.");
       if (u.length < n + start)
@@ -141,9 +156,6 @@ public abstract class RandomStreamBase implements CloneableRandomStream,
       if(n < 0)
          throw new IllegalArgumentException("Must have a non-negative " +
                                             "number of elements.");
-
-      for(int ii = start; ii < start + n; ii++)
-         u[ii] = nextDouble();
    }
 
    /**
@@ -208,6 +220,140 @@ public abstract class RandomStreamBase implements CloneableRandomStream,
             "   call the toStringFull() method instead.");
    }
 
+   /**
+    * Returns the number of 32-bit integers needed by  #saveState to store
+    * the complete state of this stream.
+    *  @return the size of the saved state of this stream
+    *  @exception UnsupportedOperationException if this generator does not
+    * support saving its state
+    */
+   public int stateSize() {
+      return 1 + generatorStateSize();
+   }
+
+   /**
+    * Stores the complete state of this stream in `s[off..off+stateSize()-1]`:
+    * not only its current state, as returned by `getState`, but also the
+    * starting points of its current stream and substream and its
+    * antithetic and precision flags. Restoring this array with
+    * #restoreState later puts the stream, or any stream of the same class,
+    * exactly where this stream is now, so that it produces the same values
+    * and the same substreams. This is meant for checkpointing long
+    * simulations; see also  @ref RandomStreamManager.
+    *  @param s            the array receiving the state
+    *  @param off          the index of the first element written
+    *  @exception UnsupportedOperationException if this generator does not
+    * support saving its state
+    */
+   public void saveState (int[] s, int off) {
+      s[off] = (anti ? 1 : 0) | (prec53 ? 2 : 0);
+      saveGeneratorState (s, off + 1);
+   }
+
+   /**
+    * Returns the complete state of this stream in a new array. Equivalent
+    * to  #saveState(int[],int) with an array of length  #stateSize.
+    *  @return the saved state
+    */
+   public int[] saveState() {
+      int[] s = new int[stateSize()];
+      saveState (s, 0);
+      return s;
+   }
+
+   /**
+    * Restores the state saved by  #saveState(int[],int) in
+    * `s[off..off+stateSize()-1]`, for a stream of the same class.
+    *  @param s            the array containing the state
+    *  @param off          the index of the first element read
+    *  @exception IllegalArgumentException if the state is not valid for
+    * this stream
+    *  @exception UnsupportedOperationException if this generator does not
+    * support saving its state
+    */
+   public void restoreState (int[] s, int off) {
+      checkState (s, off);
+      restoreGeneratorState (s, off + 1);
+      anti = (s[off] & 1) != 0;
+      prec53 = (s[off] & 2) != 0;
+   }
+
+   /**
+    * Checks that `s[off..off+stateSize()-1]` holds a state that
+    * #restoreState(int[],int) can restore in this stream, without
+    * modifying the stream.
+    *  @param s            the array containing the state
+    *  @param off          the index of the first element read
+    *  @exception IllegalArgumentException if the state is not valid for
+    * this stream
+    *  @exception UnsupportedOperationException if this generator does not
+    * support saving its state
+    */
+   public void checkState (int[] s, int off) {
+      if (off < 0 || off + stateSize() > s.length)
+         throw new IllegalArgumentException ("State array too short");
+      checkGeneratorState (s, off + 1);
+   }
+
+   /**
+    * Restores the state returned by  #saveState().
+    *  @param s            the saved state
+    *  @exception IllegalArgumentException if the state is not valid for
+    * this stream
+    */
+   public void restoreState (int[] s) {
+      if (s.length != stateSize())
+         throw new IllegalArgumentException ("Wrong state size");
+      restoreState (s, 0);
+   }
+
+   /**
+    * Returns the number of integers used by  #saveGeneratorState, which
+    * stores everything but the flags kept by this class. A subclass
+    * supporting  #saveState overrides this method,  #saveGeneratorState
+    * and  #restoreGeneratorState, and also  #checkGeneratorState if some
+    * states are invalid; the default implementations of the first three
+    * throw an `UnsupportedOperationException`.
+    *  @return the size of the state of the generator
+    */
+   protected int generatorStateSize() {
+      throw new UnsupportedOperationException
+         (getClass().getName() + " does not support saving its state");
+   }
+
+   /**
+    * Stores the state of the generator in `s`, starting at index `off`.
+    *  @param s            the array receiving the state
+    *  @param off          the index of the first element written
+    */
+   protected void saveGeneratorState (int[] s, int off) {
+      throw new UnsupportedOperationException
+         (getClass().getName() + " does not support saving its state");
+   }
+
+   /**
+    * Checks the state of the generator stored by  #saveGeneratorState in
+    * `s`, starting at index `off`, before it is restored. The default
+    * implementation accepts any state.
+    *  @param s            the array containing the state
+    *  @param off          the index of the first element read
+    *  @exception IllegalArgumentException if the state is not valid
+    */
+   protected void checkGeneratorState (int[] s, int off) {
+   }
+
+   /**
+    * Restores the state of the generator stored by  #saveGeneratorState
+    * in `s`, starting at index `off`. The state was accepted by
+    * #checkGeneratorState.
+    *  @param s            the array containing the state
+    *  @param off          the index of the first element read
+    */
+   protected void restoreGeneratorState (int[] s, int off) {
+      throw new UnsupportedOperationException
+         (getClass().getName() + " does not support saving its state");
+   }
+
    /**
     * Clones the current generator and return its copy.
     *  @return A deep copy of the current generator
@@ -27,7 +27,12 @@ package umontreal.ssj.rng;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import umontreal.ssj.rng.RandomStream;
+import umontreal.ssj.util.io.BinaryDataReader;
+import umontreal.ssj.util.io.BinaryDataWriter;
+import umontreal.ssj.util.io.DataField;
 
 /**
  * Manages a list of random streams for more convenient synchronization. All
@@ -39,6 +44,21 @@ import umontreal.ssj.rng.RandomStream;
  * @ref RandomStream object can be registered to this stream manager (i.e.,
  * added to the list) and eventually unregistered (removed from the list).
  *
+ * The complete state of all the registered streams can also be saved at
+ * once by  #saveState, and restored later by  #restoreState, for example
+ * to checkpoint a long simulation and resume it exactly where it stopped
+ * after the program was interrupted. The streams must then be
+ * @ref RandomStreamBase instances whose class supports
+ * umontreal.ssj.rng.RandomStreamBase.saveState, which is the case of the
+ * MRG, LFSR, WELL, F2NL607, MT19937, Philox4x32, GenF2w32 and
+ * RandRijndael generators. The saved state is a compact array of 32-bit
+ * integers: for instance 21 integers per  @ref MRG32k3a stream, which
+ * holds @f$I_g@f$, @f$B_g@f$ and @f$C_g@f$. It can be written to a
+ * umontreal.ssj.util.io.BinaryDataWriter or to a `ByteBuffer`. To
+ * restore a state, the same streams must be registered in the same order,
+ * which is normally the case when the program that saved the state is
+ * started again.
+ *
  * <div class="SSJ-bigskip"></div>
  */
 public class RandomStreamManager {
@@ -118,6 +138,149 @@ public RandomStream add (RandomStream stream) {
          ((RandomStream)streams.get (s)).resetNextSubstream();
    }
 
+   /**
+    * Returns the number of 32-bit integers in the array returned by
+    * #saveState().
+    *  @return the size of the saved state
+    *  @exception UnsupportedOperationException if one of the streams does
+    * not support saving its state
+    */
+   public int stateSize() {
+      int size = 1;
+      for (int s = 0; s < streams.size(); s++)
+         size += 2 + streamBase (s).stateSize();
+      return size;
+   }
+
+   /**
+    * Returns the complete state of all the streams in the list. The array
+    * contains the number of streams followed, for each stream, by an
+    * integer identifying its class, the size of its state, and the state
+    * saved by umontreal.ssj.rng.RandomStreamBase.saveState.
+    *  @return the saved state
+    *  @exception UnsupportedOperationException if one of the streams does
+    * not support saving its state
+    */
+   public int[] saveState() {
+      int[] state = new int[stateSize()];
+      state[0] = streams.size();
+      int off = 1;
+      for (int s = 0; s < streams.size(); s++) {
+         RandomStreamBase stream = streamBase (s);
+         int size = stream.stateSize();
+         state[off] = classId (stream);
+         state[off + 1] = size;
+         stream.saveState (state, off + 2);
+         off += 2 + size;
+      }
+      return state;
+   }
+
+   /**
+    * Restores the state of all the streams in the list from `state`,
+    * returned by  #saveState() when the same streams were registered in
+    * the same order. The number, classes, state sizes and states of the
+    * streams are all checked before any stream is modified.
+    *  @param state        the saved state
+    *  @exception IllegalArgumentException if `state` does not match the
+    * streams in the list
+    */
+   public void restoreState (int[] state) {
+      if (state.length < 1 || state[0] != streams.size())
+         throw new IllegalArgumentException
+            ("The saved state does not have the same number of streams");
+      int off = 1;
+      for (int s = 0; s < streams.size(); s++) {
+         RandomStreamBase stream = streamBase (s);
+         if (off + 2 > state.length || state[off] != classId (stream) ||
+             state[off + 1] != stream.stateSize() ||
+             off + 2 + state[off + 1] > state.length)
+            throw new IllegalArgumentException
+               ("The saved state does not match stream " + s);
+         stream.checkState (state, off + 2);
+         off += 2 + state[off + 1];
+      }
+      if (off != state.length)
+         throw new IllegalArgumentException ("Wrong state size");
+      off = 1;
+      for (int s = 0; s < streams.size(); s++) {
+         RandomStreamBase stream = streamBase (s);
+         stream.restoreState (state, off + 2);
+         off += 2 + state[off + 1];
+      }
+   }
+
+   /**
+    * Writes the state returned by  #saveState() to `buf`, at its current
+    * position, which is advanced by @f$4@f$ times  #stateSize bytes.
+    *  @param buf          the buffer receiving the state
+    *  @exception java.nio.BufferOverflowException if `buf` does not have
+    * enough remaining space
+    */
+   public void saveState (ByteBuffer buf) {
+      buf.asIntBuffer().put (saveState());
+      buf.position (buf.position() + 4 * stateSize());
+   }
+
+   /**
+    * Restores the state of all the streams from `buf`, where it was
+    * written by  #saveState(ByteBuffer), starting at the current position
+    * of `buf`, which is advanced past the state.
+    *  @param buf          the buffer containing the state
+    *  @exception IllegalArgumentException if the state does not match the
+    * streams in the list
+    */
+   public void restoreState (ByteBuffer buf) {
+      int[] state = new int[stateSize()];
+      if (buf.remaining() < 4 * state.length)
+         throw new IllegalArgumentException ("Incomplete saved state");
+      buf.asIntBuffer().get (state);
+      restoreState (state);
+      buf.position (buf.position() + 4 * state.length);
+   }
+
+   /**
+    * Writes the state returned by  #saveState() to `out`, as a
+    * one-dimensional array of integers labeled `label`.
+    *  @param out          the writer
+    *  @param label        the label of the field
+    *  @exception IOException if an I/O error occurs
+    */
+   public void saveState (BinaryDataWriter out, String label)
+      throws IOException {
+      int[] state = saveState();
+      out.write (label, state, state.length);
+   }
+
+   /**
+    * Restores the state of all the streams from the field labeled `label`
+    * read by `in`, written by  #saveState(BinaryDataWriter,String).
+    *  @param in           the reader
+    *  @param label        the label of the field
+    *  @exception IOException if an I/O error occurs, or if there is no
+    * such field of type `int[]`
+    *  @exception IllegalArgumentException if the state does not match the
+    * streams in the list
+    */
+   public void restoreState (BinaryDataReader in, String label)
+      throws IOException {
+      DataField field = in.readField (label);
+      if (field == null || field.asIntArray() == null)
+         throw new IOException ("No saved state labeled " + label);
+      restoreState (field.asIntArray());
+   }
+
+   private RandomStreamBase streamBase (int s) {
+      Object stream = streams.get (s);
+      if (!(stream instanceof RandomStreamBase))
+         throw new UnsupportedOperationException
+            (stream.getClass().getName() + " does not support saving its state");
+      return (RandomStreamBase) stream;
+   }
+
+   private static int classId (RandomStreamBase stream) {
+      return stream.getClass().getName().hashCode();
+   }
 
    public String toString() {
       StringBuffer sb = new StringBuffer (getClass().getName());
@@ -41,7 +41,8 @@ import cern.colt.list.DoubleArrayList;
  * when generating uniforms is time-consuming. It can also help with
  * restoring the simulation to a certain state without setting
  * stream-specific seeds. However, using such caching may lead to memory
- * problems if a large quantity of random numbers are needed.
+ * problems if a large quantity of random numbers are needed; the values can
+ * then be cached in a file with  @ref MappedRandomStreamWithCache.
  *
  * <div class="SSJ-bigskip"></div>
  */
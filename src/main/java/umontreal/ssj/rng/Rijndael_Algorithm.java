@@ -494,6 +494,85 @@ if (DEBUG) trace(OUT, "blockDecrypt()");
         return result;
     }
 
+    /**
+     * Returns the encryption round keys of a session key made for the
+     * default block size, in a single array of 4 (ROUNDS + 1) ints.
+     *
+     * @param  sessionKey The session key, as returned by makeKey.
+     * @return The round keys, 4 per round.
+     */
+    static int[] encryptionRoundKeys (Object sessionKey) {
+        int[][] Ke = (int[][]) ((Object[]) sessionKey)[0];
+        int[] rk = new int[4 * Ke.length];
+        for (int r = 0; r < Ke.length; r++)
+            System.arraycopy(Ke[r], 0, rk, 4 * r, 4);
+        return rk;
+    }
+
+    /**
+     * Encrypts n consecutive values of a 128-bit counter in counter mode,
+     * without allocating anything. The plaintext of block j is the counter
+     * lo + j, hi (with carry) written in little-endian order, that is,
+     * byte i of the block is byte i of the 128-bit integer; the four words
+     * of ciphertext of block j, in big-endian order, are stored in
+     * out[off + 4j .. off + 4j + 3].
+     *
+     * @param  rk   The round keys, from encryptionRoundKeys.
+     * @param  lo   The low 64 bits of the first counter value.
+     * @param  hi   The high 64 bits of the first counter value.
+     * @param  n    The number of blocks.
+     * @param  out  The array receiving the ciphertext.
+     * @param  off  Index of out where the first word is stored.
+     */
+    static void counterEncrypt (int[] rk, long lo, long hi, int n,
+                                int[] out, int off) {
+        final int last = rk.length - 4;
+        final int[] T1 = Rijndael_Algorithm.T1, T2 = Rijndael_Algorithm.T2,
+                    T3 = Rijndael_Algorithm.T3, T4 = Rijndael_Algorithm.T4;
+        final byte[] S = Rijndael_Algorithm.S;
+        for (int b = 0; b < n; b++) {
+            int t0 = Integer.reverseBytes((int) lo) ^ rk[0];
+            int t1 = Integer.reverseBytes((int)(lo >>> 32)) ^ rk[1];
+            int t2 = Integer.reverseBytes((int) hi) ^ rk[2];
+            int t3 = Integer.reverseBytes((int)(hi >>> 32)) ^ rk[3];
+            if (++lo == 0)
+                hi++;
+
+            for (int r = 4; r < last; r += 4) {
+                int a0 = T1[t0 >>> 24] ^ T2[(t1 >>> 16) & 0xFF] ^
+                         T3[(t2 >>> 8) & 0xFF] ^ T4[t3 & 0xFF] ^ rk[r];
+                int a1 = T1[t1 >>> 24] ^ T2[(t2 >>> 16) & 0xFF] ^
+                         T3[(t3 >>> 8) & 0xFF] ^ T4[t0 & 0xFF] ^ rk[r + 1];
+                int a2 = T1[t2 >>> 24] ^ T2[(t3 >>> 16) & 0xFF] ^
+                         T3[(t0 >>> 8) & 0xFF] ^ T4[t1 & 0xFF] ^ rk[r + 2];
+                int a3 = T1[t3 >>> 24] ^ T2[(t0 >>> 16) & 0xFF] ^
+                         T3[(t1 >>> 8) & 0xFF] ^ T4[t2 & 0xFF] ^ rk[r + 3];
+                t0 = a0;
+                t1 = a1;
+                t2 = a2;
+                t3 = a3;
+            }
+
+            // last round is special
+            out[off++] = ((S[t0 >>> 24] & 0xFF) << 24 |
+                          (S[(t1 >>> 16) & 0xFF] & 0xFF) << 16 |
+                          (S[(t2 >>> 8) & 0xFF] & 0xFF) << 8 |
+                          (S[t3 & 0xFF] & 0xFF)) ^ rk[last];
+            out[off++] = ((S[t1 >>> 24] & 0xFF) << 24 |
+                          (S[(t2 >>> 16) & 0xFF] & 0xFF) << 16 |
+                          (S[(t3 >>> 8) & 0xFF] & 0xFF) << 8 |
+                          (S[t0 & 0xFF] & 0xFF)) ^ rk[last + 1];
+            out[off++] = ((S[t2 >>> 24] & 0xFF) << 24 |
+                          (S[(t3 >>> 16) & 0xFF] & 0xFF) << 16 |
+                          (S[(t0 >>> 8) & 0xFF] & 0xFF) << 8 |
+                          (S[t1 & 0xFF] & 0xFF)) ^ rk[last + 2];
+            out[off++] = ((S[t3 >>> 24] & 0xFF) << 24 |
+                          (S[(t0 >>> 16) & 0xFF] & 0xFF) << 16 |
+                          (S[(t1 >>> 8) & 0xFF] & 0xFF) << 8 |
+                          (S[t2 & 0xFF] & 0xFF)) ^ rk[last + 3];
+        }
+    }
+
     /** A basic symmetric encryption/decryption test. */
     public static boolean self_test() { return self_test(BLOCK_SIZE); }
 
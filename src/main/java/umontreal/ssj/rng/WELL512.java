@@ -39,6 +39,16 @@ import java.io.Serializable;
  * state of a stream at any given step, is a 16-dimensional vector of 32-bit
  * integers.
  *
+ * Besides the usual jumps to the next substream, the state can be advanced
+ * by an arbitrary number of steps with  #advanceState, and stream number
+ * @f$k@f$ or substream number @f$j@f$ can be reached directly with
+ * #setStreamIndex and  #setSubstreamIndex. To jump @f$n@f$ steps ahead,
+ * these methods compute @f$z^n \bmod P(z)@f$, where @f$P(z)@f$ is the
+ * characteristic polynomial of the generator, of degree 512, and apply this
+ * polynomial to the state by running the generator for 512 steps
+ * (Haramoto et al., 2008), which takes @f$O(512^2 \log n)@f$ bit
+ * operations. The polynomial @f$P(z)@f$ is computed once, on first use.
+ *
  * <div class="SSJ-bigskip"></div>
  */
 public class WELL512 extends RandomStreamBase {
@@ -54,6 +64,8 @@ public class WELL512 extends RandomStreamBase {
    private static final int M1 = 13;
    private static final int M2 = 9;
    private static final int M3 = 5;
+   private static final int LOG_W = 200;   // W = 2^LOG_W
+   private static final int LOG_Z = 350;   // Z = 2^LOG_Z
    private static final int MASK = 0xF;    // = 15
 
    //state variables
@@ -68,6 +80,9 @@ public class WELL512 extends RandomStreamBase {
                                0xE48B1A9C, 0x590AE15E, 0xC5EB82A7, 0x37EAB2F9,
                                0x90E1C6EA, 0x3AE63902, 0x735DC91C, 0x902E3A8C,
                                0x6CB28A5D, 0x8474E7D1, 0x843E01A3, 0x5A7370EF};
+   // Seed of stream number 0, as given by setPackageSeed
+   private static int[] packageSeed = curr_stream.clone();
+
 
    // P(z) = {0xa7600001, 0xe0f4f3e2, 0xcb30e185, 0x7d6b79a9,
    //         0xf3d46237, 0x13a524cb, 0x38e3c2d2, 0xa1381bcb,
@@ -142,6 +157,22 @@ public class WELL512 extends RandomStreamBase {
       state_i = 0;
    }
 
+   // Characteristic polynomial of the generator, computed on first use
+   private static class CharPoly {
+      static final long[] P = characteristicPolynomial();
+   }
+
+   private static long[] characteristicPolynomial() {
+      WELL512 g = new WELL512(0);
+      int k = R * W;
+      long[] seq = new long[2 * k / 64];
+      for (int i = 0; i < 2 * k; i++) {
+         g.nextValue();
+         seq[i >> 6] |= (long)(g.state[g.state_i] & 1) << (i & 63);
+      }
+      return F2Poly.minimalPolynomial (seq, 2 * k, k);
+   }
+
    /**
     * Constructs a new stream.
     */
@@ -150,10 +181,12 @@ public class WELL512 extends RandomStreamBase {
       stream = new int[R];
       substream = new int[R];
 
-      for(int i = 0; i < R; i++)
-         stream[i] = curr_stream[i];
+      synchronized (WELL512.class) {
+         for(int i = 0; i < R; i++)
+            stream[i] = curr_stream[i];
 
-      advanceSeed(curr_stream, pz);
+         advanceSeed(curr_stream, pz);
+      }
       resetStartStream();
    }
 
@@ -174,10 +207,10 @@ public class WELL512 extends RandomStreamBase {
     * non-zero.
     *  @param seed         array of 16 elements representing the seed
     */
-   public static void setPackageSeed (int seed[]) {
+   public static synchronized void setPackageSeed (int seed[]) {
       verifySeed(seed);
       for(int i = 0; i < R; i++)
-         curr_stream[i] = seed[i];
+         curr_stream[i] = packageSeed[i] = seed[i];
    }
 
    /**
@@ -231,6 +264,29 @@ public class WELL512 extends RandomStreamBase {
       return retour;
    }
 
+   protected int generatorStateSize() {
+      return 1 + 3 * R;
+   }
+
+   protected void saveGeneratorState (int[] s, int off) {
+      System.arraycopy (stream, 0, s, off, R);
+      System.arraycopy (substream, 0, s, off + R, R);
+      System.arraycopy (state, 0, s, off + 2*R, R);
+      s[off + 3*R] = state_i;
+   }
+
+   protected void checkGeneratorState (int[] s, int off) {
+      if (s[off + 3*R] < 0 || s[off + 3*R] >= R)
+         throw new IllegalArgumentException ("Invalid state");
+   }
+
+   protected void restoreGeneratorState (int[] s, int off) {
+      System.arraycopy (s, off, stream, 0, R);
+      System.arraycopy (s, off + R, substream, 0, R);
+      System.arraycopy (s, off + 2*R, state, 0, R);
+      state_i = s[off + 3*R];
+   }
+
    public void resetStartStream() {
       for(int i = 0; i < R; i++)
          substream[i] = stream[i];
@@ -248,6 +304,66 @@ public class WELL512 extends RandomStreamBase {
       resetStartSubstream();
    }
 
+   /**
+    * Advances the state of this stream by `n` steps, without modifying
+    * the beginning of the stream and of the current substream. The next
+    * value returned is then the same as after `n` calls to `nextValue`.
+    *  @param n            the number of steps
+    *  @exception IllegalArgumentException if `n` is negative
+    */
+   public void advanceState (long n) {
+      if (n < 0)
+         throw new IllegalArgumentException ("n must be non-negative");
+      int[] seed = getState();
+      advanceSeed (seed, F2Poly.toInts (F2Poly.zPowMod (CharPoly.P, n), R));
+      for (int i = 0; i < R; i++)
+         state[i] = seed[i];
+      state_i = 0;
+   }
+
+   /**
+    * Sets the initial seed of this stream to the seed of stream number
+    * `k` of the package, that is, @f$kZ@f$ steps ahead of the seed given
+    * by the last call to  #setPackageSeed, or of the default seed. Stream
+    * number `k` is the one that the constructor returns when it is called
+    * for the @f$(k+1)@f$-th time after the package seed was set. The
+    * stream is then reset to its initial seed.
+    *  @param k            the stream number
+    *  @exception IllegalArgumentException if `k` is negative
+    */
+   public void setStreamIndex (long k) {
+      if (k < 0)
+         throw new IllegalArgumentException ("k must be non-negative");
+      int[] seed;
+      synchronized (WELL512.class) {
+         seed = packageSeed.clone();
+      }
+      advanceSeed (seed,
+                   F2Poly.toInts (F2Poly.zPowMod (CharPoly.P, k, LOG_Z), R));
+      for (int i = 0; i < R; i++)
+         stream[i] = seed[i];
+      resetStartStream();
+   }
+
+   /**
+    * Sets the beginning of the current substream to substream number `j`
+    * of this stream, which is @f$jW@f$ steps ahead of the beginning of the
+    * stream, and resets the state to it. Substream number `j` is the one
+    * reached after `j` calls to  #resetNextSubstream.
+    *  @param j            the substream number
+    *  @exception IllegalArgumentException if `j` is negative
+    */
+   public void setSubstreamIndex (long j) {
+      if (j < 0)
+         throw new IllegalArgumentException ("j must be non-negative");
+      int[] seed = stream.clone();
+      advanceSeed (seed,
+                   F2Poly.toInts (F2Poly.zPowMod (CharPoly.P, j, LOG_W), R));
+      for (int i = 0; i < R; i++)
+         substream[i] = seed[i];
+      resetStartSubstream();
+   }
+
    public String toString()  {
       StringBuffer sb = new StringBuffer();
 
@@ -40,6 +40,16 @@ import java.io.Serializable;
  * 19-dimensional vector of 32-bit integers. The output of `nextValue` has 32
  * bits of precision.
  *
+ * Besides the usual jumps to the next substream, the state can be advanced
+ * by an arbitrary number of steps with  #advanceState, and stream number
+ * @f$k@f$ or substream number @f$j@f$ can be reached directly with
+ * #setStreamIndex and  #setSubstreamIndex. To jump @f$n@f$ steps ahead,
+ * these methods compute @f$z^n \bmod P(z)@f$, where @f$P(z)@f$ is the
+ * characteristic polynomial of the generator, of degree 607, and apply
+ * this polynomial to the state by running the generator for 607 steps
+ * (Haramoto et al., 2008), which takes @f$O(607^2 \log n)@f$ bit
+ * operations. The polynomial @f$P(z)@f$ is computed once, on first use.
+ *
  * <div class="SSJ-bigskip"></div>
  */
 public class WELL607 extends WELL607base {
@@ -54,6 +64,9 @@ public class WELL607 extends WELL607base {
                                        0x8B34DE2A, 0x74EC15F5, 0x84EBC216,
                                        0x83EA2C61, 0xE4A83B1E, 0xA5D82CB9,
                                        0x9E1A6C89};
+   // Seed of stream number 0, as given by setPackageSeed
+   private static int[] packageSeed = curr_stream.clone();
+
 
    // P(z) = {0x987b2631, 0x2e33283d, 0x6a398474, 0xe9d24da1,
    //         0x31235359, 0x6a2baf48, 0x7f97efd4, 0x468280f4,
@@ -89,10 +102,12 @@ public class WELL607 extends WELL607base {
       stream = new int[R];
       substream = new int[R];
 
-      for(int i = 0; i < R; i++)
-         stream[i] = curr_stream[i];
+      synchronized (WELL607.class) {
+         for(int i = 0; i < R; i++)
+            stream[i] = curr_stream[i];
 
-      advanceSeed(curr_stream, pz);
+         advanceSeed(curr_stream, pz);
+      }
       resetStartStream();
    }
 
@@ -113,10 +128,10 @@ public class WELL607 extends WELL607base {
     * this integer is the last one, it must not be equal to `0x80000000`.
     *  @param seed         array of 19 elements representing the seed
     */
-   public static void setPackageSeed (int seed[]) {
+   public static synchronized void setPackageSeed (int seed[]) {
       verifySeed(seed);
       for(int i = 0; i < R; i++)
-         curr_stream[i] = seed[i];
+         curr_stream[i] = packageSeed[i] = seed[i];
    }
 
    /**
@@ -165,6 +180,62 @@ public class WELL607 extends WELL607base {
       resetStartSubstream();
    }
 
+   /**
+    * Advances the state of this stream by `n` steps, without modifying
+    * the beginning of the stream and of the current substream. The next
+    * value returned is then the same as after `n` calls to `nextValue`.
+    *  @param n            the number of steps
+    *  @exception IllegalArgumentException if `n` is negative
+    */
+   public void advanceState (long n) {
+      if (n < 0)
+         throw new IllegalArgumentException ("n must be non-negative");
+      advanceLinearState (n);
+   }
+
+   /**
+    * Sets the initial seed of this stream to the seed of stream number
+    * `k` of the package, that is, @f$kZ@f$ steps ahead of the seed given
+    * by the last call to  #setPackageSeed, or of the default seed. Stream
+    * number `k` produces the same values as the stream that the
+    * constructor returns when it is called for the @f$(k+1)@f$-th time
+    * after the package seed was set. The stream is then reset to its
+    * initial seed.
+    *  @param k            the stream number
+    *  @exception IllegalArgumentException if `k` is negative
+    */
+   public void setStreamIndex (long k) {
+      if (k < 0)
+         throw new IllegalArgumentException ("k must be non-negative");
+      int[] seed;
+      synchronized (WELL607.class) {
+         seed = packageSeed.clone();
+      }
+      jumpSeed (seed, k, w + v);
+      for (int i = 0; i < R; i++)
+         stream[i] = seed[i];
+      resetStartStream();
+   }
+
+   /**
+    * Sets the beginning of the current substream to substream number `j`
+    * of this stream, which is @f$jW@f$ steps ahead of the beginning of the
+    * stream, and resets the state to it. Substream number `j` produces the
+    * same values as the one reached after `j` calls to
+    * #resetNextSubstream.
+    *  @param j            the substream number
+    *  @exception IllegalArgumentException if `j` is negative
+    */
+   public void setSubstreamIndex (long j) {
+      if (j < 0)
+         throw new IllegalArgumentException ("j must be non-negative");
+      int[] seed = stream.clone();
+      jumpSeed (seed, j, w);
+      for (int i = 0; i < R; i++)
+         substream[i] = seed[i];
+      resetStartSubstream();
+   }
+
    public String toString()  {
       StringBuffer sb = new StringBuffer();
       if(name == null)
@@ -98,6 +98,55 @@ abstract class WELL607base extends RandomStreamBase
    }
 
 
+   // characteristic polynomial of the recurrence, computed on first use
+   private static long[] charPolynomial;
+
+   // returns the characteristic polynomial, computed from the output of a
+   // copy of rng if this is the first call
+   static synchronized long[] charPoly (WELL607base rng)
+   {
+      if (charPolynomial == null) {
+         WELL607base g = rng.clone ();
+         int k = NUM_BITS - P;
+         long[] seq = new long[2 * k / 64 + 1];
+         for (int i = 0; i < 2 * k; i++)
+            seq[i >> 6] |= (long) (g.nextInt () & 1) << (i & 63);
+         charPolynomial = F2Poly.minimalPolynomial (seq, 2 * k, k);
+      }
+      return charPolynomial;
+   }
+
+   // replaces seed by the state k 2^e steps ahead of it. One step is made
+   // before applying the jump polynomial, so that the result does not
+   // depend on the bit of the state that is not used by the recurrence.
+   void jumpSeed (int[] seed, long k, int e)
+   {
+      if (k == 0)
+         return;
+      long[] poly = charPoly (this);
+      for (int i = 0; i < R; i++)
+         state[i] = seed[i];
+      state_i = 0;
+      nextInt ();
+      int[] x = getState ();
+      advanceSeed (x, F2Poly.toInts (F2Poly.divideByZ (
+                      F2Poly.zPowMod (poly, k, e), poly), R));
+      for (int i = 0; i < R; i++)
+         seed[i] = x[i];
+   }
+
+   // advances the linear part of the state by n steps
+   void advanceLinearState (long n)
+   {
+      if (n == 0)
+         return;
+      int[] seed = getState ();
+      jumpSeed (seed, n, 0);
+      for (int i = 0; i < R; i++)
+         state[i] = seed[i];
+      state_i = 0;
+   }
+
    static void verifySeed (int seed[])
    {
       if (seed.length < R)
@@ -158,6 +207,31 @@ abstract class WELL607base extends RandomStreamBase
       return state[state_i];
    }
 
+   protected int generatorStateSize() {
+      return 1 + 2 * R + BUFFER_SIZE;
+   }
+
+   protected void saveGeneratorState (int[] s, int off) {
+      System.arraycopy (stream, 0, s, off, R);
+      System.arraycopy (substream, 0, s, off + R, R);
+      System.arraycopy (state, 0, s, off + 2*R, BUFFER_SIZE);
+      s[off + 2*R + BUFFER_SIZE] = state_i;
+   }
+
+   protected void checkGeneratorState (int[] s, int off) {
+      int si = s[off + 2*R + BUFFER_SIZE];
+      if (si < 0 || si >= BUFFER_SIZE)
+         throw new IllegalArgumentException ("Invalid state");
+   }
+
+   protected void restoreGeneratorState (int[] s, int off) {
+      int si = s[off + 2*R + BUFFER_SIZE];
+      System.arraycopy (s, off, stream, 0, R);
+      System.arraycopy (s, off + R, substream, 0, R);
+      System.arraycopy (s, off + 2*R, state, 0, BUFFER_SIZE);
+      state_i = si;
+   }
+
 
    public WELL607base clone ()
    {
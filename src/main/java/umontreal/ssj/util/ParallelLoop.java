@@ -0,0 +1,199 @@
+/*
+ * Class:        ParallelLoop
+ * Description:  runs a task on contiguous chunks of indices, in parallel
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a  #Task on the indices @f$0, …, n-1@f$, split into contiguous
+ * chunks that are processed in parallel. The chunk 0 is processed by the
+ * calling thread, and the other ones by the threads of a pool owned by
+ * this object. The pool is created on the first parallel loop and its
+ * threads are reused from one loop to the next; they are daemon threads,
+ * created as needed, and they terminate after being idle for
+ * #KEEP_ALIVE_SECONDS seconds, or when  #shutdown is called.
+ *
+ * Classes that run many parallel loops, such as the sorts of
+ * @ref umontreal.ssj.util.sort, own their  @ref ParallelLoop. The other
+ * ones use the object shared by all of SSJ, returned by  #getDefault.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public class ParallelLoop {
+
+   /**
+    * Number of seconds after which an idle thread of the pool terminates.
+    */
+   public static final int KEEP_ALIVE_SECONDS = 30;
+
+   private static ParallelLoop defaultLoop;
+   private static final AtomicInteger poolNumber = new AtomicInteger();
+
+   private ThreadPoolExecutor executor;
+
+   /**
+    * Work on the chunk number @f$t@f$ of a loop, made of the indices
+    * `lo`, …, `hi-1`.
+    */
+   public abstract static class Task {
+
+      /**
+       * Processes the chunk `t`, made of the indices `lo` to `hi-1`.
+       *  @param t            number of the chunk
+       *  @param lo           first index of the chunk
+       *  @param hi           index following the last one of the chunk
+       */
+      public abstract void run (int t, int lo, int hi);
+   }
+
+   /**
+    * Returns the object shared by all the classes of SSJ that do not own
+    * their  @ref ParallelLoop.
+    *  @return the shared object
+    */
+   public static synchronized ParallelLoop getDefault() {
+      if (defaultLoop == null)
+         defaultLoop = new ParallelLoop();
+      return defaultLoop;
+   }
+
+   /**
+    * Returns the number of chunks used by  #run(int,int,Task) with
+    * `numThreads` threads on `count` indices.
+    *  @param numThreads   number of threads
+    *  @param count        number of indices
+    *  @return the number of chunks
+    */
+   public static int numChunks (int numThreads, int count) {
+      return Math.max (1, Math.min (numThreads, count));
+   }
+
+   /**
+    * Returns the first index of the chunk `t` among `numChunks` chunks
+    * of the indices @f$0, …, \mathtt{count}-1@f$.
+    *  @param t            number of the chunk, from 0 to `numChunks`
+    *  @param numChunks    number of chunks
+    *  @param count        number of indices
+    *  @return the first index of the chunk
+    */
+   public static int chunkStart (int t, int numChunks, int count) {
+      return (int) ((long) t * count / numChunks);
+   }
+
+   /**
+    * Runs `task` on the indices @f$0, …, \mathtt{count}-1@f$, split into
+    * #numChunks(int,int) contiguous chunks of almost equal sizes, with one
+    * thread per chunk, and returns when all the chunks are done. If a
+    * chunk throws an exception, it is thrown again by this method, after
+    * the other chunks are done.
+    *  @param numThreads   number of threads
+    *  @param count        number of indices
+    *  @param task         work on one chunk
+    *  @exception IllegalStateException if the calling thread is
+    * interrupted while it waits for the other chunks
+    */
+   public void run (int numThreads, int count, final Task task) {
+      int nc = numChunks (numThreads, count);
+      if (nc <= 1) {
+         task.run (0, 0, count);
+         return;
+      }
+      ThreadPoolExecutor ex = executor();
+      List<Future<?>> futures = new ArrayList<Future<?>>(nc - 1);
+      for (int t = 1; t < nc; t++) {
+         final int chunk = t;
+         final int lo = chunkStart (t, nc, count);
+         final int hi = chunkStart (t + 1, nc, count);
+         futures.add (ex.submit (new Runnable() {
+            public void run() {
+               task.run (chunk, lo, hi);
+            }
+         }));
+      }
+      Throwable failure = null;
+      try {
+         task.run (0, 0, chunkStart (1, nc, count));
+      } catch (Throwable e) {
+         failure = e;
+      }
+      for (int t = 0; t < futures.size(); t++) {
+         try {
+            futures.get (t).get();
+         } catch (ExecutionException e) {
+            if (failure == null)
+               failure = e.getCause();
+         } catch (InterruptedException e) {
+            for (Future<?> f : futures)
+               f.cancel (true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException ("Interrupted parallel loop", e);
+         }
+      }
+      if (failure instanceof RuntimeException)
+         throw (RuntimeException) failure;
+      if (failure instanceof Error)
+         throw (Error) failure;
+      if (failure != null)
+         throw new IllegalStateException (failure);
+   }
+
+   /**
+    * Terminates the threads of the pool, after the loops in progress.
+    * A loop run afterward creates a new pool.
+    */
+   public synchronized void shutdown() {
+      if (executor != null) {
+         executor.shutdown();
+         executor = null;
+      }
+   }
+
+   private synchronized ThreadPoolExecutor executor() {
+      if (executor == null) {
+         final String prefix = "ssj-parallel-" + poolNumber.incrementAndGet()
+                               + "-";
+         executor = new ThreadPoolExecutor (0, Integer.MAX_VALUE,
+            KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+            new SynchronousQueue<Runnable>(), new ThreadFactory() {
+               private int n = 0;
+
+               public synchronized Thread newThread (Runnable r) {
+                  Thread t = new Thread (r, prefix + (++n));
+                  t.setDaemon (true);
+                  return t;
+               }
+            });
+      }
+      return executor;
+   }
+}
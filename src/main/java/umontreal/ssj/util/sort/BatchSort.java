@@ -24,6 +24,9 @@
 package umontreal.ssj.util.sort;
  import java.util.Comparator;
  import java.util.Arrays;
+ import java.util.ArrayList;
+ import java.util.List;
+ import umontreal.ssj.util.ParallelLoop;
 
 /**
  * This class implements a \ref MultiDimSortComparable that performs a batch
@@ -69,15 +72,38 @@ package umontreal.ssj.util.sort;
  * is again @f$n_{j+1} \cdots n_{d-1}@f$. When @f$n < p@f$, some batches (the
  * last ones) have fewer objects than the others.
  *
+ * This class also implements  @ref MultiDimIndexSort, to sort the numbers
+ * of points stored in a flat array of `double` in the same way, without
+ * moving the points.
+ *
+ * Arrays of `double` (and flat arrays of points) are sorted without
+ * comparators: the coordinate used at each level is copied in an array of
+ * keys, which is permuted together with an array of point numbers. At each
+ * level but the last one, each batch is only split at the boundaries of
+ * the batches of the next level, by selection (quickselect), and the
+ * batches of the last level are sorted. The rows themselves are moved only
+ * once, at the end. The work arrays are kept in this object and reused,
+ * so a BatchSort object must not be used by several threads at the same
+ * time. Large arrays can be sorted in parallel; see  #setNumThreads.
+ * Points with equal coordinates at some level may end up in a different
+ * order than with the sort of  @ref MultiDimComparable objects.
+ *
  * <div class="SSJ-bigskip"></div>
  */
-public class BatchSort<T extends MultiDimComparable<? super T>> implements MultiDimSortComparable<T> {
+public class BatchSort<T extends MultiDimComparable<? super T>>
+      implements MultiDimSortComparable<T>, MultiDimIndexSort {
    int dimension;        // Number of coordinates.
    boolean useExponents; // True if we use proportion exponents.
    int[] batchNumbers;   // Number of batches n_j for each dimension.
    double[] batchExponents;  // The alpha_j.
    int batchProduct = 1; // Product p of numbers in batchNumbers.
    int nSaved = 0;       // Number n of objects last time sort was called.
+   int numThreads = 1;
+   ParallelLoop parallelLoop = ParallelLoop.getDefault();
+   // Reused by the sorts of double: keys, permutation and rows.
+   private double[] keys;
+   private int[] perm;
+   private double[][] rows;
 
    /**
     * Constructs a BatchSort that will always use the (fixed) batch
@@ -176,6 +202,46 @@ public class BatchSort<T extends MultiDimComparable<? super T>> implements Multi
 			return batchProduct;
    }
 
+   /**
+    * Sets the number of threads used to sort arrays of `double` with at
+    * least @f$2^{14}@f$ elements. The result of a sort does not depend on
+    * the number of threads, except for the relative order of points that
+    * have equal coordinates. The default is 1.
+    *  @param numThreads   number of threads
+    */
+   public void setNumThreads (int numThreads) {
+      if (numThreads < 1)
+         throw new IllegalArgumentException ("numThreads < 1");
+      this.numThreads = numThreads;
+   }
+
+   /**
+    * Returns the number of threads used to sort large arrays.
+    */
+   public int getNumThreads() {
+      return numThreads;
+   }
+
+   /**
+    * Sets the object that runs the parallel parts of the sorts, and
+    * whose threads are reused from one sort to the next. The default is
+    * the object returned by
+    * @ref umontreal.ssj.util.ParallelLoop.getDefault().
+    *  @param loop         parallel loop used by the sorts
+    */
+   public void setParallelLoop (ParallelLoop loop) {
+      if (loop == null)
+         throw new IllegalArgumentException ("loop is null");
+      parallelLoop = loop;
+   }
+
+   /**
+    * Returns the object that runs the parallel parts of the sorts.
+    */
+   public ParallelLoop getParallelLoop() {
+      return parallelLoop;
+   }
+
    /**
     * Returns the current vector of batch exponents @f$\alpha_j@f$.
     */
@@ -222,24 +288,13 @@ public void sort (T[] a, int iMin, int iMax) {
     * Sorts the subarray `a[iMin..iMax-1]` using this batch sort.
     */
    public void sort (double[][] a, int iMin, int iMax) {
-      if (iMin+1 == iMax) return;
-      if (useExponents && (nSaved != iMax-iMin))
-				 setBatchNumbers (iMax-iMin);
-      int i1, i2; 
-			int bsize = iMax-iMin;  // Current batch size. At level 0: single batch.
-      for (int j = 0; (j < dimension) && (bsize > 1); ++j) {
-         DoubleArrayComparator compar = new DoubleArrayComparator (j);
-         // Sort all the batches (entire array) according to coordinate j.
-         if (batchNumbers[j]==1) continue;  // Can skip the sort for this dim j.
-         i1 = iMin;
-         while (i1 < iMax) {
-				    i2 = i1 + bsize;  
-						if (i2 > iMax) i2 = iMax;
-            Arrays.sort (a, i1, i2, compar);
-            i1 += bsize;
-         }
-         bsize = (int) Math.ceil (bsize / batchNumbers[j]);  // New batch size.
-      }
+      if (iMax - iMin <= 1) return;
+      keys = IndexSorts.ensureCapacity (keys, iMax);
+      perm = IndexSorts.ensureCapacity (perm, iMax);
+      for (int i = iMin; i < iMax; ++i)
+         perm[i] = i;
+      batchSort (IndexSorts.rowLoader (a, perm, keys), perm, iMin, iMax);
+      rows = IndexSorts.permuteRows (a, perm, iMin, iMax, rows);
    }
 
    /**
@@ -249,4 +304,94 @@ public void sort (T[] a, int iMin, int iMax) {
       sort (a, 0, a.length);
    }
 
+   /**
+    * Sorts the point numbers `index[iMin..iMax-1]` using this batch sort,
+    * as  #sort(double[][],int,int) would sort the points. See
+    * @ref MultiDimIndexSort.
+    */
+   public void sortIndex (double[] points, int dim, int[] index,
+                          int iMin, int iMax) {
+      IndexSorts.checkArguments (points, dim, dimension, index, iMin, iMax);
+      if (iMax - iMin <= 1) return;
+      keys = IndexSorts.ensureCapacity (keys, iMax);
+      batchSort (IndexSorts.flatLoader (points, dim, index, keys), index,
+                 iMin, iMax);
+   }
+
+   // Batch sort of index[iMin..iMax-1], whose keys are given by loader.
+   // At each level but the last, the batches are only split at the
+   // boundaries of the next batches, by selection; at the last level, they
+   // are sorted.
+   private void batchSort (IndexSorts.KeyLoader loader, int[] index,
+                           int iMin, int iMax) {
+      if (useExponents && (nSaved != iMax-iMin))
+         setBatchNumbers (iMax-iMin);
+      int[] coord = new int[dimension];     // Coordinate of each level.
+      int[] size = new int[dimension + 1];  // Batch size at each level.
+      int numLevels = 0;
+      int bsize = iMax-iMin;  // Current batch size. At level 0: single batch.
+      for (int j = 0; (j < dimension) && (bsize > 1); ++j) {
+         if (batchNumbers[j]==1) continue;  // Can skip the sort for this dim j.
+         coord[numLevels] = j;
+         size[numLevels++] = bsize;
+         bsize = (int) Math.ceil (bsize / batchNumbers[j]);  // New batch size.
+         size[numLevels] = bsize;
+      }
+      int threads = IndexSorts.threadsFor (numThreads, iMax - iMin);
+      for (int l = 0; l < numLevels; ++l) {
+         IndexSorts.load (parallelLoop, loader, coord[l], iMin, iMax, threads);
+         sortBatches (index, iMin, iMax, size[l],
+                      l == numLevels - 1 ? 0 : size[l + 1], threads);
+      }
+   }
+
+   // Splits each batch of size bsize at the multiples of step (from iMin),
+   // or sorts it if step = 0.
+   private void sortBatches (final int[] index, final int iMin,
+                             final int iMax, final int bsize, final int step,
+                             int threads) {
+      final double[] k = keys;
+      int numBatches = (iMax - iMin + bsize - 1) / bsize;
+      int depth = IndexSorts.splitDepth (threads);
+      if (threads <= 1 || numBatches >= (1 << depth)) {
+         parallelLoop.run (threads, numBatches,
+            new ParallelLoop.Task() {
+            public void run (int t, int lo, int hi) {
+               for (int b = lo; b < hi; ++b) {
+                  int i1 = iMin + b * bsize;
+                  int i2 = Math.min (i1 + bsize, iMax);
+                  if (step == 0)
+                     IndexSorts.sort (k, index, i1, i2);
+                  else
+                     IndexSorts.multiSelect (k, index, i1, i2, iMin, step);
+               }
+            }
+         });
+         return;
+      }
+      // Few large batches: split them first, to get enough work.
+      final List<int[]> ranges = new ArrayList<int[]>();
+      for (int i1 = iMin; i1 < iMax; i1 += bsize) {
+         int i2 = Math.min (i1 + bsize, iMax);
+         if (step == 0)
+            IndexSorts.partitionForSort (k, index, i1, i2, depth, ranges);
+         else
+            IndexSorts.multiSelect (k, index, i1, i2, iMin, step, depth,
+                                    ranges);
+      }
+      parallelLoop.run (threads, ranges.size(),
+         new ParallelLoop.Task() {
+         public void run (int t, int lo, int hi) {
+            for (int r = lo; r < hi; ++r) {
+               int[] range = ranges.get (r);
+               if (step == 0)
+                  IndexSorts.sort (k, index, range[0], range[1]);
+               else
+                  IndexSorts.multiSelect (k, index, range[0], range[1], iMin,
+                                          step);
+            }
+         }
+      });
+   }
+
 }
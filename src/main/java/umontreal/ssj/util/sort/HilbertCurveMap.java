@@ -117,10 +117,9 @@ public class HilbertCurveMap {
         s_to_p = new int[maxlength];
         p_to_J = new int[maxlength];
         parity = new int[maxlength];
-        bit    = new int[maxnbits];
-        circshift = new int[maxlength][maxnbits];
-        bitof     = new int[maxlength][maxnbits];
-        //  It seems that maxnbits  should be the dimension d !!!
+        bit    = new int[dimension];
+        circshift = new int[maxlength][dimension];
+        bitof     = new int[maxlength][dimension];
 
         int i, b;
 				int n = dimension;   // We use n to avoid changing this code.
@@ -436,6 +435,74 @@ public long coordinatesToIndex (int a[]) {
         return rl;
   }
 
+    /**
+     * Returns the Hilbert index of the subcube that contains the point
+     * `p[]`, whose real-valued coordinates are in @f$[0,1)@f$. This gives
+     * the same value as  #pointToCoordinates followed by
+     * #coordinatesToIndex, but the index is computed directly from the bits
+     * of the integer coordinates, with bit operations instead of tables,
+     * and without creating any object. This method can be invoked
+     * concurrently by different threads.
+     *  @param p            point of dimension at least @f$d@f$
+     *  @return the Hilbert index of the subcube that contains `p`
+     */
+    public long pointToIndex (double[] p) {
+       return pointToIndex (p, 0);
+    }
+
+    /**
+     * Same as  #pointToIndex(double[]), for the point whose coordinates
+     * are `p[offset]`, …, `p[offset+d-1]`.
+     *  @param p            array that contains the point
+     *  @param offset       position of the first coordinate in `p`
+     *  @return the Hilbert index of the subcube that contains the point
+     */
+    public long pointToIndex (double[] p, int offset) {
+       int n = dimension;
+       // Bit q of coordinate b goes to bit q*n + n-1-b of t: the n bits
+       // of t at q*n are the bits q of all the coordinates (alpha).
+       long t = 0;
+       for (int b = 0; b < n; ++b) {
+          int c = (int) (p[offset + b] * (1 << m));  // Multiply by 2^m.
+          for (int q = 0; q < m; ++q)
+             t |= (long) ((c >> q) & 1) << (q * n + n - 1 - b);
+       }
+       return transposedToIndex (t);
+    }
+
+    // The algorithm of coordinatesToIndex, for the alphas packed in t, with
+    // the tables replaced by bit operations: s_to_p is a prefix xor (Gray
+    // decoding), circshift a rotation, parity a bit count, and p_to_J is
+    // given by the lowest bit that differs from bit 0.
+    private long transposedToIndex (long t) {
+       int n = dimension;
+       int mask = (int) ((1L << n) - 1);
+       int omega = 0;
+       int Jsum = 0;
+       long rl = 0;
+       for (int q = m - 1; q >= 0; --q) {
+          int sigma = ((int) (t >>> (q * n)) & mask) ^ omega;
+          if (Jsum != 0)
+             sigma = ((sigma << Jsum) | (sigma >>> (n - Jsum))) & mask;
+          int rho = sigma;
+          for (int s = 1; s < n; s <<= 1)
+             rho ^= rho >>> s;
+          // Position of bit J, from the low-order end.
+          int k = Integer.numberOfTrailingZeros (rho ^ (-(rho & 1) & mask))
+                  & 31;
+          int tau = sigma ^ 1;
+          tau ^= (Integer.bitCount (tau) & 1) << k;
+          if (Jsum != 0)
+             tau = ((tau >>> Jsum) | (tau << (n - Jsum))) & mask;
+          Jsum += n - 1 - k;
+          if (Jsum >= n)
+             Jsum -= n;
+          omega ^= tau;
+          rl = (rl << n) | rho;
+       }
+       return rl;
+    }
+
     /**
      * Takes in `p[]` a point with real-valued coordinates and places in
      * `a[]` the integer coordinates of the corresponding subcube. The
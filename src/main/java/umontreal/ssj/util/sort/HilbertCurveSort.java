@@ -34,6 +34,7 @@
 package umontreal.ssj.util.sort;
   import java.util.Comparator;
   import java.util.Arrays;
+  import umontreal.ssj.util.ParallelLoop;
 
 /**
  * This class implements a  @ref MultiDimSort01<T extends MultiDim01> that can sort an array of
@@ -93,31 +94,57 @@ package umontreal.ssj.util.sort;
  * 1991.
  *
  * To sort a set of @f$n@f$ points in @f$[0,1)^d@f$, we first compute the
- * integer coordinates and then the Hilbert index of the subcube for each
- * point, then sort the points by order of Hilbert index. For the latter, we
- * construct an index of type `long[n][2]` whose first coordinate is the
- * point number and the second is its Hilbert index. The method
- * #sortIndexOfLong2 is provided to sort such an index by its second
- * coordinate. Points having the same Hilbert index are ordered arbitrarily.
- * After this sort, the first coordinate at position @f$i@f$ in the index is
- * the (original) number of the point that comes in position @f$i@f$ when the
- * points are sorted by Hilbert index. This index is used to reorder the
- * original points. It can be accessed (after each sort) via the method
- * #getIndexAfterSort(). This access can be convenient for example in case we
- * sort a `double[][]` array with the Hilbert sort and want to apply the
- * corresponding permutation afterward to another array of objects. Certain
- * subclasses of HilbertCurveSort use this.
+ * Hilbert index of the subcube of each point, with
+ * HilbertCurveMap.pointToIndex, then sort the points by order of Hilbert
+ * index. The indices are sorted as 64-bit keys by a least-significant-digit
+ * radix sort, which carries along the permutation of the points. This sort
+ * is stable: points having the same Hilbert index keep their relative
+ * order. The keys, the permutation and the work arrays are kept in this
+ * object and reused by the next sorts, so that sorting repeatedly arrays of
+ * the same size, as in array-RQMC, allocates no new arrays. For this reason, a
+ * HilbertCurveSort object must not be used by several threads at the same
+ * time. For large arrays, the Hilbert indices can be computed and the keys
+ * sorted in parallel; see  #setNumThreads.
+ *
+ * After a sort of the positions `iMin` to `iMax-1`, the permutation made by
+ * the sort can be accessed via  #getPermutation(): the element at position
+ * @f$i@f$ after the sort was at position `getPermutation()[i]` before the
+ * sort. This can be convenient for example in case we sort a `double[][]`
+ * array with the Hilbert sort and want to apply the corresponding
+ * permutation afterward to another array of objects. The same information
+ * is available as an index of type `long[][2]`, via
+ * #getIndexAfterSort(). Certain subclasses of HilbertCurveSort use this.
+ *
+ * This class also implements  @ref MultiDimIndexSort, to sort the numbers
+ * of points stored in a flat array of `double` in the same way, without
+ * moving the points.
  *
  * <div class="SSJ-bigskip"></div>
  */
-public class HilbertCurveSort implements MultiDimSort01<MultiDim01> {
+public class HilbertCurveSort
+      implements MultiDimSort01<MultiDim01>, MultiDimIndexSort {
+
+    // Arrays of at least this size are sorted in parallel, when allowed.
+    private static final int PARALLEL_THRESHOLD = 1 << 15;
+    // Smaller subarrays are sorted by insertion.
+    private static final int INSERTION_THRESHOLD = 48;
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
 
     int dimension;  // Dimension d of the points used for the sort. 
-    long[][] indexForSort;  // This is the index computed by the last Hilbert sort,
-		          // sorted by the second coordinate. The order of the first coordinates 
-							// gives the permutation made by that sort. 
-							// This index is recomputed each time we sort.
     HilbertCurveMap hcMap; // The map used for sorting
+    int numThreads = 1;
+    ParallelLoop parallelLoop = ParallelLoop.getDefault();
+
+    // Reused by the sorts: keys[i] is the Hilbert index of the element at
+    // position i, which was at position perm[i] before the sort.
+    private long[] keys = new long[0];
+    private int[] perm = new int[0];
+    private long[] keyBuf = new long[0];
+    private int[] permBuf = new int[0];
+    private Object[] rowBuf = new Object[0];
+    private int[][] counts = new int[1][RADIX];  // Radix counts per chunk.
+    private int lastMin, lastMax;   // Range of the last sort.
 
    /**
     * Constructs a HilbertCurveSort object that will use the first
@@ -143,26 +170,58 @@ public class HilbertCurveSort implements MultiDimSort01<MultiDim01> {
       this.dimension = map.dimension();
     }
 
+    /**
+     * Sets the number of threads used to sort arrays of at least
+     * @f$2^{15}@f$ elements. The result of a sort does not depend on the
+     * number of threads. The default is 1.
+     *  @param numThreads   number of threads
+     */
+    public void setNumThreads (int numThreads) {
+       if (numThreads < 1)
+          throw new IllegalArgumentException ("numThreads < 1");
+       this.numThreads = numThreads;
+    }
+
+    /**
+     * Returns the number of threads used to sort large arrays.
+     */
+    public int getNumThreads() {
+       return numThreads;
+    }
+
+    /**
+     * Sets the object that runs the parallel parts of the sorts, and
+     * whose threads are reused from one sort to the next. The default is
+     * the object returned by
+     * @ref umontreal.ssj.util.ParallelLoop.getDefault().
+     *  @param loop         parallel loop used by the sorts
+     */
+    public void setParallelLoop (ParallelLoop loop) {
+       if (loop == null)
+          throw new IllegalArgumentException ("loop is null");
+       parallelLoop = loop;
+    }
+
+    /**
+     * Returns the object that runs the parallel parts of the sorts.
+     */
+    public ParallelLoop getParallelLoop() {
+       return parallelLoop;
+    }
+
     /**
      * Sorts the subarray `a[iMin..iMax-1]` with this Hilbert curve sort.
-     * The type `T` must actually be  MultiDimComparable01. This is
-     * verified in the method.
      */
     @Override
-    public void sort (MultiDim01[] a, int iMin, int iMax) {
-			 // Copy the (0,1)^d transformations of the states in array b.
-       double b[][] = new double[iMax][dimension];
-       for (int i = iMin; i < iMax; ++i)
-          b[i] = a[i].getPoint();
-			 // Sort this array b by Hilbert sort.  The index 
-			 // indexForSort will contain the permutation made by that sort.
-       sort (b, iMin, iMax);
-       // Now use indexForSort to sort a.
-       // We do not want to clone all the objects in a, 
-       // but only the array of pointers. 
-       MultiDim01[] aclone = a.clone();    // new Object[iMax];
-       for (int i = iMin; i < iMax; ++i)
-           a[i] = aclone[(int) indexForSort[i][0]];
+    public void sort (final MultiDim01[] a, int iMin, int iMax) {
+       prepare (iMin, iMax);
+       computeKeys (iMin, iMax, new KeyFunction() {
+          long key (int i) {
+             return hcMap.pointToIndex (a[i].getPoint());
+          }
+       });
+       sortKeys (iMin, iMax);
+       permute (a, iMin, iMax);
     }
 
     /**
@@ -176,35 +235,70 @@ public class HilbertCurveSort implements MultiDimSort01<MultiDim01> {
     /**
      * Sort the array with Hilbert sort.
      */
-    public void sort (double[][] a, int iMin, int iMax) {
-        if (iMin+1 == iMax) return;
-        indexForSort = new long[iMax][2];    // Index used for sort.
-        int[] icoord = new int[dimension];   // To store integer coordinates.
-        for (int i=0; i < a.length; ++i) {   
-				    // Transform to integer coordinates.
-            hcMap.pointToCoordinates (a[i], icoord);
-            indexForSort[i][0] = i;
-            indexForSort[i][1] = hcMap.coordinatesToIndex (icoord);  // Hilbert index of this point. 
-        }
-        // Sort the index based on the positions on the Hilbert curve
-        sortIndexOfLong2 (indexForSort, iMin, iMax);
-        // Now use the sorted index to sort a.
-        double[][] aclone = a.clone();       // Save copy of a before the sort.
-        for (int i= iMin; i< iMax; ++i) {
-            a[i] = aclone[(int) indexForSort[i][0]];
-        }
-    }
-public void sort (double[][] a) {
+    public void sort (final double[][] a, int iMin, int iMax) {
+       prepare (iMin, iMax);
+       computeKeys (iMin, iMax, new KeyFunction() {
+          long key (int i) {
+             return hcMap.pointToIndex (a[i]);
+          }
+       });
+       sortKeys (iMin, iMax);
+       permute (a, iMin, iMax);
+    }
+
+    public void sort (double[][] a) {
        sort (a, 0, a.length);
     }
 
-/**
- * Returns the index computed by the last sort, which is sorted by the second
- * coordinate. It contains (in the first coordinates of its entries) the
- * permutation made by that sort.
- */
-public long[][] getIndexAfterSort () {
-       return indexForSort;
+    /**
+     * Sorts the point numbers `index[iMin..iMax-1]` by the Hilbert index
+     * of their points, stably. See  @ref MultiDimIndexSort. After the sort,
+     * #getPermutation() gives the positions in `index` before the sort.
+     */
+    public void sortIndex (final double[] points, final int dim,
+                           final int[] index, int iMin, int iMax) {
+       IndexSorts.checkArguments (points, dim, dimension, index, iMin, iMax);
+       prepare (iMin, iMax);
+       computeKeys (iMin, iMax, new KeyFunction() {
+          long key (int i) {
+             return hcMap.pointToIndex (points, index[i] * dim);
+          }
+       });
+       sortKeys (iMin, iMax);
+       for (int i = iMin; i < iMax; ++i)
+          permBuf[i] = index[perm[i]];
+       System.arraycopy (permBuf, iMin, index, iMin, iMax - iMin);
+    }
+
+    /**
+     * Returns the permutation made by the last sort of the positions
+     * `iMin` to `iMax-1`: for @f$i@f$ in this range, the element at
+     * position @f$i@f$ after the sort was at position
+     * `getPermutation()[i]` before the sort. This array is reused by the
+     * next sorts; it may be longer than `iMax`, and its other entries are
+     * meaningless.
+     */
+    public int[] getPermutation() {
+       return perm;
+    }
+
+    /**
+     * Returns the index computed by the last sort, of length `iMax`, which
+     * is sorted by the second coordinate for the positions `iMin` to
+     * `iMax-1`. For these positions, it contains the permutation made by
+     * the sort in the first coordinates of its entries, and the Hilbert
+     * indices in the second coordinates. The other entries contain their
+     * own position and 0. This index is created at each call; see
+     * #getPermutation() for a version that creates no array.
+     */
+    public long[][] getIndexAfterSort () {
+       long[][] index = new long[lastMax][2];
+       for (int i = 0; i < lastMax; ++i) {
+          boolean sorted = i >= lastMin;
+          index[i][0] = sorted ? perm[i] : i;
+          index[i][1] = sorted ? keys[i] : 0;
+       }
+       return index;
     }
 
     /**
@@ -221,6 +315,131 @@ public long[][] getIndexAfterSort () {
        return hcMap;
     }
 
+    // Makes sure the work arrays can hold the positions up to iMax - 1.
+    private void prepare (int iMin, int iMax) {
+       if (keys.length < iMax) {
+          int len = Math.max (iMax, keys.length + (keys.length >> 1));
+          keys = new long[len];
+          perm = new int[len];
+          keyBuf = new long[len];
+          permBuf = new int[len];
+       }
+       lastMin = iMin;
+       lastMax = iMax;
+    }
+
+    // Hilbert index of the element at position i.
+    private abstract static class KeyFunction {
+       abstract long key (int i);
+    }
+
+    private int numChunks (int count) {
+       return count < PARALLEL_THRESHOLD ? 1 : 
+              ParallelLoop.numChunks (numThreads, count);
+    }
+
+    private void computeKeys (final int iMin, int iMax, final KeyFunction f) {
+       final long[] k = keys;
+       final int[] p = perm;
+       ParallelLoop.Task task = new ParallelLoop.Task() {
+          public void run (int t, int lo, int hi) {
+             for (int i = iMin + lo; i < iMin + hi; ++i) {
+                k[i] = f.key (i);
+                p[i] = i;
+             }
+          }
+       };
+       int count = iMax - iMin;
+       parallelLoop.run (numChunks (count), count, task);
+    }
+
+    // Reorders the elements iMin..iMax-1 of a according to perm.
+    private void permute (Object[] a, int iMin, int iMax) {
+       if (rowBuf.length < iMax)
+          rowBuf = new Object[keys.length];
+       System.arraycopy (a, iMin, rowBuf, iMin, iMax - iMin);
+       for (int i = iMin; i < iMax; ++i)
+          a[i] = rowBuf[perm[i]];
+       Arrays.fill (rowBuf, iMin, iMax, null);
+    }
+
+    // Stable sort of keys[iMin..iMax-1], along with perm.
+    private void sortKeys (int iMin, int iMax) {
+       int count = iMax - iMin;
+       if (count < INSERTION_THRESHOLD) {
+          insertionSort (iMin, iMax);
+          return;
+       }
+       int numBits = Math.min (63, hcMap.dimension() * hcMap.getM());
+       int nc = numChunks (count);
+       if (counts.length < nc)
+          counts = new int[nc][RADIX];
+       for (int shift = 0; shift < numBits; shift += RADIX_BITS) {
+          if (radixPass (iMin, count, shift, nc, counts)) {
+             long[] k = keys;  keys = keyBuf;  keyBuf = k;
+             int[] p = perm;  perm = permBuf;  permBuf = p;
+          }
+       }
+    }
+
+    // One pass of the radix sort on the digit at shift, from (keys, perm)
+    // to (keyBuf, permBuf), in nc chunks. Returns false, without moving
+    // anything, if all the keys have the same digit.
+    private boolean radixPass (final int iMin, int count, final int shift,
+                               int nc, final int[][] counts) {
+       final long[] k = keys, kOut = keyBuf;
+       final int[] p = perm, pOut = permBuf;
+       ParallelLoop.Task histogram = new ParallelLoop.Task() {
+          public void run (int t, int lo, int hi) {
+             int[] c = counts[t];
+             Arrays.fill (c, 0);
+             for (int i = iMin + lo; i < iMin + hi; ++i)
+                ++c[(int) (k[i] >>> shift) & (RADIX - 1)];
+          }
+       };
+       parallelLoop.run (nc, count, histogram);
+       // Starting positions, digit by digit, then chunk by chunk.
+       int pos = iMin;
+       for (int digit = 0; digit < RADIX; ++digit) {
+          int total = 0;
+          for (int t = 0; t < nc; ++t) {
+             int c = counts[t][digit];
+             counts[t][digit] = pos + total;
+             total += c;
+          }
+          if (total == count)
+             return false;
+          pos += total;
+       }
+       ParallelLoop.Task scatter = new ParallelLoop.Task() {
+          public void run (int t, int lo, int hi) {
+             int[] next = counts[t];
+             for (int i = iMin + lo; i < iMin + hi; ++i) {
+                int j = next[(int) (k[i] >>> shift) & (RADIX - 1)]++;
+                kOut[j] = k[i];
+                pOut[j] = p[i];
+             }
+          }
+       };
+       parallelLoop.run (nc, count, scatter);
+       return true;
+    }
+
+    private void insertionSort (int iMin, int iMax) {
+       for (int i = iMin + 1; i < iMax; ++i) {
+          long key = keys[i];
+          int pi = perm[i];
+          int j = i - 1;
+          while (j >= iMin && keys[j] > key) {
+             keys[j + 1] = keys[j];
+             perm[j + 1] = perm[j];
+             --j;
+          }
+          keys[j + 1] = key;
+          perm[j + 1] = pi;
+       }
+    }
+
   // Compares two arrays of long according to their second coordinate.
   // This is used to sort an index of type long[][2] by the second coordinate.
   // The permutation can be recovered in the first coordinate.
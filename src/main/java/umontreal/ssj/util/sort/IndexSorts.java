@@ -0,0 +1,290 @@
+/*
+ * Class:        IndexSorts
+ * Description:  Sorts of point numbers by one coordinate of flat points
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2014  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+package umontreal.ssj.util.sort;
+ import java.util.ArrayList;
+ import java.util.List;
+ import umontreal.ssj.util.ParallelLoop;
+
+/*
+ * Tools for the batch and split sorts on primitive arrays: the point
+ * numbers (or row numbers) are permuted together with a column of keys,
+ * one coordinate of the points, loaded once per level of the sort. Batch
+ * boundaries are obtained by selection rather than by full sorts.
+ */
+final class IndexSorts {
+
+   private IndexSorts() {}
+
+   // Subarrays smaller than this are sorted by insertion.
+   private static final int INSERTION_THRESHOLD = 24;
+
+   // Sorts of at least this many elements are done in parallel, when
+   // allowed.
+   static final int PARALLEL_THRESHOLD = 1 << 14;
+
+   // Independent ranges per thread when the work is split for threads.
+   private static final int RANGES_PER_THREAD = 4;
+
+   // Loads coordinate j of the elements at positions lo..hi-1 in keys.
+   abstract static class KeyLoader {
+      abstract void load (int j, int lo, int hi);
+   }
+
+   // Keys of the rows a[index[i]].
+   static KeyLoader rowLoader (final double[][] a, final int[] index,
+                               final double[] keys) {
+      return new KeyLoader() {
+         void load (int j, int lo, int hi) {
+            for (int i = lo; i < hi; i++)
+               keys[i] = a[index[i]][j];
+         }
+      };
+   }
+
+   // Keys of the points index[i] stored in a flat array.
+   static KeyLoader flatLoader (final double[] points, final int dim,
+                                final int[] index, final double[] keys) {
+      return new KeyLoader() {
+         void load (int j, int lo, int hi) {
+            loadKeys (points, dim, j, index, keys, lo, hi);
+         }
+      };
+   }
+
+   // Number of threads to use for n elements.
+   static int threadsFor (int numThreads, int n) {
+      return n < PARALLEL_THRESHOLD ? 1 : numThreads;
+   }
+
+   // Depth of the sequential splits that give enough independent ranges
+   // for numThreads threads.
+   static int splitDepth (int numThreads) {
+      return 32 - Integer.numberOfLeadingZeros (
+                     RANGES_PER_THREAD * numThreads - 1);
+   }
+
+   // Loads coordinate j at positions lo..hi-1, with numThreads threads
+   // of loop.
+   static void load (ParallelLoop loop, final KeyLoader loader, final int j,
+                     final int lo, int hi, int numThreads) {
+      loop.run (threadsFor (numThreads, hi - lo), hi - lo,
+         new ParallelLoop.Task() {
+            public void run (int t, int a, int b) {
+               loader.load (j, lo + a, lo + b);
+            }
+         });
+   }
+
+   // Permutes keys[lo..hi-1] and index[lo..hi-1] so that the element at
+   // position k is where a sort would put it, the elements before it are
+   // not larger, and those after it are not smaller.
+   static void select (double[] keys, int[] index, int lo, int hi, int k) {
+      while (hi - lo > INSERTION_THRESHOLD) {
+         int p = partition (keys, index, lo, hi);
+         if (k < p)
+            hi = p;
+         else if (k > p)
+            lo = p + 1;
+         else
+            return;
+      }
+      insertionSort (keys, index, lo, hi);
+   }
+
+   // Cuts are the positions base + c*step strictly between lo and hi.
+   private static int firstCut (int lo, int base, int step) {
+      return (lo - base) / step + 1;
+   }
+
+   private static int lastCut (int hi, int base, int step) {
+      return (hi - 1 - base) / step;
+   }
+
+   // Selects the elements of keys[lo..hi-1] (and index) at all the cuts,
+   // so that each segment between two cuts holds the elements that a sort
+   // would put there, in arbitrary order. Requires lo >= base.
+   static void multiSelect (double[] keys, int[] index, int lo, int hi,
+                            int base, int step) {
+      int c1 = firstCut (lo, base, step), c2 = lastCut (hi, base, step);
+      if (c1 > c2)
+         return;
+      int k = base + ((c1 + c2) >>> 1) * step;
+      select (keys, index, lo, hi, k);
+      multiSelect (keys, index, lo, k, base, step);
+      multiSelect (keys, index, k, hi, base, step);
+   }
+
+   // Same as multiSelect, but stops after depth levels of cuts and adds
+   // the ranges {lo, hi} left to process to out, from left to right.
+   static void multiSelect (double[] keys, int[] index, int lo, int hi,
+                            int base, int step, int depth, List<int[]> out) {
+      int c1 = firstCut (lo, base, step), c2 = lastCut (hi, base, step);
+      if (c1 > c2)
+         return;
+      if (depth == 0) {
+         out.add (new int[] {lo, hi});
+         return;
+      }
+      int k = base + ((c1 + c2) >>> 1) * step;
+      select (keys, index, lo, hi, k);
+      multiSelect (keys, index, lo, k, base, step, depth - 1, out);
+      multiSelect (keys, index, k, hi, base, step, depth - 1, out);
+   }
+
+   // Partitions keys[lo..hi-1] (and index) for depth levels, as quicksort
+   // does, and adds the ranges {lo, hi} left to sort to out.
+   static void partitionForSort (double[] keys, int[] index, int lo, int hi,
+                                 int depth, List<int[]> out) {
+      if (hi - lo <= 1)
+         return;
+      if (depth == 0 || hi - lo <= INSERTION_THRESHOLD) {
+         out.add (new int[] {lo, hi});
+         return;
+      }
+      int p = partition (keys, index, lo, hi);
+      partitionForSort (keys, index, lo, p, depth - 1, out);
+      partitionForSort (keys, index, p + 1, hi, depth - 1, out);
+   }
+
+   // Sorts keys[lo..hi-1] (and index), with numThreads threads of loop.
+   static void sort (ParallelLoop loop, final double[] keys,
+                     final int[] index, int lo, int hi, int numThreads) {
+      numThreads = threadsFor (numThreads, hi - lo);
+      if (numThreads <= 1) {
+         sort (keys, index, lo, hi);
+         return;
+      }
+      final List<int[]> ranges = new ArrayList<int[]>();
+      partitionForSort (keys, index, lo, hi, splitDepth (numThreads), ranges);
+      loop.run (numThreads, ranges.size(),
+         new ParallelLoop.Task() {
+            public void run (int t, int a, int b) {
+               for (int r = a; r < b; r++)
+                  sort (keys, index, ranges.get (r)[0], ranges.get (r)[1]);
+            }
+         });
+   }
+
+   // Returns buf if it has at least len elements, otherwise a new array.
+   static double[] ensureCapacity (double[] buf, int len) {
+      return buf != null && buf.length >= len ? buf : new double[len];
+   }
+
+   static int[] ensureCapacity (int[] buf, int len) {
+      return buf != null && buf.length >= len ? buf : new int[len];
+   }
+
+   // Puts in a[lo..hi-1] the rows a[perm[lo]], ..., a[perm[hi-1]], using
+   // buf, which is returned, or a new buffer if it is too small.
+   static double[][] permuteRows (double[][] a, int[] perm, int lo, int hi,
+                                  double[][] buf) {
+      if (buf == null || buf.length < hi)
+         buf = new double[hi][];
+      System.arraycopy (a, lo, buf, lo, hi - lo);
+      for (int i = lo; i < hi; i++)
+         a[i] = buf[perm[i]];
+      java.util.Arrays.fill (buf, lo, hi, null);
+      return buf;
+   }
+
+   static void checkArguments (double[] points, int dim, int sortDim,
+                               int[] index, int iMin, int iMax) {
+      if (dim < sortDim)
+         throw new IllegalArgumentException (
+            "the points have less coordinates than the sort");
+      if (iMin < 0 || iMax > index.length)
+         throw new IllegalArgumentException ("invalid range of the index");
+   }
+
+   // keys[i] = coordinate j of point index[i], for lo <= i < hi.
+   static void loadKeys (double[] points, int dim, int j, int[] index,
+                         double[] keys, int lo, int hi) {
+      for (int i = lo; i < hi; i++)
+         keys[i] = points[index[i] * dim + j];
+   }
+
+   // Sorts keys[lo..hi-1] in increasing order, and applies the same
+   // permutation to index[lo..hi-1].
+   static void sort (double[] keys, int[] index, int lo, int hi) {
+      while (hi - lo > INSERTION_THRESHOLD) {
+         int p = partition (keys, index, lo, hi);
+         // Recursion on the smaller part keeps the stack small.
+         if (p - lo < hi - p - 1) {
+            sort (keys, index, lo, p);
+            lo = p + 1;
+         } else {
+            sort (keys, index, p + 1, hi);
+            hi = p;
+         }
+      }
+      insertionSort (keys, index, lo, hi);
+   }
+
+   // Partitions around the median of three keys, which ends at the
+   // returned position: smaller or equal keys before it, larger or equal
+   // keys after it.
+   private static int partition (double[] keys, int[] index, int lo, int hi) {
+      int mid = (lo + hi) >>> 1;
+      int last = hi - 1;
+      if (keys[mid] < keys[lo])
+         swap (keys, index, mid, lo);
+      if (keys[last] < keys[lo])
+         swap (keys, index, last, lo);
+      if (keys[last] < keys[mid])
+         swap (keys, index, last, mid);
+      swap (keys, index, mid, last - 1);
+      double pivot = keys[last - 1];
+      int i = lo, j = last - 1;
+      while (true) {
+         while (keys[++i] < pivot) ;
+         while (pivot < keys[--j]) ;
+         if (i >= j)
+            break;
+         swap (keys, index, i, j);
+      }
+      swap (keys, index, i, last - 1);
+      return i;
+   }
+
+   private static void insertionSort (double[] keys, int[] index,
+                                      int lo, int hi) {
+      for (int i = lo + 1; i < hi; i++) {
+         double key = keys[i];
+         int k = index[i];
+         int j = i - 1;
+         while (j >= lo && keys[j] > key) {
+            keys[j + 1] = keys[j];
+            index[j + 1] = index[j];
+            j--;
+         }
+         keys[j + 1] = key;
+         index[j + 1] = k;
+      }
+   }
+
+   static void swap (double[] keys, int[] index, int i, int j) {
+      double t = keys[i];  keys[i] = keys[j];  keys[j] = t;
+      int k = index[i];  index[i] = index[j];  index[j] = k;
+   }
+}
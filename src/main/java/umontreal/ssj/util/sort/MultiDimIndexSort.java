@@ -0,0 +1,61 @@
+/*
+ * Class:        MultiDimIndexSort
+ * Description:  Sorts a permutation of points stored in a flat array
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2014  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+package umontreal.ssj.util.sort;
+
+/**
+ * This interface is implemented by the multivariate sorts that can sort
+ * points stored contiguously in a single array of `double`, without
+ * moving them. The @f$n@f$ points have dimension @f$s@f$ (at least as
+ * large as the dimension of the sort), and coordinate @f$j@f$ of point
+ * @f$k@f$ is stored in `points[k*s + j]`. The sort permutes an index of
+ * point numbers, so that after the sort, the points `index[iMin]`,
+ * `index[iMin+1]`, …, `index[iMax-1]` are in the order in which
+ * @ref MultiDimSort.sort(double[][],int,int) would put them. This avoids
+ * creating one object per point, and keeps the points in a cache-friendly
+ * layout; the caller can then apply the permutation to its own arrays.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public interface MultiDimIndexSort {
+
+   /**
+    * Sorts the point numbers `index[iMin..iMax-1]` according to the
+    * points stored in `points`, which have dimension `dim`.
+    *  @param points       coordinates of the points, point after point
+    *  @param dim          dimension of the points
+    *  @param index        point numbers to sort
+    *  @param iMin         index of first element to sort
+    *  @param iMax         index of last element to sort is
+    *                      @f$\mathtt{iMax}-1@f$
+    */
+   public void sortIndex (double[] points, int dim, int[] index,
+                          int iMin, int iMax);
+
+   /**
+    * Returns the number of dimensions used in the sort.
+    *  @return number of dimensions used for the sort
+    */
+   public int dimension();
+
+}
@@ -24,6 +24,9 @@
 package umontreal.ssj.util.sort;
  import java.util.Comparator;
  import java.util.Arrays;
+ import java.util.ArrayList;
+ import java.util.List;
+ import umontreal.ssj.util.ParallelLoop;
 
 /**
  * Implements a  @ref MultiDimSortComparable that performs a *split sort* on
@@ -38,11 +41,31 @@ package umontreal.ssj.util.sort;
  * coordinate 0, and continues. The resulting order is the result of the
  * sort.
  *
+ * This class also implements  @ref MultiDimIndexSort, to sort the numbers
+ * of points stored in a flat array of `double` in the same way, without
+ * moving the points.
+ *
+ * Arrays of `double` (and flat arrays of points) are sorted without
+ * comparators: each part is split in two by selection (quickselect) on a
+ * copy of its coordinate, permuted together with an array of point
+ * numbers, and the rows themselves are moved only once, at the end. The
+ * work arrays are kept in this object and reused, so a SplitSort object
+ * must not be used by several threads at the same time. Large arrays can
+ * be sorted in parallel; see  #setNumThreads. Points with equal
+ * coordinates may end up in a different order than with the sort of
+ * @ref MultiDimComparable objects.
+ *
  * <div class="SSJ-bigskip"></div>
  */
 public class SplitSort<T extends MultiDimComparable<? super T>> 
-      implements MultiDimSortComparable<T> {
+      implements MultiDimSortComparable<T>, MultiDimIndexSort {
    private int dimension;
+   private int numThreads = 1;
+   private ParallelLoop parallelLoop = ParallelLoop.getDefault();
+   // Reused by the sorts of double: keys, permutation and rows.
+   private double[] keys;
+   private int[] perm;
+   private double[][] rows;
 
    /**
     * Constructs a SplitSort that will use the first `d` dimensions
@@ -73,23 +96,123 @@ public class SplitSort<T extends MultiDimComparable<? super T>>
    }
 
    public void sort (double[][] a, int iMin, int iMax) {
+      if (iMax - iMin <= 1) return;
+      keys = IndexSorts.ensureCapacity (keys, iMax);
+      perm = IndexSorts.ensureCapacity (perm, iMax);
+      for (int i = iMin; i < iMax; ++i)
+         perm[i] = i;
+      splitSort (IndexSorts.rowLoader (a, perm, keys), perm, iMin, iMax);
+      rows = IndexSorts.permuteRows (a, perm, iMin, iMax, rows);
+   }
+
+   public void sort (double[][] a) {
+      sort (a, 0, a.length);
+   }
+
+   public void sortIndex (double[] points, int dim, int[] index,
+                          int iMin, int iMax) {
+      IndexSorts.checkArguments (points, dim, dimension, index, iMin, iMax);
+      if (iMax - iMin <= 1) return;
+      keys = IndexSorts.ensureCapacity (keys, iMax);
+      splitSort (IndexSorts.flatLoader (points, dim, index, keys), index,
+                 iMin, iMax);
+   }
+
+   // Split sort of index[iMin..iMax-1], whose keys are given by loader.
+   // Each part is only split in two by selection, except in dimension 1.
+   private void splitSort (final IndexSorts.KeyLoader loader,
+                           final int[] index, int iMin, int iMax) {
+      int threads = IndexSorts.threadsFor (numThreads, iMax - iMin);
       if (dimension == 1) {
-         Arrays.sort (a, iMin, iMax, new DoubleArrayComparator(0));
-      }else{
-         splitSort (a, iMin, iMax, 0);
+         IndexSorts.load (parallelLoop, loader, 0, iMin, iMax, threads);
+         IndexSorts.sort (parallelLoop, keys, index, iMin, iMax, threads);
+         return;
       }
+      if (threads <= 1) {
+         splitIndex (loader, index, iMin, iMax, 0);
+         return;
+      }
+      // The first splits give the parts that are sorted in parallel.
+      final List<int[]> parts = new ArrayList<int[]>();
+      splitTop (loader, index, iMin, iMax, 0, IndexSorts.splitDepth (threads),
+                threads, parts);
+      parallelLoop.run (threads, parts.size(),
+         new ParallelLoop.Task() {
+         public void run (int t, int lo, int hi) {
+            for (int r = lo; r < hi; ++r) {
+               int[] part = parts.get (r);
+               splitIndex (loader, index, part[0], part[1], part[2]);
+            }
+         }
+      });
    }
 
-   private void splitSort (double[][] a, int iMin, int iMax, int splitCoord){
-      if (iMin==(iMax-1)) return;
-      Arrays.sort (a,iMin,iMax,new DoubleArrayComparator(splitCoord));
+   private void splitIndex (IndexSorts.KeyLoader loader, int[] index,
+                            int iMin, int iMax, int splitCoord) {
+      if (iMax - iMin <= 1) return;
+      loader.load (splitCoord, iMin, iMax);
       int iMid = (iMin+iMax)/2;
-      splitSort (a,iMin,iMid,(splitCoord+1)%dimension);
-      splitSort (a,iMid,iMax,(splitCoord+1)%dimension);
+      IndexSorts.select (keys, index, iMin, iMax, iMid);
+      splitIndex (loader, index, iMin, iMid, (splitCoord+1)%dimension);
+      splitIndex (loader, index, iMid, iMax, (splitCoord+1)%dimension);
    }
 
-   public void sort (double[][] a) {
-      sort (a, 0, a.length);
+   // Splits for depth levels, and adds the parts {iMin, iMax, splitCoord}
+   // left to split to parts.
+   private void splitTop (IndexSorts.KeyLoader loader, int[] index,
+                          int iMin, int iMax, int splitCoord, int depth,
+                          int threads, List<int[]> parts) {
+      if (iMax - iMin <= 1) return;
+      if (depth == 0) {
+         parts.add (new int[] {iMin, iMax, splitCoord});
+         return;
+      }
+      IndexSorts.load (parallelLoop, loader, splitCoord, iMin, iMax, threads);
+      int iMid = (iMin+iMax)/2;
+      IndexSorts.select (keys, index, iMin, iMax, iMid);
+      int next = (splitCoord+1)%dimension;
+      splitTop (loader, index, iMin, iMid, next, depth - 1, threads, parts);
+      splitTop (loader, index, iMid, iMax, next, depth - 1, threads, parts);
+   }
+
+   /**
+    * Sets the number of threads used to sort arrays of `double` with at
+    * least @f$2^{14}@f$ elements. The result of a sort does not depend on
+    * the number of threads, except for the relative order of points that
+    * have equal coordinates. The default is 1.
+    *  @param numThreads   number of threads
+    */
+   public void setNumThreads (int numThreads) {
+      if (numThreads < 1)
+         throw new IllegalArgumentException ("numThreads < 1");
+      this.numThreads = numThreads;
+   }
+
+   /**
+    * Returns the number of threads used to sort large arrays.
+    */
+   public int getNumThreads() {
+      return numThreads;
+   }
+
+   /**
+    * Sets the object that runs the parallel parts of the sorts, and
+    * whose threads are reused from one sort to the next. The default is
+    * the object returned by
+    * @ref umontreal.ssj.util.ParallelLoop.getDefault().
+    *  @param loop         parallel loop used by the sorts
+    */
+   public void setParallelLoop (ParallelLoop loop) {
+      if (loop == null)
+         throw new IllegalArgumentException ("loop is null");
+      parallelLoop = loop;
+   }
+
+   /**
+    * Returns the object that runs the parallel parts of the sorts.
+    */
+   public ParallelLoop getParallelLoop() {
+      return parallelLoop;
    }
 
    public int dimension() {
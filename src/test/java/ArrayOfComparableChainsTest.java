@@ -0,0 +1,110 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import umontreal.ssj.hups.*;
+import umontreal.ssj.markovchainrqmc.*;
+import umontreal.ssj.rng.*;
+import umontreal.ssj.util.sort.OneDimSort;
+
+public class ArrayOfComparableChainsTest {
+
+   // Random walk with a drift, which stops when it goes above 2.
+   public static class Walk extends MarkovChainComparable {
+      double x, cost;
+
+      public Walk() {
+         stateDim = 1;
+      }
+
+      public void initialState() {
+         x = 0.0;
+         cost = 0.0;
+         stopped = false;
+      }
+
+      public void nextStep (RandomStream stream) {
+         x += stream.nextDouble() - 0.3;
+         cost += stream.nextDouble() * x;
+         if (x > 2.0)
+            stopped = true;
+      }
+
+      void halt() {
+         stopped = true;
+      }
+
+      public double getPerformance() {
+         return cost;
+      }
+
+      public int compareTo (MarkovChainComparable other, int j) {
+         return Double.compare (x, ((Walk) other).x);
+      }
+   }
+
+   private static double[] simulate (int numThreads, MRG32k3a stream,
+                                     int numSteps) {
+      ArrayOfComparableChains<Walk> array =
+         new ArrayOfComparableChains<Walk> (new Walk());
+      array.setNumThreads (numThreads);
+      array.makeCopies (1024);
+      double mean = array.simulArrayRQMC (new SobolSequence (10, 31, 2),
+         new LMScrambleShift (stream.clone()),
+         new OneDimSort<Walk> (0), numSteps);
+      assertEquals (mean, array.calcMeanPerf(), 0.0);
+      array.shutdown();
+      return array.getPerformances().clone();
+   }
+
+   @Test
+   public void testSameAsSequential() {
+      MRG32k3a stream = new MRG32k3a();
+      double[] seq = simulate (1, stream, 15);
+      for (int t = 2; t <= 7; t += 5)
+         assertArrayEquals (seq, simulate (t, stream, 15), 0.0);
+   }
+
+   @Test
+   public void testOneStepWithStoppedChains() {
+      MRG32k3a stream = new MRG32k3a();
+      ArrayOfComparableChains<Walk> seq =
+         new ArrayOfComparableChains<Walk> (new Walk());
+      ArrayOfComparableChains<Walk> par =
+         new ArrayOfComparableChains<Walk> (new Walk());
+      par.setNumThreads (3);
+      seq.makeCopies (100);
+      par.makeCopies (100);
+      seq.initialStates();
+      par.initialStates();
+      for (int i = 0; i < 100; i += 3) {
+         seq.getChains()[i].halt();
+         par.getChains()[i].halt();
+      }
+      PointSet p = new Rank1Lattice (100, new int[] {1, 37, 51}, 3);
+      int left = seq.simulOneStepArrayRQMC (p.clone(),
+         new RandomShift (stream.clone()), null, 0);
+      assertEquals (left, par.simulOneStepArrayRQMC (p.clone(),
+         new RandomShift (stream.clone()), null, 0));
+      assertTrue (left <= 66);
+      assertArrayEquals (seq.getPerformances(), par.getPerformances(), 0.0);
+      for (int i = 0; i < 100; i++)
+         assertEquals (seq.getChains()[i].x, par.getChains()[i].x, 0.0);
+
+      // The threads are created again after a shutdown.
+      par.shutdown();
+      seq.simulOneStepArrayRQMC (p.clone(), new RandomShift (stream.clone()),
+                                 null, 0);
+      par.simulOneStepArrayRQMC (p.clone(), new RandomShift (stream.clone()),
+                                 null, 0);
+      assertArrayEquals (seq.getPerformances(), par.getPerformances(), 0.0);
+      par.shutdown();
+   }
+
+   @Test
+   public void testBadNumThreads() {
+      try {
+         new ArrayOfComparableChains<Walk> (new Walk()).setNumThreads (0);
+         fail();
+      } catch (IllegalArgumentException e) {}
+   }
+}
@@ -0,0 +1,128 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import umontreal.ssj.hups.*;
+import umontreal.ssj.markovchainrqmc.*;
+import umontreal.ssj.rng.*;
+import umontreal.ssj.stat.Tally;
+import umontreal.ssj.util.sort.*;
+
+public class ArrayOfMultiDimChainsTest {
+
+   // Two-dimensional autoregressive chain, one copy per object.
+   public static class Chain extends MarkovChainComparable {
+      double x, y;
+
+      public Chain() {
+         stateDim = 2;
+      }
+
+      public void initialState() {
+         x = 0.5;
+         y = 0.0;
+         stopped = false;
+      }
+
+      public void nextStep (RandomStream stream) {
+         double u = stream.nextDouble();
+         double v = stream.nextDouble();
+         y = 0.5 * y + x * v;
+         x = 0.5 * x + u;
+      }
+
+      public double getPerformance() {
+         return x + y;
+      }
+
+      public int compareTo (MarkovChainComparable other, int j) {
+         Chain c = (Chain) other;
+         return j == 0 ? Double.compare (x, c.x) : Double.compare (y, c.y);
+      }
+   }
+
+   // The same chain, for all the copies at once.
+   public static class Vectorized extends VectorizedMarkovChain {
+      public Vectorized() {
+         super (2);
+      }
+
+      public void initialStates (double[] states, int n) {
+         for (int i = 0; i < n; i++) {
+            states[2 * i] = 0.5;
+            states[2 * i + 1] = 0.0;
+         }
+      }
+
+      public void step (int stepIndex, double[] states, int n,
+                        PointSetIterator u) {
+         for (int i = 0; i < n; i++) {
+            double x = states[2 * i];
+            double a = u.nextDouble();
+            double b = u.nextDouble();
+            states[2 * i + 1] = 0.5 * states[2 * i + 1] + x * b;
+            states[2 * i] = 0.5 * x + a;
+            u.resetNextSubstream();
+         }
+      }
+
+      public void getPerformances (int numSteps, double[] states, int n,
+                                   double[] perf) {
+         for (int i = 0; i < n; i++)
+            perf[i] = states[2 * i] + states[2 * i + 1];
+      }
+   }
+
+   private static void compare (MultiDimSortComparable<Chain> sort,
+                                MultiDimIndexSort indexSort) {
+      MRG32k3a stream = new MRG32k3a();
+      ArrayOfComparableChains<Chain> objects =
+         new ArrayOfComparableChains<Chain> (new Chain());
+      objects.makeCopies (1024);
+      double mean = objects.simulArrayRQMC (new SobolSequence (10, 31, 2),
+         new LMScrambleShift (stream.clone()), sort, 6);
+      ArrayOfMultiDimChains flat = new ArrayOfMultiDimChains (
+         new Vectorized(), new LMScrambleShift (stream.clone()), indexSort);
+      flat.makeCopies (1024);
+      assertEquals (mean, flat.simulArrayRQMC (new SobolSequence (10, 31, 2),
+                                               6), 0.0);
+      assertArrayEquals (objects.getPerformances(), flat.getPerformances(),
+                         0.0);
+   }
+
+   @Test
+   public void testSameAsComparableChains() {
+      compare (new SplitSort<Chain> (2), new SplitSort (2));
+      compare (new BatchSort<Chain> (new int[] {32, 32}),
+               new BatchSort (new int[] {32, 32}));
+   }
+
+   @Test
+   public void testHilbertSortAndReplicates() {
+      // The states are in [0, 2) x [0, 4); map them to the unit square.
+      VectorizedMarkovChain chain = new Vectorized() {
+         double[] points = new double[0];
+
+         public double[] getSortPoints (double[] states, int n) {
+            if (points.length < states.length)
+               points = new double[states.length];
+            for (int i = 0; i < n; i++) {
+               points[2 * i] = states[2 * i] / 2.0;
+               points[2 * i + 1] = states[2 * i + 1] / 4.0;
+            }
+            return points;
+         }
+      };
+      ArrayOfMultiDimChains array = new ArrayOfMultiDimChains (chain,
+         new LMScrambleShift (new MRG32k3a()), new HilbertCurveSort (2, 12));
+      Tally stat = new Tally();
+      array.simulReplicatesArrayRQMC (new SobolSequence (9, 31, 2), 5, 10,
+                                      stat);
+      assertEquals (10, stat.numberObs());
+      assertEquals (512, array.getN());
+      // E[x_5] = 0.5^6 + 0.5 (1 + ... + 0.5^4) and y >= 0.
+      assertTrue (stat.average() > 0.9 && stat.average() < 3.0);
+      double[] s = array.getStates();
+      array.sortChains();
+      assertNotSame (s, array.getStates());
+   }
+}
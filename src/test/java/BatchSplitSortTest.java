@@ -0,0 +1,104 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.Random;
+import umontreal.ssj.util.ParallelLoop;
+import umontreal.ssj.util.sort.*;
+
+public class BatchSplitSortTest {
+
+   // A row of coordinates, sorted by the comparator-based sorts.
+   static class Row implements MultiDimComparable<Row> {
+      double[] x;
+
+      Row (double[] x) {
+         this.x = x;
+      }
+
+      public int dimension() {
+         return x.length;
+      }
+
+      public int compareTo (Row other, int j) {
+         return Double.compare (x[j], other.x[j]);
+      }
+   }
+
+   private static double[][] randomRows (int n, int d, Random r) {
+      double[][] a = new double[n][d];
+      for (double[] row : a)
+         for (int j = 0; j < d; j++)
+            row[j] = r.nextDouble();
+      return a;
+   }
+
+   // The sort of double[][] gives the same order as the sort of Row[].
+   private static void check (MultiDimSort<Row> sort, int n, int d,
+                              int iMin, int iMax, Random r) {
+      double[][] a = randomRows (n, d, r);
+      Row[] rows = new Row[n];
+      for (int i = 0; i < n; i++)
+         rows[i] = new Row (a[i]);
+      sort.sort (rows, iMin, iMax);
+      sort.sort (a, iMin, iMax);
+      for (int i = 0; i < n; i++)
+         assertTrue (rows[i].x == a[i]);
+   }
+
+   @Test
+   public void testSameAsComparators() {
+      Random r = new Random (11);
+      int[] sizes = {1, 2, 3, 10, 31, 100, 1000, 5000};
+      for (int n : sizes) {
+         check (new SplitSort<Row> (1), n, 1, 0, n, r);
+         check (new SplitSort<Row> (3), n, 3, 0, n, r);
+         check (new BatchSort<Row> (new double[] {0.5, 0.5}), n, 2, 0, n, r);
+         check (new BatchSort<Row> (new double[] {0.2, 0.3, 0.5}), n, 4,
+                0, n, r);
+         check (new BatchSortPow2 (new double[] {0.5, 0.5}), n, 2, 0, n, r);
+      }
+      check (new BatchSort<Row> (new int[] {3, 1, 5}), 13, 3, 0, 13, r);
+      check (new BatchSort<Row> (new int[] {10, 10}), 150, 2, 20, 120, r);
+      check (new SplitSort<Row> (2), 1000, 2, 100, 900, r);
+   }
+
+   @Test
+   public void testParallel() {
+      Random r = new Random (3);
+      double[][] a = randomRows (100000, 3, r);
+      BatchSort<Row> b1 = new BatchSort<Row> (new double[] {0.4, 0.3, 0.3});
+      BatchSort<Row> b4 = new BatchSort<Row> (new double[] {0.4, 0.3, 0.3});
+      b4.setNumThreads (4);
+      // The threads of a loop supplied by the caller are reused by the sorts.
+      ParallelLoop loop = new ParallelLoop();
+      b4.setParallelLoop (loop);
+      assertSame (loop, b4.getParallelLoop());
+      double[][] x = a.clone(), y = a.clone();
+      b1.sort (x);
+      b4.sort (y);
+      for (int i = 0; i < a.length; i++)
+         assertTrue (x[i] == y[i]);
+
+      for (int d = 1; d <= 2; d++) {
+         SplitSort<Row> s1 = new SplitSort<Row> (d);
+         SplitSort<Row> s3 = new SplitSort<Row> (d);
+         s3.setNumThreads (3);
+         s3.setParallelLoop (loop);
+         x = a.clone();
+         y = a.clone();
+         s1.sort (x, 5, 90000);
+         s3.sort (y, 5, 90000);
+         for (int i = 0; i < a.length; i++)
+            assertTrue (x[i] == y[i]);
+      }
+      // One big batch at the first level, split by parallel selection.
+      BatchSort<Row> few = new BatchSort<Row> (new int[] {2, 50000});
+      few.setNumThreads (4);
+      check (few, 100000, 2, 0, 100000, r);
+      loop.shutdown();
+      try {
+         few.setParallelLoop (null);
+         fail();
+      } catch (IllegalArgumentException e) {}
+   }
+}
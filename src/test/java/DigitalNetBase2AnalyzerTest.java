@@ -0,0 +1,143 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import umontreal.ssj.hups.*;
+import umontreal.ssj.rng.*;
+import umontreal.ssj.util.BitMatrix;
+
+public class DigitalNetBase2AnalyzerTest {
+
+   // Whether each box with sides 2^-d[j] in the coordinates coords holds
+   // the same number of points.
+   private static boolean balanced (DigitalNetBase2 net, int[] coords,
+                                    int[] d) {
+      int n = net.getNumPoints();
+      int bits = 0;
+      for (int v : d)
+         bits += v;
+      if (bits > Integer.numberOfTrailingZeros (n))
+         return false;
+      int[] count = new int[1 << bits];
+      for (int i = 0; i < n; i++) {
+         int box = 0;
+         for (int a = 0; a < coords.length; a++)
+            box = (box << d[a])
+                  | (int) (net.getCoordinate (i, coords[a]) * (1 << d[a]));
+         count[box]++;
+      }
+      for (int c : count)
+         if (c != n >> bits)
+            return false;
+      return true;
+   }
+
+   private static boolean allBalanced (DigitalNetBase2 net, int[] coords,
+                                       int[] d, int idx, int remaining) {
+      if (idx == coords.length - 1) {
+         d[idx] = remaining;
+         return balanced (net, coords, d);
+      }
+      for (int v = 0; v <= remaining; v++) {
+         d[idx] = v;
+         if (!allBalanced (net, coords, d, idx + 1, remaining - v))
+            return false;
+      }
+      return true;
+   }
+
+   private static int bruteTValue (DigitalNetBase2 net, int[] coords) {
+      int k = Integer.numberOfTrailingZeros (net.getNumPoints());
+      int d = 0;
+      while (d < k && allBalanced (net, coords, new int[coords.length], 0,
+                                   d + 1))
+         d++;
+      return k - d;
+   }
+
+   private static int bruteResolution (DigitalNetBase2 net, int[] coords) {
+      int l = 0;
+      int[] d = new int[coords.length];
+      while (true) {
+         java.util.Arrays.fill (d, l + 1);
+         if (!balanced (net, coords, d))
+            return l;
+         l++;
+      }
+   }
+
+   @Test
+   public void testAgainstCounts() {
+      RandomStream stream = new MRG32k3a();
+      DigitalNetBase2 sobol = new SobolSequence (8, 31, 5);
+      DigitalNetBase2 scrambled = new SobolSequence (8, 31, 5);
+      scrambled.leftMatrixScramble (stream);
+      DigitalNetBase2 poly = new PolynomialLatticeBuilder (7).buildNet (5);
+      for (DigitalNetBase2 net : new DigitalNetBase2[] {sobol, scrambled,
+                                                        poly}) {
+         DigitalNetBase2Analyzer an = new DigitalNetBase2Analyzer (net);
+         for (int order = 1; order <= 3; order++) {
+            int[] t = an.getTValues (order);
+            int[] res = an.getResolutions (order);
+            int idx = 0;
+            int[] c = new int[order];
+            for (int a = 0; a < order; a++)
+               c[a] = a;
+            while (true) {
+               assertEquals (bruteTValue (net, c), t[idx]);
+               assertEquals (t[idx], an.getTValue (c));
+               assertEquals (bruteResolution (net, c), res[idx]);
+               idx++;
+               int i = order - 1;
+               while (i >= 0 && c[i] == 5 - order + i)
+                  i--;
+               if (i < 0)
+                  break;
+               c[i]++;
+               for (int j = i + 1; j < order; j++)
+                  c[j] = c[j - 1] + 1;
+            }
+            assertEquals (idx, t.length);
+         }
+      }
+      // The first two coordinates of Sobol form a (0, k, 2)-net.
+      DigitalNetBase2Analyzer an =
+         new DigitalNetBase2Analyzer (new SobolSequence (16, 31, 10));
+      assertEquals (0, an.getTValue (new int[] {0, 1}));
+      assertArrayEquals (new int[] {0, 0}, an.getResolutionGaps (2));
+      int[] maxT = an.getMaxTValues (3);
+      an.setNumThreads (3);
+      assertArrayEquals (maxT, an.getMaxTValues (3));
+   }
+
+   @Test
+   public void testPAlpha() {
+      int m = 9;
+      PolynomialLatticeBuilder b = new PolynomialLatticeBuilder (m);
+      b.setProductWeights (new double[] {1.0, 0.8, 0.6, 0.4});
+      long[] q = b.cbc (6);
+      DigitalNetBase2 net = b.toNet (q, m);
+      DigitalNetBase2Analyzer an = new DigitalNetBase2Analyzer (net);
+      an.setProductWeights (new double[] {1.0, 0.8, 0.6, 0.4});
+      assertEquals (b.getMerit(), an.getPAlpha (6), 1e-12);
+      b.setOrderDependentWeights (new double[] {1.0, 0.5, 0.2});
+      b.setAlpha (3.0);
+      an.setOrderDependentWeights (new double[] {1.0, 0.5, 0.2});
+      an.setAlpha (3.0);
+      double ref = b.computeMerit (q, 5);
+      double v = an.getPAlpha (5);
+      assertEquals (ref, v, 1e-12);
+      an.setNumThreads (2);
+      assertEquals (v, an.getPAlpha (5), 0.0);
+   }
+
+   @Test
+   public void testGeneratorMatrix() {
+      SobolSequence sobol = new SobolSequence (5, 31, 3);
+      BitMatrix c0 = new DigitalNetBase2Analyzer (sobol).getGeneratorMatrix (0);
+      assertEquals (31, c0.numRows());
+      assertEquals (5, c0.numColumns());
+      for (int r = 0; r < 31; r++)
+         for (int c = 0; c < 5; c++)
+            assertEquals (r == c, c0.getBool (r, c));
+   }
+}
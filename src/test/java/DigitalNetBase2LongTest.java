@@ -0,0 +1,130 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import umontreal.ssj.hups.*;
+import umontreal.ssj.rng.*;
+
+public class DigitalNetBase2LongTest {
+
+   // Checks that each coordinate has one point in each interval
+   // [m/n, (m+1)/n), as for any randomized (0, k, 1)-net.
+   private static void assertStratified (double[][] x, int n) {
+      for (int j = 0; j < x[0].length; j++) {
+         boolean[] hit = new boolean[n];
+         for (int i = 0; i < n; i++) {
+            assertTrue (x[i][j] > 0.0 && x[i][j] < 1.0);
+            int m = (int) (x[i][j] * n);
+            assertFalse ("coordinate " + j, hit[m]);
+            hit[m] = true;
+         }
+      }
+   }
+
+   private static double[][] points (PointSet p) {
+      int n = p.getNumPoints();
+      double[][] x = new double[n][p.getDimension()];
+      PointSetIterator it = p.iterator();
+      for (int i = 0; i < n; i++)
+         it.nextPoint (x[i], p.getDimension());
+      assertFalse (it.hasNextPoint());
+      return x;
+   }
+
+   @Test
+   public void testSameAsSobolSequence() {
+      SobolSequence s = new SobolSequence (10, 31, 20);
+      SobolSequenceLong s31 = new SobolSequenceLong (10, 31, 20);
+      SobolSequenceLong s52 = new SobolSequenceLong (10, 20);
+      double[][] x = points (s);
+      assertEquals (1024, s52.getNumPoints());
+      double[][] y = points (s31);
+      double[][] z = points (s52);
+      for (int i = 0; i < x.length; i++)
+         for (int j = 0; j < 20; j++) {
+            assertEquals (x[i][j], y[i][j], 0.0);
+            assertEquals (x[i][j], Math.floor (z[i][j] * (1L << 31)) /
+                                   (1L << 31), 0.0);
+            assertEquals (z[i][j], s52.getCoordinate (i, j), 0.0);
+            assertEquals (s.getCoordinateNoGray (i, j),
+                          s31.getCoordinateNoGray (i, j), 0.0);
+         }
+   }
+
+   @Test
+   public void testMoreThan2To31Points() {
+      SobolSequenceLong p = new SobolSequenceLong (34, 6);
+      assertEquals (1L << 34, p.getNumPointsLong());
+      assertEquals (Integer.MAX_VALUE, p.getNumPoints());
+      p.addRandomShift (new MRG32k3a());
+      PointSetIterator it = p.iterator();
+      double[] u = new double[6];
+      long[] starts = {(1L << 31) - 3, (1L << 33) + 5, (1L << 34) - 4};
+      for (long start : starts) {
+         ((DigitalNetBase2Long.DigitalNetBase2LongIterator) it)
+            .setCurPointIndex (start);
+         for (long i = start; i < start + 4; i++) {
+            assertTrue (it.hasNextPoint());
+            it.nextPoint (u, 6);
+            for (int j = 0; j < 6; j++)
+               assertEquals (p.getCoordinate (i, j), u[j], 0.0);
+         }
+      }
+      assertFalse (it.hasNextPoint());
+
+      PointSetIterator noGray = p.iteratorNoGray();
+      ((DigitalNetBase2Long.DigitalNetBase2LongIterator) noGray)
+         .setCurPointIndex ((1L << 32) - 2);
+      for (long i = (1L << 32) - 2; i < (1L << 32) + 2; i++) {
+         noGray.nextPoint (u, 6);
+         for (int j = 0; j < 6; j++)
+            assertEquals (p.getCoordinateNoGray (i, j), u[j], 0.0);
+      }
+   }
+
+   @Test
+   public void testScrambles() {
+      RandomStream stream = new MRG32k3a();
+      SobolSequenceLong p = new SobolSequenceLong (12, 8);
+      new LMScrambleShift (stream).randomize (p);
+      double[][] x = points (p);
+      assertStratified (x, 4096);
+      // The 52 digits are used.
+      boolean fine = false;
+      for (int i = 0; i < x.length; i++)
+         fine |= Math.floor (x[i][3] * (1L << 40)) != x[i][3] * (1L << 40);
+      assertTrue (fine);
+
+      p.unrandomize();
+      double[][] y = new double[4096][8];
+      p.nestedUniformScramble (stream, y);
+      assertStratified (y, 4096);
+      double[][] z = new double[4096][8];
+      p.nestedUniformScramble (stream, z, 20);
+      assertStratified (z, 4096);
+   }
+
+   // Sobol' net whose last generator column of coordinate 0 is zero, so
+   // that the points have 128 distinct values of coordinate 0.
+   static class DuplicatedSobol extends SobolSequenceLong {
+      DuplicatedSobol (int k, int dim) {
+         super (k, dim);
+         genMat[numCols - 1] = 0;
+      }
+   }
+
+   @Test
+   public void testNestedUniformScrambleDuplicates() {
+      DigitalNetBase2Long p = new DuplicatedSobol (8, 2);
+      double[][] y = new double[256][2];
+      p.nestedUniformScramble (new MRG32k3a(), y);
+      // Equal coordinates keep equal scrambled values.
+      java.util.Set<Double> u0 = new java.util.HashSet<Double>();
+      java.util.Set<Double> u1 = new java.util.HashSet<Double>();
+      for (int i = 0; i < 256; i++) {
+         u0.add (y[i][0]);
+         u1.add (y[i][1]);
+      }
+      assertEquals (128, u0.size());
+      assertEquals (256, u1.size());
+   }
+}
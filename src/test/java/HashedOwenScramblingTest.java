@@ -0,0 +1,92 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import umontreal.ssj.hups.*;
+import umontreal.ssj.rng.*;
+
+public class HashedOwenScramblingTest {
+
+   private static int toBits (double x) {
+      return (int) (x * (1L << 31));
+   }
+
+   private static double[][] points (PointSet p) {
+      int n = p.getNumPoints();
+      double[][] u = new double[n][p.getDimension()];
+      PointSetIterator it = p.iterator();
+      for (int i = 0; i < n; i++)
+         it.nextPoint (u[i], p.getDimension());
+      return u;
+   }
+
+   @Test
+   public void testNestedStructure() {
+      DigitalNetBase2 sobol = new SobolSequence (7, 31, 6);
+      double[][] orig = points (sobol);
+      new HashedOwenScrambling (new MRG32k3a()).randomize (sobol);
+      double[][] scr = points (sobol);
+      // The common prefix of two coordinates keeps the same length, so
+      // each 1-dimensional projection stays stratified.
+      for (int j = 0; j < 6; j++)
+         for (int i = 0; i < 128; i++)
+            for (int l = 0; l < 128; l++) {
+               int a = toBits (orig[i][j]) ^ toBits (orig[l][j]);
+               int b = toBits (scr[i][j]) ^ toBits (scr[l][j]);
+               assertEquals (Integer.numberOfLeadingZeros (a),
+                             Integer.numberOfLeadingZeros (b));
+               assertTrue (scr[i][j] > 0.0 && scr[i][j] < 1.0);
+            }
+      sobol.unrandomize();
+      double[][] back = points (sobol);
+      for (int i = 0; i < 128; i++)
+         assertArrayEquals (orig[i], back[i], 0.0);
+   }
+
+   @Test
+   public void testRandomAccess() {
+      DigitalNetBase2 sobol = new SobolSequence (10, 31, 8);
+      RandomStream stream = new MRG32k3a();
+      sobol.leftMatrixScramble (stream);
+      sobol.addRandomShift (stream);
+      sobol.hashedOwenScramble (stream);
+      double[][] u = points (sobol);
+      PointSetIterator it = sobol.iterator();
+      double[] block = new double[200 * 8];
+      sobol.fillPoints (300, 200, 8, block, PointSet.Layout.ROW_MAJOR);
+      for (int i = 300; i < 500; i++) {
+         it.setCurPointIndex (i);
+         for (int j = 0; j < 8; j++) {
+            assertEquals (u[i][j], it.nextCoordinate(), 0.0);
+            assertEquals (u[i][j], sobol.getCoordinate (i, j), 0.0);
+            assertEquals (u[i][j], block[(i - 300) * 8 + j], 0.0);
+         }
+      }
+   }
+
+   @Test
+   public void testMean() {
+      // Unbiased estimator of the integral of prod_j 2 u_j over [0,1)^4.
+      DigitalNetBase2 sobol = new SobolSequence (8, 31, 4);
+      RandomStream stream = new MRG32k3a();
+      double sum = 0.0;
+      int m = 200;
+      for (int r = 0; r < m; r++) {
+         sobol.hashedOwenScramble (stream);
+         double[][] u = points (sobol);
+         double s = 0.0;
+         for (int i = 0; i < u.length; i++)
+            s += 16.0 * u[i][0] * u[i][1] * u[i][2] * u[i][3];
+         sum += s / u.length;
+      }
+      assertEquals (1.0, sum / m, 0.01);
+   }
+
+   @Test
+   public void testBadPointSet() {
+      try {
+         new HashedOwenScrambling (new MRG32k3a()).randomize (
+               new KorobovLattice (101, 12, 3));
+         fail();
+      } catch (IllegalArgumentException e) {}
+   }
+}
@@ -0,0 +1,105 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import umontreal.ssj.util.sort.*;
+
+public class HilbertCurveSortTest {
+
+   // Positions iMin..iMax-1 of a, stably sorted by the Hilbert index given
+   // by the tables of the map.
+   private static double[][] reference (final HilbertCurveMap map,
+                                        double[][] a, int iMin, int iMax) {
+      final int[] c = new int[map.dimension()];
+      double[][] b = Arrays.copyOfRange (a, iMin, iMax);
+      Arrays.sort (b, new Comparator<double[]>() {
+         public int compare (double[] p, double[] q) {
+            map.pointToCoordinates (p, c);
+            long kp = map.coordinatesToIndex (c);
+            map.pointToCoordinates (q, c);
+            long kq = map.coordinatesToIndex (c);
+            return kp < kq ? -1 : (kp > kq ? 1 : 0);
+         }
+      });
+      return b;
+   }
+
+   private static double[][] randomPoints (int n, int d, int m, Random r) {
+      double[][] a = new double[n][d];
+      for (int i = 0; i < n; i++)
+         for (int j = 0; j < d; j++)
+            // Few distinct values, so that there are ties.
+            a[i][j] = r.nextInt (1 << m) / (double) (1 << m);
+      return a;
+   }
+
+   private static void check (HilbertCurveSort sort, double[][] a,
+                              int iMin, int iMax) {
+      double[][] orig = a.clone();
+      double[][] ref = reference (sort.getHilbertCurveMap(), a, iMin, iMax);
+      sort.sort (a, iMin, iMax);
+      int[] perm = sort.getPermutation();
+      for (int i = 0; i < a.length; i++) {
+         if (i < iMin || i >= iMax)
+            assertSame (orig[i], a[i]);
+         else {
+            assertSame (ref[i - iMin], a[i]);
+            assertSame (orig[perm[i]], a[i]);
+         }
+      }
+   }
+
+   @Test
+   public void testSameAsTables() {
+      Random r = new Random (123);
+      int[][] dm = {{1, 20}, {2, 6}, {3, 5}, {4, 2}, {6, 10}};
+      for (int[] p : dm) {
+         HilbertCurveSort sort = new HilbertCurveSort (p[0], p[1]);
+         check (sort, randomPoints (30, p[0], p[1], r), 0, 30);
+         check (sort, randomPoints (3000, p[0], p[1], r), 0, 3000);
+         check (sort, randomPoints (500, p[0], p[1], r), 100, 400);
+      }
+   }
+
+   @Test
+   public void testParallel() {
+      Random r = new Random (7);
+      double[][] a = randomPoints (100000, 3, 7, r);
+      double[][] b = a.clone();
+      HilbertCurveSort seq = new HilbertCurveSort (3, 7);
+      HilbertCurveSort par = new HilbertCurveSort (3, 7);
+      par.setNumThreads (4);
+      seq.sort (a);
+      par.sort (b);
+      for (int i = 0; i < a.length; i++)
+         assertSame (a[i], b[i]);
+      HilbertCurveSort par2 = new HilbertCurveSort (2, 12);
+      par2.setNumThreads (3);
+      check (par2, randomPoints (70000, 2, 12, r), 1000, 69000);
+   }
+
+   @Test
+   public void testMultiDim01() {
+      Random r = new Random (99);
+      double[][] a = randomPoints (200, 2, 8, r);
+      MultiDim01[] pts = new MultiDim01[a.length];
+      for (int i = 0; i < a.length; i++) {
+         final double[] x = a[i];
+         pts[i] = new MultiDim01() {
+            public int dimension() { return x.length; }
+            public double[] getPoint() { return x; }
+            public double getCoordinate (int j) { return x[j]; }
+         };
+      }
+      HilbertCurveSort sort = new HilbertCurveSort (2, 8);
+      sort.sort (pts);
+      sort.sort (a);
+      for (int i = 0; i < a.length; i++)
+         assertSame (a[i], pts[i].getPoint());
+      long[][] index = sort.getIndexAfterSort();
+      for (int i = 1; i < a.length; i++)
+         assertTrue (index[i - 1][1] <= index[i][1]);
+   }
+}
@@ -0,0 +1,35 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import umontreal.ssj.rng.*;
+
+public class MRG32k3aMultiStreamTest {
+
+   @Test
+   public void testLanesMatchStreams() {
+      int n = 37;
+      MRG32k3a[] s = new MRG32k3a[n];
+      for (int l = 0; l < n; l++) {
+         s[l] = new MRG32k3a();
+         if (l % 3 == 0)
+            s[l].resetNextSubstream();
+         for (int i = 0; i < l % 5; i++)
+            s[l].nextDouble();
+      }
+      MRG32k3aMultiStream m = new MRG32k3aMultiStream (s);
+      double[] u = new double[n];
+      for (int i = 0; i < 10000; i++) {
+         if (i == 5000) {
+            m.resetNextSubstream();
+            for (int l = 0; l < n; l++)
+               s[l].resetNextSubstream();
+         }
+         m.nextDoubles (u);
+         for (int l = 0; l < n; l++)
+            assertEquals ("lane " + l + ", step " + i, s[l].nextDouble(), u[l],
+                          0.0);
+      }
+      MRG32k3a copy = m.getStream (7);
+      assertEquals (s[7].nextDouble(), copy.nextDouble(), 0.0);
+   }
+}
@@ -0,0 +1,71 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.io.File;
+
+import umontreal.ssj.rng.*;
+
+public class MappedRandomStreamWithCacheTest {
+
+   @Test
+   public void testAppendAndReplay() throws Exception {
+      File f = File.createTempFile ("ssjcache", ".bin");
+      f.delete();
+      try {
+         MRG32k3a rng = new MRG32k3a();
+         MRG32k3a ref = rng.clone();
+         final int n = 10000;
+         double[] expected = new double[n];
+         ref.nextArrayOfDouble (expected, 0, n);
+
+         // chunks of 1000 values, filled by single values and by arrays
+         MappedRandomStreamWithCache cache =
+            new MappedRandomStreamWithCache (rng, f, 1000);
+         double[] u = new double[n];
+         for (int i = 0; i < 1500; i++)
+            u[i] = cache.nextDouble();
+         cache.nextArrayOfDouble (u, 1500, n - 1500);
+         assertArrayEquals (expected, u, 0.0);
+         assertEquals (n, cache.getNumCachedValues());
+
+         // replay in the same stream
+         cache.setCacheIndex (2999);
+         assertEquals (expected[2999], cache.nextDouble(), 0.0);
+         assertEquals (expected[3000], cache.nextDouble(), 0.0);
+         cache.initCache();
+         assertEquals (expected[0], cache.nextDouble(), 0.0);
+
+         // replay in read-only mode, while the writer is still open
+         MappedRandomStreamWithCache replay =
+            new MappedRandomStreamWithCache (f, 777);
+         assertEquals (n, replay.getNumCachedValues());
+         double[] v = new double[n];
+         replay.nextArrayOfDouble (v, 0, n);
+         assertArrayEquals (expected, v, 0.0);
+         for (int i = n - 1; i >= 0; i -= 997) {
+            replay.setCacheIndex (i);
+            assertEquals (expected[i], replay.nextDouble(), 0.0);
+         }
+
+         // values appended by the writer are seen by the reader
+         cache.setCacheIndex (n);
+         double w = cache.nextDouble();
+         replay.setCacheIndex (n);
+         assertEquals (w, replay.nextDouble(), 0.0);
+         try {
+            replay.nextDouble();
+            fail ("the cache should be exhausted");
+         } catch (IllegalStateException e) {}
+         replay.close();
+         cache.close();
+
+         // reopening for writing keeps the values
+         cache = new MappedRandomStreamWithCache (ref, f, 1000);
+         assertEquals (n + 1, cache.getNumCachedValues());
+         assertEquals (expected[0], cache.nextDouble(), 0.0);
+         cache.close();
+      } finally {
+         f.delete();
+      }
+   }
+}
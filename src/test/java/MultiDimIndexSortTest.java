@@ -0,0 +1,60 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.Random;
+import umontreal.ssj.util.sort.*;
+
+public class MultiDimIndexSortTest {
+
+   // Sorts the points with sort (double[][]) and with sortIndex on a flat
+   // copy with one more coordinate, and compares the orders.
+   private static void check (MultiDimSort<?> sort, int n, int dim,
+                              int iMin, int iMax, Random r) {
+      double[][] a = new double[n][dim];
+      double[] flat = new double[n * (dim + 1)];
+      int[] index = new int[n];
+      for (int i = 0; i < n; i++) {
+         for (int j = 0; j < dim; j++)
+            flat[i * (dim + 1) + j] = a[i][j] = r.nextDouble();
+         flat[i * (dim + 1) + dim] = -1.0;
+         index[i] = i;
+      }
+      double[][] orig = a.clone();
+      sort.sort (a, iMin, iMax);
+      ((MultiDimIndexSort) sort).sortIndex (flat, dim + 1, index, iMin, iMax);
+      for (int i = 0; i < n; i++)
+         assertTrue (orig[index[i]] == a[i]);
+   }
+
+   @Test
+   public void testSameAsArraySort() {
+      Random r = new Random (5);
+      int[][] sizes = {{1, 1}, {2, 1}, {100, 3}, {1000, 2}, {4096, 4}};
+      for (int[] s : sizes) {
+         int n = s[0], d = s[1];
+         check (new SplitSort (d), n, d, 0, n, r);
+         check (new BatchSort (new double[] {0.5, 0.5}), n, Math.max (d, 2),
+                0, n, r);
+         check (new BatchSortPow2 (new double[] {0.3, 0.3, 0.4}), n,
+                Math.max (d, 3), 0, n, r);
+         check (new HilbertCurveSort (d, 20 / d), n, d, 0, n, r);
+      }
+      check (new BatchSort (new int[] {4, 5, 5}), 100, 3, 0, 100, r);
+      check (new SplitSort (2), 500, 3, 50, 450, r);
+      check (new BatchSort (new int[] {8, 8}), 80, 2, 8, 72, r);
+      check (new HilbertCurveSort (3, 10), 300, 3, 20, 200, r);
+   }
+
+   @Test
+   public void testBadArguments() {
+      try {
+         new SplitSort (3).sortIndex (new double[20], 2, new int[10], 0, 10);
+         fail();
+      } catch (IllegalArgumentException e) {}
+      try {
+         new HilbertCurveSort (2, 8).sortIndex (new double[20], 2,
+                                                new int[10], 0, 11);
+         fail();
+      } catch (IllegalArgumentException e) {}
+   }
+}
@@ -0,0 +1,109 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import umontreal.ssj.hups.*;
+import umontreal.ssj.rng.*;
+
+public class NestedUniformScrambleTest {
+
+   // A one-dimensional net whose first bits are not distinct, which forces
+   // the radix sort in nestedUniformScramble.
+   static class RepeatedNet extends DigitalNetBase2 {
+      RepeatedNet() {
+         numCols = 4;
+         numRows = outDigits = 31;
+         dim = 1;
+         numPoints = 16;
+         normFactor = 1.0 / (1L << 31);
+         genMat = new int[] {1 << 30, 1 << 30, 1 << 20, 5};
+      }
+   }
+
+   private static int toBits (double x) {
+      return (int) (x * (1L << 31));
+   }
+
+   // Owen's scrambling keeps the length of the common prefix of any two
+   // coordinates.
+   private static void checkPrefixes (DigitalNetBase2 net, double[][] out) {
+      int n = net.getNumPoints();
+      double[][] orig = new double[n][net.getDimension()];
+      PointSetIterator it = net.iterator();
+      for (int i = 0; i < n; i++)
+         it.nextPoint (orig[i], net.getDimension());
+      for (int j = 0; j < net.getDimension(); j++)
+         for (int i = 0; i < n; i++)
+            for (int l = 0; l < n; l++) {
+               int a = toBits (orig[i][j]) ^ toBits (orig[l][j]);
+               int b = toBits (out[i][j]) ^ toBits (out[l][j]);
+               assertEquals (Integer.numberOfLeadingZeros (a),
+                             Integer.numberOfLeadingZeros (b));
+            }
+   }
+
+   @Test
+   public void testStratified() {
+      DigitalNetBase2 sobol = new SobolSequence (6, 31, 5);
+      double[][] out = new double[64][5];
+      sobol.nestedUniformScramble (new MRG32k3a(), out);
+      checkPrefixes (sobol, out);
+      sobol.nestedUniformScramble (new MRG32k3a(), out, 0, 3);
+      checkPrefixes (sobol, out);
+
+      DigitalNetBase2 rep = new RepeatedNet();
+      out = new double[16][1];
+      rep.nestedUniformScramble (new MRG32k3a(), out);
+      checkPrefixes (rep, out);
+   }
+
+   @Test
+   public void testSameForAllThreadCounts() {
+      DigitalNetBase2 sobol = new SobolSequence (10, 31, 9);
+      MRG32k3a stream = new MRG32k3a();
+      double[][] ref = new double[1024][9];
+      sobol.nestedUniformScramble (stream.clone(), ref, 0, 1);
+      for (int t = 2; t <= 16; t *= 2) {
+         double[][] out = new double[1024][9];
+         sobol.nestedUniformScramble (stream.clone(), out, 0, t);
+         for (int i = 0; i < 1024; i++)
+            assertArrayEquals (ref[i], out[i], 0.0);
+      }
+
+      // Successive calls use fresh substreams.
+      double[][] out = new double[1024][9];
+      MRG32k3a s = stream.clone();
+      sobol.nestedUniformScramble (s, out, 0, 4);
+      sobol.nestedUniformScramble (s, out, 0, 4);
+      assertFalse (ref[1][0] == out[1][0]);
+   }
+
+   @Test
+   public void testRandomization() {
+      SobolSequence sobol = new SobolSequence (5, 31, 3);
+      CachedPointSet cp = new CachedPointSet (sobol);
+      MRG32k3a stream = new MRG32k3a();
+      NestedUniformScrambling nus = new NestedUniformScrambling (stream.clone());
+      nus.setNumThreads (2);
+      nus.randomize (cp);
+      double[][] out = new double[32][3];
+      sobol.nestedUniformScramble (stream.clone(), out, 0, 1);
+      for (int i = 0; i < 32; i++)
+         for (int j = 0; j < 3; j++)
+            assertEquals (out[i][j], cp.getCoordinate (i, j), 0.0);
+   }
+
+   @Test
+   public void testBadArguments() {
+      DigitalNetBase2 sobol = new SobolSequence (4, 31, 2);
+      try {
+         sobol.nestedUniformScramble (
+               new RandomStreamWithCache (new MRG32k3a()),
+               new double[16][2], 0, 2);
+         fail();
+      } catch (IllegalArgumentException e) {}
+      try {
+         sobol.nestedUniformScramble (new MRG32k3a(), new double[16][2], 0, 0);
+         fail();
+      } catch (IllegalArgumentException e) {}
+   }
+}
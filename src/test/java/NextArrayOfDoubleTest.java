@@ -0,0 +1,63 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import umontreal.ssj.rng.*;
+
+public class NextArrayOfDoubleTest {
+
+   // Lengths that are not multiples of small powers of 2, and a large one.
+   private static final int[] LENGTHS = {0, 1, 3, 7, 17, 1001};
+   private static final int START = 5;
+
+   // The antithetic flag has no public setter; it is bit 0 of the first
+   // element of the saved state.
+   private static void setAntithetic (RandomStreamBase s, boolean anti) {
+      int[] state = s.saveState();
+      state[0] = anti ? state[0] | 1 : state[0] & ~1;
+      s.restoreState (state);
+   }
+
+   // Checks the bulk method of a against nextDouble() of its copy b, in
+   // the plain, antithetic and increased precision modes, and after
+   // resetNextSubstream().
+   private static void check (String name, RandomStreamBase a,
+                              RandomStreamBase b) {
+      for (int mode = 0; mode < 4; mode++) {
+         String msg = name + ", mode " + mode;
+         if (mode == 1) {
+            a.resetNextSubstream();
+            b.resetNextSubstream();
+         }
+         setAntithetic (a, mode == 2);
+         setAntithetic (b, mode == 2);
+         a.increasedPrecision (mode == 3);
+         b.increasedPrecision (mode == 3);
+         for (int n : LENGTHS) {
+            double[] u = new double[START + n + 2];
+            u[START - 1] = -1.0;
+            u[START + n] = -2.0;
+            a.nextArrayOfDouble (u, START, n);
+            for (int i = 0; i < n; i++)
+               assertEquals (msg + ", n = " + n + ", i = " + i,
+                             b.nextDouble(), u[START + i], 0.0);
+            // The other elements are unchanged.
+            assertEquals (msg, -1.0, u[START - 1], 0.0);
+            assertEquals (msg, -2.0, u[START + n], 0.0);
+         }
+         // Both streams are left in the same state.
+         assertEquals (msg, b.nextDouble(), a.nextDouble(), 0.0);
+      }
+   }
+
+   @Test
+   public void testMRG32k3a() {
+      MRG32k3a a = new MRG32k3a();
+      check ("MRG32k3a", a, a.clone());
+   }
+
+   @Test
+   public void testMRG31k3p() {
+      MRG31k3p a = new MRG31k3p();
+      check ("MRG31k3p", a, a.clone());
+   }
+}
@@ -0,0 +1,69 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import umontreal.ssj.util.ParallelLoop;
+
+public class ParallelLoopTest {
+
+   @Test
+   public void testChunksCoverIndices() {
+      ParallelLoop loop = new ParallelLoop();
+      for (int count = 0; count < 20; count++)
+         for (int nt = 1; nt < 6; nt++) {
+            final int[] hits = new int[count];
+            final int[] chunkOf = new int[count];
+            loop.run (nt, count, new ParallelLoop.Task() {
+               public void run (int t, int lo, int hi) {
+                  for (int i = lo; i < hi; i++) {
+                     hits[i]++;
+                     chunkOf[i] = t;
+                  }
+               }
+            });
+            int nc = ParallelLoop.numChunks (nt, count);
+            for (int i = 0; i < count; i++) {
+               assertEquals (1, hits[i]);
+               int t = chunkOf[i];
+               assertTrue (t < nc);
+               assertTrue (ParallelLoop.chunkStart (t, nc, count) <= i);
+               assertTrue (i < ParallelLoop.chunkStart (t + 1, nc, count));
+            }
+         }
+      loop.shutdown();
+   }
+
+   @Test
+   public void testFailureAfterAllChunks() {
+      ParallelLoop loop = new ParallelLoop();
+      final AtomicInteger done = new AtomicInteger();
+      try {
+         loop.run (4, 4, new ParallelLoop.Task() {
+            public void run (int t, int lo, int hi) {
+               if (t == 0)
+                  throw new IllegalArgumentException ("chunk 0");
+               try {
+                  Thread.sleep (50);
+               } catch (InterruptedException e) {}
+               done.incrementAndGet();
+            }
+         });
+         fail();
+      } catch (IllegalArgumentException e) {
+         assertEquals ("chunk 0", e.getMessage());
+      }
+      assertEquals (3, done.get());
+
+      // The loop can still be used, also after a shutdown.
+      loop.shutdown();
+      final AtomicInteger sum = new AtomicInteger();
+      loop.run (3, 10, new ParallelLoop.Task() {
+         public void run (int t, int lo, int hi) {
+            sum.addAndGet (hi - lo);
+         }
+      });
+      assertEquals (10, sum.get());
+      loop.shutdown();
+   }
+}
@@ -0,0 +1,44 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import umontreal.ssj.rng.*;
+
+public class Philox4x32Test {
+
+   // Returns the 32-bit integer from which the uniform u was computed.
+   private static long word (double u) {
+      return (long)(u * 4294967296.0 - 0.5);
+   }
+
+   @Test
+   public void testKnownAnswer() {
+      // Philox4x32-10 with counter and key all zero (Random123 test vector)
+      Philox4x32 p = new Philox4x32();
+      long[] expected = {0x6627e8d5L, 0xe169c58dL, 0xbc57ac4cL, 0x9b00dbd8L};
+      p.setStreamIndex (0);
+      p.setSeed (new int[] {0, 0});
+      for (int i = 0; i < 4; i++)
+         assertEquals (expected[i], word (p.nextDouble()));
+   }
+
+   @Test
+   public void testRandomAccess() {
+      Philox4x32 p = new Philox4x32();
+      for (int j = 0; j < 3; j++)
+         p.resetNextSubstream();
+      double[] u = new double[1003];
+      p.nextDouble();
+      p.nextArrayOfDouble (u, 0, u.length);
+
+      Philox4x32 q = p.clone();
+      q.setSubstreamIndex (3);
+      for (int i = 0; i < u.length; i += 97) {
+         q.setIndex (i + 1);
+         assertEquals ("index " + (i + 1), u[i], q.nextDouble(), 0.0);
+      }
+      q.resetStartSubstream();
+      q.advanceState (1);
+      for (int i = 0; i < u.length; i++)
+         assertEquals ("index " + (i + 1), u[i], q.nextDouble(), 0.0);
+   }
+}
@@ -0,0 +1,77 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import umontreal.ssj.hups.*;
+import umontreal.ssj.rng.*;
+
+public class PointSetFillPointsTest {
+
+   // Compares fillPoints, in both layouts, with the iterator.
+   private static void check (String name, PointSet p, int from, int n,
+                              int d) {
+      double[] row = new double[n * d + 3];
+      double[] col = new double[n * d];
+      p.fillPoints (from, n, d, row, PointSet.Layout.ROW_MAJOR);
+      p.fillPoints (from, n, d, col, PointSet.Layout.COLUMN_MAJOR);
+      PointSetIterator it = p.iterator();
+      it.setCurPointIndex (from);
+      double[] u = new double[d];
+      for (int i = 0; i < n; i++) {
+         it.nextPoint (u, d);
+         for (int j = 0; j < d; j++) {
+            assertEquals (name + " (" + i + ", " + j + ")", u[j],
+                          row[i*d + j], 0.0);
+            assertEquals (name + " (" + i + ", " + j + ")", u[j],
+                          col[j*n + i], 0.0);
+         }
+      }
+      assertEquals (0.0, row[n * d], 0.0);
+   }
+
+   @Test
+   public void testSameAsIterator() {
+      RandomStream stream = new MRG32k3a();
+      DigitalNetBase2 sobol = new SobolSequence (12, 31, 10);
+      check ("Sobol", sobol, 0, 4096, 10);
+      sobol.leftMatrixScramble (stream);
+      sobol.addRandomShift (stream);
+      check ("scrambled Sobol", sobol, 1001, 515, 7);
+
+      SobolSequenceLong sobolLong = new SobolSequenceLong (14, 5);
+      sobolLong.addRandomShift (stream);
+      check ("SobolLong", sobolLong, 77, 700, 5);
+
+      KorobovLattice kor = new KorobovLattice (1021, 76, 8);
+      check ("Korobov", kor, 3, 1000, 8);
+      kor.addRandomShift (stream);
+      check ("shifted Korobov", kor, 0, 1021, 8);
+      check ("Rank1", new Rank1Lattice (997, new int[] {1, 227, 401}, 3),
+             500, 497, 3);
+
+      HaltonSequence halton = new HaltonSequence (12);
+      check ("Halton", halton, 12345, 300, 12);
+      halton.addFaureLemieuxPermutations();
+      check ("permuted Halton", halton, 0, 300, 12);
+
+      // Default implementation
+      check ("Hammersley", new HammersleyPointSet (256, 4), 10, 200, 4);
+   }
+
+   @Test
+   public void testBadArguments() {
+      PointSet p = new SobolSequence (4, 31, 3);
+      double[] out = new double[48];
+      try {
+         p.fillPoints (1, 16, 3, out, PointSet.Layout.ROW_MAJOR);
+         fail();
+      } catch (IllegalArgumentException e) {}
+      try {
+         p.fillPoints (0, 16, 4, out, PointSet.Layout.ROW_MAJOR);
+         fail();
+      } catch (IllegalArgumentException e) {}
+      try {
+         p.fillPoints (0, 16, 3, new double[47], PointSet.Layout.ROW_MAJOR);
+         fail();
+      } catch (IllegalArgumentException e) {}
+   }
+}
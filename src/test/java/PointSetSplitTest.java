@@ -0,0 +1,133 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import umontreal.ssj.hups.*;
+import umontreal.ssj.rng.*;
+
+public class PointSetSplitTest {
+
+   private static double[][] points (PointSet p, int d) {
+      int n = p.getNumPoints();
+      double[][] u = new double[n][d];
+      PointSetIterator it = p.iterator();
+      for (int i = 0; i < n; i++)
+         it.nextPoint (u[i], d);
+      return u;
+   }
+
+   // Each point must be enumerated exactly once, by the right iterator.
+   private static void check (String name, PointSet p, int d, int k,
+                              boolean strided) {
+      int n = p.getNumPoints();
+      double[][] u = points (p, d);
+      boolean[] seen = new boolean[n];
+      PointSetIterator[] iters = p.splitIterators (k, strided);
+      assertEquals (k, iters.length);
+      double[] x = new double[d];
+      for (int r = 0; r < k; r++) {
+         PointSetIterator it = iters[r];
+         int from = strided ? r : (int) ((long) r * n / k);
+         int step = strided ? k : 1;
+         int i = 0;
+         while (it.hasNextPoint()) {
+            int g = from + i * step;
+            assertFalse (seen[g]);
+            seen[g] = true;
+            assertEquals (i, it.getCurPointIndex());
+            if (i % 2 == 0)
+               it.nextPoint (x, d);
+            else {
+               for (int j = 0; j < d; j++)
+                  x[j] = it.nextCoordinate();
+               it.resetToNextPoint();
+            }
+            assertArrayEquals (name + " point " + g, u[g], x, 0.0);
+            i++;
+         }
+         try {
+            it.nextCoordinate();
+            fail();
+         } catch (java.util.NoSuchElementException e) {}
+      }
+      for (int g = 0; g < n; g++)
+         assertTrue (name + " point " + g, seen[g]);
+   }
+
+   @Test
+   public void testSplit() {
+      RandomStream stream = new MRG32k3a();
+      DigitalNetBase2 sobol = new SobolSequence (9, 31, 6);
+      sobol.leftMatrixScramble (stream);
+      sobol.addRandomShift (stream);
+      KorobovLattice kor = new KorobovLattice (509, 44, 5);
+      kor.addRandomShift (stream);
+      HammersleyPointSet ham = new HammersleyPointSet (100, 3);
+      for (int k : new int[] {1, 3, 7, 128}) {
+         check ("Sobol", sobol, 6, k, false);
+         check ("Sobol", sobol, 6, k, true);
+         check ("Korobov", kor, 5, k, false);
+         check ("Korobov", kor, 5, k, true);
+         check ("Hammersley", ham, 3, k, true);
+      }
+      check ("Hammersley", ham, 3, 150, false);
+      check ("Hammersley", ham, 3, 150, true);
+   }
+
+   @Test
+   public void testRange() {
+      PointSet sobol = new SobolSequence (6, 31, 3);
+      double[][] u = points (sobol, 3);
+      PointSetIterator it = sobol.iterator (10, 40, 7);   // 10, 17, ..., 38
+      it.setCurPointIndex (2);
+      assertEquals (u[24][0], it.nextCoordinate(), 0.0);
+      assertEquals (u[24][1], it.nextCoordinate(), 0.0);
+      it.resetToNextPoint();
+      assertEquals (u[31][0], it.nextCoordinate(), 0.0);
+      it.resetCurPointIndex();
+      assertEquals (u[10][0], it.nextCoordinate(), 0.0);
+      assertFalse (sobol.iterator (40, 40, 1).hasNextPoint());
+      try {
+         sobol.iterator (0, 65, 1);
+         fail();
+      } catch (IllegalArgumentException e) {}
+      try {
+         sobol.iterator (0, 64, 0);
+         fail();
+      } catch (IllegalArgumentException e) {}
+   }
+
+   @Test
+   public void testConcurrentSum() throws InterruptedException {
+      final DigitalNetBase2 sobol = new SobolSequence (14, 31, 4);
+      sobol.addRandomShift (new MRG32k3a());
+      double expected = 0.0;
+      double[][] u = points (sobol, 4);
+      for (int i = 0; i < u.length; i++)
+         expected += u[i][0] * u[i][1] * u[i][2] * u[i][3];
+
+      final PointSetIterator[] iters = sobol.splitIterators (4, false);
+      final double[] sums = new double[4];
+      Thread[] threads = new Thread[4];
+      for (int t = 0; t < 4; t++) {
+         final int r = t;
+         threads[t] = new Thread() {
+            public void run() {
+               double[] x = new double[4];
+               double s = 0.0;
+               while (iters[r].hasNextPoint()) {
+                  iters[r].nextPoint (x, 4);
+                  s += x[0] * x[1] * x[2] * x[3];
+               }
+               sums[r] = s;
+            }
+         };
+         threads[t].start();
+      }
+      double total = 0.0;
+      for (int t = 0; t < 4; t++) {
+         threads[t].join();
+         total += sums[t];
+      }
+      assertEquals (expected, total, 1e-9);
+   }
+}
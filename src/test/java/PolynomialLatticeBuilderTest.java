@@ -0,0 +1,130 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import umontreal.ssj.hups.*;
+
+public class PolynomialLatticeBuilderTest {
+
+   // phi_alpha of u, from the position of its first nonzero digit among
+   // the first m ones.
+   private static double phi (double u, int m, double alpha) {
+      long bits = (long) (u * (1L << m));
+      double c = Math.pow (2.0, 1.0 - alpha);
+      if (bits == 0)
+         return 1.0 / (1.0 - c);
+      int t = m - (63 - Long.numberOfLeadingZeros (bits));
+      double ct = Math.pow (c, t - 1);
+      return (1.0 - ct) / (1.0 - c) - ct;
+   }
+
+   @Test
+   public void testModulus() {
+      long[] expected = {3, 7, 11, 19, 37, 67, 131, 285};
+      for (int m = 1; m <= 8; m++)
+         assertEquals (expected[m - 1],
+                       new PolynomialLatticeBuilder (m).getModulus());
+      for (long p : new long[] {31, 17, 27}) {   // Not primitive
+         try {
+            new PolynomialLatticeBuilder (4, p);
+            fail();
+         } catch (IllegalArgumentException e) {}
+      }
+      new PolynomialLatticeBuilder (4, 25);      // x^4 + x^3 + 1
+   }
+
+   @Test
+   public void testMultiplyMod() {
+      long p = 285;
+      for (long a = 0; a < 256; a += 7)
+         for (long b = 0; b < 256; b += 5) {
+            long r = 0, x = a;
+            for (int k = 0; k < 8; k++) {
+               if (((b >>> k) & 1) != 0)
+                  r ^= x;
+               x <<= 1;
+               if ((x & 256) != 0)
+                  x ^= p;
+            }
+            assertEquals (r, PolynomialLatticeBuilder.multiplyMod (a, b, p, 8));
+         }
+   }
+
+   // Each q_j minimizes the criterion, the previous ones being fixed.
+   private static void checkCbc (PolynomialLatticeBuilder b, int m, long[] q) {
+      assertEquals (1, q[0]);
+      for (int j = 1; j < q.length; j++) {
+         long[] y = q.clone();
+         double chosen = b.computeMerit (q, j + 1);
+         for (long c = 1; c < (1L << m); c++) {
+            y[j] = c;
+            assertTrue (chosen <= b.computeMerit (y, j + 1) + 1e-12);
+         }
+      }
+      assertEquals (b.computeMerit (q, q.length), b.getMerit(), 1e-12);
+   }
+
+   @Test
+   public void testCbc() {
+      for (int m : new int[] {1, 2, 5, 8}) {
+         PolynomialLatticeBuilder b = new PolynomialLatticeBuilder (m);
+         b.setProductWeights (new double[] {1.0, 0.7, 0.5, 0.3});
+         checkCbc (b, m, b.cbc (5));
+         b.setAlpha (3.5);
+         b.setOrderDependentWeights (new double[] {1.0, 0.3, 0.1});
+         checkCbc (b, m, b.cbc (5));
+      }
+   }
+
+   @Test
+   public void testThreads() {
+      // Large enough for the state of the construction to be split too.
+      int m = 14;
+      for (int weights = 0; weights < 2; weights++) {
+         PolynomialLatticeBuilder b1 = new PolynomialLatticeBuilder (m);
+         PolynomialLatticeBuilder b4 = new PolynomialLatticeBuilder (m);
+         if (weights == 0) {
+            b1.setProductWeights (new double[] {1.0, 0.8, 0.6, 0.4});
+            b4.setProductWeights (new double[] {1.0, 0.8, 0.6, 0.4});
+         } else {
+            b1.setOrderDependentWeights (new double[] {1.0, 0.5, 0.2});
+            b4.setOrderDependentWeights (new double[] {1.0, 0.5, 0.2});
+         }
+         b4.setNumThreads (4);
+         assertArrayEquals (b1.cbc (6), b4.cbc (6));
+         assertEquals (b1.getMerit(), b4.getMerit(), 0.0);
+      }
+   }
+
+   @Test
+   public void testNet() {
+      int m = 10, s = 6;
+      PolynomialLatticeBuilder b = new PolynomialLatticeBuilder (m);
+      b.setProductWeights (new double[] {1.0, 0.9, 0.8, 0.7, 0.6, 0.5});
+      DigitalNetBase2 net = b.buildNet (s);
+      assertEquals (1 << m, net.getNumPoints());
+      assertEquals (s, net.getDimension());
+      double sum = 0.0;
+      boolean[][] seen = new boolean[s][1 << m];
+      PointSetIterator it = net.iterator();
+      double[] u = new double[s];
+      while (it.hasNextPoint()) {
+         it.nextPoint (u, s);
+         double p = 1.0;
+         for (int j = 0; j < s; j++) {
+            p *= 1.0 + (j < 6 ? 1.0 - 0.1 * j : 0.5) * phi (u[j], m, 2.0);
+            int k = (int) (u[j] * (1 << m));
+            assertFalse (seen[j][k]);
+            seen[j][k] = true;
+         }
+         sum += p;
+      }
+      assertEquals (b.getMerit(), sum / (1 << m) - 1.0, 1e-12);
+
+      b.setNumThreads (3);
+      DigitalNetBase2 net3 = b.buildNet (s);
+      for (int i = 0; i < 1 << m; i++)
+         for (int j = 0; j < s; j++)
+            assertEquals (net.getCoordinate (i, j), net3.getCoordinate (i, j),
+                          0.0);
+   }
+}
@@ -0,0 +1,131 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import umontreal.ssj.hups.*;
+import umontreal.ssj.rng.*;
+import umontreal.ssj.stat.Tally;
+import umontreal.ssj.util.MultivariateFunction;
+
+public class RQMCReplicatorTest {
+
+   // Product of 12 (u_j - 1/2)^2 over the coordinates; its integral is 1.
+   static class Product implements MultivariateFunction {
+      private int dim;
+
+      Product (int dim) {
+         this.dim = dim;
+      }
+
+      public int getDimension() {
+         return dim;
+      }
+
+      public double evaluate (double... x) {
+         double prod = 1.0;
+         for (int j = 0; j < dim; j++)
+            prod *= 12.0 * (x[j] - 0.5) * (x[j] - 0.5);
+         return prod;
+      }
+
+      public double evaluateGradient (int i, double... x) {
+         throw new UnsupportedOperationException();
+      }
+   }
+
+   private static double[] points (PointSet p) {
+      int s = p.getDimension();
+      double[] x = new double[p.getNumPoints() * s];
+      double[] u = new double[s];
+      PointSetIterator it = p.iterator();
+      for (int i = 0; i < p.getNumPoints(); i++) {
+         it.nextPoint (u, s);
+         System.arraycopy (u, 0, x, i * s, s);
+      }
+      return x;
+   }
+
+   private static double[] replicates (PointSet p, PointSetRandomization rand,
+                                       int numThreads, MRG32k3a stream) {
+      RQMCReplicator rep = new RQMCReplicator (p, rand);
+      rep.setNumThreads (numThreads);
+      return rep.simulReplicates (new Product (p.getDimension()), 16,
+                                  stream.clone());
+   }
+
+   @Test
+   public void testSameForAnyNumberOfThreads() {
+      MRG32k3a stream = new MRG32k3a();
+      SobolSequence sobol = new SobolSequence (10, 31, 5);
+      double[] one = replicates (sobol, new LMScrambleShift(), 1, stream);
+      double[] three = replicates (sobol, new LMScrambleShift(), 3, stream);
+      assertArrayEquals (one, three, 0.0);
+      Tally stat = new Tally();
+      for (int r = 0; r < one.length; r++)
+         stat.add (one[r]);
+      assertEquals (1.0, stat.average(), 0.05);
+
+      Rank1Lattice lat = new Rank1Lattice (1021, new int[] {1, 306, 388}, 3);
+      assertArrayEquals (replicates (lat, new RandomShift(), 1, stream),
+                         replicates (lat, new RandomShift(), 4, stream), 0.0);
+   }
+
+   @Test
+   public void testFactory() {
+      MRG32k3a stream = new MRG32k3a();
+      SobolSequence sobol = new SobolSequence (10, 31, 5);
+      double[] shared = replicates (sobol, new LMScrambleShift(), 1, stream);
+      RQMCReplicator.RandomizationFactory factory =
+         new RQMCReplicator.RandomizationFactory() {
+            public PointSetRandomization createRandomization() {
+               return new LMScrambleShift();
+            }
+         };
+      for (int t = 1; t <= 4; t += 3) {
+         RQMCReplicator rep = new RQMCReplicator (sobol, factory);
+         rep.setNumThreads (t);
+         assertNull (rep.getRandomization());
+         assertArrayEquals (shared, rep.simulReplicates (new Product (5), 16,
+            stream.clone()), 0.0);
+      }
+      try {
+         new RQMCReplicator (sobol, (RQMCReplicator.RandomizationFactory) null);
+         fail();
+      } catch (IllegalArgumentException e) {}
+   }
+
+   @Test
+   public void testStreamAndBaseSet() {
+      SobolSequence sobol = new SobolSequence (6, 31, 4);
+      double[] before = points (sobol);
+      MRG32k3a stream = new MRG32k3a();
+      MRG32k3a check = stream.clone();
+      RQMCReplicator rep =
+         new RQMCReplicator (new RQMCPointSet (sobol, new LMScrambleShift()));
+      rep.setNumThreads (2);
+      Tally stat = new Tally();
+      rep.simulReplicates (new Product (4), 5, stream, stat);
+      assertEquals (5, stat.numberObs());
+      assertArrayEquals (before, points (sobol), 0.0);
+
+      // The stream is advanced past the substreams of the replicates.
+      for (int r = 0; r <= 5; r++)
+         check.resetNextSubstream();
+      assertEquals (check.nextDouble(), stream.nextDouble(), 0.0);
+   }
+
+   @Test
+   public void testIndependentClones() {
+      SobolSequence sobol = new SobolSequence (5, 31, 3);
+      final double[][] pts = new double[3][];
+      RQMCReplicator rep = new RQMCReplicator (sobol, new LMScrambleShift());
+      rep.setNumThreads (3);
+      rep.simulReplicates (new RQMCReplicator.Callback() {
+         public double evaluate (PointSet p, int replicate) {
+            pts[replicate] = points (p);
+            return 0.0;
+         }
+      }, 3, new MRG32k3a());
+      assertFalse (java.util.Arrays.equals (pts[0], pts[1]));
+      assertFalse (java.util.Arrays.equals (pts[1], pts[2]));
+   }
+}
@@ -0,0 +1,72 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import umontreal.ssj.rng.*;
+
+public class RandRijndaelTest {
+
+   private static void assertSameValues (String msg, RandomStream a,
+                                         RandomStream b, int n) {
+      for (int i = 0; i < n; i++)
+         assertEquals (msg + ", value " + i, a.nextDouble(), b.nextDouble(),
+                       0.0);
+   }
+
+   @Test
+   public void testKnownValues() {
+      // values of stream number 6 for the default seed
+      RandRijndael.setPackageSeed (new byte[16]);
+      for (int k = 0; k < 6; k++)
+         new RandRijndael();
+      RandomStream rng = new RandRijndael();
+      double[] expected = {0.16342411931524423, 0.5034670945016045,
+                           0.21747390408593373, 0.27134965214148404,
+                           0.26280861458210075, 0.8788371815162624};
+      for (int i = 0; i < expected.length; i++)
+         assertEquals (expected[i], rng.nextDouble(), 0.0);
+   }
+
+   @Test
+   public void testArrayMatchesSingleValues() {
+      RandRijndael a = new RandRijndael();
+      RandRijndael b = a.clone();
+      int[] sizes = {1, 3, 7, 256, 1000, 5, 4096};
+      for (int n : sizes) {
+         double[] u = new double[n + 2];
+         a.nextArrayOfDouble (u, 1, n);
+         for (int i = 0; i < n; i++)
+            assertEquals ("n = " + n + ", value " + i, b.nextDouble(),
+                          u[i + 1], 0.0);
+      }
+   }
+
+   @Test
+   public void testJumps() {
+      RandRijndael a = new RandRijndael();
+      RandRijndael b = a.clone();
+      for (long n : new long[] {0, 1, 5, 255, 256, 1001}) {
+         for (long i = 0; i < n; i++)
+            a.nextDouble();
+         b.advanceState (n);
+         assertSameValues ("advanceState " + n, a, b, 300);
+      }
+
+      RandRijndael c = new RandRijndael();
+      RandRijndael d = c.clone();
+      c.resetNextSubstream();
+      c.resetNextSubstream();
+      d.setSubstreamIndex (2);
+      assertSameValues ("substream 2", c, d, 300);
+
+      byte[] seed = new byte[16];
+      seed[0] = 17;
+      RandRijndael.setPackageSeed (seed);
+      RandRijndael[] streams = new RandRijndael[3];
+      for (int k = 0; k < streams.length; k++)
+         streams[k] = new RandRijndael();
+      for (int k = streams.length - 1; k >= 0; k--) {
+         d.setStreamIndex (k);
+         assertSameValues ("stream " + k, streams[k], d, 300);
+      }
+   }
+}
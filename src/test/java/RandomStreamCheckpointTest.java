@@ -0,0 +1,153 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import umontreal.ssj.rng.*;
+import umontreal.ssj.util.io.BinaryDataReader;
+import umontreal.ssj.util.io.BinaryDataWriter;
+
+public class RandomStreamCheckpointTest {
+
+   private static RandomStreamManager newManager() {
+      RandomStreamManager m = new RandomStreamManager();
+      m.add (new MRG32k3a());
+      m.add (new MRG31k3p());
+      m.add (new MRG32k3aL());
+      m.add (new LFSR113());
+      m.add (new LFSR258());
+      m.add (new WELL512());
+      m.add (new WELL607());
+      m.add (new WELL1024());
+      m.add (new F2NL607());
+      m.add (new MT19937 (new MRG32k3a()));
+      m.add (new Philox4x32());
+      m.add (new GenF2w32());
+      m.add (new RandRijndael());
+      return m;
+   }
+
+   // Moves the streams away from their starting points.
+   private static void run (RandomStreamManager m, int n) {
+      for (Object o : m.getStreams()) {
+         RandomStream s = (RandomStream) o;
+         for (int i = 0; i < n; i++)
+            s.nextDouble();
+      }
+      m.resetNextSubstream();
+      for (Object o : m.getStreams()) {
+         RandomStream s = (RandomStream) o;
+         for (int i = 0; i < n + 3; i++)
+            s.nextDouble();
+      }
+   }
+
+   // Values produced by the streams, including after a reset.
+   private static double[] values (RandomStreamManager m) {
+      int k = m.getStreams().size();
+      double[] v = new double[3 * 700 * k];
+      int j = 0;
+      for (int r = 0; r < 3; r++) {
+         for (Object o : m.getStreams()) {
+            RandomStream s = (RandomStream) o;
+            for (int i = 0; i < 700; i++)
+               v[j++] = s.nextDouble();
+         }
+         if (r == 0)
+            m.resetNextSubstream();
+         else
+            m.resetStartSubstream();
+      }
+      return v;
+   }
+
+   @Test
+   public void testRestoreInPlace() {
+      RandomStreamManager m = newManager();
+      ((RandomStreamBase) m.getStreams().get (0)).increasedPrecision (true);
+      run (m, 1000);
+      int[] state = m.saveState();
+      assertEquals (m.stateSize(), state.length);
+      double[] expected = values (m);
+      run (m, 517);
+      m.restoreState (state);
+      assertArrayEquals (expected, values (m), 0.0);
+   }
+
+   @Test
+   public void testByteBufferIntoNewStreams() {
+      RandomStreamManager m = newManager();
+      run (m, 1234);
+      ByteBuffer buf = ByteBuffer.allocate (4 * m.stateSize() + 8);
+      buf.putInt (42);
+      m.saveState (buf);
+      assertEquals (4 + 4 * m.stateSize(), buf.position());
+      double[] expected = values (m);
+
+      RandomStreamManager m2 = newManager();
+      buf.flip();
+      assertEquals (42, buf.getInt());
+      m2.restoreState (buf);
+      assertFalse (buf.hasRemaining());
+      assertArrayEquals (expected, values (m2), 0.0);
+   }
+
+   @Test
+   public void testBinaryDataWriter() throws Exception {
+      RandomStreamManager m = newManager();
+      run (m, 77);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      BinaryDataWriter out = new BinaryDataWriter (bytes);
+      out.write ("step", 12);
+      m.saveState (out, "rng");
+      out.close();
+      double[] expected = values (m);
+
+      BinaryDataReader in = new BinaryDataReader
+         (new ByteArrayInputStream (bytes.toByteArray()));
+      RandomStreamManager m2 = newManager();
+      m2.restoreState (in, "rng");
+      assertArrayEquals (expected, values (m2), 0.0);
+   }
+
+   @Test
+   public void testInvalidStateLeavesStreamsUnchanged() {
+      RandomStreamManager m = newManager();
+      int[] state = m.saveState();
+      run (m, 10);
+      int[] current = m.saveState();
+      // Invalid position in the output block of the Philox4x32 stream,
+      // which follows streams whose states are valid.
+      int off = 1;
+      for (int s = 0; s < 10; s++)
+         off += 2 + state[off + 1];
+      state[off + 2 + 1 + 6] = 9;
+      try {
+         m.restoreState (state);
+         fail();
+      } catch (IllegalArgumentException e) {}
+      assertArrayEquals (current, m.saveState());
+   }
+
+   @Test
+   public void testMismatchedStreams() {
+      RandomStreamManager m = newManager();
+      int[] state = m.saveState();
+      RandomStreamManager m2 = new RandomStreamManager();
+      m2.add (new MRG32k3a());
+      try {
+         m2.restoreState (state);
+         fail();
+      } catch (IllegalArgumentException e) {}
+
+      RandomStreamManager m3 = newManager();
+      m3.remove ((RandomStream) m3.getStreams().get (1));
+      m3.add (new MRG31k3p());
+      try {
+         m3.restoreState (state);
+         fail();
+      } catch (IllegalArgumentException e) {}
+   }
+}
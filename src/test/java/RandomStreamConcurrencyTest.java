@@ -0,0 +1,87 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import umontreal.ssj.rng.*;
+
+public class RandomStreamConcurrencyTest {
+
+   static final int NUM_THREADS = 64;
+   static final int STREAMS_PER_THREAD = 200;
+
+   // Creates streams of class rsClass from many threads at once and checks
+   // that no two of them start with the same values.
+   private void checkNoDuplicates (final Class rsClass) throws Exception {
+      final List<String> starts =
+         Collections.synchronizedList (new ArrayList<String>());
+      final RandomStreamFactory factory =
+         new BasicRandomStreamFactory (rsClass);
+      Thread[] threads = new Thread[NUM_THREADS];
+      for (int t = 0; t < NUM_THREADS; t++) {
+         threads[t] = new Thread() {
+            public void run() {
+               for (int i = 0; i < STREAMS_PER_THREAD; i++) {
+                  RandomStream s = factory.newInstance();
+                  starts.add (s.nextDouble() + " " + s.nextDouble());
+               }
+            }
+         };
+      }
+      for (Thread th : threads)
+         th.start();
+      for (Thread th : threads)
+         th.join();
+      Set<String> distinct = new HashSet<String> (starts);
+      assertEquals (rsClass.getName(), NUM_THREADS * STREAMS_PER_THREAD,
+                    distinct.size());
+   }
+
+   @Test
+   public void testNoDuplicateSeeds() throws Exception {
+      checkNoDuplicates (MRG32k3a.class);
+      checkNoDuplicates (MRG31k3p.class);
+      checkNoDuplicates (LFSR113.class);
+      checkNoDuplicates (LFSR258.class);
+   }
+
+   @Test
+   public void testIndexedFactoryIsReproducible() throws Exception {
+      final int n = NUM_THREADS * 8;
+      long[] seed = {12345, 23456, 34567, 45678, 56789, 67890};
+
+      // reference: streams created sequentially
+      MRG32k3a.setPackageSeed (seed);
+      double[] expected = new double[n];
+      for (int k = 0; k < n; k++)
+         expected[k] = new MRG32k3a().nextDouble();
+
+      // the same streams requested concurrently, in a scrambled order
+      MRG32k3a.setPackageSeed (seed);
+      final IndexedRandomStreamFactory factory =
+         new IndexedRandomStreamFactory (MRG32k3a.class);
+      final double[] actual = new double[n];
+      Thread[] threads = new Thread[NUM_THREADS];
+      for (int t = 0; t < NUM_THREADS; t++) {
+         final int offset = t;
+         threads[t] = new Thread() {
+            public void run() {
+               for (int i = 0; i < n / NUM_THREADS; i++) {
+                  int k = n - 1 - (i * NUM_THREADS + offset);
+                  actual[k] = factory.newInstance (k).nextDouble();
+               }
+            }
+         };
+      }
+      for (Thread th : threads)
+         th.start();
+      for (Thread th : threads)
+         th.join();
+      for (int k = 0; k < n; k++)
+         assertEquals ("stream " + k, expected[k], actual[k], 0.0);
+   }
+}
@@ -0,0 +1,203 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import umontreal.ssj.rng.*;
+
+public class RandomStreamJumpTest {
+
+   private static void assertSameValues (String msg, RandomStream a,
+                                         RandomStream b, int n) {
+      for (int i = 0; i < n; i++)
+         assertEquals (msg + ", value " + i, a.nextDouble(), b.nextDouble(),
+                       0.0);
+   }
+
+   private static void skip (RandomStream s, long n) {
+      for (long i = 0; i < n; i++)
+         s.nextDouble();
+   }
+
+   @Test
+   public void testAdvanceStateMatchesStepping() {
+      long[] steps = {0, 1, 2, 113, 1000, 20000};
+      for (long n : steps) {
+         LFSR113 a = new LFSR113();
+         LFSR113 b = a.clone();
+         a.advanceState (n);
+         skip (b, n);
+         assertSameValues ("LFSR113, n = " + n, a, b, 1000);
+
+         WELL1024 c = new WELL1024();
+         WELL1024 d = c.clone();
+         c.nextDouble();
+         d.nextDouble();
+         c.advanceState (n);
+         skip (d, n);
+         assertSameValues ("WELL1024, n = " + n, c, d, 1000);
+
+         F2NL607 e = new F2NL607();
+         F2NL607 f = e.clone();
+         e.advanceState (n);
+         skip (f, n);
+         assertSameValues ("F2NL607, n = " + n, e, f, 1000);
+      }
+   }
+
+   @Test
+   public void testMT19937AdvanceState() {
+      MT19937 rng = new MT19937 (new MRG32k3a());
+      long[] steps = {1, 623, 624, 625, 5000};
+      int[] before = {0, 1, 624};
+      for (long n : steps)
+         for (int m : before) {
+            MT19937 a = rng.clone();
+            MT19937 b = rng.clone();
+            skip (a, m);
+            skip (b, m);
+            a.advanceState (n);
+            skip (b, n);
+            assertSameValues ("n = " + n + " after " + m, a, b, 1000);
+         }
+   }
+
+   @Test
+   public void testStreamAndSubstreamIndex() {
+      int[] seed = new int[32];
+      for (int i = 0; i < seed.length; i++)
+         seed[i] = 12345 + 7919 * i;
+      WELL1024.setPackageSeed (seed);
+      WELL1024[] streams = new WELL1024[4];
+      for (int k = 0; k < streams.length; k++)
+         streams[k] = new WELL1024();
+      WELL1024 s = new WELL1024();
+      for (int k = 0; k < streams.length; k++) {
+         s.setStreamIndex (k);
+         assertSameValues ("stream " + k, streams[k], s, 1000);
+      }
+
+      LFSR258 a = new LFSR258();
+      LFSR258 b = a.clone();
+      for (int j = 0; j < 3; j++)
+         a.resetNextSubstream();
+      b.setSubstreamIndex (3);
+      assertSameValues ("substream 3", a, b, 1000);
+   }
+
+   // Numbers of steps checked against nextDouble for the MRGs.
+   private static final long[] MRG_STEPS = {0, 1, 2, 1000, 200000};
+   private static final BigInteger TWO64_PLUS_5 =
+      BigInteger.ONE.shiftLeft (64).add (BigInteger.valueOf (5));
+
+   @Test
+   public void testMRG32k3aAdvanceState() {
+      MRG32k3a rng = new MRG32k3a();
+      rng.nextDouble();
+      for (long n : MRG_STEPS) {
+         MRG32k3a a = rng.clone();
+         MRG32k3a b = rng.clone();
+         MRG32k3a c = rng.clone();
+         a.advanceState (n);
+         c.advanceState (BigInteger.valueOf (n));
+         skip (b, n);
+         MRG32k3a d = b.clone();
+         assertSameValues ("MRG32k3a, n = " + n, a, b, 1000);
+         assertSameValues ("MRG32k3a BigInteger, n = " + n, c, d, 1000);
+      }
+      // 2^64 + 5 steps, which does not fit in a long.
+      MRG32k3a a = rng.clone();
+      MRG32k3a b = rng.clone();
+      a.advanceState (TWO64_PLUS_5);
+      b.advanceState (Long.MAX_VALUE);
+      b.advanceState (Long.MAX_VALUE);
+      b.advanceState (7);
+      assertSameValues ("MRG32k3a, n = 2^64 + 5", a, b, 1000);
+      // Backward, then the length of a substream.
+      a = rng.clone();
+      a.advanceState (12345);
+      a.advanceState (-12345);
+      assertSameValues ("MRG32k3a, backward", a, rng.clone(), 1000);
+      a = rng.clone();
+      a.resetStartSubstream();
+      a.advanceState (BigInteger.ONE.shiftLeft (76));
+      b = rng.clone();
+      b.resetNextSubstream();
+      assertSameValues ("MRG32k3a, n = 2^76", a, b, 1000);
+   }
+
+   @Test
+   public void testMRG31k3pAdvanceState() {
+      MRG31k3p rng = new MRG31k3p();
+      rng.nextDouble();
+      for (long n : MRG_STEPS) {
+         MRG31k3p a = rng.clone();
+         MRG31k3p b = rng.clone();
+         MRG31k3p c = rng.clone();
+         a.advanceState (n);
+         c.advanceState (BigInteger.valueOf (n));
+         skip (b, n);
+         MRG31k3p d = b.clone();
+         assertSameValues ("MRG31k3p, n = " + n, a, b, 1000);
+         assertSameValues ("MRG31k3p BigInteger, n = " + n, c, d, 1000);
+      }
+      // 2^64 + 5 steps, which does not fit in a long.
+      MRG31k3p a = rng.clone();
+      MRG31k3p b = rng.clone();
+      a.advanceState (TWO64_PLUS_5);
+      b.advanceState (Long.MAX_VALUE);
+      b.advanceState (Long.MAX_VALUE);
+      b.advanceState (7);
+      assertSameValues ("MRG31k3p, n = 2^64 + 5", a, b, 1000);
+      // Backward, then the length of a substream.
+      a = rng.clone();
+      a.advanceState (12345);
+      a.advanceState (-12345);
+      assertSameValues ("MRG31k3p, backward", a, rng.clone(), 1000);
+      a = rng.clone();
+      a.resetStartSubstream();
+      a.advanceState (BigInteger.ONE.shiftLeft (72));
+      b = rng.clone();
+      b.resetNextSubstream();
+      assertSameValues ("MRG31k3p, n = 2^72", a, b, 1000);
+   }
+
+   @Test
+   public void testMRGStreamAndSubstreamIndex() {
+      MRG32k3a.setPackageSeed (new long[] {12345, 12345, 12345, 12345, 12345,
+                                           12345});
+      MRG31k3p.setPackageSeed (new int[] {12345, 12345, 12345, 12345, 12345,
+                                          12345});
+      MRG32k3a[] s32 = new MRG32k3a[4];
+      MRG31k3p[] s31 = new MRG31k3p[4];
+      for (int k = 0; k < 4; k++) {
+         s32[k] = new MRG32k3a();
+         s31[k] = new MRG31k3p();
+      }
+      MRG32k3a a = new MRG32k3a();
+      MRG31k3p b = new MRG31k3p();
+      for (int k = 3; k >= 0; k--) {
+         a.setStreamIndex (k);
+         b.setStreamIndex (k);
+         assertSameValues ("MRG32k3a, stream " + k, s32[k], a, 1000);
+         assertSameValues ("MRG31k3p, stream " + k, s31[k], b, 1000);
+      }
+
+      for (int j = 0; j <= 5; j += 5) {
+         MRG32k3a c = new MRG32k3a();
+         MRG31k3p d = new MRG31k3p();
+         MRG32k3a e = c.clone();
+         MRG31k3p f = d.clone();
+         for (int i = 0; i < j; i++) {
+            c.resetNextSubstream();
+            d.resetNextSubstream();
+         }
+         e.nextDouble();
+         f.nextDouble();
+         e.setSubstreamIndex (j);
+         f.setSubstreamIndex (j);
+         assertSameValues ("MRG32k3a, substream " + j, c, e, 1000);
+         assertSameValues ("MRG31k3p, substream " + j, d, f, 1000);
+      }
+   }
+}
@@ -0,0 +1,157 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import umontreal.ssj.hups.*;
+
+public class Rank1LatticeBuilderTest {
+
+   private static int gcd (int a, int b) {
+      return b == 0 ? a : gcd (b, a % b);
+   }
+
+   // Checks that each component of z minimizes the criterion, the previous
+   // ones being fixed, by computing it directly for all the candidates.
+   // Equivalent candidates give ties, up to the cancellation in the sums
+   // over the points, whose terms are of order 1.
+   private static void checkCbc (Rank1LatticeBuilder b, int n, int[] z) {
+      assertEquals (1, z[0]);
+      for (int j = 1; j < z.length; j++) {
+         int[] y = z.clone();
+         double chosen = b.computeMerit (z, j + 1);
+         for (int c = 1; c < n; c++) {
+            if (gcd (c, n) != 1)
+               continue;
+            y[j] = c;
+            assertTrue ("n = " + n + ", z_" + j + " = " + c,
+                        chosen <= b.computeMerit (y, j + 1) + 1e-12);
+         }
+      }
+      assertEquals (b.computeMerit (z, z.length), b.getMerit(), 1e-12);
+   }
+
+   @Test
+   public void testPAlpha() {
+      for (int n : new int[] {2, 8, 64, 101, 256, 257, 1024}) {
+         Rank1LatticeBuilder b = new Rank1LatticeBuilder (n);
+         b.setProductWeights (new double[] {1.0, 0.8, 0.5, 0.3, 0.2});
+         checkCbc (b, n, b.cbc (5));
+         b.setAlpha (4);
+         checkCbc (b, n, b.cbc (4));
+         b.setAlpha (6);
+         b.setOrderDependentWeights (new double[] {1.0, 0.5, 0.1});
+         checkCbc (b, n, b.cbc (5));
+      }
+   }
+
+   @Test
+   public void testSpectral() {
+      for (int n : new int[] {101, 128}) {
+         Rank1LatticeBuilder b = new Rank1LatticeBuilder (n);
+         b.setCriterion (Rank1LatticeBuilder.Criterion.SPECTRAL);
+         b.setProductWeights (new double[] {1.0, 0.9, 0.7, 0.5});
+         int[] z = b.cbc (4);
+         // With the spectral criterion, z_j minimizes the ratios of the
+         // projections {i, j}, i < j, which may be smaller than the merit
+         // of the previous coordinates.
+         for (int j = 1; j < 4; j++) {
+            int[] y = z.clone();
+            double prev = j > 1 ? b.computeMerit (z, j) : 0.0;
+            double chosen = Math.max (prev, b.computeMerit (z, j + 1));
+            for (int c = 1; c < n; c++) {
+               if (gcd (c, n) != 1)
+                  continue;
+               y[j] = c;
+               assertTrue (chosen <= b.computeMerit (y, j + 1) + 1e-12);
+            }
+         }
+         assertEquals (b.computeMerit (z, 4), b.getMerit(), 1e-12);
+      }
+   }
+
+   @Test
+   public void testEmbedded() {
+      int m = 8, mMin = 4;
+      Rank1LatticeBuilder b = new Rank1LatticeBuilder (1 << m);
+      int[] z = b.embeddedCbc (4, mMin);
+      assertEquals (b.computeMerit (z, 4), b.getMerit(), 1e-10);
+      Rank1LatticeBuilder[] levels = new Rank1LatticeBuilder[m + 1];
+      for (int k = mMin; k <= m; k++)
+         levels[k] = new Rank1LatticeBuilder (1 << k);
+      for (int j = 1; j < 4; j++) {
+         // Best value of each level, then worst ratio for each candidate.
+         int[] y = z.clone();
+         double[] min = new double[m + 1];
+         java.util.Arrays.fill (min, Double.POSITIVE_INFINITY);
+         for (int c = 1; c < (1 << m); c += 2) {
+            y[j] = c;
+            for (int k = mMin; k <= m; k++)
+               min[k] = Math.min (min[k], levels[k].computeMerit (y, j + 1));
+         }
+         double chosen = 0.0;
+         for (int k = mMin; k <= m; k++)
+            chosen = Math.max (chosen,
+                               levels[k].computeMerit (z, j + 1) / min[k]);
+         for (int c = 1; c < (1 << m); c += 2) {
+            y[j] = c;
+            double r = 0.0;
+            for (int k = mMin; k <= m; k++)
+               r = Math.max (r, levels[k].computeMerit (y, j + 1) / min[k]);
+            assertTrue (chosen <= r * (1 + 1e-10));
+         }
+      }
+      Rank1Lattice lat = new Rank1Lattice (1 << m, z, 4);
+      lat.setNumPoints (1 << mMin);
+      assertEquals (1 << mMin, lat.getNumPoints());
+   }
+
+   @Test
+   public void testKorobov() {
+      int n = 251;
+      Rank1LatticeBuilder b = new Rank1LatticeBuilder (n);
+      int a = b.searchKorobov (5);
+      double best = b.getMerit();
+      for (int c = 1; c < n; c++) {
+         int[] z = new int[5];
+         z[0] = 1;
+         for (int j = 1; j < 5; j++)
+            z[j] = z[j - 1] * c % n;
+         assertTrue (best <= b.computeMerit (z, 5) * (1 + 1e-10));
+      }
+      KorobovLattice lat = b.buildKorobovLattice (5);
+      assertEquals (n, lat.getNumPoints());
+      assertEquals (a, b.searchKorobov (5));
+   }
+
+   @Test
+   public void testThreads() {
+      for (Rank1LatticeBuilder.Criterion crit :
+              Rank1LatticeBuilder.Criterion.values()) {
+         Rank1LatticeBuilder b = new Rank1LatticeBuilder (4096);
+         b.setCriterion (crit);
+         int[] z1 = b.cbc (6);
+         int a1 = b.searchKorobov (3);
+         b.setNumThreads (3);
+         assertArrayEquals (z1, b.cbc (6));
+         assertEquals (a1, b.searchKorobov (3));
+      }
+      Rank1Lattice lat = new Rank1LatticeBuilder (1021).buildRank1Lattice (8);
+      assertEquals (1021, lat.getNumPoints());
+      assertEquals (8, lat.getDimension());
+   }
+
+   @Test
+   public void testBadArguments() {
+      try {
+         new Rank1LatticeBuilder (100);
+         fail();
+      } catch (IllegalArgumentException e) {}
+      try {
+         new Rank1LatticeBuilder (101).embeddedCbc (3, 2);
+         fail();
+      } catch (UnsupportedOperationException e) {}
+      try {
+         new Rank1LatticeBuilder (64).setAlpha (3);
+         fail();
+      } catch (IllegalArgumentException e) {}
+   }
+}
@@ -0,0 +1,110 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import umontreal.ssj.hups.*;
+
+public class SobolDirectionNumbersTest {
+
+   // Gives access to the built-in table of SobolSequence.
+   static class BuiltIn extends SobolSequence {
+      BuiltIn() {
+         super (1, 31, 1);
+      }
+
+      // The built-in table in the text format of F. Kuo's files.
+      static String text (int dim) {
+         StringBuilder sb = new StringBuilder ("d s a m_i\n");
+         for (int j = 1; j < dim; j++) {
+            int s = 31 - Integer.numberOfLeadingZeros (poly[j]);
+            int a = (poly[j] >> 1) & ((1 << (s - 1)) - 1);
+            sb.append ((j + 1) + " " + s + " " + a);
+            for (int i = 0; i < s; i++)
+               sb.append (" " + minit[j - 1][i]);
+            sb.append ("\n");
+         }
+         return sb.toString();
+      }
+   }
+
+   private static byte[] binary (String text) throws IOException {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      SobolDirectionNumbers.convert (new StringReader (text), out);
+      return out.toByteArray();
+   }
+
+   private static void assertSamePoints (PointSet p, PointSet q) {
+      assertEquals (p.getNumPoints(), q.getNumPoints());
+      PointSetIterator it = p.iterator();
+      PointSetIterator jt = q.iterator();
+      double[] u = new double[p.getDimension()];
+      double[] v = new double[p.getDimension()];
+      while (it.hasNextPoint()) {
+         it.nextPoint (u, u.length);
+         jt.nextPoint (v, v.length);
+         assertArrayEquals (u, v, 0.0);
+      }
+   }
+
+   @Test
+   public void testSameAsBuiltIn() throws IOException {
+      byte[] bin = binary (BuiltIn.text (360));
+      SobolDirectionNumbers numbers =
+         new SobolDirectionNumbers (ByteBuffer.wrap (bin));
+      assertEquals (360, numbers.getDimension());
+      assertEquals (1, numbers.getPolynomial (0));
+      assertEquals (0, numbers.getDirectionNumbers (0).length);
+      assertEquals (7, numbers.getPolynomial (2));   // x^2 + x + 1
+      assertArrayEquals (new int[] {1, 1}, numbers.getDirectionNumbers (2));
+
+      SobolSequence ref = new SobolSequence (10, 31, 360);
+      SobolSequence seq = new SobolSequence (numbers, 10, 31, 360);
+      assertSamePoints (ref, seq);
+      ref.extendSequence (12);
+      seq.extendSequence (12);
+      assertSamePoints (ref, seq);
+      assertSamePoints (new SobolSequence (8, 20, 50),
+                        new SobolSequence (numbers, 8, 20, 50));
+   }
+
+   @Test
+   public void testMappedFile() throws IOException {
+      File txt = File.createTempFile ("sobol", ".txt");
+      File bin = File.createTempFile ("sobol", ".dat");
+      txt.deleteOnExit();
+      bin.deleteOnExit();
+      Writer w = new FileWriter (txt);
+      w.write (BuiltIn.text (100));
+      w.close();
+      SobolDirectionNumbers.main (new String[] {txt.getPath(), bin.getPath()});
+
+      SobolDirectionNumbers numbers =
+         new SobolDirectionNumbers (bin.getPath());
+      assertEquals (100, numbers.getDimension());
+      assertSamePoints (new SobolSequence (txt.getPath(), 9, 31, 100),
+                        new SobolSequence (numbers, 9, 31, 100));
+   }
+
+   @Test
+   public void testBadInput() throws IOException {
+      try {
+         new SobolDirectionNumbers (ByteBuffer.wrap (new byte[16]));
+         fail();
+      } catch (IllegalArgumentException e) {}
+      try {
+         binary ("comment\n2 1 0 1\n4 2 1 1 3\n");    // Dimension 3 missing
+         fail();
+      } catch (IllegalArgumentException e) {}
+      try {
+         binary ("comment\n2 2 1 1 2\n");            // Even m_2
+         fail();
+      } catch (IllegalArgumentException e) {}
+      SobolDirectionNumbers numbers = new SobolDirectionNumbers (
+         ByteBuffer.wrap (binary (BuiltIn.text (10))));
+      try {
+         new SobolSequence (numbers, 5, 31, 11);
+         fail();
+      } catch (IllegalArgumentException e) {}
+   }
+}
@@ -0,0 +1,173 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import umontreal.ssj.hups.*;
+import umontreal.ssj.markovchainrqmc.*;
+import umontreal.ssj.rng.*;
+import umontreal.ssj.util.io.BinaryDataReader;
+import umontreal.ssj.util.io.BinaryDataWriter;
+import umontreal.ssj.util.sort.OneDimSort;
+
+public class VarianceRateExperimentTest {
+
+   // Autoregressive chain with a smooth performance.
+   public static class Chain extends MarkovChainComparable {
+      double x;
+
+      public Chain() {
+         stateDim = 1;
+      }
+
+      public void initialState() {
+         x = 0.0;
+         stopped = false;
+      }
+
+      public void nextStep (RandomStream stream) {
+         x = 0.5 * x + stream.nextDouble();
+      }
+
+      public double getPerformance() {
+         return x * x;
+      }
+
+      public int compareTo (MarkovChainComparable other, int j) {
+         return Double.compare (x, ((Chain) other).x);
+      }
+   }
+
+   private static final VarianceRateExperiment.SimulatorFactory FACTORY =
+      new VarianceRateExperiment.SimulatorFactory() {
+         public VarianceRateExperiment.Simulator createSimulator() {
+            ArrayOfComparableChains<Chain> array =
+               new ArrayOfComparableChains<Chain> (new Chain(),
+                  new LMScrambleShift (new MRG32k3a()),
+                  new OneDimSort<Chain> (0));
+            return VarianceRateExperiment.arrayRQMC (array, 4);
+         }
+      };
+
+   private static PointSet[][] pointSets() {
+      PointSet[] sobol = new PointSet[4];
+      for (int j = 0; j < sobol.length; j++)
+         sobol[j] = new SobolSequence (6 + j, 31, 1);
+      return new PointSet[][] {sobol, {new SobolSequence (7, 31, 1)}};
+   }
+
+   private static double[][] run (VarianceRateExperiment exp,
+                                  MRG32k3a stream) throws Exception {
+      PointSet[][] sets = pointSets();
+      exp.simulReplicates (sets, 6, stream.clone());
+      double[][] values = new double[5][];
+      for (int j = 0; j < 4; j++)
+         values[j] = exp.getValues (0, j);
+      values[4] = exp.getValues (1, 0);
+      return values;
+   }
+
+   @Test
+   public void testSameForAnyThreads() throws Exception {
+      MRG32k3a stream = new MRG32k3a();
+      VarianceRateExperiment exp = new VarianceRateExperiment (FACTORY);
+      double[][] seq = run (exp, stream);
+      double slope = exp.getSlope (0);
+      assertTrue (slope < -1.0);
+      assertEquals (0.0, exp.getSlope (1), 0.0);
+      assertTrue (exp.formatResults (1.0, null).contains ("n = 512"));
+
+      exp = new VarianceRateExperiment (FACTORY);
+      exp.setNumThreads (3);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      exp.setDataWriter (new BinaryDataWriter (out));
+      double[][] par = run (exp, stream);
+      for (int j = 0; j < seq.length; j++)
+         assertArrayEquals (seq[j], par[j], 0.0);
+      assertEquals (slope, exp.getSlope (0), 0.0);
+
+      // All the cells were written.
+      BinaryDataReader reader = new BinaryDataReader (
+         new ByteArrayInputStream (out.toByteArray()));
+      assertEquals (30, reader.readAllFields().size());
+      reader = new BinaryDataReader (
+         new ByteArrayInputStream (out.toByteArray()));
+      assertEquals (seq[2][5], reader.readDouble (
+         VarianceRateExperiment.cellLabel (0, 2, 256, 5)), 0.0);
+   }
+
+   @Test
+   public void testResume() throws Exception {
+      MRG32k3a stream = new MRG32k3a();
+      VarianceRateExperiment exp = new VarianceRateExperiment (FACTORY);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      exp.setDataWriter (new BinaryDataWriter (out));
+      double[][] full = run (exp, stream);
+
+      // Interrupted in the middle of a field.
+      byte[] bytes = out.toByteArray();
+      bytes = Arrays.copyOf (bytes, bytes.length / 2 + 3);
+      exp = new VarianceRateExperiment (FACTORY);
+      int count = exp.resume (new BinaryDataReader (
+         new ByteArrayInputStream (bytes)));
+      assertTrue (count > 0 && count < 30);
+      out = new ByteArrayOutputStream();
+      exp.setDataWriter (new BinaryDataWriter (out));
+      exp.setNumThreads (2);
+      double[][] resumed = run (exp, stream);
+      for (int j = 0; j < full.length; j++)
+         assertArrayEquals (full[j], resumed[j], 0.0);
+      assertEquals (30, new BinaryDataReader (new ByteArrayInputStream (
+         out.toByteArray())).readAllFields().size());
+   }
+
+   @Test
+   public void testSameSizeInSeries() throws Exception {
+      // Two point sets of 128 points in the same series.
+      PointSet[][] sets = {{new SobolSequence (7, 31, 1),
+                            new SobolSequence (7, 31, 2)}};
+      MRG32k3a stream = new MRG32k3a();
+      VarianceRateExperiment exp = new VarianceRateExperiment (FACTORY);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      exp.setDataWriter (new BinaryDataWriter (out));
+      exp.simulReplicates (sets, 3, stream.clone());
+      double[] sobol1 = exp.getValues (0, 0).clone();
+      double[] sobol2 = exp.getValues (0, 1).clone();
+      assertFalse (Arrays.equals (sobol1, sobol2));
+
+      exp = new VarianceRateExperiment (FACTORY);
+      assertEquals (6, exp.resume (new BinaryDataReader (
+         new ByteArrayInputStream (out.toByteArray()))));
+      exp.simulReplicates (sets, 3, stream.clone());
+      assertArrayEquals (sobol1, exp.getValues (0, 0), 0.0);
+      assertArrayEquals (sobol2, exp.getValues (0, 1), 0.0);
+   }
+
+   @Test
+   public void testBadArguments() throws Exception {
+      VarianceRateExperiment exp = new VarianceRateExperiment (FACTORY);
+      try {
+         exp.setNumThreads (0);
+         fail();
+      } catch (IllegalArgumentException e) {}
+      try {
+         exp.simulReplicates (pointSets(), 4, new RandomStream() {
+            public void resetStartStream() {}
+            public void resetStartSubstream() {}
+            public void resetNextSubstream() {}
+            public double nextDouble() { return 0.5; }
+            public void nextArrayOfDouble (double[] u, int start, int n) {}
+            public int nextInt (int i, int j) { return i; }
+            public void nextArrayOfInt (int i, int j, int[] u, int start,
+                                        int n) {}
+         });
+         fail();
+      } catch (IllegalArgumentException e) {}
+      try {
+         exp.getSlope (0);
+         fail();
+      } catch (IllegalStateException e) {}
+   }
+}